@@ -0,0 +1,34 @@
+package net.mikaboshi.csv;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * <p>
+ * CSVのベンチマークで、処理した行数とバイト数を集計するカウンタ。
+ * </p><p>
+ * JMHの副次的な結果として、rows（行/秒）と bytes（バイト/秒）が出力される。
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class CSVBenchmarkCounters {
+
+	/** 処理した行数 */
+	public long rows;
+
+	/** 処理したCSVのバイト数 */
+	public long bytes;
+
+	@Setup(Level.Iteration)
+	public void clear() {
+		this.rows = 0L;
+		this.bytes = 0L;
+	}
+}
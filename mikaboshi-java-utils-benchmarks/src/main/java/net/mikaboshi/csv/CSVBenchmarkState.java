@@ -0,0 +1,116 @@
+package net.mikaboshi.csv;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * <p>
+ * CSVのベンチマークで使用する、パラメータとテストデータ。
+ * </p><p>
+ * 項目の幅、引用符で囲む必要のある項目の割合、区切り文字、文字セットの組み合わせごとに、
+ * {@link #ROWS} 行 × {@link #COLUMNS} 列のデータを生成する。
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+@State(Scope.Benchmark)
+public class CSVBenchmarkState {
+
+	/** 1回の操作で処理する行数 */
+	public static final int ROWS = 1000;
+
+	/** 1行の項目数 */
+	public static final int COLUMNS = 10;
+
+	/** 項目の文字数 */
+	@Param({"8", "64", "512"})
+	public int fieldWidth;
+
+	/** 引用符で囲む必要のある（区切り文字・引用符・改行を含む）項目の割合 */
+	@Param({"0.0", "0.1", "1.0"})
+	public double quoteDensity;
+
+	/** 区切り文字 */
+	@Param({",", "\t", "<>"})
+	public String delimiter;
+
+	/** 文字セット */
+	@Param({"UTF-8", "Windows-31J"})
+	public String charset;
+
+	/** 項目の値 */
+	public String[][] rows;
+
+	/** 出力したCSVのバイト列 */
+	public byte[] bytes;
+
+	public StandardCSVStrategy csvStrategy;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.csvStrategy = new StandardCSVStrategy();
+		this.csvStrategy.setDelimiter(this.delimiter);
+
+		Random random = new Random(0L);
+		this.rows = new String[ROWS][COLUMNS];
+
+		for (int i = 0; i < ROWS; i++) {
+			for (int j = 0; j < COLUMNS; j++) {
+				this.rows[i][j] = createField(random);
+			}
+		}
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(baos, this.charset));
+
+		for (String[] row : this.rows) {
+			this.csvStrategy.printLine(row, out);
+		}
+
+		out.close();
+		this.bytes = baos.toByteArray();
+	}
+
+	private String createField(Random random) {
+		StringBuilder sb = new StringBuilder(this.fieldWidth);
+
+		for (int i = 0; i < this.fieldWidth; i++) {
+			// ASCIIと全角文字を混ぜる
+			if (random.nextInt(4) == 0) {
+				sb.append((char) ('あ' + random.nextInt(80)));
+			} else {
+				sb.append((char) ('a' + random.nextInt(26)));
+			}
+		}
+
+		if (random.nextDouble() < this.quoteDensity) {
+			// 引用符で囲む必要のある文字を、項目の中ほどに入れる
+			String special;
+
+			switch (random.nextInt(3)) {
+			case 0:
+				special = this.delimiter;
+				break;
+			case 1:
+				special = "\"";
+				break;
+			default:
+				special = "\r\n";
+				break;
+			}
+
+			sb.insert(this.fieldWidth / 2, special);
+		}
+
+		return sb.toString();
+	}
+}
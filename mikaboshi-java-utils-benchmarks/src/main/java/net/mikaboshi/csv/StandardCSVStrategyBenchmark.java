@@ -0,0 +1,115 @@
+package net.mikaboshi.csv;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * <p>
+ * {@link StandardCSVStrategy} のパースと出力のベンチマーク。
+ * </p><p>
+ * 1回の操作で {@link CSVBenchmarkState#ROWS} 行を処理する。
+ * 行数とバイト数のスループットは、副次的な結果の rows, bytes として出力される。
+ * アロケーションレートを計測する場合は、<code>-prof gc</code> を指定して実行する。
+ * </p>
+ * <pre>
+ * java -jar target/benchmarks.jar StandardCSVStrategyBenchmark -prof gc
+ * </pre>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StandardCSVStrategyBenchmark {
+
+	/**
+	 * バイト列をデコードし、CSVとしてパースする。
+	 */
+	@Benchmark
+	public void parse(CSVBenchmarkState state, CSVBenchmarkCounters counters, Blackhole bh)
+			throws IOException {
+
+		InputStreamReader reader = new InputStreamReader(
+				new ByteArrayInputStream(state.bytes), state.charset);
+
+		long rows = 0L;
+
+		for (String[] line : state.csvStrategy.csvLines(reader)) {
+			bh.consume(line);
+			rows++;
+		}
+
+		counters.rows += rows;
+		counters.bytes += state.bytes.length;
+	}
+
+	/**
+	 * 各行を {@link StandardCSVStrategy#printLine(Object[], PrintWriter)} で出力し、エンコードする。
+	 */
+	@Benchmark
+	public void printLine(CSVBenchmarkState state, CSVBenchmarkCounters counters)
+			throws IOException {
+
+		CountingOutputStream os = new CountingOutputStream();
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(os, state.charset));
+
+		for (String[] row : state.rows) {
+			state.csvStrategy.printLine(row, out);
+		}
+
+		out.close();
+
+		counters.rows += state.rows.length;
+		counters.bytes += os.count;
+	}
+
+	/**
+	 * 各項目を {@link StandardCSVStrategy#escape(Object)} でエスケープする。
+	 */
+	@Benchmark
+	public void escape(CSVBenchmarkState state, CSVBenchmarkCounters counters, Blackhole bh) {
+		for (String[] row : state.rows) {
+			for (String item : row) {
+				bh.consume(state.csvStrategy.escape(item));
+			}
+		}
+
+		counters.rows += state.rows.length;
+		counters.bytes += state.bytes.length;
+	}
+
+	/**
+	 * 書き込んだバイト数を数えるだけの出力ストリーム。
+	 */
+	private static class CountingOutputStream extends OutputStream {
+
+		long count = 0L;
+
+		@Override
+		public void write(int b) {
+			this.count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			this.count += len;
+		}
+	}
+}
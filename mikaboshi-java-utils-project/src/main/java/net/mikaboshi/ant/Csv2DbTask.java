@@ -5,15 +5,27 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
 import java.io.Reader;
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Iterator;
 
+import net.mikaboshi.csv.CSVLineOffsetInputStream;
 import net.mikaboshi.csv.CSVStrategy;
+import net.mikaboshi.csv.ParallelCSVReader;
 import net.mikaboshi.csv.StandardCSVStrategy;
+import net.mikaboshi.csv.TypedCSVReader;
+import net.mikaboshi.io.CompressionUtils;
+import net.mikaboshi.io.RandomAccessFileInputStream;
 import net.mikaboshi.jdbc.ArrayToDbImporter;
 import net.mikaboshi.jdbc.DbUtils;
+import net.mikaboshi.jdbc.ParallelDbImporter;
+import net.mikaboshi.jdbc.bulk.AbstractBulkLoader;
+import net.mikaboshi.jdbc.bulk.BulkLoader;
+import net.mikaboshi.jdbc.bulk.BulkLoaders;
+import net.mikaboshi.validator.SimpleValidator;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.tools.ant.BuildException;
@@ -108,6 +120,94 @@ public class Csv2DbTask extends File2DbTask {
 		return this.csvStrategy;
 	}
 
+	private int parserThreads = 1;
+	
+	/**
+	 * <p>
+	 * CSV ファイルのパースに使用するスレッド数を指定する。（省略可。デフォルトは1）
+	 * </p><p>
+	 * 2以上を指定し、CSVStrategy が {@link StandardCSVStrategy} の場合は、
+	 * ファイルを分割して並列にパースする。
+	 * DB へのインポートは、ファイル上の順序どおりに1つのコネクションで行われる。
+	 * </p>
+	 * 
+	 * @param parserThreads パースに使用するスレッド数（1以上）
+	 * @since 1.1.10
+	 */
+	public void setParserThreads(int parserThreads) {
+		SimpleValidator.validatePositive(parserThreads, "parserThreads", BuildException.class);
+		this.parserThreads = parserThreads;
+	}
+	
+	private String compression = CompressionUtils.AUTO;
+	
+	/**
+	 * <p>
+	 * CSV ファイルの圧縮形式を指定する。（省略可。デフォルトは auto）
+	 * </p><p>
+	 * auto の場合は、拡張子で判定する。（.gz は gzip、.deflate と .zz は deflate、それ以外は none）
+	 * 圧縮されたファイルは、一時ファイルに伸長せずにストリームのまま読み込む。
+	 * 圧縮されたファイルは、parserThreads の指定に関わらず1つのスレッドでパースする。
+	 * </p>
+	 * 
+	 * @param compression auto, gzip, deflate, none のいずれか
+	 * @since 1.1.10
+	 */
+	public void setCompression(String compression) {
+		// 不正な値はここでエラーとする
+		CompressionUtils.normalize(compression, null);
+		this.compression = compression;
+	}
+	
+	private boolean bulkLoad = false;
+	
+	/**
+	 * <p>
+	 * DB製品固有の一括ロードの機能でインポートするかどうかを指定する。（省略可。デフォルトは false）
+	 * </p><p>
+	 * true の場合、DB の製品名から {@link BulkLoader} を選択し、
+	 * nullString とカラムの順序を適用した CSV を一括ロードする。
+	 * （PostgreSQL は COPY、MySQL は LOAD DATA LOCAL INFILE、H2 は CSVREAD、
+	 * HSQLDB はテキストテーブル）
+	 * 使用できる BulkLoader がない場合や、replace が指定されている場合は、
+	 * 通常どおり INSERT 文でインポートする。
+	 * truncate を指定し、自動コミットでない場合も、一括ロード（HSQLDB）の DDL で truncate が
+	 * コミットされて、失敗時にロールバックできなくなるときは、INSERT 文でインポートする。
+	 * </p><p>
+	 * 一括ロードでは、threads, batchSize, rowsPerInsert, commitInterval は適用されない。
+	 * 一括ロードに失敗した場合は、haltOnError の指定に関わらず処理を中断する。
+	 * </p>
+	 * 
+	 * @param bulkLoad 一括ロードでインポートする場合は true
+	 * @since 1.1.10
+	 */
+	public void setBulkLoad(boolean bulkLoad) {
+		this.bulkLoad = bulkLoad;
+	}
+	
+	private boolean typedParse = false;
+	
+	/**
+	 * <p>
+	 * 数値・日付の列を、文字列を経由せずにパースするかどうかを指定する。（省略可。デフォルトは false）
+	 * </p><p>
+	 * true の場合、インポート先のカラムのデータ型から列の型を決め、{@link TypedCSVReader} で
+	 * CSV のバッファから直接数値・日付に変換して、PreparedStatement に設定する。
+	 * nullString に一致する項目に加えて、数値・日付の列の空の項目も null とする。
+	 * 日付は yyyy-mm-dd（区切りは「/」も可）、日時は yyyy-mm-dd hh:mm:ss.fffffffff の形式に限る。
+	 * </p><p>
+	 * CSVStrategy が {@link StandardCSVStrategy} で、replace, bulkLoad を指定せず、
+	 * threads, parserThreads が1の場合にのみ適用される。
+	 * それ以外の場合は、通常どおり文字列の配列としてインポートする。
+	 * </p>
+	 * 
+	 * @param typedParse 数値・日付の列を文字列を経由せずにパースする場合は true
+	 * @since 1.1.10
+	 */
+	public void setTypedParse(boolean typedParse) {
+		this.typedParse = typedParse;
+	}
+	
 	/**
 	 * 各ファイルの読み込み前の処理として、インポート先のテーブルを決定する。
 	 * @param file インポートするファイル
@@ -117,7 +217,8 @@ public class Csv2DbTask extends File2DbTask {
 	protected void doBeforeEach(File file) {
 		// テーブル名の決定
 		if (getFile() == null || this.tableName == null) {
-			this.tableName = FilenameUtils.getBaseName(file.getName());
+			this.tableName = FilenameUtils.getBaseName(
+					CompressionUtils.removeExtension(file.getName()));
 		}
 		
 		DbUtils.validateTableName(this.tableName);
@@ -130,10 +231,29 @@ public class Csv2DbTask extends File2DbTask {
 	protected void executeFile(File file) 
 			throws IOException, SQLException {
 		
-		truncateIfRequred(getTableName(), getCurrentConnection());
+		ImportCheckpoint.Position resumePosition = getResumePosition(file, null);
+		
+		if (resumePosition != null && resumePosition.isCompleted()) {
+			return;
+		}
+		
+		// コミット済みの論理行数（再開する場合）
+		int resumeLine = resumePosition != null ? resumePosition.getLine() : 0;
+		
+		if (resumePosition == null) {
+			truncateIfRequred(getTableName(), getCurrentConnection());
+		}
+		
+		if (getThreads() > 1 && !getCurrentConnection().getAutoCommit()) {
+			// 並列にインポートする他のコネクションを待たせないように、truncateをコミットする
+			getCurrentConnection().commit();
+		}
 		
 		InputStream is = null;
 		Reader reader = null;
+		ParallelCSVReader parallelReader = null;
+		CSVLineOffsetInputStream offsetStream = null;
+		ArrayToDbImporter arrayToDbImporter = null;
 		
 		// INSERTまたはUPDATEに成功した件数
 		int insertOrUpdateRowCount = 0;
@@ -141,44 +261,186 @@ public class Csv2DbTask extends File2DbTask {
 		// 現在読み込み中の行（論理行）
 		int lineCount = 0;
 		
-		ArrayToDbImporter arrayToDbImporter =
-			new ArrayToDbImporter(getCurrentConnection());
-		arrayToDbImporter.setSchemaName(getSchema());
-		arrayToDbImporter.setTableName(getTableName());
-		arrayToDbImporter.setReplace(isReplace());
-		arrayToDbImporter.setNullString(getNullString());
-		arrayToDbImporter.setCaseSensitive(isCaseSensitive());
-		
-		if (!isExistsHeader()) {
-			// CSVの1行目がカラム名ではない場合、テーブル定義のカラム順でImporterを初期化
-			arrayToDbImporter.initialize();
-		}
-		
 		try {
-			is = FileUtils.openInputStream(file);
-			reader = new BufferedReader(new InputStreamReader(is, getCharset()));
+			Iterable<String[]> csvLines;
+			
+			boolean compressed = !CompressionUtils.NONE.equals(getCompression(file));
+			
+			// 論理行の開始位置（バイト）を判定できる場合は、シークして再開し、コミットした位置を記録する
+			boolean seekable = !compressed && getThreads() == 1
+					&& getCSVStrategy() instanceof StandardCSVStrategy
+					&& CSVLineOffsetInputStream.isSupportedCharset(getCharset());
+			
+			if (seekable && resumePosition != null && resumePosition.getOffset() >= 0L) {
+				RandomAccessFile raf = new RandomAccessFile(file, "r");
+				is = new RandomAccessFileInputStream(raf);
+				raf.seek(resumePosition.getOffset());
+				lineCount = resumeLine;
+				
+				if (getCommitInterval() > 0) {
+					is = offsetStream = new CSVLineOffsetInputStream(
+							is, resumePosition.getOffset(), resumeLine, getCommitInterval());
+				}
+				
+				reader = new BufferedReader(new InputStreamReader(is, getCharset()));
+				csvLines = getCSVStrategy().csvLines(reader);
+				
+			} else if (this.parserThreads > 1 && !compressed
+					&& getCSVStrategy() instanceof StandardCSVStrategy) {
+				parallelReader = new ParallelCSVReader(
+						file, (StandardCSVStrategy) getCSVStrategy(), getCharset());
+				parallelReader.setThreads(this.parserThreads);
+				csvLines = parallelReader.csvLines();
+				
+			} else {
+				is = CompressionUtils.openInputStream(file, getCompression(file));
+				
+				if (seekable && getCommitInterval() > 0) {
+					is = offsetStream = new CSVLineOffsetInputStream(
+							is, 0L, 0, getCommitInterval());
+				}
+				
+				reader = new BufferedReader(new InputStreamReader(is, getCharset()));
+				csvLines = getCSVStrategy().csvLines(reader);
+			}
+			
+			BulkLoader bulkLoader = getBulkLoader(resumePosition == null && isTruncate());
+			
+			if (bulkLoader != null) {
+				arrayToDbImporter = createImporter(getCurrentConnection());
+				Iterator<String[]> iterator = csvLines.iterator();
+				
+				if (isExistsHeader()) {
+					if (resumeLine > 0) {
+						arrayToDbImporter.setColumnNames(readHeader(file));
+					} else if (iterator.hasNext()) {
+						arrayToDbImporter.setColumnNames(iterator.next());
+						lineCount++;
+					}
+				}
+				
+				// コミット済みの行を読み飛ばす
+				for (; lineCount < resumeLine && iterator.hasNext(); lineCount++) {
+					iterator.next();
+				}
+				
+				arrayToDbImporter.initialize();
+				
+				insertOrUpdateRowCount = arrayToDbImporter.executeBulk(bulkLoader, iterator);
+				lineCount += insertOrUpdateRowCount;
+				
+				complete(file, null);
+				return;
+			}
 			
-			for (String[] lines : getCSVStrategy().csvLines(reader)) {
+			if (getThreads() > 1) {
+				ParallelDbImporter parallelImporter = createParallelImporter();
+				
+				try {
+					insertOrUpdateRowCount = importInParallel(
+							parallelImporter, csvLines, resumeLine);
+				} catch (SQLException e) {
+					insertOrUpdateRowCount = parallelImporter.getCommittedCount();
+					this.logger.warn("lines.committed_before_error", insertOrUpdateRowCount);
+					throw e;
+				} finally {
+					lineCount = parallelImporter.getRowCount();
+				}
+				
+				complete(file, null);
+				return;
+			}
+			
+			arrayToDbImporter = createImporter(getCurrentConnection());
+			
+			if (this.typedParse && reader != null && !isReplace()
+					&& getCSVStrategy() instanceof StandardCSVStrategy) {
+				
+				if (isExistsHeader()) {
+					// 列の型を決めるために、先にカラム名を読み込んで初期化
+					arrayToDbImporter.setColumnNames(readHeader(file));
+				}
+				
+				arrayToDbImporter.initialize();
+				
+				TypedCSVReader typedReader = new TypedCSVReader(
+						reader,
+						(StandardCSVStrategy) getCSVStrategy(),
+						arrayToDbImporter.getCSVColumnTypes());
+				typedReader.setNullString(getNullString());
+				
+				// カラム名の行と、コミット済みの行を読み飛ばす
+				int skipLines = Math.max(resumeLine, isExistsHeader() ? 1 : 0);
+				
+				while (lineCount < skipLines && typedReader.skip()) {
+					lineCount++;
+				}
+				
+				while (typedReader.next()) {
+					lineCount++;
+					
+					try {
+						insertOrUpdateRowCount +=
+								arrayToDbImporter.execute(typedReader, lineCount);
+						
+					} catch (SQLException e) {
+						insertOrUpdateRowCount += continueOnError(
+								e, "continue_on_error.logical_line", lineCount);
+					}
+					
+					if (isCommitLine(lineCount)) {
+						insertOrUpdateRowCount += flush(arrayToDbImporter, lineCount);
+						commit(file, null, lineCount,
+								offsetStream != null ? offsetStream.getLineOffset(lineCount) : -1L);
+					}
+				}
+				
+				// バッチの残りを実行
+				insertOrUpdateRowCount += flush(arrayToDbImporter, lineCount);
+				
+				complete(file, null);
+				return;
+			}
+			
+			if (!isExistsHeader()) {
+				// CSVの1行目がカラム名ではない場合、テーブル定義のカラム順でImporterを初期化
+				arrayToDbImporter.initialize();
+				
+			} else if (resumeLine > 0) {
+				// 再開する場合は、1行目を読み込まないので、先にカラム名を読み込んで初期化
+				arrayToDbImporter.setColumnNames(readHeader(file));
+				arrayToDbImporter.initialize();
+			}
+			
+			for (String[] lines : csvLines) {
 				lineCount++;
 				
+				if (lineCount <= resumeLine) {
+					// コミット済みの行を読み飛ばす
+					continue;
+				}
+				
 				try {
 					insertOrUpdateRowCount +=
 							executeRow(arrayToDbImporter, lines, lineCount);
 					
 				} catch (SQLException e) {
-					if (isHaltOnError()) {
-						throw e;
-					}
-					
-					this.logger.warn(e,
-							"continue_on_error.logical_line",
-							lineCount);
-					
-					// PostgreSQLの場合、ロールバックが必要
-					DbUtils.rollbackQuietly(getCurrentConnection());
+					insertOrUpdateRowCount += continueOnError(
+							e, "continue_on_error.logical_line", lineCount);
+				}
+				
+				if (isCommitLine(lineCount)) {
+					insertOrUpdateRowCount += flush(arrayToDbImporter, lineCount);
+					commit(file, null, lineCount,
+							offsetStream != null ? offsetStream.getLineOffset(lineCount) : -1L);
 				}
 			}
 			
+			// バッチの残りを実行
+			insertOrUpdateRowCount += flush(arrayToDbImporter, lineCount);
+			
+			complete(file, null);
+			
 		} finally {
 			this.logger.debug("lines.execute", lineCount);
 			this.logger.info("lines.insert_update", insertOrUpdateRowCount);
@@ -187,11 +449,205 @@ public class Csv2DbTask extends File2DbTask {
 				arrayToDbImporter.close();
 			}
 			
+			if (parallelReader != null) {
+				parallelReader.close();
+			}
+			
 			IOUtils.closeQuietly(reader);
 			IOUtils.closeQuietly(is);
 		}
 	}
 	
+	/**
+	 * bulkLoad=true の場合、現在のコネクションで使用できる BulkLoader を返す。
+	 * 
+	 * @param truncated このファイルのインポートでtruncateを行った場合はtrue
+	 * @return 使用できる BulkLoader。bulkLoad=false の場合や、使用できない場合は null。
+	 * @throws SQLException
+	 */
+	private BulkLoader getBulkLoader(boolean truncated) throws SQLException {
+		if (!this.bulkLoad) {
+			return null;
+		}
+		
+		if (isReplace()) {
+			this.logger.info("bulk_load.replace_not_supported");
+			return null;
+		}
+		
+		BulkLoader bulkLoader = BulkLoaders.getBulkLoader(getCurrentConnection());
+		
+		if (bulkLoader == null) {
+			this.logger.info("bulk_load.unavailable",
+					getCurrentConnection().getMetaData().getDatabaseProductName());
+			return null;
+		}
+		
+		if (truncated && !getCurrentConnection().getAutoCommit()
+				&& bulkLoader instanceof AbstractBulkLoader
+				&& !((AbstractBulkLoader) bulkLoader).isTransactional()) {
+			// 一括ロードでtruncateがコミットされると、失敗時にロールバックできない
+			this.logger.info("bulk_load.not_transactional", bulkLoader.getClass().getSimpleName());
+			return null;
+		}
+		
+		this.logger.info("bulk_load.loader", bulkLoader.getClass().getSimpleName());
+		
+		return bulkLoader;
+	}
+	
+	/**
+	 * バッチ等で保持している行を実行する。
+	 * 
+	 * @param arrayToDbImporter
+	 * @param lineCount 現在の行番号
+	 * @return INSERTまたはUPDATEに成功した件数
+	 * @throws SQLException haltOnError=trueで、実行に失敗した場合
+	 */
+	private int flush(ArrayToDbImporter arrayToDbImporter, int lineCount)
+			throws SQLException {
+		
+		try {
+			return arrayToDbImporter.flush();
+			
+		} catch (SQLException e) {
+			return continueOnError(
+					e, "continue_on_error.logical_line", lineCount);
+		}
+	}
+	
+	/**
+	 * CSVの1行目（カラム名）を読み込む。
+	 * 
+	 * @param file
+	 * @return カラム名
+	 * @throws IOException
+	 */
+	private String[] readHeader(File file) throws IOException {
+		InputStream is = null;
+		Reader reader = null;
+		
+		try {
+			is = CompressionUtils.openInputStream(file, getCompression(file));
+			reader = new BufferedReader(new InputStreamReader(is, getCharset()));
+			
+			for (String[] header : getCSVStrategy().csvLines(reader)) {
+				return header;
+			}
+			
+			return new String[0];
+			
+		} finally {
+			IOUtils.closeQuietly(reader);
+			IOUtils.closeQuietly(is);
+		}
+	}
+	
+	/**
+	 * 属性の設定に従って、インポーターを生成する。（初期化は行わない）
+	 * 
+	 * @param conn インポートに使用するコネクション
+	 * @return
+	 */
+	private ArrayToDbImporter createImporter(Connection conn) {
+		ArrayToDbImporter arrayToDbImporter = new ArrayToDbImporter(conn);
+		arrayToDbImporter.setSchemaName(getSchema());
+		arrayToDbImporter.setTableName(getTableName());
+		arrayToDbImporter.setReplace(isReplace());
+		arrayToDbImporter.setNullString(getNullString());
+		arrayToDbImporter.setCaseSensitive(isCaseSensitive());
+		arrayToDbImporter.setBatchSize(getBatchSize());
+		arrayToDbImporter.setRowsPerInsert(getRowsPerInsert());
+		arrayToDbImporter.setReplaceBatchSize(getReplaceBatchSize());
+		arrayToDbImporter.setStagingTableName(getStagingTable());
+		arrayToDbImporter.setPreloadPrimaryKeys(isPreloadPrimaryKeys());
+		arrayToDbImporter.setSchemaCache(getSchemaCache());
+		
+		return arrayToDbImporter;
+	}
+	
+	/** CSVの1行目から読み込んだカラム名（並列にインポートする場合） */
+	private String[] headerColumnNames;
+	
+	/**
+	 * スレッドごとのコネクションでインポートする、並列インポーターを生成する。
+	 * @return
+	 */
+	private ParallelDbImporter createParallelImporter() {
+		ParallelDbImporter parallelImporter = new ParallelDbImporter(
+				new ParallelDbImporter.ImporterFactory() {
+					
+					public Connection createConnection() {
+						return Csv2DbTask.this.createConnection();
+					}
+					
+					public ArrayToDbImporter createImporter(Connection conn)
+							throws SQLException {
+						
+						ArrayToDbImporter arrayToDbImporter =
+							Csv2DbTask.this.createImporter(conn);
+						
+						if (headerColumnNames != null) {
+							arrayToDbImporter.setColumnNames(headerColumnNames);
+						}
+						
+						arrayToDbImporter.initialize();
+						
+						return arrayToDbImporter;
+					}
+				},
+				getThreads());
+		
+		parallelImporter.setErrorHandler(new ParallelDbImporter.ErrorHandler() {
+			public int handleError(SQLException e, int lineNumber, Connection conn)
+					throws SQLException {
+				
+				return continueOnError(
+						e, "continue_on_error.logical_line", lineNumber, conn);
+			}
+		});
+		
+		return parallelImporter;
+	}
+	
+	/**
+	 * CSVの全ての行を、並列にインポートする。
+	 * 
+	 * @param parallelImporter
+	 * @param csvLines
+	 * @param resumeLine コミット済みの論理行数（再開する場合）
+	 * @return INSERTまたはUPDATEに成功した件数
+	 * @throws SQLException
+	 */
+	private int importInParallel(
+			ParallelDbImporter parallelImporter,
+			Iterable<String[]> csvLines,
+			int resumeLine)
+		throws SQLException {
+		
+		Iterator<String[]> iterator = csvLines.iterator();
+		int firstLineNumber = 1;
+		
+		this.headerColumnNames = null;
+		
+		if (isExistsHeader()) {
+			if (!iterator.hasNext()) {
+				return 0;
+			}
+			
+			// CSVの1行目がカラム名の場合、各スレッドのImporterをカラムの順序で初期化
+			this.headerColumnNames = iterator.next();
+			firstLineNumber = 2;
+		}
+		
+		// コミット済みの行を読み飛ばす
+		for (; firstLineNumber <= resumeLine && iterator.hasNext(); firstLineNumber++) {
+			iterator.next();
+		}
+		
+		return parallelImporter.execute(iterator, firstLineNumber);
+	}
+	
 	/**
 	 * １行のインポートを行う。
 	 * 
@@ -214,6 +670,13 @@ public class Csv2DbTask extends File2DbTask {
 			return 0;
 		}
 		
-		return arrayToDbImporter.execute(rowData);
+		return arrayToDbImporter.execute(rowData, lineCount);
+	}
+	
+	/**
+	 * ファイルの圧縮形式を返す。
+	 */
+	private String getCompression(File file) {
+		return CompressionUtils.normalize(this.compression, file);
 	}
 }
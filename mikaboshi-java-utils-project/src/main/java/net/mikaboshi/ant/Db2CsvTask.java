@@ -1,19 +1,38 @@
 package net.mikaboshi.ant;
 
 import static net.mikaboshi.validator.SimpleValidator.validateNotNull;
+import static net.mikaboshi.validator.SimpleValidator.validatePositive;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.nio.charset.Charset;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.mikaboshi.csv.CSVStrategy;
 import net.mikaboshi.csv.StandardCSVStrategy;
+import net.mikaboshi.io.CompressionUtils;
 import net.mikaboshi.jdbc.DbUtils;
 import net.mikaboshi.jdbc.QueryExecutor;
+import net.mikaboshi.jdbc.RangePartition;
 import net.mikaboshi.jdbc.ResultSetHandler;
 import net.mikaboshi.jdbc.ResultSetToCSVHandler;
 import net.mikaboshi.jdbc.schema.SchemaUtils;
@@ -30,6 +49,8 @@ import org.apache.tools.ant.BuildException;
  * outputDir 属性に指定したディレクトリの下に、「スキーマ名.テーブル名.csv」　というファイルが
  * 生成される。schema 属性を省略した場合は、「テーブル名.csv」となる。
  * </p><p>
+ * threads 属性または partitions 属性に2以上を指定した場合は、複数のコネクションで並列にエクスポートする。
+ * </p><p>
  * このクラスは同期化されない。
  * </p>
  * @author Takuma Umezawa
@@ -120,6 +141,82 @@ public class Db2CsvTask extends Db2FileTask {
 		return this.csvStrategy;
 	}
 	
+	private String compression = CompressionUtils.NONE;
+	
+	/**
+	 * <p>
+	 * エクスポートファイルの圧縮形式を指定する。（省略可。デフォルトは none）
+	 * </p><p>
+	 * gzip または deflate を指定した場合は、ファイル名に拡張子（.gz または .deflate）が付加され、
+	 * 一時ファイルを経由せずにストリームのまま圧縮して出力する。
+	 * </p>
+	 * 
+	 * @param compression gzip, deflate, none のいずれか
+	 * @since 1.1.10
+	 */
+	public void setCompression(String compression) {
+		// 不正な値はここでエラーとする
+		CompressionUtils.getExtension(compression);
+		this.compression = compression;
+	}
+	
+	private int threads = 1;
+	
+	/**
+	 * <p>
+	 * エクスポートに使用するスレッド数（コネクション数）を指定する。（省略可。デフォルトは1）
+	 * </p><p>
+	 * 2以上を指定した場合、複数のテーブル（または partitions 属性で分割したテーブルの範囲）を、
+	 * スレッドごとのコネクションで並列にエクスポートする。
+	 * </p>
+	 * @param threads
+	 * @since 1.1.10
+	 */
+	public void setThreads(int threads) {
+		validatePositive(threads, "threads", BuildException.class);
+		this.threads = threads;
+	}
+	
+	private int partitions = 1;
+	
+	/**
+	 * <p>
+	 * 1つのテーブルを分割する数を指定する。（省略可。デフォルトは1で、分割しない）
+	 * </p><p>
+	 * 2以上を指定した場合、主キーが1カラムの数値型であるテーブルは、主キーの最小値と最大値の間を
+	 * 等間隔の範囲に分割し、範囲ごとに別のコネクションでエクスポートする。
+	 * 主キーがそれ以外のテーブルは、分割せずにエクスポートする。
+	 * 各範囲は別のトランザクションで読み込むので、エクスポート中にテーブルが更新された場合、
+	 * 範囲ごとに異なる時点のデータとなることがある。
+	 * </p>
+	 * @param partitions
+	 * @since 1.1.10
+	 * @see RangePartition
+	 */
+	public void setPartitions(int partitions) {
+		validatePositive(partitions, "partitions", BuildException.class);
+		this.partitions = partitions;
+	}
+	
+	private boolean mergeParts = true;
+	
+	/**
+	 * <p>
+	 * 分割したテーブルの範囲ごとのファイルを、1つのファイルに連結するかどうかを指定する。
+	 * （省略可。デフォルトはtrue）
+	 * </p><p>
+	 * trueの場合、範囲ごとに一時ファイルに出力し、全ての範囲が完了してから
+	 * 「テーブル名.csv」に連結する。ヘッダは最初の範囲のみに出力する。
+	 * falseの場合、範囲ごとに「テーブル名.001.csv」のような連番のファイルに出力し、
+	 * それぞれにヘッダを出力する。
+	 * </p>
+	 * @param mergeParts
+	 * @since 1.1.10
+	 */
+	public void setMergeParts(boolean mergeParts) {
+		this.mergeParts = mergeParts;
+	}
+	
 	private PrintWriter writer;
 	
 	/* (非 Javadoc)
@@ -136,6 +233,11 @@ public class Db2CsvTask extends Db2FileTask {
 			Set<String> allTableNames = SchemaUtils.getAllTableNames(
 					conn, null, getSchema(), null, null);
 			
+			if (this.threads > 1 || this.partitions > 1) {
+				exportInParallel(conn, allTableNames);
+				return;
+			}
+			
 			for (String tableName : allTableNames) {
 				if (!getPatterns().isMatch(tableName)) {
 					continue;
@@ -145,7 +247,8 @@ public class Db2CsvTask extends Db2FileTask {
 					tableName = getSchema() + "." + tableName;
 				}
 				
-				File outputFile = new File(this.outputDir, tableName + ".csv");
+				File outputFile = new File(this.outputDir,
+						tableName + ".csv" + CompressionUtils.getExtension(this.compression));
 				
 				if (outputFile.exists() && outputFile.isFile()) {
 					if (isReplace()) {
@@ -159,12 +262,14 @@ public class Db2CsvTask extends Db2FileTask {
 				logger.info("db2file.file_name", outputFile.getAbsolutePath());
 				logger.info("db2file.table_name", tableName);
 				
-				this.writer = new PrintWriter(outputFile, getCharset());
+				this.writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+						CompressionUtils.openOutputStream(outputFile, this.compression),
+						getCharset())));
 				
 				String sql = "select * from " + tableName;
 				
 				try {
-					new QueryExecutor(conn, createHandler()).execute(sql);
+					createQueryExecutor(conn, createHandler()).execute(sql);
 					
 				} catch (SQLException e) {
 					if (isHaltOnError()) {
@@ -181,6 +286,11 @@ public class Db2CsvTask extends Db2FileTask {
 				} finally {
 					IOUtils.closeQuietly(this.writer);
 				}
+				
+				if (this.writer.checkError()) {
+					// 圧縮を別スレッドで行う場合、書き込みのエラーはcloseで検出される
+					throw new IOException("Failed to write: " + outputFile.getAbsolutePath());
+				}
 			}
 			
 		} catch (IOException e) {
@@ -194,12 +304,392 @@ public class Db2CsvTask extends Db2FileTask {
 	}
 
 	protected ResultSetHandler createHandler() throws IOException {
-		return new ResultSetToCSVHandler(
-					this.writer,
-					isHeaderNeeded(),
+		return createHandler(this.writer, isHeaderNeeded());
+	}
+	
+	private ResultSetHandler createHandler(PrintWriter writer, boolean header) {
+		ResultSetToCSVHandler handler = new ResultSetToCSVHandler(
+					writer,
+					header,
 					false,
 					false,
 					getFormatter(),
 					getCSVStrategy());
+		
+		handler.setPipelined(isPipelined());
+		return handler;
+	}
+	
+	/**
+	 * 処理を中断する場合にtrue
+	 */
+	private volatile boolean aborted;
+	
+	/**
+	 * テーブル（分割した場合は範囲）ごとに、複数のコネクションで並列にエクスポートする。
+	 * 
+	 * @param conn
+	 * @param allTableNames
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	private void exportInParallel(Connection conn, Set<String> allTableNames)
+			throws SQLException, IOException {
+		
+		// 各スレッドから参照する前に決定しておく
+		getCharset();
+		getCSVStrategy();
+		
+		List<TableExport> exports = new ArrayList<TableExport>();
+		int partCount = 0;
+		
+		for (String tableName : allTableNames) {
+			if (!getPatterns().isMatch(tableName)) {
+				continue;
+			}
+			
+			String qualifiedName = StringUtils.isNotBlank(getSchema()) ?
+					getSchema() + "." + tableName : tableName;
+			
+			List<RangePartition> ranges;
+			
+			try {
+				ranges = splitTable(conn, tableName, qualifiedName);
+				
+			} catch (SQLException e) {
+				if (isHaltOnError()) {
+					throw e;
+				}
+				
+				this.logger.warn(e,
+						"db2file.continue_on_error",
+						qualifiedName);
+				
+				DbUtils.rollbackQuietly(conn);
+				continue;
+			}
+			
+			TableExport export = new TableExport(qualifiedName, ranges);
+			File outputFile = export.outputFiles[0];
+			
+			if (outputFile.exists() && outputFile.isFile()) {
+				if (isReplace()) {
+					this.logger.info("db2file.overwrite", qualifiedName, outputFile.getAbsolutePath());
+				} else {
+					this.logger.info("db2file.skip", qualifiedName, outputFile.getAbsolutePath());
+					continue;
+				}
+			}
+			
+			this.logger.info("db2file.table_name", qualifiedName);
+			
+			if (ranges.size() > 1) {
+				this.logger.info("db2file.partitions",
+						qualifiedName, ranges.size(), ranges.get(0).getColumnName());
+			}
+			
+			exports.add(export);
+			partCount += ranges.size();
+		}
+		
+		if (partCount == 0) {
+			return;
+		}
+		
+		int threadCount = Math.min(this.threads, partCount);
+		
+		BlockingQueue<Connection> connections = new LinkedBlockingQueue<Connection>();
+		List<Connection> createdConnections = new ArrayList<Connection>();
+		
+		connections.add(conn);
+		
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Db2CsvTask");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		
+		this.aborted = false;
+		
+		try {
+			for (int i = 1; i < threadCount; i++) {
+				Connection c = getConnection();
+				createdConnections.add(c);
+				connections.add(c);
+			}
+			
+			List<Future<Object>> futures = new ArrayList<Future<Object>>(partCount);
+			
+			for (TableExport export : exports) {
+				for (int i = 0; i < export.ranges.size(); i++) {
+					futures.add(executor.submit(new PartExporter(export, i, connections)));
+				}
+			}
+			
+			Exception error = null;
+			
+			for (Future<Object> future : futures) {
+				try {
+					future.get();
+				} catch (InterruptedException e) {
+					this.aborted = true;
+					Thread.currentThread().interrupt();
+					throw new BuildException("Interrupted while waiting for exports");
+				} catch (ExecutionException e) {
+					if (error == null) {
+						error = e.getCause() instanceof Exception ?
+								(Exception) e.getCause() : e;
+					}
+				}
+			}
+			
+			if (error instanceof SQLException) {
+				throw (SQLException) error;
+			} else if (error instanceof IOException) {
+				throw (IOException) error;
+			} else if (error instanceof RuntimeException) {
+				throw (RuntimeException) error;
+			} else if (error != null) {
+				throw new BuildException(error);
+			}
+			
+		} finally {
+			executor.shutdownNow();
+			
+			for (Connection c : createdConnections) {
+				DbUtils.closeQuietly(c);
+			}
+			
+			for (TableExport export : exports) {
+				export.deleteTemporaryFiles();
+			}
+		}
+	}
+	
+	/**
+	 * テーブルを分割する範囲を返す。分割しない場合は、条件のない範囲を1つだけ返す。
+	 */
+	private List<RangePartition> splitTable(
+			Connection conn, String tableName, String qualifiedName) throws SQLException {
+		
+		String columnName = this.partitions > 1 ?
+				RangePartition.getPartitionColumn(conn, getSchema(), tableName) : null;
+		
+		if (columnName == null) {
+			return Collections.singletonList(RangePartition.all());
+		}
+		
+		return RangePartition.split(conn, qualifiedName, columnName, this.partitions);
+	}
+	
+	/**
+	 * 1つのテーブルのエクスポート。
+	 */
+	private class TableExport {
+		
+		private final String tableName;
+		
+		private final List<RangePartition> ranges;
+		
+		/** 範囲ごとのファイルを連結する場合はtrue */
+		private final boolean merge;
+		
+		/** 出力するファイル（連結する場合、または分割しない場合は1つ） */
+		private final File[] outputFiles;
+		
+		/** 範囲ごとの出力先のファイル */
+		private final File[] partFiles;
+		
+		/** 完了していない範囲の数 */
+		private final AtomicInteger remaining;
+		
+		/** エラーが発生し、処理を継続した場合にtrue */
+		private volatile boolean failed = false;
+		
+		TableExport(String tableName, List<RangePartition> ranges) {
+			this.tableName = tableName;
+			this.ranges = ranges;
+			this.remaining = new AtomicInteger(ranges.size());
+			
+			int size = ranges.size();
+			String extension = CompressionUtils.getExtension(Db2CsvTask.this.compression);
+			
+			this.merge = size > 1 && Db2CsvTask.this.mergeParts;
+			this.partFiles = new File[size];
+			
+			if (size == 1) {
+				this.outputFiles = new File[] {
+						new File(Db2CsvTask.this.outputDir, tableName + ".csv" + extension)};
+				this.partFiles[0] = this.outputFiles[0];
+				
+			} else if (this.merge) {
+				this.outputFiles = new File[] {
+						new File(Db2CsvTask.this.outputDir, tableName + ".csv" + extension)};
+				
+				for (int i = 0; i < size; i++) {
+					// 一時ファイルは圧縮せずに出力し、連結時に圧縮する
+					this.partFiles[i] = new File(Db2CsvTask.this.outputDir,
+							tableName + ".csv.part" + getPartNumber(i));
+				}
+				
+			} else {
+				this.outputFiles = this.partFiles;
+				
+				for (int i = 0; i < size; i++) {
+					this.partFiles[i] = new File(Db2CsvTask.this.outputDir,
+							tableName + "." + getPartNumber(i) + ".csv" + extension);
+				}
+			}
+		}
+		
+		/**
+		 * 1つの範囲をエクスポートする。最後に完了した範囲の場合は、ファイルを連結する。
+		 */
+		void exportPart(Connection conn, int index) throws SQLException, IOException {
+			File file = this.partFiles[index];
+			boolean header = isHeaderNeeded() && (!this.merge || index == 0);
+			
+			if (!this.merge) {
+				Db2CsvTask.this.logger.info("db2file.file_name", file.getAbsolutePath());
+			}
+			
+			PrintWriter partWriter = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+					CompressionUtils.openOutputStream(file,
+							this.merge ? CompressionUtils.NONE : Db2CsvTask.this.compression),
+					getCharset())));
+			
+			RangePartition range = this.ranges.get(index);
+			String sql = range.getSelectSql(this.tableName);
+			Object[] params = range.getParameters();
+			
+			try {
+				QueryExecutor executor = createQueryExecutor(conn, createHandler(partWriter, header));
+				
+				if (params.length == 0) {
+					executor.execute(sql);
+				} else {
+					executor.execute(sql, params);
+				}
+				
+			} catch (SQLException e) {
+				if (isHaltOnError()) {
+					throw e;
+				}
+				
+				Db2CsvTask.this.logger.warn(e,
+						"db2file.continue_on_error",
+						this.tableName);
+				
+				// PostgreSQLの場合、ロールバックが必要
+				DbUtils.rollbackQuietly(conn);
+				
+				this.failed = true;
+				
+			} finally {
+				IOUtils.closeQuietly(partWriter);
+			}
+			
+			if (partWriter.checkError()) {
+				throw new IOException("Failed to write: " + file.getAbsolutePath());
+			}
+			
+			if (this.remaining.decrementAndGet() == 0 && this.merge && !this.failed) {
+				mergeParts();
+			}
+		}
+		
+		/**
+		 * 範囲ごとの一時ファイルを、出力ファイルに連結する。
+		 */
+		private void mergeParts() throws IOException {
+			File outputFile = this.outputFiles[0];
+			
+			Db2CsvTask.this.logger.info("db2file.file_name", outputFile.getAbsolutePath());
+			
+			OutputStream out = CompressionUtils.openOutputStream(
+					outputFile, Db2CsvTask.this.compression);
+			
+			try {
+				for (File partFile : this.partFiles) {
+					InputStream in = FileUtils.openInputStream(partFile);
+					
+					try {
+						IOUtils.copy(in, out);
+					} finally {
+						IOUtils.closeQuietly(in);
+					}
+				}
+				
+				// 圧縮を別スレッドで行う場合、書き込みのエラーはcloseで検出される
+				out.close();
+				
+			} finally {
+				IOUtils.closeQuietly(out);
+			}
+		}
+		
+		/**
+		 * 連結する場合の一時ファイルを削除する。
+		 */
+		void deleteTemporaryFiles() {
+			if (!this.merge) {
+				return;
+			}
+			
+			for (File partFile : this.partFiles) {
+				FileUtils.deleteQuietly(partFile);
+			}
+		}
+	}
+	
+	private static String getPartNumber(int index) {
+		return StringUtils.leftPad(String.valueOf(index + 1), 3, '0');
+	}
+	
+	/**
+	 * 1つの範囲をエクスポートするタスク。
+	 * 空いているコネクションを使用し、完了したら戻す。
+	 */
+	private class PartExporter implements Callable<Object> {
+		
+		private final TableExport export;
+		
+		private final int index;
+		
+		private final BlockingQueue<Connection> connections;
+		
+		PartExporter(TableExport export, int index, BlockingQueue<Connection> connections) {
+			this.export = export;
+			this.index = index;
+			this.connections = connections;
+		}
+		
+		public Object call() throws SQLException, IOException, InterruptedException {
+			if (Db2CsvTask.this.aborted) {
+				return null;
+			}
+			
+			Connection conn = this.connections.take();
+			
+			try {
+				this.export.exportPart(conn, this.index);
+				
+			} catch (SQLException e) {
+				Db2CsvTask.this.aborted = true;
+				throw e;
+			} catch (IOException e) {
+				Db2CsvTask.this.aborted = true;
+				throw e;
+			} catch (RuntimeException e) {
+				Db2CsvTask.this.aborted = true;
+				throw e;
+			} finally {
+				this.connections.add(conn);
+			}
+			
+			return null;
+		}
 	}
 }
@@ -9,7 +9,6 @@ import java.sql.SQLException;
 import java.util.Set;
 
 import net.mikaboshi.jdbc.DbUtils;
-import net.mikaboshi.jdbc.QueryExecutor;
 import net.mikaboshi.jdbc.ResultSetHandler;
 import net.mikaboshi.jdbc.ResultSetToXLSHandler;
 import net.mikaboshi.jdbc.schema.SchemaUtils;
@@ -100,7 +99,7 @@ public class Db2XlsTask extends Db2FileTask {
 				String sql = "select * from " + tableName;
 				
 				try {
-					new QueryExecutor(conn, createHandler()).execute(sql);
+					createQueryExecutor(conn, createHandler()).execute(sql);
 					
 				} catch (SQLException e) {
 					if (isHaltOnError()) {
@@ -137,7 +136,7 @@ public class Db2XlsTask extends Db2FileTask {
 	}
 
 	protected ResultSetHandler createHandler() throws IOException {
-		return new ResultSetToXLSHandler(
+		ResultSetToXLSHandler handler = new ResultSetToXLSHandler(
 				this.output,
 				true,
 				isHeaderNeeded(),
@@ -146,5 +145,8 @@ public class Db2XlsTask extends Db2FileTask {
 				this.replaceSheet,
 				getFormatter(),
 				this.sheetName);
+		
+		handler.setPipelined(isPipelined());
+		return handler;
 	}
 }
@@ -11,8 +11,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import net.mikaboshi.jdbc.BatchImportException;
 import net.mikaboshi.jdbc.DbUtils;
 import net.mikaboshi.jdbc.DmlExecutor;
+import net.mikaboshi.jdbc.schema.SchemaCache;
 import net.mikaboshi.validator.SimpleValidator;
 
 import org.apache.commons.lang.StringUtils;
@@ -202,6 +204,272 @@ public abstract class File2DbTask extends JDBCTask {
 		return this.haltOnError;
 	}
 	
+	private int batchSize = 1;
+	
+	/**
+	 * <p>
+	 * INSERTをまとめて実行する件数（バッチサイズ）を指定する。（省略可。デフォルトは1）
+	 * </p><p>
+	 * 2以上を指定した場合、JDBCのバッチ更新でまとめてINSERTするので、
+	 * DBとの通信回数が減る。replace=trueの場合は、1行ずつ実行する。
+	 * （replace=trueでまとめて実行する場合は、replaceBatchSizeを指定する）
+	 * </p><p>
+	 * haltOnError=falseの場合、バッチ実行に失敗した行は1行ずつ警告として出力される。
+	 * ドライバがバッチの途中で処理を中止した場合、残りの行は実行されない。
+	 * </p>
+	 * @param batchSize
+	 * @since 1.1.10
+	 */
+	public void setBatchSize(int batchSize) {
+		SimpleValidator.validatePositive(batchSize, "batchSize", BuildException.class);
+		this.batchSize = batchSize;
+	}
+	
+	/**
+	 * INSERTをまとめて実行する件数（バッチサイズ）を取得する。
+	 * @return
+	 * @since 1.1.10
+	 */
+	protected int getBatchSize() {
+		return this.batchSize;
+	}
+	
+	private int rowsPerInsert = 1;
+	
+	/**
+	 * <p>
+	 * 1つのINSERT文でまとめて挿入する行数を指定する。（省略可。デフォルトは1）
+	 * </p><p>
+	 * 2以上を指定した場合、{@code insert into T (...) values (...), (...), ...} の形式で
+	 * 複数行をINSERTする。バッチ更新が遅いドライバで、batchSizeの代わりに使用する。
+	 * 複数行のVALUES句をサポートしないDBでは、エラーとなる。
+	 * </p>
+	 * @param rowsPerInsert
+	 * @since 1.1.10
+	 */
+	public void setRowsPerInsert(int rowsPerInsert) {
+		SimpleValidator.validatePositive(rowsPerInsert, "rowsPerInsert", BuildException.class);
+		this.rowsPerInsert = rowsPerInsert;
+	}
+	
+	/**
+	 * 1つのINSERT文でまとめて挿入する行数を取得する。
+	 * @return
+	 * @since 1.1.10
+	 */
+	protected int getRowsPerInsert() {
+		return this.rowsPerInsert;
+	}
+	
+	private int replaceBatchSize = 1;
+	
+	/**
+	 * <p>
+	 * replace=trueの場合に、まとめて反映する行数を指定する。（省略可。デフォルトは1）
+	 * </p><p>
+	 * 2以上を指定した場合、指定した行数ごとにステージングテーブルへ投入し、
+	 * 1回のMERGE（DBによっては、UPDATEとINSERT）で反映する。
+	 * ステージングテーブルは、stagingTableを指定しなければ一時テーブルを生成する。
+	 * </p>
+	 * @param replaceBatchSize
+	 * @since 1.1.10
+	 */
+	public void setReplaceBatchSize(int replaceBatchSize) {
+		SimpleValidator.validatePositive(replaceBatchSize, "replaceBatchSize", BuildException.class);
+		this.replaceBatchSize = replaceBatchSize;
+	}
+	
+	/**
+	 * replace=trueの場合に、まとめて反映する行数を取得する。
+	 * @return
+	 * @since 1.1.10
+	 */
+	protected int getReplaceBatchSize() {
+		return this.replaceBatchSize;
+	}
+	
+	private boolean preloadPrimaryKeys = false;
+	
+	/**
+	 * <p>
+	 * replace=trueの場合に、インポート先のテーブルに存在する主キーを、
+	 * 最初にまとめて読み込むかどうかを指定する。（省略可。デフォルトはfalse）
+	 * </p><p>
+	 * trueを指定した場合、各行の主キーが存在するかどうかをDBに問い合わせずに判定し、
+	 * UPDATEかINSERTのどちらかのみを実行する。batchSizeを指定した場合は、バッチで実行する。
+	 * 主キーが数値と文字列以外の場合は無視される。
+	 * </p>
+	 * @param preloadPrimaryKeys
+	 * @since 1.1.10
+	 */
+	public void setPreloadPrimaryKeys(boolean preloadPrimaryKeys) {
+		this.preloadPrimaryKeys = preloadPrimaryKeys;
+	}
+	
+	/**
+	 * replace=trueの場合に、存在する主キーを最初にまとめて読み込むかどうかを取得する。
+	 * @return
+	 * @since 1.1.10
+	 */
+	protected boolean isPreloadPrimaryKeys() {
+		return this.preloadPrimaryKeys;
+	}
+	
+	private String stagingTable;
+	
+	/**
+	 * <p>
+	 * replaceBatchSizeを指定した場合に使用する、既存のステージングテーブル名を指定する。（省略可）
+	 * </p><p>
+	 * 省略した場合は、一時テーブルを生成し、ファイルごとに削除する。
+	 * DDLでコミットされるDB（Oracle等）では、あらかじめ作成した一時表を指定すること。
+	 * </p>
+	 * @param stagingTable
+	 * @since 1.1.10
+	 */
+	public void setStagingTable(String stagingTable) {
+		this.stagingTable = stagingTable;
+	}
+	
+	/**
+	 * 既存のステージングテーブル名を取得する。
+	 * 無指定の場合はnullが返る。
+	 * @return
+	 * @since 1.1.10
+	 */
+	protected String getStagingTable() {
+		return this.stagingTable;
+	}
+	
+	private int threads = 1;
+	
+	/**
+	 * <p>
+	 * インポートに使用するスレッド数（コネクション数）を指定する。（省略可。デフォルトは1）
+	 * </p><p>
+	 * 2以上を指定した場合、ファイルを読み込みながら行をチャンクに分け、
+	 * スレッドごとのコネクションで並列にインポートする。
+	 * autoCommit=falseの場合、コミットはチャンクごとに行う。
+	 * haltOnError=trueでエラーが発生した場合、コミット済みのチャンクは取り消されない。
+	 * </p><p>
+	 * 行の順序は保証されないので、replace=trueで同じ主キーの行が複数ある場合は指定しないこと。
+	 * </p>
+	 * @param threads
+	 * @since 1.1.10
+	 */
+	public void setThreads(int threads) {
+		SimpleValidator.validatePositive(threads, "threads", BuildException.class);
+		this.threads = threads;
+	}
+	
+	/**
+	 * インポートに使用するスレッド数（コネクション数）を取得する。
+	 * @return
+	 * @since 1.1.10
+	 */
+	protected int getThreads() {
+		return this.threads;
+	}
+	
+	private int commitInterval = 0;
+	
+	/**
+	 * <p>
+	 * 指定した論理行数ごとにコミットする。（省略可。デフォルトは0で、途中でコミットしない）
+	 * </p><p>
+	 * 1以上を指定した場合、各ファイルの最後でもコミットする。
+	 * エラーでロールバックされるのは、最後にコミットした後の行のみとなる。
+	 * checkpointFileを指定すると、コミットした位置を記録し、resume=trueで続きから再開できる。
+	 * threadsに2以上を指定した場合は、チャンクごとにコミットするので無視される。
+	 * </p>
+	 * @param commitInterval
+	 * @since 1.1.10
+	 */
+	public void setCommitInterval(int commitInterval) {
+		SimpleValidator.validatePositiveOrZero(commitInterval, "commitInterval", BuildException.class);
+		this.commitInterval = commitInterval;
+	}
+	
+	/**
+	 * コミットする論理行数の間隔を取得する。途中でコミットしない場合は0。
+	 * @return
+	 * @since 1.1.10
+	 */
+	protected int getCommitInterval() {
+		return this.commitInterval;
+	}
+	
+	private File checkpointFile;
+	
+	/**
+	 * <p>
+	 * コミットした位置を記録するチェックポイントファイルのパスを指定する。（省略可）
+	 * </p><p>
+	 * ファイルごと（Excelの場合はシートごと）に、コミット済みの論理行数と
+	 * 次の論理行の開始位置（バイト）を記録する。
+	 * 指定した場合、各ファイルの最後でコミットする。
+	 * 全てのファイルのインポートが成功した場合は、チェックポイントファイルを削除する。
+	 * </p>
+	 * @param path
+	 * @since 1.1.10
+	 */
+	public void setCheckpointFile(String path) {
+		this.checkpointFile = new File(path);
+	}
+	
+	private boolean resume = false;
+	
+	/**
+	 * <p>
+	 * チェックポイントファイルに記録された位置から、インポートを再開するかどうかを指定する。
+	 * （省略可。デフォルトはfalse）
+	 * </p><p>
+	 * trueを指定した場合、インポートが完了したファイルは読み込まず、
+	 * 途中でエラーになったファイルは、最後にコミットした論理行の次から再開する。
+	 * 再開するファイルにはtruncateを行わない。
+	 * 非圧縮のCSVファイルでは、記録した位置にシークして読み込む。
+	 * それ以外の場合は、コミット済みの行を読み飛ばす。
+	 * 記録した後にファイルが変更されていた場合は、エラーとする。
+	 * </p><p>
+	 * falseの場合、既存のチェックポイントファイルは削除される。
+	 * </p>
+	 * @param resume
+	 * @since 1.1.10
+	 */
+	public void setResume(boolean resume) {
+		this.resume = resume;
+	}
+	
+	private ImportCheckpoint checkpoint;
+	
+	private int metadataCacheTtl = 300;
+	
+	/**
+	 * <p>
+	 * テーブル名、カラム、主キーのメタ情報をキャッシュする秒数を指定する。（省略可。デフォルトは300）
+	 * </p><p>
+	 * キャッシュはタスクの実行ごとに作成し、全てのファイル（シート）のインポートで共有する。
+	 * 0を指定した場合はキャッシュせず、ファイルごとにメタ情報を取得する。
+	 * 負の値を指定した場合は、タスクの実行中は期限切れにしない。
+	 * </p>
+	 * @param metadataCacheTtl キャッシュする秒数
+	 * @since 1.1.10
+	 */
+	public void setMetadataCacheTtl(int metadataCacheTtl) {
+		this.metadataCacheTtl = metadataCacheTtl;
+	}
+	
+	private SchemaCache schemaCache;
+	
+	/**
+	 * メタ情報のキャッシュを取得する。
+	 * @return メタ情報のキャッシュ。metadataCacheTtl=0の場合はnull。
+	 * @since 1.1.10
+	 */
+	protected SchemaCache getSchemaCache() {
+		return this.schemaCache;
+	}
+	
 	private String schema;
 	
 	/**
@@ -234,6 +502,15 @@ public abstract class File2DbTask extends JDBCTask {
 		this.truncate = truncate;
 	}
 	
+	/**
+	 * 最初にテーブルの全レコードを削除するかどうかを取得する。
+	 * @return
+	 * @since 1.1.10
+	 */
+	protected boolean isTruncate() {
+		return this.truncate;
+	}
+	
 	private boolean replace = false;
 	
 	/**
@@ -301,6 +578,15 @@ public abstract class File2DbTask extends JDBCTask {
 		return this.currentConnection;
 	}
 	
+	/**
+	 * 並列にインポートするスレッド用に、新しいDBコネクションを生成する。
+	 * @return
+	 * @since 1.1.10
+	 */
+	protected synchronized Connection createConnection() {
+		return getConnection();
+	}
+	
 	private boolean caseSensitive = false;
 	
 	/**
@@ -340,6 +626,17 @@ public abstract class File2DbTask extends JDBCTask {
 			conn = getConnection();
 			setCurrentConnection(conn);
 			
+			this.schemaCache = this.metadataCacheTtl != 0 ?
+					new SchemaCache(conn, this.metadataCacheTtl * 1000L) : null;
+			
+			if (this.checkpointFile != null) {
+				this.checkpoint = new ImportCheckpoint(this.checkpointFile);
+				
+				if (!this.resume) {
+					this.checkpoint.clear();
+				}
+			}
+			
 			doBefore();
 			
 			for (File f : files) {
@@ -353,6 +650,11 @@ public abstract class File2DbTask extends JDBCTask {
 			
 			doAfter();
 			
+			if (this.checkpoint != null) {
+				// 全てのファイルが完了したので、次回は最初から
+				this.checkpoint.clear();
+			}
+			
 		} catch (Exception e) {
 			doOnError();
 			DbUtils.rollbackQuietly(conn);
@@ -362,6 +664,7 @@ public abstract class File2DbTask extends JDBCTask {
 			
 			throw new BuildException(e);
 		} finally {
+			this.schemaCache = null;
 			DbUtils.closeQuietly(conn);
 		}
 	}
@@ -413,6 +716,183 @@ public abstract class File2DbTask extends JDBCTask {
 	protected void doOnError() {
 	}
 
+	/**
+	 * <p>
+	 * 行のインポートでSQLExceptionが発生した場合の処理を行う。
+	 * </p><p>
+	 * haltOnError=trueの場合は、例外をそのままスローする。
+	 * falseの場合は、警告を出力してロールバックする。
+	 * バッチ実行に失敗した場合（{@link BatchImportException}）は、失敗した行ごとに警告を出力する。
+	 * </p>
+	 * @param e 発生した例外
+	 * @param messageKey 警告のメッセージキー（引数は行番号）
+	 * @param line 現在の行番号
+	 * @return バッチ実行に失敗した場合、バッチのうち成功した行のINSERTの件数。それ以外は0。
+	 * @throws SQLException haltOnError=trueの場合
+	 * @since 1.1.10
+	 */
+	protected int continueOnError(SQLException e, String messageKey, int line)
+			throws SQLException {
+		
+		return continueOnError(e, messageKey, line, getCurrentConnection());
+	}
+	
+	/**
+	 * 行のインポートでSQLExceptionが発生した場合の処理を、指定したコネクションに対して行う。
+	 * 
+	 * @param e 発生した例外
+	 * @param messageKey 警告のメッセージキー（引数は行番号）
+	 * @param line 現在の行番号
+	 * @param conn ロールバックするコネクション
+	 * @return バッチ実行に失敗した場合、バッチのうち成功した行のINSERTの件数。それ以外は0。
+	 * @throws SQLException haltOnError=trueの場合
+	 * @see #continueOnError(SQLException, String, int)
+	 * @since 1.1.10
+	 */
+	protected int continueOnError(SQLException e, String messageKey, int line, Connection conn)
+			throws SQLException {
+		
+		if (isHaltOnError()) {
+			throw e;
+		}
+		
+		int updateCount = 0;
+		
+		if (e instanceof BatchImportException) {
+			BatchImportException batchException = (BatchImportException) e;
+			
+			for (int failedLine : batchException.getFailedLineNumbers()) {
+				this.logger.warn(e, messageKey, failedLine);
+			}
+			
+			int[] notExecuted = batchException.getNotExecutedLineNumbers();
+			
+			if (notExecuted.length != 0) {
+				this.logger.warn("continue_on_error.not_executed",
+						notExecuted.length,
+						notExecuted[0],
+						notExecuted[notExecuted.length - 1]);
+			}
+			
+			updateCount = batchException.getUpdateCount();
+			
+		} else {
+			this.logger.warn(e, messageKey, line);
+		}
+		
+		// PostgreSQLの場合、ロールバックが必要
+		DbUtils.rollbackQuietly(conn);
+		
+		return updateCount;
+	}
+	
+	/**
+	 * commitIntervalの指定により、指定された論理行の後でコミットするかどうか。
+	 * @param line 論理行（1から始まる）
+	 * @return コミットする場合はtrue
+	 * @since 1.1.10
+	 */
+	protected boolean isCommitLine(int line) {
+		return this.commitInterval > 0 && line % this.commitInterval == 0;
+	}
+	
+	/**
+	 * <p>
+	 * 現在のコネクションをコミットし、チェックポイントファイルにコミットした位置を記録する。
+	 * </p><p>
+	 * 呼び出す前に、バッチ等で保持している行を実行しておくこと。
+	 * </p>
+	 * @param file インポート元のファイル
+	 * @param part ファイル内の区分（Excelのシート名など）。ない場合はnull。
+	 * @param line コミットする論理行数
+	 * @param offset 次の論理行の開始位置（バイト）。不明な場合は-1。
+	 * @throws SQLException コミットに失敗した場合
+	 * @throws IOException チェックポイントファイルの書き込みに失敗した場合
+	 * @since 1.1.10
+	 */
+	protected void commit(File file, String part, int line, long offset)
+			throws SQLException, IOException {
+		
+		commitQuietly();
+		
+		if (this.checkpoint != null) {
+			this.checkpoint.update(file, part, line, offset);
+		}
+		
+		this.logger.debug("checkpoint.commit", line);
+	}
+	
+	/**
+	 * <p>
+	 * ファイル（またはシート）のインポートが完了した場合の処理を行う。
+	 * </p><p>
+	 * commitIntervalまたはcheckpointFileが指定されている場合は、コミットし、
+	 * チェックポイントファイルに完了を記録する。それ以外の場合は何もしない。
+	 * </p>
+	 * @param file インポート元のファイル
+	 * @param part ファイル内の区分（Excelのシート名など）。ない場合はnull。
+	 * @throws SQLException コミットに失敗した場合
+	 * @throws IOException チェックポイントファイルの書き込みに失敗した場合
+	 * @since 1.1.10
+	 */
+	protected void complete(File file, String part) throws SQLException, IOException {
+		if (this.commitInterval == 0 && this.checkpoint == null) {
+			return;
+		}
+		
+		commitQuietly();
+		
+		if (this.checkpoint != null) {
+			this.checkpoint.complete(file, part);
+		}
+	}
+	
+	private void commitQuietly() throws SQLException {
+		Connection conn = getCurrentConnection();
+		
+		if (!conn.getAutoCommit()) {
+			conn.commit();
+		}
+	}
+	
+	/**
+	 * <p>
+	 * resume=trueの場合に、チェックポイントファイルに記録された再開位置を返す。
+	 * </p>
+	 * @param file インポート元のファイル
+	 * @param part ファイル内の区分（Excelのシート名など）。ない場合はnull。
+	 * @return 再開位置。resume=falseの場合や、記録がない場合はnull。
+	 * @throws BuildException 記録した後にファイルが変更されていた場合
+	 * @since 1.1.10
+	 */
+	protected ImportCheckpoint.Position getResumePosition(File file, String part)
+			throws BuildException {
+		
+		if (!this.resume || this.checkpoint == null) {
+			return null;
+		}
+		
+		if (!this.checkpoint.isValidFor(file)) {
+			this.logger.throwBuildException(
+					"error.checkpoint_mismatch", file.getAbsolutePath());
+		}
+		
+		ImportCheckpoint.Position position = this.checkpoint.getPosition(file, part);
+		
+		if (position != null) {
+			if (position.isCompleted()) {
+				this.logger.info("checkpoint.skip_completed", 
+						part == null ? file.getAbsolutePath() : part);
+			} else {
+				this.logger.info("checkpoint.resume", 
+						part == null ? file.getAbsolutePath() : part,
+						position.getLine());
+			}
+		}
+		
+		return position;
+	}
+	
 	/**
 	 * truncate属性が指定されているならば、テーブルの全レコードを削除する。
 	 * @param table
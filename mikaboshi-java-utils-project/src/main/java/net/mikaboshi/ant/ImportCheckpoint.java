@@ -0,0 +1,264 @@
+package net.mikaboshi.ant;
+
+import static net.mikaboshi.validator.SimpleValidator.validateNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * <p>
+ * ファイルからDBへのインポートで、コミット済みの位置（チェックポイント）を記録するファイル。
+ * </p><p>
+ * インポート元のファイル（Excelの場合はシートごと）について、コミット済みの論理行数と、
+ * 次の論理行の開始位置（バイト）、インポートが完了したかどうかを記録する。
+ * 記録時のファイルのサイズと最終更新日時も記録し、再開時にファイルが変更されていないことを確認する。
+ * </p><p>
+ * 記録はプロパティファイル形式で、更新のたびに一時ファイル（ファイル名に「.tmp」を付加）に
+ * 書き込んでから、名前を変更して置き換える。
+ * 置き換えの途中で中断された場合は、書き込みが完了した一時ファイルが残るので、
+ * 次回はその一時ファイルから記録を読み込む。
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public class ImportCheckpoint {
+
+	private static final String COMMENT = "mikaboshi import checkpoint";
+
+	/** 一時ファイルの書き込みが完了したことを示す、末尾のコメント行 */
+	private static final String END_MARK = "#end";
+
+	private final File file;
+
+	private final Properties properties = new Properties();
+
+	/**
+	 * チェックポイントファイルを指定するコンストラクタ。
+	 * ファイルが存在する場合は、記録を読み込む。
+	 * 書き込みが完了した一時ファイルが残っている場合は、一時ファイルの方が新しい記録なので、
+	 * 一時ファイルから読み込む。
+	 *
+	 * @param file チェックポイントファイル
+	 * @throws IOException ファイルの読み込みに失敗した場合
+	 */
+	public ImportCheckpoint(File file) throws IOException {
+		validateNotNull(file, "file", NullPointerException.class);
+
+		this.file = file;
+
+		File temp = getTempFile();
+		File source = isComplete(temp) ? temp : file;
+
+		if (source.isFile()) {
+			InputStream in = FileUtils.openInputStream(source);
+
+			try {
+				this.properties.load(in);
+			} finally {
+				IOUtils.closeQuietly(in);
+			}
+		}
+	}
+
+	/**
+	 * インポート元のファイルの再開位置を返す。
+	 *
+	 * @param dataFile インポート元のファイル
+	 * @param part ファイル内の区分（Excelのシート名など）。ない場合はnull。
+	 * @return 再開位置。記録がない場合はnull。
+	 */
+	public Position getPosition(File dataFile, String part) {
+		String key = getKey(dataFile, part);
+		String line = this.properties.getProperty(key + ".line");
+
+		if (line == null) {
+			return null;
+		}
+
+		return new Position(
+				Integer.parseInt(line),
+				Long.parseLong(this.properties.getProperty(key + ".offset", "-1")),
+				Boolean.valueOf(this.properties.getProperty(key + ".completed")).booleanValue());
+	}
+
+	/**
+	 * 記録がインポート元のファイルの現在の内容に対して有効かどうか判定する。
+	 * 記録時とファイルのサイズ・最終更新日時が同じ場合、または記録がない場合に有効とする。
+	 *
+	 * @param dataFile インポート元のファイル
+	 * @return 有効な場合はtrue
+	 */
+	public boolean isValidFor(File dataFile) {
+		String key = dataFile.getAbsolutePath();
+		String length = this.properties.getProperty(key + ".length");
+
+		if (length == null) {
+			return true;
+		}
+
+		return Long.parseLong(length) == dataFile.length() &&
+				this.properties.getProperty(key + ".lastModified", "")
+					.equals(String.valueOf(dataFile.lastModified()));
+	}
+
+	/**
+	 * コミット済みの位置を記録し、ファイルに書き込む。
+	 *
+	 * @param dataFile インポート元のファイル
+	 * @param part ファイル内の区分（Excelのシート名など）。ない場合はnull。
+	 * @param line コミット済みの論理行数
+	 * @param offset 次の論理行の開始位置（バイト）。不明な場合は-1。
+	 * @throws IOException 書き込みに失敗した場合
+	 */
+	public void update(File dataFile, String part, int line, long offset) throws IOException {
+		String key = getKey(dataFile, part);
+
+		this.properties.setProperty(key + ".line", String.valueOf(line));
+		this.properties.setProperty(key + ".offset", String.valueOf(offset));
+		this.properties.remove(key + ".completed");
+
+		setFileInfo(dataFile);
+		save();
+	}
+
+	/**
+	 * インポートが完了したことを記録し、ファイルに書き込む。
+	 *
+	 * @param dataFile インポート元のファイル
+	 * @param part ファイル内の区分（Excelのシート名など）。ない場合はnull。
+	 * @throws IOException 書き込みに失敗した場合
+	 */
+	public void complete(File dataFile, String part) throws IOException {
+		String key = getKey(dataFile, part);
+
+		if (this.properties.getProperty(key + ".line") == null) {
+			this.properties.setProperty(key + ".line", "0");
+		}
+
+		this.properties.setProperty(key + ".completed", "true");
+
+		setFileInfo(dataFile);
+		save();
+	}
+
+	/**
+	 * 全ての記録を消去する。ファイル（および一時ファイル）が存在する場合は削除する。
+	 *
+	 * @throws IOException ファイルの削除に失敗した場合
+	 */
+	public void clear() throws IOException {
+		this.properties.clear();
+
+		delete(getTempFile());
+		delete(this.file);
+	}
+
+	private void setFileInfo(File dataFile) {
+		String key = dataFile.getAbsolutePath();
+
+		this.properties.setProperty(key + ".length", String.valueOf(dataFile.length()));
+		this.properties.setProperty(key + ".lastModified", String.valueOf(dataFile.lastModified()));
+	}
+
+	private void save() throws IOException {
+		File temp = getTempFile();
+		OutputStream out = FileUtils.openOutputStream(temp);
+
+		try {
+			this.properties.store(out, COMMENT);
+			out.write((END_MARK + IOUtils.LINE_SEPARATOR).getBytes("ISO-8859-1"));
+		} finally {
+			IOUtils.closeQuietly(out);
+		}
+
+		// 前回の記録を残したまま、名前の変更で置き換える
+		if (temp.renameTo(this.file)) {
+			return;
+		}
+
+		// 既存のファイルを置き換えられない環境では、削除してから名前を変更する。
+		// この間に中断された場合は、次回は一時ファイルから読み込む。
+		delete(this.file);
+
+		if (!temp.renameTo(this.file)) {
+			throw new IOException("Unable to rename " + temp.getAbsolutePath());
+		}
+	}
+
+	private File getTempFile() {
+		return new File(this.file.getPath() + ".tmp");
+	}
+
+	/**
+	 * 一時ファイルが存在し、書き込みが完了しているかどうか判定する。
+	 */
+	private static boolean isComplete(File temp) throws IOException {
+		if (!temp.isFile()) {
+			return false;
+		}
+
+		String content = FileUtils.readFileToString(temp, "ISO-8859-1");
+
+		return content.trim().endsWith(END_MARK);
+	}
+
+	private static void delete(File file) throws IOException {
+		if (file.exists() && !file.delete()) {
+			throw new IOException("Unable to delete " + file.getAbsolutePath());
+		}
+	}
+
+	private static String getKey(File dataFile, String part) {
+		String key = dataFile.getAbsolutePath();
+		return part == null ? key : key + "!" + part;
+	}
+
+	/**
+	 * 再開位置。
+	 */
+	public static class Position {
+
+		private final int line;
+
+		private final long offset;
+
+		private final boolean completed;
+
+		Position(int line, long offset, boolean completed) {
+			this.line = line;
+			this.offset = offset;
+			this.completed = completed;
+		}
+
+		/**
+		 * コミット済みの論理行数を返す。
+		 * @return
+		 */
+		public int getLine() {
+			return this.line;
+		}
+
+		/**
+		 * 次の論理行の開始位置（バイト）を返す。不明な場合は-1。
+		 * @return
+		 */
+		public long getOffset() {
+			return this.offset;
+		}
+
+		/**
+		 * インポートが完了している場合はtrue。
+		 * @return
+		 */
+		public boolean isCompleted() {
+			return this.completed;
+		}
+	}
+}
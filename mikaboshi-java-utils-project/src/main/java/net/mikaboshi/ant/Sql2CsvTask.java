@@ -88,12 +88,15 @@ public class Sql2CsvTask extends Sql2FileTask {
 	 */
 	@Override
 	protected ResultSetHandler createHandler() throws IOException {
-		return new ResultSetToCSVHandler(
+		ResultSetToCSVHandler handler = new ResultSetToCSVHandler(
 					this.writer,
 					isHeaderNeeded(),
 					false,
 					false,
 					getFormatter(),
 					getCSVStrategy());
+		
+		handler.setPipelined(isPipelined());
+		return handler;
 	}
 }
@@ -2,6 +2,7 @@ package net.mikaboshi.ant;
 
 import static net.mikaboshi.validator.SimpleValidator.validateNotBlank;
 import static net.mikaboshi.validator.SimpleValidator.validateNotNull;
+import static net.mikaboshi.validator.SimpleValidator.validatePositiveOrZero;
 
 import java.io.File;
 import java.io.IOException;
@@ -13,7 +14,8 @@ import net.mikaboshi.jdbc.DbUtils;
 import net.mikaboshi.jdbc.QueryExecutor;
 import net.mikaboshi.jdbc.ResultDataFormatter;
 import net.mikaboshi.jdbc.ResultSetHandler;
-import net.mikaboshi.jdbc.SimpleFormatter;
+import net.mikaboshi.jdbc.ResultSetToFileHandler;
+import net.mikaboshi.jdbc.TypedFormatter;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.tools.ant.BuildException;
@@ -151,12 +153,109 @@ public abstract class Sql2FileTask extends JDBCTask {
 		return this.charset;
 	}
 	
+	private boolean streaming = false;
+	
+	/**
+	 * <p>
+	 * クエリ結果をストリーミングモードで取得するかどうかを設定する。
+	 * （省略可。デフォルトはfalse。）
+	 * </p><p>
+	 * trueの場合、結果セットを前方スクロールのみ・読み取り専用で生成し、
+	 * 全行をメモリに読み込まずに少しずつ取得する。
+	 * 大きなテーブルを出力する場合に指定する。
+	 * </p>
+	 * @param streaming
+	 * @since 1.1.10
+	 * @see QueryExecutor#setStreaming(boolean)
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+	
+	/**
+	 * クエリ結果をストリーミングモードで取得するかどうかを取得する。
+	 * @return
+	 * @since 1.1.10
+	 */
+	protected boolean isStreaming() {
+		return this.streaming;
+	}
+	
+	private int fetchSize = 0;
+	
+	/**
+	 * 結果セットのフェッチサイズを設定する。
+	 * （省略可。デフォルトは0：ドライバのデフォルト。
+	 * ストリーミングモードでは {@link QueryExecutor#DEFAULT_STREAMING_FETCH_SIZE}。）
+	 * @param fetchSize
+	 * @since 1.1.10
+	 */
+	public void setFetchSize(int fetchSize) {
+		validatePositiveOrZero(fetchSize, "fetchSize", BuildException.class);
+		this.fetchSize = fetchSize;
+	}
+	
+	/**
+	 * 結果セットのフェッチサイズを取得する。
+	 * @return
+	 * @since 1.1.10
+	 */
+	protected int getFetchSize() {
+		return this.fetchSize;
+	}
+	
+	private boolean pipelined = false;
+	
+	/**
+	 * <p>
+	 * クエリ結果の取得と、ファイルへの出力を別のスレッドで並行して行うかどうかを設定する。
+	 * （省略可。デフォルトはfalse。）
+	 * </p><p>
+	 * trueの場合、JDBCのスレッドは値を取得するだけで次の行に進み、
+	 * 文字列への変換と出力は書き込みスレッドで行う。
+	 * </p>
+	 * @param pipelined
+	 * @since 1.1.10
+	 * @see ResultSetToFileHandler#setPipelined(boolean)
+	 */
+	public void setPipelined(boolean pipelined) {
+		this.pipelined = pipelined;
+	}
+	
+	/**
+	 * クエリ結果の取得と、ファイルへの出力を別のスレッドで並行して行うかどうかを取得する。
+	 * @return
+	 * @since 1.1.10
+	 */
+	protected boolean isPipelined() {
+		return this.pipelined;
+	}
+	
+	/**
+	 * ストリーミングモードとフェッチサイズを設定したクエリ実行オブジェクトを生成する。
+	 * 
+	 * @param conn
+	 * @param handler
+	 * @return
+	 * @since 1.1.10
+	 */
+	protected QueryExecutor createQueryExecutor(Connection conn, ResultSetHandler handler) {
+		QueryExecutor executor = new QueryExecutor(conn, handler);
+		executor.setStreaming(isStreaming());
+		executor.setFetchSize(getFetchSize());
+		return executor;
+	}
+
 	/**
+	 * <p>
 	 * ResultSetの文字列表現を行うオブジェクトを取得する。
+	 * </p><p>
+	 * カラムのデータ型に応じた getXxx メソッドで値を取得する {@link TypedFormatter} を返す。
+	 * </p>
 	 * @return
 	 */
 	protected ResultDataFormatter getFormatter() {
-		SimpleFormatter formatter = new SimpleFormatter();
+		TypedFormatter formatter = new TypedFormatter();
 		if (getNullString() != null) {
 			formatter.setNullString(getNullString());
 		}
@@ -179,7 +278,7 @@ public abstract class Sql2FileTask extends JDBCTask {
 			
 			this.logger.info("file.output", getOutputFile().getAbsolutePath());
 			
-			new QueryExecutor(conn, createHandler()).execute(getSql());
+			createQueryExecutor(conn, createHandler()).execute(getSql());
 			
 		} catch (IOException e) {
 			throw new BuildException(e);
@@ -68,7 +68,7 @@ public class Sql2XlsTask extends Sql2FileTask {
 	 */
 	@Override
 	protected ResultSetHandler createHandler() throws IOException {
-		return new ResultSetToXLSHandler(
+		ResultSetToXLSHandler handler = new ResultSetToXLSHandler(
 				getOutputFile(),
 				this.append,
 				isHeaderNeeded(),
@@ -77,5 +77,8 @@ public class Sql2XlsTask extends Sql2FileTask {
 				this.replaceSheet,
 				getFormatter(),
 				this.sheetName);
+		
+		handler.setPipelined(isPipelined());
+		return handler;
 	}
 }
@@ -154,7 +154,7 @@ public class Xls2DbTask extends File2DbTask {
 
 			for (int i = 0; i < sheetNum; i++) {
 				this.sheetName = workbook.getSheetName(i);
-				executeSheet(workbook.getSheetAt(i), this.sheetName);
+				executeSheet(file, workbook.getSheetAt(i), this.sheetName);
 			}
 			
 		} catch (IOException e) {
@@ -176,7 +176,8 @@ public class Xls2DbTask extends File2DbTask {
 	private int rowIndex;
 	private short columnIndex;
 	
-	private void executeSheet(HSSFSheet sheet, String tableName) throws SQLException {
+	private void executeSheet(File file, HSSFSheet sheet, String tableName)
+			throws SQLException, IOException {
 		
 		if (isIgnore(tableName)) {
 			return;
@@ -184,7 +185,18 @@ public class Xls2DbTask extends File2DbTask {
 		
 		DbUtils.validateTableName(tableName);
 		
-		truncateIfRequred(tableName, getCurrentConnection());
+		ImportCheckpoint.Position resumePosition = getResumePosition(file, tableName);
+		
+		if (resumePosition != null && resumePosition.isCompleted()) {
+			return;
+		}
+		
+		// コミット済みの行数（再開する場合）
+		int resumeLine = resumePosition != null ? resumePosition.getLine() : 0;
+		
+		if (resumePosition == null) {
+			truncateIfRequred(tableName, getCurrentConnection());
+		}
 		
 		// INSERTまたはUPDATEに成功した件数
 		int insertOrUpdateRowCount = 0;
@@ -198,6 +210,12 @@ public class Xls2DbTask extends File2DbTask {
 		arrayToDbImporter.setReplace(isReplace());
 		arrayToDbImporter.setNullString(getNullString());
 		arrayToDbImporter.setCaseSensitive(isCaseSensitive());
+		arrayToDbImporter.setBatchSize(getBatchSize());
+		arrayToDbImporter.setRowsPerInsert(getRowsPerInsert());
+		arrayToDbImporter.setReplaceBatchSize(getReplaceBatchSize());
+		arrayToDbImporter.setStagingTableName(getStagingTable());
+		arrayToDbImporter.setPreloadPrimaryKeys(isPreloadPrimaryKeys());
+		arrayToDbImporter.setSchemaCache(getSchemaCache());
 		
 		if (!isExistsHeader()) {
 			// シートの1行目がカラム名ではない場合、テーブル定義のカラム順でImporterを初期化
@@ -209,9 +227,16 @@ public class Xls2DbTask extends File2DbTask {
 				 Iterator<HSSFRow> rIter = sheet.rowIterator(); rIter.hasNext();) {
 				
 				this.rowIndex++;
+				
+				HSSFRow row = rIter.next();
+				
+				if (this.rowIndex < resumeLine && !(this.rowIndex == 0 && isExistsHeader())) {
+					// コミット済みの行を読み飛ばす（カラム名の行は読み込む）
+					continue;
+				}
 					
 				try {
-					int result = executeRow(arrayToDbImporter, rIter.next());
+					int result = executeRow(arrayToDbImporter, row);
 					
 					if (result < 0) {
 						// 空行がきたら終了
@@ -221,20 +246,22 @@ public class Xls2DbTask extends File2DbTask {
 					insertOrUpdateRowCount += result;
 				
 				} catch (SQLException e) {
-					if (isHaltOnError()) {
-						throw e;
-					}
-					
-					this.logger.warn(e,
-							"continue_on_error.physical_line",
-							this.rowIndex + 1);
-					
-					// PostgreSQLの場合、ロールバックが必要
-					DbUtils.rollbackQuietly(getCurrentConnection());
+					insertOrUpdateRowCount += continueOnError(
+							e, "continue_on_error.physical_line", this.rowIndex + 1);
+				}
+				
+				if (isCommitLine(this.rowIndex + 1)) {
+					insertOrUpdateRowCount += flush(arrayToDbImporter);
+					commit(file, tableName, this.rowIndex + 1, -1L);
 				}
 					
 			} // end row iterator
 			
+			// バッチの残りを実行
+			insertOrUpdateRowCount += flush(arrayToDbImporter);
+			
+			complete(file, tableName);
+			
 		} finally {
 			this.logger.debug("lines.execute", this.rowIndex + 1);
 			this.logger.info("lines.insert_update", insertOrUpdateRowCount);
@@ -287,6 +314,19 @@ public class Xls2DbTask extends File2DbTask {
 		}
 	}
 	
+	/**
+	 * バッチ等で保持している行を実行する。
+	 */
+	private int flush(ArrayToDbImporter arrayToDbImporter) throws SQLException {
+		try {
+			return arrayToDbImporter.flush();
+			
+		} catch (SQLException e) {
+			return continueOnError(
+					e, "continue_on_error.physical_line", this.rowIndex + 1);
+		}
+	}
+	
 	/**
 	 * 行の挿入/更新を実行する。
 	 * 
@@ -324,7 +364,7 @@ public class Xls2DbTask extends File2DbTask {
 			return -1;
 		}
 		
-		return arrayToDbImporter.execute(rowData);
+		return arrayToDbImporter.execute(rowData, this.rowIndex + 1);
 	}
 	
 	/**
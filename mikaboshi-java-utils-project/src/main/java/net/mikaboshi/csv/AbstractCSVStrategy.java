@@ -36,17 +36,35 @@ public abstract class AbstractCSVStrategy implements CSVStrategy, Serializable {
 	 */
 	public void printLine(Object[] data, PrintWriter out) {
 		
+		String delimiter = getDelimiter();
+		
 		for (int i = 0; i < data.length; i++) {
 			if (i != 0) {
-				out.print(getDelimiter());
+				out.print(delimiter);
 			}
 			
-			out.print(escape(data[i]));
+			printItem(data[i], out);
 		}
 		
 		out.print(getLineSeparator());
 	}
 	
+	/**
+	 * <p>
+	 * 1項目をCSV出力形式に変換して出力する。
+	 * </p><p>
+	 * この実装では、{@link #escape(Object)} の戻り値を出力する。
+	 * サブクラスでは、中間の文字列を生成せずに直接出力するようにオーバーライドできる。
+	 * </p>
+	 * 
+	 * @param rawItem 未加工のCSV項目
+	 * @param out 出力先
+	 * @since 1.1.10
+	 */
+	protected void printItem(Object rawItem, PrintWriter out) {
+		out.print(escape(rawItem));
+	}
+	
 	private String nullString = StringUtils.EMPTY;
 	
 	/* (非 Javadoc)
@@ -0,0 +1,24 @@
+package net.mikaboshi.csv;
+
+/**
+ * {@link TypedCSVReader} で読み込む列の型。
+ * 
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public enum CSVColumnType {
+	/** 文字列（アンエスケープした値） */
+	STRING,
+	/** int値 */
+	INT,
+	/** long値 */
+	LONG,
+	/** double値 */
+	DOUBLE,
+	/** {@link java.math.BigDecimal} */
+	DECIMAL,
+	/** 日付（yyyy-mm-dd、またはyyyy/mm/dd） */
+	DATE,
+	/** 日時（yyyy-mm-dd hh:mm:ss[.fffffffff]、日付の区切りは「/」も可） */
+	TIMESTAMP
+}
@@ -1,6 +1,9 @@
 package net.mikaboshi.csv;
 
+import static net.mikaboshi.validator.SimpleValidator.validatePositive;
+
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -8,7 +11,6 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.io.Reader;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -16,7 +18,6 @@ import java.util.List;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang.StringUtils;
 
 /**
  * CSVファイルを読み書きを簡単に行うためのユーティリティクラス。
@@ -29,6 +30,8 @@ public class CSVFileUtils {
 	
 	private CSVStrategy csvStrategy;
 	
+	private int threads = 1;
+	
 	private static final String DEFAULT_CHARSET =
 			Charset.defaultCharset().name();
 	
@@ -74,6 +77,22 @@ public class CSVFileUtils {
 		this.charset = charset;
 	}
 
+	/**
+	 * <p>
+	 * CSVファイルの読み込みに使用するスレッド数を設定する。（デフォルトは1）
+	 * </p><p>
+	 * 2以上が指定され、CSVStrategyが {@link StandardCSVStrategy} の場合は、
+	 * {@link ParallelCSVReader} でファイルを分割して並列に読み込む。
+	 * </p>
+	 * @param threads スレッド数（1以上）
+	 * @throws IllegalArgumentException threadsが1未満の場合
+	 * @since 1.1.10
+	 */
+	public void setThreads(int threads) {
+		validatePositive(threads, "threads", IllegalArgumentException.class);
+		this.threads = threads;
+	}
+
 	/**
 	 * CSVファイルを読み、リスト形式で返す。
 	 * 
@@ -86,21 +105,30 @@ public class CSVFileUtils {
 		
 		List<List<String>> result = new ArrayList<List<String>>();
 		
-		InputStream is = null;
-		Reader reader = null;
-
-		try {
-			is = FileUtils.openInputStream(input);
-			reader = new BufferedReader(
-					new InputStreamReader(is, this.charset));
+		if (this.threads > 1 && this.csvStrategy instanceof StandardCSVStrategy) {
+			ParallelCSVReader parallelReader = new ParallelCSVReader(
+					input, (StandardCSVStrategy) this.csvStrategy, this.charset);
+			parallelReader.setThreads(this.threads);
 			
-			for (String[] lines : this.csvStrategy.csvLines(reader)) {
-				result.add(Arrays.asList(lines));
+			try {
+				for (String[] lines : parallelReader.csvLines()) {
+					result.add(Arrays.asList(lines));
+				}
+			} finally {
+				parallelReader.close();
 			}
 			
+			return result;
+		}
+		
+		CSVRowReader reader = openReader(input);
+
+		try {
+			for (List<String> line : reader) {
+				result.add(line);
+			}
 		} finally {
-			IOUtils.closeQuietly(reader);
-			IOUtils.closeQuietly(is);
+			closeQuietly(reader);
 		}
 			
 		return result;
@@ -117,30 +145,93 @@ public class CSVFileUtils {
 			List<List<String>> data, File output) 
 			throws IOException {
 
-		OutputStream os = null;
-		PrintWriter writer = null;
-			
-		int maxSize = maxSize(data);
+		CSVRowWriter writer = openWriter(output, maxSize(data));
 		
 		try {
-			os = FileUtils.openOutputStream(output);
-			writer = new PrintWriter(new OutputStreamWriter(os, this.charset));
-			
 			for (List<String> line : data) {
-				String[] arrayData = new String[maxSize];
-				line.toArray(arrayData);
-				
-				// 項目数を統一する
-				for (int i = line.size(); i < maxSize; i++) {
-					arrayData[i] = StringUtils.EMPTY;
-				}
-				
-				this.csvStrategy.printLine(arrayData, writer);
+				writer.writeRow(line);
 			}
-			
 		} finally {
-			IOUtils.closeQuietly(writer);
+			closeQuietly(writer);
+		}
+	}
+	
+	/**
+	 * <p>
+	 * CSVファイルを1行ずつ読み込むカーソルを開く。
+	 * </p><p>
+	 * {@link #readFile(File)} と異なり、ファイル全体をメモリに保持しない。
+	 * 使用後は {@link CSVRowReader#close()} で閉じること。
+	 * </p>
+	 * 
+	 * @param input 読み込むCSVファイル
+	 * @return 行のカーソル
+	 * @throws IOException ファイルを開けなかった場合
+	 * @since 1.1.10
+	 */
+	public CSVRowReader openReader(File input) throws IOException {
+		InputStream is = FileUtils.openInputStream(input);
+		
+		try {
+			return new CSVRowReader(
+					new BufferedReader(new InputStreamReader(is, this.charset)),
+					this.csvStrategy);
+		} catch (RuntimeException e) {
+			IOUtils.closeQuietly(is);
+			throw e;
+		}
+	}
+	
+	/**
+	 * <p>
+	 * CSVファイルに1行ずつ書き出すライターを開く。
+	 * 列数は、最初に書き出した行の項目数とする。
+	 * </p><p>
+	 * 使用後は {@link CSVRowWriter#close()} で閉じること。
+	 * </p>
+	 * 
+	 * @param output 書き出すCSVファイル
+	 * @return 行のライター
+	 * @throws IOException ファイルを開けなかった場合
+	 * @since 1.1.10
+	 */
+	public CSVRowWriter openWriter(File output) throws IOException {
+		return openWriter(output, 0);
+	}
+	
+	/**
+	 * <p>
+	 * 列数を指定して、CSVファイルに1行ずつ書き出すライターを開く。
+	 * 項目数が列数より少ない行は、空文字で補われる。
+	 * </p><p>
+	 * 使用後は {@link CSVRowWriter#close()} で閉じること。
+	 * </p>
+	 * 
+	 * @param output 書き出すCSVファイル
+	 * @param columnCount 列数。0の場合は、最初に書き出した行の項目数とする。
+	 * @return 行のライター
+	 * @throws IOException ファイルを開けなかった場合
+	 * @since 1.1.10
+	 */
+	public CSVRowWriter openWriter(File output, int columnCount) throws IOException {
+		OutputStream os = FileUtils.openOutputStream(output);
+		
+		try {
+			return new CSVRowWriter(
+					new PrintWriter(new OutputStreamWriter(os, this.charset)),
+					this.csvStrategy,
+					columnCount);
+		} catch (RuntimeException e) {
 			IOUtils.closeQuietly(os);
+			throw e;
+		}
+	}
+	
+	private static void closeQuietly(Closeable closeable) {
+		try {
+			closeable.close();
+		} catch (IOException e) {
+			// 無視する
 		}
 	}
 	
@@ -0,0 +1,23 @@
+package net.mikaboshi.csv;
+
+/**
+ * <p>
+ * CSVの論理行を、キー列の値だけで読み込むかどうか判定するフィルタ。
+ * </p><p>
+ * {@link StandardCSVStrategy#csvLines(java.io.Reader, int[], int, CSVLineFilter)} で使用する。
+ * 受け入れなかった行は、キー列以外の項目をアンエスケープせずに読み飛ばす。
+ * </p>
+ * 
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public interface CSVLineFilter {
+
+	/**
+	 * 論理行を読み込むかどうか判定する。
+	 * 
+	 * @param key キー列の値（アンエスケープ済み）。キー列の項目がない行ではnull。
+	 * @return 読み込む場合はtrue。読み飛ばす場合はfalse。
+	 */
+	public boolean accept(String key);
+}
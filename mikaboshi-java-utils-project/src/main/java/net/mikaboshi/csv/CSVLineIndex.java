@@ -0,0 +1,415 @@
+package net.mikaboshi.csv;
+
+import static net.mikaboshi.validator.SimpleValidator.validateNotNull;
+import static net.mikaboshi.validator.SimpleValidator.validatePositive;
+import static net.mikaboshi.validator.SimpleValidator.validatePositiveOrZero;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+
+import net.mikaboshi.io.RandomAccessFileInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * <p>
+ * CSVファイルの、N論理行ごとの開始位置（バイト）を記録した索引。
+ * </p><p>
+ * 索引は {@link #build(File, String, int)} でファイルを1度走査して作成し、
+ * {@link #save(File)} でCSVファイルとは別のファイル（サイドカー）に保存できる。
+ * 索引を使うと、{@link #openReader(File, CSVStrategy, String, int)} で
+ * 任意の論理行から読み込みを開始できる。
+ * シークは1回で、読み飛ばすのは最大で N-1 行である。
+ * </p><p>
+ * 論理行の境界をバイト単位で判定するため、文字セットは引用符と改行が1バイトで表され、
+ * それらのバイト値がマルチバイト文字の一部に現れないもの（UTF-8、Shift_JIS、EUC-JP等）に限る。
+ * 論理行の規則は {@link StandardCSVStrategy} と同じ。
+ * </p><p>
+ * 使用例：
+ * <pre>
+ * CSVLineIndex index = CSVLineIndex.loadOrBuild(file, "UTF-8", 1000);
+ * CSVRowReader reader = index.openReader(file, new StandardCSVStrategy(), "UTF-8", 123456);
+ * try {
+ *     ...
+ * } finally {
+ *     reader.close();
+ * }
+ * </pre>
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public class CSVLineIndex {
+
+	/** 索引ファイルの先頭のマジックナンバー */
+	private static final int MAGIC = 0x4D435349;
+
+	/** 索引ファイルの形式のバージョン */
+	private static final int VERSION = 1;
+
+	/** 索引ファイルの拡張子 */
+	public static final String INDEX_FILE_SUFFIX = ".idx";
+
+	private static final byte QUOTE = '"';
+	private static final byte CR = '\r';
+	private static final byte LF = '\n';
+
+	/** 何論理行ごとに開始位置を記録するか */
+	private final int interval;
+
+	/** 論理行の総数 */
+	private final int lineCount;
+
+	/** 索引作成時のCSVファイルのサイズ */
+	private final long fileLength;
+
+	/** 索引作成時のCSVファイルの最終更新日時 */
+	private final long lastModified;
+
+	/** interval × i 行目の開始位置 */
+	private final long[] offsets;
+
+	private CSVLineIndex(
+			int interval, int lineCount, long fileLength, long lastModified, long[] offsets) {
+
+		this.interval = interval;
+		this.lineCount = lineCount;
+		this.fileLength = fileLength;
+		this.lastModified = lastModified;
+		this.offsets = offsets;
+	}
+
+	/**
+	 * CSVファイルを走査して索引を作成する。
+	 *
+	 * @param csvFile CSVファイル
+	 * @param charset CSVファイルの文字セット
+	 * @param interval 何論理行ごとに開始位置を記録するか（1以上）
+	 * @return 作成した索引
+	 * @throws IOException ファイルの読み込みに失敗した場合
+	 * @throws IllegalArgumentException 文字セットが索引に対応していない場合。intervalが1未満の場合。
+	 */
+	public static CSVLineIndex build(File csvFile, String charset, int interval)
+			throws IOException {
+
+		validateNotNull(csvFile, "csvFile", NullPointerException.class);
+		validateCharset(charset);
+		validatePositive(interval, "interval", IllegalArgumentException.class);
+
+		long lastModified = csvFile.lastModified();
+		long[] offsets = new long[16];
+		int offsetCount = 0;
+		int line = 0;
+
+		boolean inQuote = false;
+		boolean lineStart = true;
+		boolean skipLF = false;
+		long pos = 0L;
+
+		InputStream is = FileUtils.openInputStream(csvFile);
+
+		try {
+			byte[] buffer = new byte[64 * 1024];
+			int read;
+
+			while ((read = is.read(buffer)) != -1) {
+				for (int i = 0; i < read; i++, pos++) {
+					byte b = buffer[i];
+
+					if (skipLF) {
+						// CRLFのLFは、前の行の終わりに含める
+						skipLF = false;
+
+						if (b == LF) {
+							continue;
+						}
+					}
+
+					if (lineStart) {
+						if (line % interval == 0) {
+							if (offsetCount == offsets.length) {
+								long[] newOffsets = new long[offsets.length * 2];
+								System.arraycopy(offsets, 0, newOffsets, 0, offsetCount);
+								offsets = newOffsets;
+							}
+
+							offsets[offsetCount++] = pos;
+						}
+
+						line++;
+						lineStart = false;
+					}
+
+					if (b == QUOTE) {
+						// 引用符の個数が偶数の位置が、引用の外となる
+						inQuote = !inQuote;
+					} else if (!inQuote && (b == CR || b == LF)) {
+						lineStart = true;
+						skipLF = b == CR;
+					}
+				}
+			}
+
+		} finally {
+			IOUtils.closeQuietly(is);
+		}
+
+		long[] result = new long[offsetCount];
+		System.arraycopy(offsets, 0, result, 0, offsetCount);
+
+		return new CSVLineIndex(interval, line, pos, lastModified, result);
+	}
+
+	/**
+	 * 索引ファイルから索引を読み込む。
+	 *
+	 * @param indexFile 索引ファイル
+	 * @return 読み込んだ索引
+	 * @throws IOException 読み込みに失敗した場合、または索引ファイルの形式が不正な場合
+	 */
+	public static CSVLineIndex load(File indexFile) throws IOException {
+		validateNotNull(indexFile, "indexFile", NullPointerException.class);
+
+		DataInputStream in = new DataInputStream(
+				new BufferedInputStream(FileUtils.openInputStream(indexFile)));
+
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Invalid CSV index file: " + indexFile);
+			}
+
+			int interval = in.readInt();
+			int lineCount = in.readInt();
+			long fileLength = in.readLong();
+			long lastModified = in.readLong();
+			long[] offsets = new long[in.readInt()];
+
+			for (int i = 0; i < offsets.length; i++) {
+				offsets[i] = in.readLong();
+			}
+
+			return new CSVLineIndex(interval, lineCount, fileLength, lastModified, offsets);
+
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * <p>
+	 * CSVファイルの索引ファイル（{@link #getIndexFile(File)}）が有効ならば読み込み、
+	 * そうでなければ索引を作成して保存する。
+	 * </p><p>
+	 * 索引ファイルは、作成時とCSVファイルのサイズ・最終更新日時が同じで、
+	 * intervalが一致する場合に有効とする。
+	 * </p>
+	 *
+	 * @param csvFile CSVファイル
+	 * @param charset CSVファイルの文字セット
+	 * @param interval 何論理行ごとに開始位置を記録するか（1以上）
+	 * @return 索引
+	 * @throws IOException ファイルの読み書きに失敗した場合
+	 */
+	public static CSVLineIndex loadOrBuild(File csvFile, String charset, int interval)
+			throws IOException {
+
+		File indexFile = getIndexFile(csvFile);
+
+		if (indexFile.isFile()) {
+			try {
+				CSVLineIndex index = load(indexFile);
+
+				if (index.interval == interval && index.isValidFor(csvFile)) {
+					return index;
+				}
+			} catch (IOException e) {
+				// 壊れた索引ファイルは作り直す
+			}
+		}
+
+		CSVLineIndex index = build(csvFile, charset, interval);
+		index.save(indexFile);
+
+		return index;
+	}
+
+	/**
+	 * CSVファイルに対応する索引ファイル（CSVファイル名 + {@value #INDEX_FILE_SUFFIX}）を返す。
+	 *
+	 * @param csvFile CSVファイル
+	 * @return 索引ファイル
+	 */
+	public static File getIndexFile(File csvFile) {
+		return new File(csvFile.getPath() + INDEX_FILE_SUFFIX);
+	}
+
+	/**
+	 * 索引をファイルに保存する。
+	 *
+	 * @param indexFile 索引ファイル
+	 * @throws IOException 書き込みに失敗した場合
+	 */
+	public void save(File indexFile) throws IOException {
+		validateNotNull(indexFile, "indexFile", NullPointerException.class);
+
+		DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(FileUtils.openOutputStream(indexFile)));
+
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(this.interval);
+			out.writeInt(this.lineCount);
+			out.writeLong(this.fileLength);
+			out.writeLong(this.lastModified);
+			out.writeInt(this.offsets.length);
+
+			for (long offset : this.offsets) {
+				out.writeLong(offset);
+			}
+
+			out.flush();
+
+		} finally {
+			IOUtils.closeQuietly(out);
+		}
+	}
+
+	/**
+	 * 索引がCSVファイルの現在の内容に対して有効かどうか判定する。
+	 * 作成時とファイルのサイズ・最終更新日時が同じ場合に有効とする。
+	 *
+	 * @param csvFile CSVファイル
+	 * @return 有効な場合はtrue
+	 */
+	public boolean isValidFor(File csvFile) {
+		return csvFile.length() == this.fileLength &&
+				csvFile.lastModified() == this.lastModified;
+	}
+
+	/**
+	 * 何論理行ごとに開始位置を記録しているかを返す。
+	 * @return 開始位置を記録する間隔（論理行数）
+	 */
+	public int getInterval() {
+		return this.interval;
+	}
+
+	/**
+	 * CSVファイルの論理行の総数を返す。
+	 * @return 論理行の総数
+	 */
+	public int getLineCount() {
+		return this.lineCount;
+	}
+
+	/**
+	 * <p>
+	 * 指定された論理行の直前（またはその行）で、開始位置を記録している論理行を返す。
+	 * </p>
+	 *
+	 * @param line 論理行（0から始まる）
+	 * @return 開始位置を記録している論理行（0から始まる）
+	 */
+	public int getIndexedLine(int line) {
+		validatePositiveOrZero(line, "line", IllegalArgumentException.class);
+
+		if (line >= this.lineCount) {
+			return this.lineCount;
+		}
+
+		return line - line % this.interval;
+	}
+
+	/**
+	 * <p>
+	 * {@link #getIndexedLine(int)} の論理行の開始位置（バイト）を返す。
+	 * </p><p>
+	 * 論理行の総数以上が指定された場合は、ファイルの終わりの位置を返す。
+	 * </p>
+	 *
+	 * @param line 論理行（0から始まる）
+	 * @return 開始位置（バイト）
+	 */
+	public long getOffset(int line) {
+		int indexedLine = getIndexedLine(line);
+
+		if (indexedLine >= this.lineCount) {
+			return this.fileLength;
+		}
+
+		return this.offsets[indexedLine / this.interval];
+	}
+
+	/**
+	 * <p>
+	 * CSVファイルを、指定された論理行から読み込むカーソルを開く。
+	 * </p><p>
+	 * 索引に記録された位置にシークし、そこから目的の論理行まで読み飛ばす。
+	 * 使用後は {@link CSVRowReader#close()} で閉じること。
+	 * </p>
+	 *
+	 * @param csvFile CSVファイル
+	 * @param csvStrategy パースに使用するCSVStrategy
+	 * @param charset CSVファイルの文字セット
+	 * @param line 読み込みを開始する論理行（0から始まる）
+	 * @return 行のカーソル
+	 * @throws IOException ファイルを開けなかった場合
+	 * @throws IllegalStateException 索引がCSVファイルに対して有効でない場合
+	 */
+	public CSVRowReader openReader(
+			File csvFile, CSVStrategy csvStrategy, String charset, int line)
+			throws IOException {
+
+		validateNotNull(csvFile, "csvFile", NullPointerException.class);
+		validateNotNull(csvStrategy, "csvStrategy", NullPointerException.class);
+
+		if (!isValidFor(csvFile)) {
+			throw new IllegalStateException("CSV index is out of date: " + csvFile);
+		}
+
+		RandomAccessFile raf = new RandomAccessFile(csvFile, "r");
+		CSVRowReader reader;
+
+		try {
+			raf.seek(getOffset(line));
+
+			reader = new CSVRowReader(
+					new BufferedReader(new InputStreamReader(
+							new RandomAccessFileInputStream(raf), charset)),
+					csvStrategy);
+
+			for (int i = getIndexedLine(line); i < line && reader.hasNext(); i++) {
+				reader.next();
+			}
+
+		} catch (IOException e) {
+			IOUtils.closeQuietly(raf);
+			throw e;
+		} catch (RuntimeException e) {
+			// 読み飛ばし中の失敗でも、ファイルを閉じる
+			IOUtils.closeQuietly(raf);
+			throw e;
+		}
+
+		return reader;
+	}
+
+	private static void validateCharset(String charset) {
+		validateNotNull(charset, "charset", NullPointerException.class);
+
+		if (!ParallelCSVReader.isByteScannable(charset)) {
+			throw new IllegalArgumentException("CSV index does not support charset: " + charset);
+		}
+	}
+}
@@ -0,0 +1,221 @@
+package net.mikaboshi.csv;
+
+import static net.mikaboshi.validator.SimpleValidator.validateNotNull;
+import static net.mikaboshi.validator.SimpleValidator.validatePositive;
+import static net.mikaboshi.validator.SimpleValidator.validatePositiveOrZero;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedList;
+
+/**
+ * <p>
+ * 通過するバイトを走査し、CSVの論理行の開始位置（バイト）を記録する入力ストリーム。
+ * </p><p>
+ * CSVのパーサーが読み込むストリームをこのクラスでラップすると、パースした論理行の
+ * 次の論理行の開始位置を {@link #getLineOffset(int)} で取得できる。
+ * 取得した位置にシークすれば、その論理行から読み込みを再開できる。
+ * パーサーは先読みするため、開始位置は、ストリームを通過した論理行について
+ * N論理行ごと（{@link #CSVLineOffsetInputStream(InputStream, long, int, int)} のinterval）に記録し、
+ * 取得した位置より前の記録は破棄する。
+ * </p><p>
+ * 論理行の規則は {@link StandardCSVStrategy}（{@link CSVLineIndex}）と同じ。
+ * 文字セットは、{@link #isSupportedCharset(String)} がtrueを返すものに限る。
+ * </p><p>
+ * <i>(注意)このクラスのインスタンスは非同期である。</i>
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public class CSVLineOffsetInputStream extends FilterInputStream {
+
+	private static final byte QUOTE = '"';
+	private static final byte CR = '\r';
+	private static final byte LF = '\n';
+
+	/** 何論理行ごとに開始位置を記録するか */
+	private final int interval;
+
+	/** 記録した [論理行, 開始位置] */
+	private final LinkedList<long[]> offsets = new LinkedList<long[]>();
+
+	/** 現在の位置（バイト） */
+	private long position;
+
+	/** 開始した論理行の数（次に開始する論理行。0から始まる） */
+	private int line;
+
+	private boolean inQuote = false;
+
+	private boolean lineStart = true;
+
+	private boolean skipLF = false;
+
+	private boolean eof = false;
+
+	private final byte[] single = new byte[1];
+
+	/**
+	 * 論理行の先頭から読み込むストリームと、位置を記録する間隔を指定するコンストラクタ。
+	 *
+	 * @param in ラップするストリーム（論理行の先頭から読み込むこと）
+	 * @param position ストリームの先頭の、ファイル上の位置（バイト）
+	 * @param line ストリームの先頭の論理行（0から始まる）
+	 * @param interval 何論理行ごとに開始位置を記録するか（1以上）
+	 * @throws NullPointerException inがnullの場合
+	 * @throws IllegalArgumentException position, lineが負の場合。intervalが1未満の場合。
+	 */
+	public CSVLineOffsetInputStream(InputStream in, long position, int line, int interval) {
+		super(in);
+
+		validateNotNull(in, "in", NullPointerException.class);
+		validatePositiveOrZero(line, "line", IllegalArgumentException.class);
+		validatePositive(interval, "interval", IllegalArgumentException.class);
+
+		if (position < 0L) {
+			throw new IllegalArgumentException("position must not be negative : " + position);
+		}
+
+		this.position = position;
+		this.line = line;
+		this.interval = interval;
+	}
+
+	/**
+	 * 論理行の開始位置をバイト単位で判定できる文字セットかどうか。
+	 *
+	 * @param charset 文字セット
+	 * @return 判定できる場合はtrue
+	 */
+	public static boolean isSupportedCharset(String charset) {
+		return ParallelCSVReader.isByteScannable(charset);
+	}
+
+	/**
+	 * <p>
+	 * 指定された論理行の開始位置（バイト）を返す。
+	 * 最後の論理行の次を指定した場合は、ファイルの終わりの位置を返す。
+	 * </p><p>
+	 * 開始位置を記録していない論理行（intervalの倍数でない、まだストリームを通過していない、
+	 * または以前に取得した論理行より前）の場合は、-1を返す。
+	 * </p>
+	 *
+	 * @param line 論理行（0から始まる）。読み込みが完了した論理行の数に等しい。
+	 * @return 開始位置（バイト）。記録していない場合は-1。
+	 */
+	public long getLineOffset(int line) {
+		while (!this.offsets.isEmpty()) {
+			long[] entry = this.offsets.getFirst();
+
+			if (entry[0] > line) {
+				break;
+			}
+
+			this.offsets.removeFirst();
+
+			if (entry[0] == line) {
+				return entry[1];
+			}
+		}
+
+		return -1L;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int n = read(this.single, 0, 1);
+		return n == -1 ? -1 : this.single[0] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int n = this.in.read(b, off, len);
+
+		if (n == -1) {
+			if (!this.eof) {
+				// 最後の論理行の次の位置は、ファイルの終わり
+				this.eof = true;
+				record();
+			}
+
+			return -1;
+		}
+
+		scan(b, off, n);
+
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		// 読み飛ばすバイトも走査する
+		byte[] buffer = new byte[(int) Math.min(n, 8192L)];
+		long skipped = 0L;
+
+		while (skipped < n) {
+			int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+
+			if (read == -1) {
+				break;
+			}
+
+			skipped += read;
+		}
+
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	@Override
+	public void mark(int readlimit) {
+	}
+
+	@Override
+	public void reset() throws IOException {
+		throw new IOException("mark/reset not supported");
+	}
+
+	private void scan(byte[] b, int off, int len) {
+		for (int i = off, end = off + len; i < end; i++, this.position++) {
+			byte c = b[i];
+
+			if (this.skipLF) {
+				// CRLFのLFは、前の行の終わりに含める
+				this.skipLF = false;
+
+				if (c == LF) {
+					continue;
+				}
+			}
+
+			if (this.lineStart) {
+				record();
+				this.line++;
+				this.lineStart = false;
+			}
+
+			if (c == QUOTE) {
+				// 引用符の個数が偶数の位置が、引用の外となる
+				this.inQuote = !this.inQuote;
+			} else if (!this.inQuote && (c == CR || c == LF)) {
+				this.lineStart = true;
+				this.skipLF = c == CR;
+			}
+		}
+	}
+
+	/**
+	 * 現在の位置を、次の論理行の開始位置として記録する。
+	 */
+	private void record() {
+		if (this.line % this.interval == 0) {
+			this.offsets.addLast(new long[] {this.line, this.position});
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package net.mikaboshi.csv;
+
+import static net.mikaboshi.validator.SimpleValidator.validateNotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>
+ * CSVデータを1行ずつ読み込むカーソル。
+ * </p><p>
+ * {@link CSVFileUtils#readFile(java.io.File)} と異なり、ファイル全体をメモリに保持しない。
+ * 1行は項目のリストとして返す。
+ * 使用後は {@link #close()} で入力を閉じること。
+ * </p><p>
+ * 使用例：
+ * <pre>
+ * CSVRowReader reader = new CSVFileUtils("UTF-8").openReader(file);
+ * try {
+ *     for (List&lt;String&gt; row : reader) {
+ *         ...
+ *     }
+ * } finally {
+ *     reader.close();
+ * }
+ * </pre>
+ * </p><p>
+ * <i>(注意)このクラスのインスタンスは非同期である。</i>
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public class CSVRowReader implements Closeable, Iterable<List<String>> {
+
+	private final Reader reader;
+
+	private final Iterator<String[]> iterator;
+
+	private int lineCount = 0;
+
+	/**
+	 * 入力データと、パースに使用するCSVStrategyを指定するコンストラクタ。
+	 *
+	 * @param reader 入力データ。{@link #close()} で閉じられる。
+	 * @param csvStrategy パースに使用するCSVStrategy
+	 * @throws NullPointerException 引数がnullの場合
+	 */
+	public CSVRowReader(Reader reader, CSVStrategy csvStrategy) {
+		validateNotNull(reader, "reader", NullPointerException.class);
+		validateNotNull(csvStrategy, "csvStrategy", NullPointerException.class);
+
+		this.reader = reader;
+		this.iterator = csvStrategy.csvLines(reader).iterator();
+	}
+
+	/**
+	 * 次の行があるかどうか判定する。
+	 * @return 次の行がある場合はtrue
+	 */
+	public boolean hasNext() {
+		return this.iterator.hasNext();
+	}
+
+	/**
+	 * 次の行を読み込む。
+	 *
+	 * @return 1行の項目のリスト
+	 * @throws NoSuchElementException 次の行がない場合
+	 */
+	public List<String> next() throws NoSuchElementException {
+		List<String> row = Arrays.asList(this.iterator.next());
+		this.lineCount++;
+		return row;
+	}
+
+	/**
+	 * これまでに読み込んだ行数（論理行）を返す。
+	 * @return 読み込んだ行数
+	 */
+	public int getLineCount() {
+		return this.lineCount;
+	}
+
+	/**
+	 * 残りの行を返すIteratorを返す。
+	 * このカーソル自体が入力を読み進めるので、繰り返しは1度しかできない。
+	 */
+	public Iterator<List<String>> iterator() {
+		return new Iterator<List<String>>() {
+			public boolean hasNext() {
+				return CSVRowReader.this.hasNext();
+			}
+
+			public List<String> next() {
+				return CSVRowReader.this.next();
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * 入力を閉じる。
+	 */
+	public void close() throws IOException {
+		this.reader.close();
+	}
+}
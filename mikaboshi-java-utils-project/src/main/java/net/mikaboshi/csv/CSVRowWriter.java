@@ -0,0 +1,155 @@
+package net.mikaboshi.csv;
+
+import static net.mikaboshi.validator.SimpleValidator.validateNotNull;
+import static net.mikaboshi.validator.SimpleValidator.validatePositiveOrZero;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * <p>
+ * 1行ずつCSVデータを出力するライター。
+ * </p><p>
+ * {@link CSVFileUtils#writeFile(List, java.io.File)} と異なり、全データをメモリに保持する必要はない。
+ * 各行の項目数は列数に揃えられ、列数より少ない行は空文字で補われる。
+ * 列数は、コンストラクタで指定するか、0を指定した場合は最初の空でない行の項目数とする。
+ * </p><p>
+ * 使用後は {@link #close()} で出力先を閉じること。
+ * <i>(注意)このクラスのインスタンスは非同期である。</i>
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public class CSVRowWriter implements Closeable, Flushable {
+
+	private final PrintWriter writer;
+
+	private final CSVStrategy csvStrategy;
+
+	private int columnCount;
+
+	/** 列数に揃えるための行バッファ */
+	private Object[] rowBuffer;
+
+	private int lineCount = 0;
+
+	/**
+	 * 出力先、出力に使用するCSVStrategy、列数を指定するコンストラクタ。
+	 *
+	 * @param writer 出力先。{@link #close()} で閉じられる。
+	 * @param csvStrategy 出力に使用するCSVStrategy
+	 * @param columnCount 列数。0の場合は最初の空でない行の項目数とする。
+	 * @throws NullPointerException writerまたはcsvStrategyがnullの場合
+	 * @throws IllegalArgumentException columnCountが負数の場合
+	 */
+	public CSVRowWriter(PrintWriter writer, CSVStrategy csvStrategy, int columnCount) {
+		validateNotNull(writer, "writer", NullPointerException.class);
+		validateNotNull(csvStrategy, "csvStrategy", NullPointerException.class);
+		validatePositiveOrZero(columnCount, "columnCount", IllegalArgumentException.class);
+
+		this.writer = writer;
+		this.csvStrategy = csvStrategy;
+		this.columnCount = columnCount;
+	}
+
+	/**
+	 * 1行出力する。
+	 *
+	 * @param row 1行の項目のリスト
+	 * @throws IllegalArgumentException 項目数が列数を超える場合
+	 */
+	public void writeRow(List<?> row) {
+		Object[] buffer = prepare(row.size());
+
+		for (int i = 0; i < row.size(); i++) {
+			buffer[i] = row.get(i);
+		}
+
+		print(buffer, row.size());
+	}
+
+	/**
+	 * 1行出力する。
+	 *
+	 * @param row 1行の項目の配列
+	 * @throws IllegalArgumentException 項目数が列数を超える場合
+	 */
+	public void writeRow(Object[] row) {
+		if (this.columnCount == row.length) {
+			this.csvStrategy.printLine(row, this.writer);
+			this.lineCount++;
+			return;
+		}
+
+		Object[] buffer = prepare(row.length);
+		System.arraycopy(row, 0, buffer, 0, row.length);
+
+		print(buffer, row.length);
+	}
+
+	/**
+	 * 列数を返す。まだ1行も出力しておらず、列数を指定していない場合は0。
+	 * @return 列数
+	 */
+	public int getColumnCount() {
+		return this.columnCount;
+	}
+
+	/**
+	 * これまでに出力した行数を返す。
+	 * @return 出力した行数
+	 */
+	public int getLineCount() {
+		return this.lineCount;
+	}
+
+	public void flush() {
+		this.writer.flush();
+	}
+
+	/**
+	 * 出力先を閉じる。
+	 * @throws IOException 出力でエラーが発生していた場合
+	 */
+	public void close() throws IOException {
+		this.writer.close();
+
+		if (this.writer.checkError()) {
+			throw new IOException("CSV write error.");
+		}
+	}
+
+	private Object[] prepare(int size) {
+		if (this.columnCount == 0 && size > 0) {
+			// 空の行からは列数を決めない
+			this.columnCount = size;
+		}
+
+		if (size > this.columnCount) {
+			throw new IllegalArgumentException(
+					"Too many items : " + size + " > " + this.columnCount);
+		}
+
+		if (this.rowBuffer == null || this.rowBuffer.length != this.columnCount) {
+			this.rowBuffer = new Object[this.columnCount];
+		}
+
+		return this.rowBuffer;
+	}
+
+	private void print(Object[] buffer, int size) {
+		// 項目数を統一する
+		for (int i = size; i < buffer.length; i++) {
+			buffer[i] = StringUtils.EMPTY;
+		}
+
+		this.csvStrategy.printLine(buffer, this.writer);
+		this.lineCount++;
+	}
+}
@@ -0,0 +1,376 @@
+package net.mikaboshi.csv;
+
+import static net.mikaboshi.validator.SimpleValidator.validateNotContainsInvalidCharactor;
+import static net.mikaboshi.validator.SimpleValidator.validateNotNull;
+import static net.mikaboshi.validator.SimpleValidator.validateNotNullNorLength0;
+import static net.mikaboshi.validator.SimpleValidator.validatePositive;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * <p>
+ * {@link StandardCSVStrategy} の規則で、CSVデータを論理行ごとに項目へ切り分ける。
+ * </p><p>
+ * Readerからはブロック単位で読み込み、再利用する char 配列上を
+ * インデックスで走査する。
+ * 切り出した項目は文字列にせず、バッファ上の範囲（開始位置、終了位置）として保持するので、
+ * 1文字ごと・1項目ごとのオブジェクト生成は発生しない。
+ * </p><p>
+ * 項目の範囲は、引用符が付いたまま（アンエスケープ前）の状態である。
+ * バッファの内容と範囲は、次に {@link #nextLine()} を呼び出すまで有効。
+ * </p><p>
+ * <i>(注意)このクラスのインスタンスは非同期である。</i>
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+class CSVTokenizer {
+
+	private static Log logger = LogFactory.getLog(CSVTokenizer.class);
+
+	/** 項目の引用符 */
+	static final char QUOTE = '"';
+
+	/** 区切り文字に使用できない文字 */
+	static final char[] SPECIAL_CHARS = new char[] {QUOTE, '\r', '\n'};
+
+	/** バッファの初期サイズ */
+	static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	private final Reader reader;
+
+	private final char[] delimiter;
+
+	/** 読み込んだ文字のバッファ */
+	private char[] buffer;
+
+	/** 次に走査する位置 */
+	private int position = 0;
+
+	/** バッファ中の有効な文字の終端 */
+	private int limit = 0;
+
+	/** 現在の論理行の開始位置 */
+	private int lineStart = 0;
+
+	/** 走査中の項目の開始位置 */
+	private int tokenStart = 0;
+
+	/** 項目の開始位置（論理行の開始位置からの相対位置） */
+	private int[] fieldStarts = new int[16];
+
+	/** 項目の終了位置（論理行の開始位置からの相対位置） */
+	private int[] fieldEnds = new int[16];
+
+	private int fieldCount = 0;
+
+	/** マーク時に未走査だった文字 */
+	private char[] markedChars;
+
+	/**
+	 * 読み込み元のReaderと、項目の区切り文字を指定するコンストラクタ。
+	 *
+	 * @param reader 読み込み元
+	 * @param delimiter 項目の区切り文字
+	 * @throws NullPointerException readerがnullの場合
+	 * @throws IllegalArgumentException 区切り文字が空、または引用符・改行文字を含む場合
+	 */
+	CSVTokenizer(Reader reader, String delimiter) {
+		this(reader, delimiter, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * 読み込み元のReader、項目の区切り文字、バッファの初期サイズを指定するコンストラクタ。
+	 * バッファは、1論理行が収まらない場合は拡張される。
+	 *
+	 * @param reader 読み込み元
+	 * @param delimiter 項目の区切り文字
+	 * @param bufferSize バッファの初期サイズ
+	 * @throws NullPointerException readerがnullの場合
+	 * @throws IllegalArgumentException 区切り文字が空、または引用符・改行文字を含む場合。
+	 *                                  bufferSizeが1未満の場合。
+	 */
+	CSVTokenizer(Reader reader, String delimiter, int bufferSize) {
+		validateNotNull(reader, "reader", NullPointerException.class);
+		validateNotNullNorLength0(
+				delimiter, "delimiter",
+				IllegalArgumentException.class);
+		validateNotContainsInvalidCharactor(
+				delimiter, "delimiter", SPECIAL_CHARS,
+				IllegalArgumentException.class);
+		validatePositive(bufferSize, "bufferSize",
+				IllegalArgumentException.class);
+
+		this.reader = reader;
+		this.delimiter = delimiter.toCharArray();
+		this.buffer = new char[bufferSize];
+	}
+
+	/**
+	 * 未走査の文字があるかどうか判定する。
+	 *
+	 * @return 未走査の文字がある場合はtrue
+	 */
+	boolean hasNext() {
+		return this.position < this.limit || fill() > 0;
+	}
+
+	/**
+	 * <p>
+	 * 次の論理行を項目に切り分ける。
+	 * </p><p>
+	 * 引用の外にある改行（CR、LF、CRLF）、またはストリームの終わりを論理行の終わりとする。
+	 * 区切り文字も項目もない行（空行）の項目数は0となる。
+	 * </p>
+	 *
+	 * @return 論理行があった場合はtrue。未走査の文字がない場合はfalse。
+	 */
+	boolean nextLine() {
+		if (!hasNext()) {
+			return false;
+		}
+
+		this.lineStart = this.position;
+		this.tokenStart = this.position;
+		this.fieldCount = 0;
+
+		// 引用の中かどうか
+		boolean isInQuote = false;
+
+		// この行で区切り文字が現れたかどうか
+		boolean delimiterFound = false;
+
+		while (true) {
+			if (this.position == this.limit && fill() <= 0) {
+				// ストリームの終わりまで来た
+				if (this.position > this.tokenStart || delimiterFound) {
+					addField(this.tokenStart, this.position);
+				}
+
+				return true;
+			}
+
+			char c = this.buffer[this.position];
+
+			if (isInQuote) {
+				if (c == QUOTE) {
+					if (ensure(2) && this.buffer[this.position + 1] == QUOTE) {
+						// 引用の中で、二文字続けて引用符が来た場合
+						this.position += 2;
+						continue;
+					}
+
+					// 引用中に引用符が来て、次が引用符ではない場合は、引用の終わりと見なす。
+					isInQuote = false;
+				}
+
+				this.position++;
+				continue;
+			}
+
+			if (c == QUOTE) {
+				isInQuote = true;
+				this.position++;
+				continue;
+			}
+
+			if (c == '\r' || c == '\n') {
+				// 引用の外で改行が来たら論理行の終わり
+				if (this.position > this.tokenStart || delimiterFound) {
+					addField(this.tokenStart, this.position);
+				}
+
+				this.position++;
+
+				if (c == '\r' && ensure(1) && this.buffer[this.position] == '\n') {
+					// \r\nの場合は2文字進める
+					this.position++;
+				}
+
+				return true;
+			}
+
+			if (c == this.delimiter[0] && isDelimiter()) {
+				// 引用の外で区切り文字が来た
+				addField(this.tokenStart, this.position);
+				this.position += this.delimiter.length;
+				this.tokenStart = this.position;
+				delimiterFound = true;
+				continue;
+			}
+
+			// 一般の文字
+			this.position++;
+		}
+	}
+
+	/**
+	 * 直前の {@link #nextLine()} で切り分けた項目数を返す。
+	 * @return 項目数
+	 */
+	int getFieldCount() {
+		return this.fieldCount;
+	}
+
+	/**
+	 * 項目が格納されているバッファを返す。
+	 * 返されるバッファは、次に {@link #nextLine()} を呼び出すまで有効。
+	 * @return バッファ
+	 */
+	char[] getBuffer() {
+		return this.buffer;
+	}
+
+	/**
+	 * 項目のバッファ上の開始位置を返す。
+	 * @param index 項目のインデックス（0から始まる）
+	 * @return 項目の開始位置
+	 */
+	int getFieldStart(int index) {
+		return this.lineStart + this.fieldStarts[index];
+	}
+
+	/**
+	 * 項目のバッファ上の終了位置（この位置の文字は含まない）を返す。
+	 * @param index 項目のインデックス（0から始まる）
+	 * @return 項目の終了位置
+	 */
+	int getFieldEnd(int index) {
+		return this.lineStart + this.fieldEnds[index];
+	}
+
+	/**
+	 * <p>
+	 * 現在の位置をマークする。
+	 * </p><p>
+	 * Readerからは先読みしているので、先読み済みで未走査の文字を退避し、
+	 * Readerには先読み分を加えた readAheadLimit でマークする。
+	 * </p>
+	 * @param readAheadLimit
+	 * @throws IOException Readerがマークをサポートしない場合
+	 */
+	void mark(int readAheadLimit) throws IOException {
+		this.reader.mark(readAheadLimit + this.buffer.length);
+
+		int length = this.limit - this.position;
+		this.markedChars = new char[length];
+		System.arraycopy(this.buffer, this.position, this.markedChars, 0, length);
+	}
+
+	/**
+	 * マークした位置に戻す。
+	 * @throws IOException Readerがリセットをサポートしない場合
+	 */
+	void reset() throws IOException {
+		this.reader.reset();
+
+		int length = this.markedChars != null ? this.markedChars.length : 0;
+
+		if (this.buffer.length < length) {
+			this.buffer = new char[length];
+		}
+
+		if (length != 0) {
+			System.arraycopy(this.markedChars, 0, this.buffer, 0, length);
+		}
+
+		this.position = 0;
+		this.limit = length;
+		this.lineStart = 0;
+		this.tokenStart = 0;
+		this.fieldCount = 0;
+	}
+
+	/**
+	 * 現在の位置から区切り文字が始まっているかどうか判定する。
+	 */
+	private boolean isDelimiter() {
+		if (!ensure(this.delimiter.length)) {
+			return false;
+		}
+
+		for (int i = 1; i < this.delimiter.length; i++) {
+			if (this.buffer[this.position + i] != this.delimiter[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * 現在の位置から、少なくとも length 文字がバッファにある状態にする。
+	 * @return length 文字が確保できた場合はtrue。ストリームの終わりに達した場合はfalse。
+	 */
+	private boolean ensure(int length) {
+		while (this.limit - this.position < length) {
+			if (fill() <= 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * <p>
+	 * Readerからバッファに読み込む。
+	 * </p><p>
+	 * バッファに空きがない場合は、現在の論理行をバッファの先頭に詰め、
+	 * それでも空きがない場合はバッファを拡張する。
+	 * </p>
+	 * @return 読み込んだ文字数。ストリームの終わりに達した場合は-1。
+	 */
+	private int fill() {
+		if (this.limit == this.buffer.length) {
+			if (this.lineStart == 0) {
+				char[] newBuffer = new char[this.buffer.length * 2];
+				System.arraycopy(this.buffer, 0, newBuffer, 0, this.limit);
+				this.buffer = newBuffer;
+			} else {
+				int shift = this.lineStart;
+				System.arraycopy(this.buffer, shift, this.buffer, 0, this.limit - shift);
+				this.limit -= shift;
+				this.position -= shift;
+				this.tokenStart -= shift;
+				this.lineStart = 0;
+			}
+		}
+
+		int read;
+
+		try {
+			// ストリームの最後にきた場合は、-1が返ってくる
+			read = this.reader.read(this.buffer, this.limit, this.buffer.length - this.limit);
+		} catch (IOException e) {
+			logger.warn("CSV read error.", e);
+			read = -1;
+		}
+
+		if (read > 0) {
+			this.limit += read;
+		}
+
+		return read;
+	}
+
+	private void addField(int start, int end) {
+		if (this.fieldCount == this.fieldStarts.length) {
+			int[] newStarts = new int[this.fieldCount * 2];
+			int[] newEnds = new int[this.fieldCount * 2];
+			System.arraycopy(this.fieldStarts, 0, newStarts, 0, this.fieldCount);
+			System.arraycopy(this.fieldEnds, 0, newEnds, 0, this.fieldCount);
+			this.fieldStarts = newStarts;
+			this.fieldEnds = newEnds;
+		}
+
+		this.fieldStarts[this.fieldCount] = start - this.lineStart;
+		this.fieldEnds[this.fieldCount] = end - this.lineStart;
+		this.fieldCount++;
+	}
+}
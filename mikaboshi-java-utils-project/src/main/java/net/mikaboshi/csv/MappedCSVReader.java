@@ -0,0 +1,265 @@
+package net.mikaboshi.csv;
+
+import static net.mikaboshi.validator.SimpleValidator.validateNotNull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+import net.mikaboshi.io.MappedFileReader;
+
+/**
+ * <p>
+ * メモリにマップしたCSVファイルを、1論理行ずつ読み込むカーソル。
+ * </p><p>
+ * ファイルは {@link MappedFileReader} でマップしたバッファから直接デコードし、
+ * {@link CSVTokenizer} で項目に切り分ける。
+ * 各項目は {@link CharSequence} としてバッファ上の範囲を参照するだけなので、
+ * {@link #getString(int)} や {@link CharSequence#toString()} を呼び出すまで文字列はコピーされない。
+ * 連続する引用符（エスケープされた引用符）を含む項目のみ、参照時にアンエスケープした値を作る。
+ * </p><p>
+ * {@link #get(int)} で返される CharSequence は、次に {@link #next()} を呼び出すまで有効。
+ * 値を保持する場合は、文字列に変換すること。
+ * </p><p>
+ * 使用例：
+ * <pre>
+ * MappedCSVReader reader = new MappedCSVReader(file, new StandardCSVStrategy(), "UTF-8");
+ * try {
+ *     while (reader.next()) {
+ *         CharSequence id = reader.get(0);
+ *         ...
+ *     }
+ * } finally {
+ *     reader.close();
+ * }
+ * </pre>
+ * </p><p>
+ * <i>(注意)このクラスのインスタンスは非同期である。</i>
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public class MappedCSVReader implements Closeable {
+
+	private final StandardCSVStrategy csvStrategy;
+
+	private final MappedFileReader reader;
+
+	private final CSVTokenizer tokenizer;
+
+	/** 項目（行をまたいで再利用する） */
+	private Field[] fields = new Field[0];
+
+	private int fieldCount = 0;
+
+	/**
+	 * 読み込むファイル、パースに使用するCSVStrategy、ファイルの文字セットを指定するコンストラクタ。
+	 *
+	 * @param file 読み込むCSVファイル
+	 * @param csvStrategy パースに使用するCSVStrategy
+	 * @param charset ファイルの文字セット
+	 * @throws IOException ファイルを開けなかった場合
+	 * @throws NullPointerException 引数がnullの場合
+	 */
+	public MappedCSVReader(File file, StandardCSVStrategy csvStrategy, String charset)
+			throws IOException {
+
+		validateNotNull(file, "file", NullPointerException.class);
+		validateNotNull(csvStrategy, "csvStrategy", NullPointerException.class);
+		validateNotNull(charset, "charset", NullPointerException.class);
+
+		this.csvStrategy = csvStrategy;
+		this.reader = new MappedFileReader(file, charset);
+		this.tokenizer = new CSVTokenizer(this.reader, csvStrategy.getDelimiter());
+	}
+
+	/**
+	 * 次の論理行に進む。
+	 *
+	 * @return 次の論理行がある場合はtrue。ない場合はfalse。
+	 */
+	public boolean next() {
+		if (!this.tokenizer.nextLine()) {
+			this.fieldCount = 0;
+			return false;
+		}
+
+		this.fieldCount = this.tokenizer.getFieldCount();
+
+		if (this.fields.length < this.fieldCount) {
+			Field[] newFields = new Field[this.fieldCount];
+			System.arraycopy(this.fields, 0, newFields, 0, this.fields.length);
+
+			for (int i = this.fields.length; i < newFields.length; i++) {
+				newFields[i] = new Field();
+			}
+
+			this.fields = newFields;
+		}
+
+		char[] buffer = this.tokenizer.getBuffer();
+
+		for (int i = 0; i < this.fieldCount; i++) {
+			this.fields[i].set(
+					buffer,
+					this.tokenizer.getFieldStart(i),
+					this.tokenizer.getFieldEnd(i));
+		}
+
+		return true;
+	}
+
+	/**
+	 * 現在の論理行の項目数を返す。
+	 * @return 項目数
+	 */
+	public int getFieldCount() {
+		return this.fieldCount;
+	}
+
+	/**
+	 * <p>
+	 * 現在の論理行の項目を、アンエスケープした CharSequence として返す。
+	 * </p><p>
+	 * 返される CharSequence は、次に {@link #next()} を呼び出すまで有効。
+	 * </p>
+	 *
+	 * @param index 項目のインデックス（0から始まる）
+	 * @return 項目の値
+	 * @throws IndexOutOfBoundsException indexが項目数以上の場合
+	 */
+	public CharSequence get(int index) {
+		if (index < 0 || this.fieldCount <= index) {
+			throw new IndexOutOfBoundsException(
+					"index=" + index + ", fieldCount=" + this.fieldCount);
+		}
+
+		return this.fields[index];
+	}
+
+	/**
+	 * 現在の論理行の項目を、文字列として返す。
+	 *
+	 * @param index 項目のインデックス（0から始まる）
+	 * @return 項目の値
+	 * @throws IndexOutOfBoundsException indexが項目数以上の場合
+	 */
+	public String getString(int index) {
+		return get(index).toString();
+	}
+
+	/**
+	 * ファイルを閉じる。
+	 */
+	public void close() throws IOException {
+		this.reader.close();
+	}
+
+	/**
+	 * バッファ上の範囲を参照する項目。
+	 */
+	private final class Field implements CharSequence {
+
+		private char[] buffer;
+
+		/** 生の（引用符が付いたままの）範囲 */
+		private int rawStart;
+		private int rawEnd;
+
+		/** アンエスケープ後の範囲 */
+		private int start;
+		private int end;
+
+		/** 連続する引用符を含む場合、アンエスケープした値 */
+		private String unescaped;
+
+		private boolean resolved;
+
+		void set(char[] buffer, int start, int end) {
+			this.buffer = buffer;
+			this.rawStart = start;
+			this.rawEnd = end;
+			this.unescaped = null;
+			this.resolved = false;
+		}
+
+		/**
+		 * 両端の引用符を外した範囲を求める。
+		 * 連続する引用符がある場合は、アンエスケープした文字列を作る。
+		 */
+		private void resolve() {
+			if (this.resolved) {
+				return;
+			}
+
+			this.start = this.rawStart;
+			this.end = this.rawEnd;
+
+			if (this.end - this.start > 1
+					&& this.buffer[this.start] == CSVTokenizer.QUOTE
+					&& this.buffer[this.end - 1] == CSVTokenizer.QUOTE) {
+
+				for (int i = this.start + 1; i < this.end - 1; i++) {
+					if (this.buffer[i] == CSVTokenizer.QUOTE) {
+						this.unescaped = csvStrategy.unescape(
+								this.buffer, this.rawStart, this.rawEnd);
+						break;
+					}
+				}
+
+				this.start++;
+				this.end--;
+			}
+
+			this.resolved = true;
+		}
+
+		public int length() {
+			resolve();
+			return this.unescaped != null ?
+					this.unescaped.length() : this.end - this.start;
+		}
+
+		public char charAt(int index) {
+			resolve();
+
+			if (this.unescaped != null) {
+				return this.unescaped.charAt(index);
+			}
+
+			if (index < 0 || this.end - this.start <= index) {
+				throw new IndexOutOfBoundsException("index=" + index);
+			}
+
+			return this.buffer[this.start + index];
+		}
+
+		public CharSequence subSequence(int start, int end) {
+			resolve();
+
+			if (this.unescaped != null) {
+				return this.unescaped.subSequence(start, end);
+			}
+
+			if (start < 0 || end > this.end - this.start || start > end) {
+				throw new IndexOutOfBoundsException(
+						"start=" + start + ", end=" + end);
+			}
+
+			return CharBuffer.wrap(this.buffer, this.start + start, end - start).slice();
+		}
+
+		@Override
+		public String toString() {
+			resolve();
+
+			if (this.unescaped != null) {
+				return this.unescaped;
+			}
+
+			return new String(this.buffer, this.start, this.end - this.start);
+		}
+	}
+}
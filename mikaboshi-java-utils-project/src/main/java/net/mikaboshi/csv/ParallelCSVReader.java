@@ -0,0 +1,579 @@
+package net.mikaboshi.csv;
+
+import static net.mikaboshi.validator.SimpleValidator.validateNotNull;
+import static net.mikaboshi.validator.SimpleValidator.validatePositive;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import net.mikaboshi.io.RandomAccessFileInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+
+/**
+ * <p>
+ * CSVファイルを複数のチャンク（バイト範囲）に分割し、複数のスレッドで並列にパースする。
+ * </p><p>
+ * チャンクの境界は、{@link StandardCSVStrategy} の規則で論理行の先頭となる位置に合わせる。
+ * ファイルの先頭から数えた引用符の個数が偶数の位置にある改行が、論理行の終わりとなるので、
+ * 各チャンクの引用符の個数と、偶数・奇数それぞれの場合の最初の改行位置を並列に求め、
+ * 前のチャンクから引用符の個数を累積して境界を決定する。
+ * 引用符の中の改行で、チャンクが分割されることはない。
+ * </p><p>
+ * 境界をバイト単位で判定するため、文字セットは引用符と改行が1バイトで表され、
+ * それらのバイト値がマルチバイト文字の一部に現れないもの（UTF-8、Shift_JIS、EUC-JP等）に限る。
+ * それ以外の文字セットの場合は、ファイル全体を1つのチャンクとして読み込む。
+ * </p><p>
+ * 結果は、ファイル上の順序どおりの行（{@link #csvLines()}）、または
+ * パースが完了した順のチャンク（{@link #chunks()}）として取得する。
+ * どちらの場合も、メモリ上に保持するチャンクはスレッド数の2倍までに制限される。
+ * </p><p>
+ * 使用後は、{@link #close()} でスレッドを終了すること。
+ * <i>(注意)このクラスのインスタンスは非同期である。</i>
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public class ParallelCSVReader implements Closeable {
+
+	/** チャンクサイズのデフォルト（8MB） */
+	public static final long DEFAULT_CHUNK_SIZE = 8L * 1024L * 1024L;
+
+	/** 引用符・改行をバイト単位で判定できる文字セット */
+	private static final Set<String> BYTE_SCANNABLE_CHARSETS = new HashSet<String>(
+			Arrays.asList(new String[] {
+				"US-ASCII", "ISO-8859-1", "UTF-8", "Shift_JIS", "windows-31j",
+				"EUC-JP", "x-eucJP-Open", "windows-1252", "MS932"
+			}));
+
+	private static final byte QUOTE = '"';
+	private static final byte CR = '\r';
+	private static final byte LF = '\n';
+
+	private final File file;
+
+	private final StandardCSVStrategy csvStrategy;
+
+	private final String charset;
+
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	private long chunkSize = DEFAULT_CHUNK_SIZE;
+
+	private ExecutorService executor;
+
+	/**
+	 * 読み込むファイル、パースに使用するCSVStrategy、ファイルの文字セットを指定するコンストラクタ。
+	 *
+	 * @param file 読み込むCSVファイル
+	 * @param csvStrategy パースに使用するCSVStrategy
+	 * @param charset ファイルの文字セット
+	 * @throws NullPointerException 引数がnullの場合
+	 * @throws IllegalArgumentException 文字セットがサポートされていない場合
+	 */
+	public ParallelCSVReader(File file, StandardCSVStrategy csvStrategy, String charset) {
+		validateNotNull(file, "file", NullPointerException.class);
+		validateNotNull(csvStrategy, "csvStrategy", NullPointerException.class);
+		validateNotNull(charset, "charset", NullPointerException.class);
+
+		if (!Charset.isSupported(charset)) {
+			throw new IllegalArgumentException("不正な文字セット:" + charset);
+		}
+
+		this.file = file;
+		this.csvStrategy = csvStrategy;
+		this.charset = charset;
+	}
+
+	/**
+	 * パースを行うスレッド数を設定する。（デフォルトはCPU数）
+	 * @param threads スレッド数（1以上）
+	 * @throws IllegalArgumentException threadsが1未満の場合
+	 */
+	public void setThreads(int threads) {
+		validatePositive(threads, "threads", IllegalArgumentException.class);
+		this.threads = threads;
+	}
+
+	/**
+	 * チャンクの目安のサイズ（バイト数）を設定する。（デフォルトは8MB）
+	 * 実際のチャンクは、論理行の先頭に合わせるため、この値の前後となる。
+	 * @param chunkSize チャンクサイズ（1以上）
+	 * @throws IllegalArgumentException chunkSizeが1未満の場合
+	 */
+	public void setChunkSize(long chunkSize) {
+		if (chunkSize <= 0L) {
+			throw new IllegalArgumentException("chunkSize must be positive : " + chunkSize);
+		}
+
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * <p>
+	 * ファイルを並列にパースし、ファイル上の順序どおりに1行ずつ返すIterableを返す。
+	 * </p><p>
+	 * 繰り返し中にチャンクの読み込みでエラーが発生した場合は、
+	 * {@link IllegalStateException} がスローされる。
+	 * </p>
+	 *
+	 * @return CSVの論理行を返すIterable
+	 * @throws IOException チャンクの境界の決定で、ファイルの読み込みに失敗した場合
+	 */
+	public Iterable<String[]> csvLines() throws IOException {
+		final List<long[]> ranges = split();
+
+		return new Iterable<String[]>() {
+			public Iterator<String[]> iterator() {
+				return new OrderedLineIterator(ranges);
+			}
+		};
+	}
+
+	/**
+	 * <p>
+	 * ファイルを並列にパースし、パースが完了した順にチャンクを返すIterableを返す。
+	 * チャンクの順序は保証されないので、必要ならば {@link CSVChunk#getIndex()} で並べ替える。
+	 * </p><p>
+	 * 繰り返し中にチャンクの読み込みでエラーが発生した場合は、
+	 * {@link IllegalStateException} がスローされる。
+	 * </p>
+	 *
+	 * @return パース済みのチャンクを返すIterable
+	 * @throws IOException チャンクの境界の決定で、ファイルの読み込みに失敗した場合
+	 */
+	public Iterable<CSVChunk> chunks() throws IOException {
+		final List<long[]> ranges = split();
+
+		return new Iterable<CSVChunk>() {
+			public Iterator<CSVChunk> iterator() {
+				return new UnorderedChunkIterator(ranges);
+			}
+		};
+	}
+
+	/**
+	 * パースを行うスレッドを終了する。
+	 */
+	public void close() {
+		if (this.executor != null) {
+			this.executor.shutdownNow();
+			this.executor = null;
+		}
+	}
+
+	/**
+	 * パース済みのチャンク。
+	 */
+	public static class CSVChunk {
+
+		private final int index;
+
+		private final long startOffset;
+
+		private final long endOffset;
+
+		private final List<String[]> lines;
+
+		CSVChunk(int index, long startOffset, long endOffset, List<String[]> lines) {
+			this.index = index;
+			this.startOffset = startOffset;
+			this.endOffset = endOffset;
+			this.lines = lines;
+		}
+
+		/**
+		 * ファイル上のチャンクの順番（0から始まる）を返す。
+		 * @return チャンクの順番
+		 */
+		public int getIndex() {
+			return this.index;
+		}
+
+		/**
+		 * チャンクの開始位置（バイト）を返す。
+		 * @return チャンクの開始位置
+		 */
+		public long getStartOffset() {
+			return this.startOffset;
+		}
+
+		/**
+		 * チャンクの終了位置（バイト。この位置は含まない）を返す。
+		 * @return チャンクの終了位置
+		 */
+		public long getEndOffset() {
+			return this.endOffset;
+		}
+
+		/**
+		 * チャンクに含まれる論理行を返す。
+		 * @return 論理行のリスト
+		 */
+		public List<String[]> getLines() {
+			return this.lines;
+		}
+	}
+
+	private ExecutorService getExecutor() {
+		if (this.executor == null) {
+			this.executor = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "ParallelCSVReader");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+
+		return this.executor;
+	}
+
+	/**
+	 * 引用符と改行をバイト単位で判定できる文字セットかどうか。
+	 * @param charset 文字セット
+	 */
+	static boolean isByteScannable(String charset) {
+		Charset cs = Charset.forName(charset);
+
+		if (BYTE_SCANNABLE_CHARSETS.contains(cs.name())) {
+			return true;
+		}
+
+		for (String alias : cs.aliases()) {
+			if (BYTE_SCANNABLE_CHARSETS.contains(alias)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * ファイルを論理行の先頭で区切ったチャンクに分割する。
+	 *
+	 * @return 各チャンクの [開始位置, 終了位置] のリスト
+	 * @throws IOException
+	 */
+	List<long[]> split() throws IOException {
+		final long length = this.file.length();
+
+		List<long[]> ranges = new ArrayList<long[]>();
+
+		if (length <= this.chunkSize || !isByteScannable(this.charset)) {
+			ranges.add(new long[] {0L, length});
+			return ranges;
+		}
+
+		int count = (int) ((length - 1) / this.chunkSize + 1);
+
+		// 各チャンクの引用符の数と、改行位置を並列に求める
+		List<Future<ChunkScan>> futures = new ArrayList<Future<ChunkScan>>(count);
+
+		for (int i = 0; i < count; i++) {
+			final long start = i * this.chunkSize;
+			final long end = Math.min(start + this.chunkSize, length);
+
+			futures.add(getExecutor().submit(new Callable<ChunkScan>() {
+				public ChunkScan call() throws IOException {
+					return scan(start, end);
+				}
+			}));
+		}
+
+		RandomAccessFile raf = new RandomAccessFile(this.file, "r");
+
+		try {
+			long quoteCount = 0L;
+			long previous = 0L;
+
+			for (int i = 0; i < count; i++) {
+				ChunkScan scan = get(futures.get(i));
+
+				if (i != 0) {
+					// チャンクの先頭までの引用符の数が偶数ならば引用の外
+					long newLine = quoteCount % 2L == 0L ?
+							scan.firstNewLineEven : scan.firstNewLineOdd;
+
+					if (newLine != -1L) {
+						long lineStart = newLine + 1L;
+
+						if (lineStart < length && readByte(raf, newLine) == CR
+								&& readByte(raf, lineStart) == LF) {
+							lineStart++;
+						}
+
+						if (previous < lineStart && lineStart < length) {
+							ranges.add(new long[] {previous, lineStart});
+							previous = lineStart;
+						}
+					}
+				}
+
+				quoteCount += scan.quoteCount;
+			}
+
+			ranges.add(new long[] {previous, length});
+
+		} finally {
+			IOUtils.closeQuietly(raf);
+		}
+
+		return ranges;
+	}
+
+	/**
+	 * チャンク内の引用符の数と改行位置
+	 */
+	private static class ChunkScan {
+		long quoteCount = 0L;
+
+		/** チャンク内の引用符の数が偶数の位置にある最初の改行 */
+		long firstNewLineEven = -1L;
+
+		/** チャンク内の引用符の数が奇数の位置にある最初の改行 */
+		long firstNewLineOdd = -1L;
+	}
+
+	private ChunkScan scan(long start, long end) throws IOException {
+		ChunkScan result = new ChunkScan();
+
+		RandomAccessFile raf = new RandomAccessFile(this.file, "r");
+
+		try {
+			FileChannel channel = raf.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+			long pos = start;
+
+			while (pos < end) {
+				buffer.clear();
+
+				if (end - pos < buffer.capacity()) {
+					buffer.limit((int) (end - pos));
+				}
+
+				int read = channel.read(buffer, pos);
+
+				if (read <= 0) {
+					break;
+				}
+
+				byte[] bytes = buffer.array();
+
+				for (int i = 0; i < read; i++) {
+					byte b = bytes[i];
+
+					if (b == QUOTE) {
+						result.quoteCount++;
+					} else if (b == CR || b == LF) {
+						if (result.quoteCount % 2L == 0L) {
+							if (result.firstNewLineEven == -1L) {
+								result.firstNewLineEven = pos + i;
+							}
+						} else {
+							if (result.firstNewLineOdd == -1L) {
+								result.firstNewLineOdd = pos + i;
+							}
+						}
+					}
+				}
+
+				pos += read;
+			}
+
+		} finally {
+			IOUtils.closeQuietly(raf);
+		}
+
+		return result;
+	}
+
+	private static byte readByte(RandomAccessFile raf, long pos) throws IOException {
+		raf.seek(pos);
+		return (byte) raf.read();
+	}
+
+	/**
+	 * チャンクをパースする。
+	 */
+	private CSVChunk parse(int index, long start, long end) throws IOException {
+		List<String[]> lines = new ArrayList<String[]>();
+
+		RandomAccessFile raf = new RandomAccessFile(this.file, "r");
+		Reader reader = null;
+
+		try {
+			raf.seek(start);
+
+			InputStream is = new BoundedInputStream(
+					new RandomAccessFileInputStream(raf), end - start);
+			reader = new InputStreamReader(is, this.charset);
+
+			for (String[] line : this.csvStrategy.csvLines(reader)) {
+				lines.add(line);
+			}
+
+		} finally {
+			IOUtils.closeQuietly(reader);
+			IOUtils.closeQuietly(raf);
+		}
+
+		return new CSVChunk(index, start, end, lines);
+	}
+
+	private Callable<CSVChunk> parseTask(final int index, final long[] range) {
+		return new Callable<CSVChunk>() {
+			public CSVChunk call() throws IOException {
+				return parse(index, range[0], range[1]);
+			}
+		};
+	}
+
+	private static <T> T get(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("CSV read interrupted.", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("CSV read error.", e.getCause());
+		}
+	}
+
+	/**
+	 * チャンクを先行してパースしながら、ファイル上の順序で行を返すIterator。
+	 */
+	private class OrderedLineIterator implements Iterator<String[]> {
+
+		private final List<long[]> ranges;
+
+		private final LinkedList<Future<CSVChunk>> pending = new LinkedList<Future<CSVChunk>>();
+
+		private int submitted = 0;
+
+		private Iterator<String[]> current = Collections.<String[]>emptyList().iterator();
+
+		OrderedLineIterator(List<long[]> ranges) {
+			this.ranges = ranges;
+			submit();
+		}
+
+		private void submit() {
+			while (this.submitted < this.ranges.size()
+					&& this.pending.size() < threads * 2) {
+				this.pending.add(getExecutor().submit(
+						parseTask(this.submitted, this.ranges.get(this.submitted))));
+				this.submitted++;
+			}
+		}
+
+		public boolean hasNext() {
+			while (!this.current.hasNext()) {
+				if (this.pending.isEmpty()) {
+					return false;
+				}
+
+				this.current = get(this.pending.removeFirst()).getLines().iterator();
+				submit();
+			}
+
+			return true;
+		}
+
+		public String[] next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException("End of CSV line.");
+			}
+
+			return this.current.next();
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * パースが完了した順にチャンクを返すIterator。
+	 */
+	private class UnorderedChunkIterator implements Iterator<CSVChunk> {
+
+		private final List<long[]> ranges;
+
+		private final CompletionService<CSVChunk> completionService =
+				new ExecutorCompletionService<CSVChunk>(getExecutor());
+
+		private int submitted = 0;
+
+		private int running = 0;
+
+		UnorderedChunkIterator(List<long[]> ranges) {
+			this.ranges = ranges;
+			submit();
+		}
+
+		private void submit() {
+			while (this.submitted < this.ranges.size() && this.running < threads * 2) {
+				this.completionService.submit(
+						parseTask(this.submitted, this.ranges.get(this.submitted)));
+				this.submitted++;
+				this.running++;
+			}
+		}
+
+		public boolean hasNext() {
+			return this.running != 0;
+		}
+
+		public CSVChunk next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException("End of CSV chunk.");
+			}
+
+			CSVChunk chunk;
+
+			try {
+				chunk = get(this.completionService.take());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("CSV read interrupted.", e);
+			}
+
+			this.running--;
+			submit();
+
+			return chunk;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
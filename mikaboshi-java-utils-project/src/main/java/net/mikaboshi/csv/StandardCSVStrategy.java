@@ -1,22 +1,18 @@
 package net.mikaboshi.csv;
 
-import static net.mikaboshi.validator.SimpleValidator.validateNotContainsInvalidCharactor;
 import static net.mikaboshi.validator.SimpleValidator.validateNotNull;
-import static net.mikaboshi.validator.SimpleValidator.validateNotNullNorLength0;
+import static net.mikaboshi.validator.SimpleValidator.validatePositiveOrZero;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.io.Reader;
-import java.util.ArrayList;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.Iterator;
-import java.util.List;
 import java.util.NoSuchElementException;
 
-import net.mikaboshi.util.MkStringUtils;
-
 import org.apache.commons.lang.StringUtils;
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
 
 /**
  * <p>
@@ -42,8 +38,6 @@ public class StandardCSVStrategy extends AbstractCSVStrategy {
 
 	private static final long serialVersionUID = 1640073211487732341L;
 
-	private static Log logger = LogFactory.getLog(StandardCSVStrategy.class);
-
 	/** 項目の引用符 */
 	private static final char QUOTE = '"';
 	
@@ -117,6 +111,171 @@ public class StandardCSVStrategy extends AbstractCSVStrategy {
 	/** エスケープが必要な文字 */
 	private static final char[] SPECIAL_CHARS =	new char[] {QUOTE, '\r', '\n'};
 	
+	/**
+	 * <p>
+	 * 1項目をCSV出力形式に変換して出力する。
+	 * </p><p>
+	 * 変換規則は {@link #escape(Object)} と同じだが、中間の文字列を生成せずに、
+	 * 項目を1度だけ走査しながら出力先に直接書き込む。
+	 * 整数型（Integer, Long, Short, Byte）は文字列に変換せずに出力し、
+	 * その他の数値型と Boolean は引用符が不要なので走査を省略する。
+	 * </p><p>
+	 * サブクラスで {@link #escape(Object)} がオーバーライドされている場合は、
+	 * その戻り値を出力する。
+	 * </p>
+	 * 
+	 * @since 1.1.10
+	 */
+	@Override
+	protected void printItem(Object rawItem, PrintWriter out) {
+		if (isEscapeOverridden()) {
+			super.printItem(rawItem, out);
+			return;
+		}
+		
+		if (rawItem == null) {
+			out.print(this.alwaysQuote ? this.quotedNullString : getNullString());
+			return;
+		}
+		
+		if (!this.alwaysQuote && this.numberSafeDelimiter) {
+			if (rawItem instanceof Integer ||
+				rawItem instanceof Long ||
+				rawItem instanceof Short ||
+				rawItem instanceof Byte) {
+				
+				printLong(((Number) rawItem).longValue(), out);
+				return;
+			}
+			
+			if (rawItem instanceof Double ||
+				rawItem instanceof Float ||
+				rawItem instanceof BigDecimal ||
+				rawItem instanceof BigInteger ||
+				rawItem instanceof Boolean) {
+				
+				out.write(rawItem.toString());
+				return;
+			}
+		}
+		
+		String item = rawItem.toString();
+		int length = item.length();
+		
+		int i = this.alwaysQuote ? 0 : indexOfQuotationRequired(item);
+		
+		if (i == -1) {
+			out.write(item, 0, length);
+			return;
+		}
+		
+		// 引用符が不要な文字が続いた位置からは、引用符のエスケープだけを行う
+		out.write(QUOTE);
+		
+		int start = 0;
+		
+		for (; i < length; i++) {
+			if (item.charAt(i) == QUOTE) {
+				out.write(item, start, i + 1 - start);
+				out.write(QUOTE);
+				start = i + 1;
+			}
+		}
+		
+		out.write(item, start, length - start);
+		out.write(QUOTE);
+	}
+	
+	/**
+	 * 引用符で囲む必要がある文字（エスケープが必要な文字、区切り文字）の位置を返す。
+	 * @return 最初に見つかった位置。見つからなかった場合は-1。
+	 */
+	private int indexOfQuotationRequired(String item) {
+		String delimiter = getDelimiter();
+		int length = item.length();
+		
+		for (int i = 0; i < length; i++) {
+			char c = item.charAt(i);
+			
+			if (c == QUOTE || c == '\r' || c == '\n') {
+				return i;
+			}
+			
+			if (delimiter != null &&
+				(delimiter.length() == 0 || c == delimiter.charAt(0)) &&
+				item.startsWith(delimiter, i)) {
+				return i;
+			}
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * long値を、文字列や作業用の配列を生成せずに、上位の桁から1文字ずつ出力する。
+	 * （インスタンスは並列エクスポートで複数のスレッドから共有されることがあるため、
+	 * 作業用の配列をフィールドに保持しない）
+	 */
+	private static void printLong(long value, PrintWriter out) {
+		if (value == Long.MIN_VALUE) {
+			out.print(value);
+			return;
+		}
+		
+		if (value < 0) {
+			out.write('-');
+			value = -value;
+		}
+		
+		// 最上位の桁の位
+		long unit = 1L;
+		
+		while (value / unit >= 10L) {
+			unit *= 10L;
+		}
+		
+		for (; unit != 0L; unit /= 10L) {
+			out.write((int) ('0' + value / unit % 10L));
+		}
+	}
+	
+	/**
+	 * 区切り文字が、数値・真偽値の文字列表現に現れる文字を含まないかどうか判定する。
+	 */
+	private static boolean isNumberSafe(String delimiter) {
+		if (delimiter == null) {
+			return true;
+		}
+		
+		for (int i = 0; i < delimiter.length(); i++) {
+			char c = delimiter.charAt(i);
+			
+			if (Character.isLetterOrDigit(c) || c == '+' || c == '-' || c == '.') {
+				return false;
+			}
+		}
+		
+		// 空の区切り文字は、どの項目にも含まれると見なす
+		return delimiter.length() != 0;
+	}
+	
+	/**
+	 * サブクラスで {@link #escape(Object)} がオーバーライドされているかどうか判定する。
+	 */
+	private boolean isEscapeOverridden() {
+		if (this.escapeOverridden == null) {
+			try {
+				this.escapeOverridden = Boolean.valueOf(
+						getClass().getMethod("escape", Object.class).getDeclaringClass()
+						!= StandardCSVStrategy.class);
+			} catch (NoSuchMethodException e) {
+				this.escapeOverridden = Boolean.FALSE;
+			}
+		}
+		
+		return this.escapeOverridden.booleanValue();
+	}
+	
 	/**
 	 * 引数strがエスケープ必要な文字を含んでいればtrueを返す
 	 * @param str
@@ -163,6 +322,83 @@ public class StandardCSVStrategy extends AbstractCSVStrategy {
 				unquoted, ESCAPED_QUOTE, QUOTE_AS_STRING);
 	}
 
+	/**
+	 * <p>
+	 * バッファ上の出力形式に加工されたCSV項目を、本来の文字列に変換して返す。
+	 * </p><p>
+	 * 変換規則は {@link #unescape(String)} と同じだが、中間の文字列を生成せずに
+	 * バッファから直接変換後の文字列を作る。
+	 * {@link #csvLines(Reader)} の各項目は、このメソッドで変換される。
+	 * </p>
+	 * 
+	 * @param buffer CSV項目が格納されたバッファ
+	 * @param start 項目の開始位置
+	 * @param end 項目の終了位置（この位置の文字は含まない）
+	 * @return 変換後の文字列
+	 * @since 1.1.10
+	 */
+	protected String unescape(char[] buffer, int start, int end) {
+		
+		if (end - start <= 1 ||
+			buffer[start] != QUOTE ||
+			buffer[end - 1] != QUOTE) {
+			
+			// 両端に引用符が付かないならば、そのまま
+			return new String(buffer, start, end - start);
+		}
+		
+		// 両端の引用符を取り外す
+		start++;
+		end--;
+		
+		int quotePos = indexOfQuote(buffer, start, end);
+		
+		if (quotePos == -1) {
+			return new String(buffer, start, end - start);
+		}
+		
+		// 連続する引用符を１つにする
+		StringBuilder sb = new StringBuilder(end - start);
+		
+		while (quotePos != -1) {
+			if (quotePos + 1 < end && buffer[quotePos + 1] == QUOTE) {
+				sb.append(buffer, start, quotePos + 1 - start);
+				start = quotePos + 2;
+			} else {
+				sb.append(buffer, start, quotePos + 1 - start);
+				start = quotePos + 1;
+			}
+			
+			quotePos = indexOfQuote(buffer, start, end);
+		}
+		
+		sb.append(buffer, start, end - start);
+		
+		return sb.toString();
+	}
+	
+	/**
+	 * サブクラスで {@link #unescape(String)} がオーバーライドされているかどうか判定する。
+	 */
+	private boolean isUnescapeOverridden() {
+		try {
+			return getClass().getMethod("unescape", String.class).getDeclaringClass()
+					!= StandardCSVStrategy.class;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+	
+	private static int indexOfQuote(char[] buffer, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (buffer[i] == QUOTE) {
+				return i;
+			}
+		}
+		
+		return -1;
+	}
+
 	/* (non-Javadoc)
 	 * @see net.mikaboshi.csv.CSVStrategy#csvLines(java.io.Reader)
 	 */
@@ -176,6 +412,72 @@ public class StandardCSVStrategy extends AbstractCSVStrategy {
 		};
 	}
 	
+	/**
+	 * <p>
+	 * CSVデータを読み込み、指定された列の項目だけを返す。
+	 * </p><p>
+	 * 返される配列の要素は columns の順で、指定されなかった列の項目は
+	 * アンエスケープも文字列の生成も行わない。
+	 * 行に存在しない列の要素はnullとなる。
+	 * </p>
+	 * 
+	 * @param reader 入力データ
+	 * @param columns 読み込む列のインデックス（0から始まる）の配列。nullの場合はすべての列。
+	 * @return 論理行ごとの項目の配列
+	 * @throws NullPointerException readerがnullの場合
+	 * @throws IllegalArgumentException columnsに負数が含まれる場合
+	 * @since 1.1.10
+	 */
+	public Iterable<String[]> csvLines(Reader reader, int[] columns) {
+		return csvLines(reader, columns, -1, null);
+	}
+	
+	/**
+	 * <p>
+	 * CSVデータを読み込み、フィルタが受け入れた行の、指定された列の項目だけを返す。
+	 * </p><p>
+	 * 各行は、まずキー列の項目だけをアンエスケープしてフィルタに渡す。
+	 * フィルタが受け入れなかった行は、他の項目をアンエスケープせずに読み飛ばす。
+	 * 列の指定は {@link #csvLines(Reader, int[])} と同じ。
+	 * </p><p>
+	 * フィルタを指定した場合、{@link CSVIterator#hasNext()} は受け入れられる行まで先読みする。
+	 * </p>
+	 * 
+	 * @param reader 入力データ
+	 * @param columns 読み込む列のインデックス（0から始まる）の配列。nullの場合はすべての列。
+	 * @param keyColumn フィルタに渡すキー列のインデックス（0から始まる）
+	 * @param filter 行のフィルタ。nullの場合はすべての行を返す。
+	 * @return 論理行ごとの項目の配列
+	 * @throws NullPointerException readerがnullの場合
+	 * @throws IllegalArgumentException columnsに負数が含まれる場合。
+	 *                                  filterを指定して、keyColumnが負数の場合。
+	 * @since 1.1.10
+	 */
+	public Iterable<String[]> csvLines(
+			final Reader reader,
+			final int[] columns,
+			final int keyColumn,
+			final CSVLineFilter filter) {
+		
+		validateNotNull(reader, "reader", NullPointerException.class);
+		
+		if (columns != null) {
+			for (int column : columns) {
+				validatePositiveOrZero(column, "columns", IllegalArgumentException.class);
+			}
+		}
+		
+		if (filter != null) {
+			validatePositiveOrZero(keyColumn, "keyColumn", IllegalArgumentException.class);
+		}
+		
+		return new Iterable<String[]>() {
+			public Iterator<String[]> iterator() {
+				return new CSVIterator(reader, columns, keyColumn, filter);
+			}
+		};
+	}
+	
 	/**
 	 * 常に引用符を付ける場合はtrueを設定する。（デフォルトはfalse）
 	 * @param alwaysQuote
@@ -193,6 +495,18 @@ public class StandardCSVStrategy extends AbstractCSVStrategy {
 		this.quotedNullString = QUOTE + getNullString() + QUOTE;
 	}
 	
+	/** 区切り文字が数値の文字列表現に現れる文字を含まない場合はtrue */
+	private boolean numberSafeDelimiter = isNumberSafe(getDelimiter());
+	
+	/** サブクラスで {@link #escape(Object)} がオーバーライドされているか（遅延評価） */
+	private transient Boolean escapeOverridden;
+	
+	@Override
+	public void setDelimiter(String delimiter) {
+		super.setDelimiter(delimiter);
+		this.numberSafeDelimiter = isNumberSafe(delimiter);
+	}
+	
 	/**
 	 * <p>
 	 * CSVデータを読み込み、1行ごとに読み込むIterator。
@@ -202,6 +516,8 @@ public class StandardCSVStrategy extends AbstractCSVStrategy {
 	 * つまり、引用符で囲まれた中に改行コードがあった場合は、
 	 * １つの行と見なす。
 	 * </p><p>
+	 * 項目の切り出しは {@link CSVTokenizer} で行う。
+	 * </p><p>
 	 * <i>(注意)このクラスのインスタンスは非同期である。</i> 
 	 * </p>
 	 */
@@ -209,22 +525,21 @@ public class StandardCSVStrategy extends AbstractCSVStrategy {
 
 		private final Reader reader;
 		
-		/** 現在見ている文字 */
-		private char currentChar;
+		private final CSVTokenizer tokenizer;
 		
-		/** 次の文字 */
-		private char nextChar;
+		/** サブクラスで {@link StandardCSVStrategy#unescape(String)} がオーバーライドされているか */
+		private final boolean unescapeOverridden;
 		
-		/** 次の文字がない場合はtrue */
-		private boolean noNextChar = true;
+		/** 読み込む列（nullの場合はすべての列） */
+		private final int[] columns;
 		
-		/** マーク時の次の文字 */
-		private char nextCharOnMark;
+		/** フィルタに渡すキー列 */
+		private final int keyColumn;
 		
-		/** マーク時に次の文字がない場合はtrue */
-		private boolean noNextCharOnMark = true;
+		private final CSVLineFilter filter;
 		
-		private static final int END_OF_STREAM = -1;
+		/** フィルタが受け入れた行を先読みしているか */
+		private boolean prepared = false;
 		
 		/**
 		 * <p>
@@ -240,11 +555,38 @@ public class StandardCSVStrategy extends AbstractCSVStrategy {
 		 * @param csvStrategy
 		 */
 		public CSVIterator(Reader reader) {
-			if (reader instanceof BufferedReader) {
+			this(reader, null, -1, null);
+		}
+		
+		/**
+		 * <p>
+		 * 入力データ（CSV）であるreaderと、読み込む列、行のフィルタを設定する。
+		 * </p><p>
+		 * 引数の詳細は {@link StandardCSVStrategy#csvLines(Reader, int[], int, CSVLineFilter)} を参照。
+		 * フィルタを指定した場合、{@link #mark(int)} は {@link #hasNext()} を呼び出す前に行うこと。
+		 * （先読みした行は、マーク位置に戻しても再度は返されない）
+		 * </p>
+		 * 
+		 * @param reader
+		 * @param columns 読み込む列のインデックスの配列。nullの場合はすべての列。
+		 * @param keyColumn フィルタに渡すキー列のインデックス
+		 * @param filter 行のフィルタ。nullの場合はすべての行を返す。
+		 * @since 1.1.10
+		 */
+		public CSVIterator(Reader reader, int[] columns, int keyColumn, CSVLineFilter filter) {
+			this.columns = columns != null ? columns.clone() : null;
+			this.keyColumn = keyColumn;
+			this.filter = filter;
+			
+			if (reader.markSupported()) {
+				// ブロック単位で読み込むので、マークできるならばバッファリングは不要
 				this.reader = reader;
 			} else {
 				this.reader = new BufferedReader(reader);
 			}
+			
+			this.tokenizer = new CSVTokenizer(this.reader, getDelimiter());
+			this.unescapeOverridden = isUnescapeOverridden();
 		}
 		
 		/**
@@ -255,11 +597,20 @@ public class StandardCSVStrategy extends AbstractCSVStrategy {
 		 *      次の論理行がない場合：false
 		 */
 		public boolean hasNext() {
-			if (this.noNextChar) {
-				shiftChar();
+			if (this.filter == null) {
+				return this.tokenizer.hasNext();
+			}
+			
+			// フィルタが受け入れる行まで読み進める
+			while (!this.prepared) {
+				if (!this.tokenizer.nextLine()) {
+					return false;
+				}
+				
+				this.prepared = this.filter.accept(getItem(this.keyColumn));
 			}
 			
-			return !this.noNextChar;
+			return true;
 		}
 		
 		/**
@@ -270,112 +621,54 @@ public class StandardCSVStrategy extends AbstractCSVStrategy {
 		 */
 		public String[] next() throws NoSuchElementException {
 			
-			if (!hasNext()) {
-				throw new NoSuchElementException("End of CSV line.");
-			}
-			
-			List<String> items = new ArrayList<String>();
-			
-			// 引用の中かどうか
-			boolean isInQuote = false;
-			
-			StringBuilder sb = new StringBuilder();
-			DelimiterBuffer delimiterBuffer 
-					= new DelimiterBuffer(getDelimiter());
-			
-			while (true) {
-				shiftChar();
-				
-				if (this.noNextChar) {
-					// ストリームの終わりまで来た
-					sb.append(this.currentChar);
-					
-					break;
-				}
-				
-				delimiterBuffer.nextChar(this.currentChar);
-				
-				if (this.currentChar == '\r' && !isInQuote) {
-					if (this.nextChar == '\n' && !isInQuote) {
-						// \r\nの場合は2文字進める
-						shiftChar();
-					}
-					// 引用の外で改行が来たら論理行の終わり
-					break;
+			if (this.filter != null) {
+				if (!hasNext()) {
+					throw new NoSuchElementException("End of CSV line.");
 				}
 				
-				if (this.currentChar == '\n' && !isInQuote) {
-					// 引用の外で改行が来たら論理行の終わり
-					break;
-				}
+				this.prepared = false;
 				
-				if (delimiterBuffer.isDelimiter()) {
-					if (isInQuote) {
-						// 引用の中で区切り文字が来た場合
-						sb.append(this.currentChar);
-					} else {
-						// 引用の外で区切り文字が来た
-						
-						// 末尾の（区切り文字長 - 1）を削る
-						String str = MkStringUtils.cutTail(sb.toString(), getDelimiter().length() - 1);
-						
-						items.add(unescape(str));
-						sb = new StringBuilder();
-						delimiterBuffer.clear();
-						
-						if (this.nextChar == '\n' || this.nextChar == '\r') {
-							// 次が改行ならば、空項目を追加
-							items.add(StringUtils.EMPTY);
-						}
-					}
-					
-					continue;
-				}
+			} else if (!this.tokenizer.nextLine()) {
+				throw new NoSuchElementException("End of CSV line.");
+			}
+			
+			if (this.columns == null) {
+				String[] items = new String[this.tokenizer.getFieldCount()];
 				
-				if (this.currentChar == QUOTE) {
-					if (isInQuote) {
-						if (this.nextChar == QUOTE) {
-							// 引用の中で、二文字続けて引用符が来た場合
-							sb.append(QUOTE);
-							sb.append(QUOTE);
-							shiftChar();
-							continue;
-						}
-						
-						// 引用中に引用符が来て、次が引用符では場合はない場合、
-						// ここで項目が区切れると見なす。
-						// 連続しない引用符⇒区切り文字という不正なインプットが
-						// ありうるが、それは無視する。（これによって、可逆性は失われる）
-					}
-					
-					sb.append(this.currentChar);
-					isInQuote = !isInQuote;
-					continue;
+				for (int i = 0; i < items.length; i++) {
+					items[i] = getItem(i);
 				}
 				
-				// 引用の外で一般の文字が来た場合
-				sb.append(this.currentChar);
+				return items;
 			}
 			
-			if (sb.length() != 0) {
-				items.add(unescape(sb.toString()));
+			String[] items = new String[this.columns.length];
+			
+			for (int i = 0; i < items.length; i++) {
+				items[i] = getItem(this.columns[i]);
 			}
 			
-			if (!items.isEmpty()) {
-				String lastItem = items.get(items.size() - 1);
-				
-				if (lastItem.endsWith(getDelimiter())) {
-					// 末尾が区切り文字で終わっている場合、
-					// 区切り文字を取って、最後に空項目を追加する。
-					// 場当たり的だが、逐次チェックするようりパフォーマンスはよいはず
-					
-					String str = MkStringUtils.cutTail(lastItem, getDelimiter().length());
-					items.set(items.size() - 1, str);
-					items.add(StringUtils.EMPTY);
-				}
+			return items;
+		}
+		
+		/**
+		 * 現在の論理行の項目をアンエスケープして返す。
+		 * @return 項目の値。項目がない場合はnull。
+		 */
+		private String getItem(int index) {
+			if (index >= this.tokenizer.getFieldCount()) {
+				return null;
 			}
 			
-			return items.toArray(new String[items.size()]);
+			char[] buffer = this.tokenizer.getBuffer();
+			int start = this.tokenizer.getFieldStart(index);
+			int end = this.tokenizer.getFieldEnd(index);
+			
+			if (this.unescapeOverridden) {
+				return unescape(new String(buffer, start, end - start));
+			} else {
+				return unescape(buffer, start, end);
+			}
 		}
 
 		/**
@@ -396,14 +689,7 @@ public class StandardCSVStrategy extends AbstractCSVStrategy {
 		 * @since 1.1.5
 		 */
 		public void mark(int readAheadLimit) throws IOException {
-			this.reader.mark(readAheadLimit);
-			
-			// 先読み文字の退避
-			this.noNextCharOnMark = this.noNextChar;
-			
-			if (!this.noNextCharOnMark) {
-				this.nextCharOnMark = this.nextChar;
-			}
+			this.tokenizer.mark(readAheadLimit);
 		}
 		
 		/**
@@ -412,74 +698,9 @@ public class StandardCSVStrategy extends AbstractCSVStrategy {
 		 * @since 1.1.5
 		 */
 		public void reset() throws IOException {
-			this.reader.reset();
-			
-			// 退避していた先読み文字の復元
-			this.noNextChar = this.noNextCharOnMark;
-			
-			if (!this.noNextChar) {
-				this.nextChar = this.nextCharOnMark;
-			}
+			this.tokenizer.reset();
+			this.prepared = false;
 		}
 		
-		/**
-		 * readerから１文字バッファに読み込む。
-		 */
-		private void shiftChar() {
-			int next;
-			
-			try {
-				// ストリームの最後にきた場合は、-1が返ってくる
-				next = this.reader.read();
-				
-			} catch (IOException e) {
-				logger.warn("CSV read error.", e);
-				next = END_OF_STREAM;
-			}
-			
-			this.currentChar = this.nextChar;
-			
-			if (next == END_OF_STREAM) {
-				this.noNextChar = true;
-			} else {
-				this.nextChar = (char) next;
-				this.noNextChar = false;
-			}
-		}
-		
-	}
-	
-	static class DelimiterBuffer {
-		private String delimiter;
-		private char[] buffer;
-		
-		public DelimiterBuffer(String delimiter) {
-			validateNotNullNorLength0(
-					delimiter, "delimiter",
-					IllegalArgumentException.class);
-			validateNotContainsInvalidCharactor(
-					delimiter, "delimiter", SPECIAL_CHARS,
-					IllegalArgumentException.class);
-			
-			this.delimiter = delimiter;
-			clear();
-		}
-		
-		public void nextChar(char c) {
-			// ひとつずつ前にずらし、末尾に新しい文字を設定する
-			for (int i = 0; i < this.delimiter.length() - 1; i++) {
-				this.buffer[i] = this.buffer[i + 1];
-			}
-
-			this.buffer[this.delimiter.length() - 1] = c;
-		}
-		
-		public boolean isDelimiter() {
-			return this.delimiter.equals(new String(this.buffer));
-		}
-		
-		public void clear() {
-			this.buffer = new char[this.delimiter.length()];
-		}
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,768 @@
+package net.mikaboshi.csv;
+
+import static net.mikaboshi.validator.SimpleValidator.validateNotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Calendar;
+
+/**
+ * <p>
+ * 列ごとに型を指定して、CSVデータを1論理行ずつ読み込むカーソル。
+ * </p><p>
+ * 数値・日付の列は、{@link CSVTokenizer} のバッファから直接プリミティブ値に変換するので、
+ * 中間の String や BigDecimal は生成しない。
+ * （{@link CSVColumnType#DECIMAL} の列は、BigDecimal をバッファから直接生成する）
+ * 日付・日時の列の値は、列ごとに再利用するオブジェクトで返すので、
+ * 次に {@link #next()} を呼び出すまでの間だけ有効である。
+ * </p><p>
+ * 型を指定しなかった列、および {@link CSVColumnType#STRING} の列は、
+ * {@link #getString(int)} で文字列として取得する。
+ * 値の両端の引用符は取り除く。
+ * </p><p>
+ * 使用例：
+ * <pre>
+ * TypedCSVReader reader = new TypedCSVReader(
+ *         in, new StandardCSVStrategy(),
+ *         new CSVColumnType[] {CSVColumnType.INT, CSVColumnType.STRING, CSVColumnType.DATE});
+ * try {
+ *     while (reader.next()) {
+ *         int id = reader.getInt(0);
+ *         ...
+ *     }
+ * } finally {
+ *     reader.close();
+ * }
+ * </pre>
+ * </p><p>
+ * <i>(注意)このクラスのインスタンスは非同期である。</i>
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public class TypedCSVReader implements Closeable {
+
+	/** 誤差なくdoubleに変換できる10の累乗 */
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+		1e21, 1e22
+	};
+
+	/** 誤差なくdoubleに変換できる仮数の最大桁数 */
+	private static final int MAX_EXACT_DIGITS = 15;
+
+	private final Reader reader;
+
+	private final StandardCSVStrategy csvStrategy;
+
+	private final CSVTokenizer tokenizer;
+
+	private final CSVColumnType[] columnTypes;
+
+	/** INT, LONG, DATE, TIMESTAMP列の値（日付はエポックからのミリ秒） */
+	private final long[] longValues;
+
+	private final double[] doubleValues;
+
+	private final BigDecimal[] decimalValues;
+
+	private final Date[] dateValues;
+
+	private final Timestamp[] timestampValues;
+
+	private final boolean[] nulls;
+
+	private final Calendar calendar = Calendar.getInstance();
+
+	private String nullString;
+
+	private int fieldCount = 0;
+
+	private int lineCount = 0;
+
+	/**
+	 * 入力データ、パースに使用するCSVStrategy、列の型を指定するコンストラクタ。
+	 *
+	 * @param reader 入力データ。{@link #close()} で閉じられる。
+	 * @param csvStrategy パースに使用するCSVStrategy
+	 * @param columnTypes 列の型。列数より短い場合、残りの列は {@link CSVColumnType#STRING} とする。
+	 * @throws NullPointerException 引数がnullの場合
+	 */
+	public TypedCSVReader(
+			Reader reader,
+			StandardCSVStrategy csvStrategy,
+			CSVColumnType[] columnTypes) {
+
+		validateNotNull(reader, "reader", NullPointerException.class);
+		validateNotNull(csvStrategy, "csvStrategy", NullPointerException.class);
+		validateNotNull(columnTypes, "columnTypes", NullPointerException.class);
+
+		this.reader = reader;
+		this.csvStrategy = csvStrategy;
+		this.tokenizer = new CSVTokenizer(reader, csvStrategy.getDelimiter());
+		this.columnTypes = new CSVColumnType[columnTypes.length];
+
+		int size = columnTypes.length;
+
+		this.longValues = new long[size];
+		this.doubleValues = new double[size];
+		this.decimalValues = new BigDecimal[size];
+		this.dateValues = new Date[size];
+		this.timestampValues = new Timestamp[size];
+		this.nulls = new boolean[size];
+
+		for (int i = 0; i < size; i++) {
+			this.columnTypes[i] = columnTypes[i] != null ? columnTypes[i] : CSVColumnType.STRING;
+
+			if (this.columnTypes[i] == CSVColumnType.DATE) {
+				this.dateValues[i] = new Date(0L);
+			} else if (this.columnTypes[i] == CSVColumnType.TIMESTAMP) {
+				this.timestampValues[i] = new Timestamp(0L);
+			}
+		}
+
+		this.calendar.setLenient(false);
+	}
+
+	/**
+	 * <p>
+	 * nullを示す文字列を設定する。
+	 * </p><p>
+	 * 項目の値（引用符を取り除いた値）がこの文字列と一致する場合は、
+	 * {@link #isNull(int)} がtrueとなる。
+	 * 指定しない場合でも、STRING以外の型の列で空の項目はnullとする。
+	 * </p>
+	 * @param nullString nullを示す文字列
+	 */
+	public void setNullString(String nullString) {
+		this.nullString = nullString;
+	}
+
+	/**
+	 * 次の論理行に進み、型が指定された列の値を変換する。
+	 *
+	 * @return 次の論理行がある場合はtrue。ない場合はfalse。
+	 * @throws NumberFormatException 数値の列の値が不正な場合
+	 * @throws IllegalArgumentException 日付・日時の列の値が不正な場合
+	 */
+	public boolean next() {
+		if (!this.tokenizer.nextLine()) {
+			this.fieldCount = 0;
+			return false;
+		}
+
+		this.lineCount++;
+		this.fieldCount = this.tokenizer.getFieldCount();
+
+		char[] buffer = this.tokenizer.getBuffer();
+
+		for (int i = 0; i < this.columnTypes.length; i++) {
+			if (i >= this.fieldCount) {
+				this.nulls[i] = true;
+				continue;
+			}
+
+			int start = this.tokenizer.getFieldStart(i);
+			int end = this.tokenizer.getFieldEnd(i);
+
+			if (end - start > 1 &&
+				buffer[start] == CSVTokenizer.QUOTE &&
+				buffer[end - 1] == CSVTokenizer.QUOTE) {
+				start++;
+				end--;
+			}
+
+			CSVColumnType type = this.columnTypes[i];
+
+			this.nulls[i] =
+				(type != CSVColumnType.STRING && start == end) ||
+				contentEquals(buffer, start, end, this.nullString);
+
+			if (this.nulls[i] || type == CSVColumnType.STRING) {
+				continue;
+			}
+
+			try {
+				switch (type) {
+					case INT:
+						this.longValues[i] = parseLong(
+								buffer, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE);
+						break;
+
+					case LONG:
+						this.longValues[i] = parseLong(
+								buffer, start, end, Long.MIN_VALUE, Long.MAX_VALUE);
+						break;
+
+					case DOUBLE:
+						this.doubleValues[i] = parseDouble(buffer, start, end);
+						break;
+
+					case DECIMAL:
+						this.decimalValues[i] = new BigDecimal(buffer, start, end - start);
+						break;
+
+					case DATE:
+						this.dateValues[i].setTime(parseDateTime(buffer, start, end, false));
+						break;
+
+					case TIMESTAMP:
+						this.timestampValues[i].setTime(parseDateTime(buffer, start, end, true));
+						this.timestampValues[i].setNanos(this.nanos);
+						break;
+				}
+			} catch (NumberFormatException e) {
+				NumberFormatException nfe = new NumberFormatException(
+						errorMessage(i, buffer, start, end));
+				nfe.initCause(e);
+				throw nfe;
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException(
+						errorMessage(i, buffer, start, end), e);
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * <p>
+	 * 値を変換せずに、次の論理行に進む。
+	 * カラム名の行や、インポート済みの行を読み飛ばす場合に使用する。
+	 * </p><p>
+	 * 読み飛ばした行は、{@link #getString(int)} でのみ取得でき、型が指定された列は全てnullとなる。
+	 * </p>
+	 *
+	 * @return 次の論理行がある場合はtrue。ない場合はfalse。
+	 */
+	public boolean skip() {
+		if (!this.tokenizer.nextLine()) {
+			this.fieldCount = 0;
+			return false;
+		}
+
+		this.lineCount++;
+		this.fieldCount = this.tokenizer.getFieldCount();
+
+		Arrays.fill(this.nulls, true);
+
+		return true;
+	}
+
+	/**
+	 * 現在の論理行の項目数を返す。
+	 * @return 項目数
+	 */
+	public int getFieldCount() {
+		return this.fieldCount;
+	}
+
+	/**
+	 * これまでに読み込んだ論理行の数を返す。
+	 * @return 論理行の数
+	 */
+	public int getLineCount() {
+		return this.lineCount;
+	}
+
+	/**
+	 * 列の型を返す。
+	 * @param index 列のインデックス（0から始まる）
+	 * @return 列の型
+	 */
+	public CSVColumnType getColumnType(int index) {
+		return index < this.columnTypes.length ?
+				this.columnTypes[index] : CSVColumnType.STRING;
+	}
+
+	/**
+	 * 現在の論理行の項目がnullかどうか判定する。
+	 *
+	 * @param index 列のインデックス（0から始まる）
+	 * @return 項目がnullの場合、または項目がない場合はtrue
+	 * @see #setNullString(String)
+	 */
+	public boolean isNull(int index) {
+		if (index < this.columnTypes.length) {
+			return this.nulls[index];
+		}
+
+		if (index >= this.fieldCount) {
+			return true;
+		}
+
+		return getString(index).equals(this.nullString);
+	}
+
+	/**
+	 * INT列の値を返す。nullの場合は0を返す。
+	 *
+	 * @param index 列のインデックス（0から始まる）
+	 * @return 項目の値
+	 * @throws IllegalStateException 列の型がINTではない場合
+	 */
+	public int getInt(int index) {
+		checkType(index, CSVColumnType.INT);
+		return this.nulls[index] ? 0 : (int) this.longValues[index];
+	}
+
+	/**
+	 * LONG列（またはINT列）の値を返す。nullの場合は0を返す。
+	 *
+	 * @param index 列のインデックス（0から始まる）
+	 * @return 項目の値
+	 * @throws IllegalStateException 列の型がLONG, INTではない場合
+	 */
+	public long getLong(int index) {
+		if (getColumnType(index) != CSVColumnType.INT) {
+			checkType(index, CSVColumnType.LONG);
+		}
+
+		return this.nulls[index] ? 0L : this.longValues[index];
+	}
+
+	/**
+	 * DOUBLE列の値を返す。nullの場合は0を返す。
+	 *
+	 * @param index 列のインデックス（0から始まる）
+	 * @return 項目の値
+	 * @throws IllegalStateException 列の型がDOUBLEではない場合
+	 */
+	public double getDouble(int index) {
+		checkType(index, CSVColumnType.DOUBLE);
+		return this.nulls[index] ? 0.0 : this.doubleValues[index];
+	}
+
+	/**
+	 * DECIMAL列の値を返す。
+	 *
+	 * @param index 列のインデックス（0から始まる）
+	 * @return 項目の値。nullの場合はnull。
+	 * @throws IllegalStateException 列の型がDECIMALではない場合
+	 */
+	public BigDecimal getDecimal(int index) {
+		checkType(index, CSVColumnType.DECIMAL);
+		return this.nulls[index] ? null : this.decimalValues[index];
+	}
+
+	/**
+	 * DATE列の値を返す。
+	 * 返されるオブジェクトは再利用されるので、次に {@link #next()} を呼び出すまでの間だけ有効。
+	 *
+	 * @param index 列のインデックス（0から始まる）
+	 * @return 項目の値。nullの場合はnull。
+	 * @throws IllegalStateException 列の型がDATEではない場合
+	 */
+	public Date getDate(int index) {
+		checkType(index, CSVColumnType.DATE);
+		return this.nulls[index] ? null : this.dateValues[index];
+	}
+
+	/**
+	 * TIMESTAMP列の値を返す。
+	 * 返されるオブジェクトは再利用されるので、次に {@link #next()} を呼び出すまでの間だけ有効。
+	 *
+	 * @param index 列のインデックス（0から始まる）
+	 * @return 項目の値。nullの場合はnull。
+	 * @throws IllegalStateException 列の型がTIMESTAMPではない場合
+	 */
+	public Timestamp getTimestamp(int index) {
+		checkType(index, CSVColumnType.TIMESTAMP);
+		return this.nulls[index] ? null : this.timestampValues[index];
+	}
+
+	/**
+	 * 項目を、アンエスケープした文字列として返す。列の型に関係なく取得できる。
+	 *
+	 * @param index 列のインデックス（0から始まる）
+	 * @return 項目の値。項目がない場合はnull。
+	 */
+	public String getString(int index) {
+		if (index >= this.fieldCount) {
+			return null;
+		}
+
+		return this.csvStrategy.unescape(
+				this.tokenizer.getBuffer(),
+				this.tokenizer.getFieldStart(index),
+				this.tokenizer.getFieldEnd(index));
+	}
+
+	/**
+	 * <p>
+	 * 項目を、列の型に応じたオブジェクトとして返す。
+	 * </p><p>
+	 * INTはInteger、LONGはLong、DOUBLEはDouble、DECIMALはBigDecimal、
+	 * DATEは java.sql.Date、TIMESTAMPは java.sql.Timestamp、STRINGはStringを返す。
+	 * このメソッドは呼び出しごとに新しいオブジェクトを生成する。
+	 * </p>
+	 *
+	 * @param index 列のインデックス（0から始まる）
+	 * @return 項目の値。nullの場合はnull。
+	 */
+	public Object getObject(int index) {
+		CSVColumnType type = getColumnType(index);
+
+		if (type == CSVColumnType.STRING) {
+			return isNull(index) ? null : getString(index);
+		}
+
+		if (this.nulls[index]) {
+			return null;
+		}
+
+		switch (type) {
+			case INT:
+				return Integer.valueOf((int) this.longValues[index]);
+			case LONG:
+				return Long.valueOf(this.longValues[index]);
+			case DOUBLE:
+				return Double.valueOf(this.doubleValues[index]);
+			case DECIMAL:
+				return this.decimalValues[index];
+			case DATE:
+				return new Date(this.dateValues[index].getTime());
+			case TIMESTAMP:
+				Timestamp ts = new Timestamp(this.timestampValues[index].getTime());
+				ts.setNanos(this.timestampValues[index].getNanos());
+				return ts;
+			default:
+				throw new AssertionError(type);
+		}
+	}
+
+	/**
+	 * 入力を閉じる。
+	 */
+	public void close() throws IOException {
+		this.reader.close();
+	}
+
+	private void checkType(int index, CSVColumnType type) {
+		if (getColumnType(index) != type) {
+			throw new IllegalStateException(
+					"column " + index + " is " + getColumnType(index) + ", not " + type);
+		}
+	}
+
+	private String errorMessage(int index, char[] buffer, int start, int end) {
+		return "line " + this.lineCount + ", column " + index +
+				" (" + this.columnTypes[index] + "): '" +
+				new String(buffer, start, end - start) + "'";
+	}
+
+	private static boolean contentEquals(char[] buffer, int start, int end, String str) {
+		if (str == null || str.length() != end - start) {
+			return false;
+		}
+
+		for (int i = start; i < end; i++) {
+			if (buffer[i] != str.charAt(i - start)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * <p>
+	 * 整数を変換する。
+	 * </p><p>
+	 * {@link BigDecimal#longValue()} と同様に、小数部は切り捨てる。
+	 * 指数表記には対応しない。
+	 * </p>
+	 */
+	static long parseLong(char[] buffer, int start, int end, long min, long max) {
+		int i = start;
+		boolean negative = false;
+
+		if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+			negative = buffer[i] == '-';
+			i++;
+		}
+
+		// Long.MIN_VALUEを扱えるように、負数で累積する
+		long limit = negative ? min : -max;
+		long multmin = limit / 10;
+		long result = 0L;
+		boolean hasDigit = false;
+
+		for (; i < end; i++) {
+			char c = buffer[i];
+
+			if (c == '.') {
+				break;
+			}
+
+			if (c < '0' || c > '9') {
+				throw new NumberFormatException();
+			}
+
+			int digit = c - '0';
+
+			if (result < multmin) {
+				throw new NumberFormatException("out of range");
+			}
+
+			result *= 10;
+
+			if (result < limit + digit) {
+				throw new NumberFormatException("out of range");
+			}
+
+			result -= digit;
+			hasDigit = true;
+		}
+
+		if (i < end) {
+			// 小数部
+			for (i++; i < end; i++) {
+				if (buffer[i] < '0' || buffer[i] > '9') {
+					throw new NumberFormatException();
+				}
+
+				hasDigit = true;
+			}
+		}
+
+		if (!hasDigit) {
+			throw new NumberFormatException();
+		}
+
+		return negative ? result : -result;
+	}
+
+	/**
+	 * <p>
+	 * 浮動小数点数を変換する。
+	 * </p><p>
+	 * 仮数が15桁以内で、10の指数が22以内の場合は、誤差なく変換できるので直接計算する。
+	 * それ以外の場合は {@link Double#parseDouble(String)} で変換する。
+	 * </p>
+	 */
+	static double parseDouble(char[] buffer, int start, int end) {
+		int i = start;
+		boolean negative = false;
+
+		if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+			negative = buffer[i] == '-';
+			i++;
+		}
+
+		long mantissa = 0L;
+		int digits = 0;
+		int exponent = 0;
+		boolean hasDigit = false;
+		boolean afterPoint = false;
+
+		for (; i < end; i++) {
+			char c = buffer[i];
+
+			if (c >= '0' && c <= '9') {
+				hasDigit = true;
+
+				if (mantissa == 0L && c == '0') {
+					// 先頭の0は有効桁数に数えない
+					if (afterPoint) {
+						exponent--;
+					}
+					continue;
+				}
+
+				if (++digits > MAX_EXACT_DIGITS) {
+					return slowParseDouble(buffer, start, end);
+				}
+
+				mantissa = mantissa * 10 + (c - '0');
+
+				if (afterPoint) {
+					exponent--;
+				}
+			} else if (c == '.' && !afterPoint) {
+				afterPoint = true;
+			} else if ((c == 'e' || c == 'E') && hasDigit) {
+				break;
+			} else {
+				return slowParseDouble(buffer, start, end);
+			}
+		}
+
+		if (!hasDigit) {
+			return slowParseDouble(buffer, start, end);
+		}
+
+		if (i < end) {
+			// 指数部
+			i++;
+			boolean negativeExponent = false;
+
+			if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+				negativeExponent = buffer[i] == '-';
+				i++;
+			}
+
+			if (i == end) {
+				return slowParseDouble(buffer, start, end);
+			}
+
+			int e = 0;
+
+			for (; i < end; i++) {
+				char c = buffer[i];
+
+				if (c < '0' || c > '9' || e > 1000) {
+					return slowParseDouble(buffer, start, end);
+				}
+
+				e = e * 10 + (c - '0');
+			}
+
+			exponent += negativeExponent ? -e : e;
+		}
+
+		double result;
+
+		if (mantissa == 0L) {
+			result = 0.0;
+		} else if (exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+			result = mantissa * POWERS_OF_TEN[exponent];
+		} else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+			result = mantissa / POWERS_OF_TEN[-exponent];
+		} else {
+			return slowParseDouble(buffer, start, end);
+		}
+
+		return negative ? -result : result;
+	}
+
+	private static double slowParseDouble(char[] buffer, int start, int end) {
+		return Double.parseDouble(new String(buffer, start, end - start));
+	}
+
+	/** 直前に変換した日時のナノ秒 */
+	private int nanos;
+
+	/**
+	 * 日付（yyyy-mm-dd）または日時（yyyy-mm-dd hh:mm:ss.fffffffff）を、
+	 * デフォルトのタイムゾーンでのエポックからのミリ秒に変換する。
+	 * 日付の区切りは「/」も可。月、日、時、分、秒は1桁でもよい。
+	 * 日時の秒以降、および日付と時刻の間の区切りの「T」は省略可。
+	 */
+	private long parseDateTime(char[] buffer, int start, int end, boolean timestamp) {
+		Cursor cursor = this.cursor;
+		cursor.set(buffer, start, end);
+
+		int year = cursor.number(4);
+		char separator = cursor.separator('-', '/');
+		int month = cursor.number(2);
+		cursor.expect(separator);
+		int day = cursor.number(2);
+
+		int hour = 0;
+		int minute = 0;
+		int second = 0;
+		this.nanos = 0;
+
+		if (timestamp && !cursor.atEnd()) {
+			cursor.separator(' ', 'T');
+			hour = cursor.number(2);
+			cursor.expect(':');
+			minute = cursor.number(2);
+
+			if (!cursor.atEnd()) {
+				cursor.expect(':');
+				second = cursor.number(2);
+
+				if (!cursor.atEnd()) {
+					cursor.expect('.');
+					int fractionStart = cursor.position;
+					this.nanos = cursor.number(9);
+
+					for (int i = cursor.position - fractionStart; i < 9; i++) {
+						this.nanos *= 10;
+					}
+				}
+			}
+		}
+
+		if (!cursor.atEnd()) {
+			throw new IllegalArgumentException();
+		}
+
+		this.calendar.clear();
+		this.calendar.set(year, month - 1, day, hour, minute, second);
+
+		return this.calendar.getTimeInMillis();
+	}
+
+	private final Cursor cursor = new Cursor();
+
+	/**
+	 * 日付を変換するときに、バッファ上を走査するカーソル。
+	 */
+	private static final class Cursor {
+
+		private char[] buffer;
+
+		private int position;
+
+		private int end;
+
+		void set(char[] buffer, int start, int end) {
+			this.buffer = buffer;
+			this.position = start;
+			this.end = end;
+		}
+
+		boolean atEnd() {
+			return this.position == this.end;
+		}
+
+		/**
+		 * 1桁以上、maxDigits桁以下の数字を読み込む。
+		 */
+		int number(int maxDigits) {
+			int start = this.position;
+			int result = 0;
+
+			while (this.position < this.end &&
+					this.position - start < maxDigits &&
+					this.buffer[this.position] >= '0' &&
+					this.buffer[this.position] <= '9') {
+				result = result * 10 + (this.buffer[this.position] - '0');
+				this.position++;
+			}
+
+			if (this.position == start) {
+				throw new IllegalArgumentException();
+			}
+
+			return result;
+		}
+
+		/**
+		 * 区切り文字を読み込む。
+		 * @return 読み込んだ区切り文字
+		 */
+		char separator(char c1, char c2) {
+			if (this.position < this.end &&
+				(this.buffer[this.position] == c1 || this.buffer[this.position] == c2)) {
+				return this.buffer[this.position++];
+			}
+
+			throw new IllegalArgumentException();
+		}
+
+		void expect(char c) {
+			separator(c, c);
+		}
+	}
+}
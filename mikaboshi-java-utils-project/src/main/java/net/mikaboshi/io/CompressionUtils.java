@@ -0,0 +1,244 @@
+package net.mikaboshi.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * <p>
+ * 圧縮されたファイルを、ストリームのまま伸長・圧縮して読み書きするユーティリティクラス。
+ * </p><p>
+ * 対応する圧縮形式は、JDKで扱える gzip（拡張子 .gz）と deflate（拡張子 .deflate, .zz）。
+ * 圧縮形式を {@link #AUTO} とした場合は、ファイルの拡張子で判定する。
+ * </p><p>
+ * 圧縮されたファイルの伸長・圧縮は、大きなバッファを使い、
+ * 呼び出し元の処理とは別のスレッドで並行して行う。
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public class CompressionUtils {
+
+	/** 拡張子で圧縮形式を判定する */
+	public static final String AUTO = "auto";
+
+	/** 圧縮しない */
+	public static final String NONE = "none";
+
+	/** gzip形式 */
+	public static final String GZIP = "gzip";
+
+	/** deflate（zlib）形式 */
+	public static final String DEFLATE = "deflate";
+
+	/** ファイルの読み書きのバッファサイズ */
+	private static final int FILE_BUFFER_SIZE = 1024 * 1024;
+
+	/** 伸長・圧縮のバッファサイズ */
+	private static final int CODEC_BUFFER_SIZE = 64 * 1024;
+
+	/** 別スレッドに渡すチャンクのサイズ */
+	private static final int CHUNK_SIZE = 256 * 1024;
+
+	/** 別スレッドとの間で保持するチャンクの数 */
+	private static final int QUEUE_SIZE = 8;
+
+	private CompressionUtils() {}
+
+	/**
+	 * ファイルの拡張子から、圧縮形式を判定する。
+	 *
+	 * @param fileName ファイル名
+	 * @return {@link #GZIP}, {@link #DEFLATE}, {@link #NONE} のいずれか
+	 */
+	public static String getCompression(String fileName) {
+		String lower = fileName.toLowerCase();
+
+		if (lower.endsWith(".gz") || lower.endsWith(".gzip")) {
+			return GZIP;
+		}
+
+		if (lower.endsWith(".deflate") || lower.endsWith(".zz")) {
+			return DEFLATE;
+		}
+
+		return NONE;
+	}
+
+	/**
+	 * 圧縮形式の、ファイルの拡張子を返す。
+	 *
+	 * @param compression 圧縮形式
+	 * @return 拡張子（「.」を含む）。圧縮しない場合は空文字。
+	 * @throws IllegalArgumentException 圧縮形式が不正な場合
+	 */
+	public static String getExtension(String compression) {
+		compression = normalize(compression, null);
+
+		if (GZIP.equals(compression)) {
+			return ".gz";
+		}
+
+		if (DEFLATE.equals(compression)) {
+			return ".deflate";
+		}
+
+		return "";
+	}
+
+	/**
+	 * ファイル名から、圧縮形式の拡張子を取り除く。
+	 *
+	 * @param fileName ファイル名
+	 * @return 圧縮形式の拡張子を取り除いたファイル名。圧縮形式の拡張子がない場合はそのまま。
+	 */
+	public static String removeExtension(String fileName) {
+		if (NONE.equals(getCompression(fileName))) {
+			return fileName;
+		}
+
+		return fileName.substring(0, fileName.lastIndexOf('.'));
+	}
+
+	/**
+	 * <p>
+	 * ファイルを読み込むストリームを開く。
+	 * </p><p>
+	 * 圧縮されたファイルの場合は、伸長したデータを返すストリームとなる。
+	 * 伸長は別スレッドで先読みして行う。
+	 * </p>
+	 *
+	 * @param file 読み込むファイル
+	 * @param compression 圧縮形式。nullまたは {@link #AUTO} の場合は拡張子で判定する。
+	 * @return 入力ストリーム
+	 * @throws IOException ファイルを開けなかった場合
+	 * @throws IllegalArgumentException 圧縮形式が不正な場合
+	 */
+	public static InputStream openInputStream(File file, String compression)
+			throws IOException {
+
+		compression = normalize(compression, file);
+
+		InputStream is = FileUtils.openInputStream(file);
+
+		if (NONE.equals(compression)) {
+			return is;
+		}
+
+		try {
+			InputStream in = new BufferedInputStream(is, FILE_BUFFER_SIZE);
+
+			if (GZIP.equals(compression)) {
+				in = new GZIPInputStream(in, CODEC_BUFFER_SIZE);
+			} else {
+				in = new InflaterInputStream(in, new Inflater(), CODEC_BUFFER_SIZE) {
+					@Override
+					public void close() throws IOException {
+						try {
+							super.close();
+						} finally {
+							// コンストラクタで渡したInflaterは、自動では解放されない
+							this.inf.end();
+						}
+					}
+				};
+			}
+
+			return new ReadAheadInputStream(in, CHUNK_SIZE, QUEUE_SIZE);
+
+		} catch (IOException e) {
+			IOUtils.closeQuietly(is);
+			throw e;
+		}
+	}
+
+	/**
+	 * <p>
+	 * ファイルに書き込むストリームを開く。
+	 * </p><p>
+	 * 圧縮形式が指定された場合は、書き込んだデータを圧縮してファイルに出力する。
+	 * 圧縮は別スレッドで並行して行うので、書き込みのエラーは
+	 * {@link OutputStream#close()} でスローされることがある。
+	 * </p>
+	 *
+	 * @param file 書き込むファイル
+	 * @param compression 圧縮形式。nullまたは {@link #AUTO} の場合は拡張子で判定する。
+	 * @return 出力ストリーム
+	 * @throws IOException ファイルを開けなかった場合
+	 * @throws IllegalArgumentException 圧縮形式が不正な場合
+	 */
+	public static OutputStream openOutputStream(File file, String compression)
+			throws IOException {
+
+		compression = normalize(compression, file);
+
+		OutputStream os = FileUtils.openOutputStream(file);
+
+		if (NONE.equals(compression)) {
+			return os;
+		}
+
+		try {
+			OutputStream out = new BufferedOutputStream(os, FILE_BUFFER_SIZE);
+
+			if (GZIP.equals(compression)) {
+				out = new GZIPOutputStream(out, CODEC_BUFFER_SIZE);
+			} else {
+				out = new DeflaterOutputStream(out, new Deflater(), CODEC_BUFFER_SIZE) {
+					@Override
+					public void close() throws IOException {
+						try {
+							super.close();
+						} finally {
+							// コンストラクタで渡したDeflaterは、自動では解放されない
+							this.def.end();
+						}
+					}
+				};
+			}
+
+			return new WriteBehindOutputStream(out, CHUNK_SIZE, QUEUE_SIZE);
+
+		} catch (IOException e) {
+			IOUtils.closeQuietly(os);
+			throw e;
+		}
+	}
+
+	/**
+	 * 圧縮形式の指定を、{@link #GZIP}, {@link #DEFLATE}, {@link #NONE} のいずれかにする。
+	 *
+	 * @param compression 圧縮形式（大文字/小文字を区別しない）。
+	 * 		nullまたは {@link #AUTO} の場合は拡張子で判定する。
+	 * @param file 拡張子で判定するファイル。nullの場合は {@link #NONE} とする。
+	 * @return {@link #GZIP}, {@link #DEFLATE}, {@link #NONE} のいずれか
+	 * @throws IllegalArgumentException 圧縮形式が不正な場合
+	 * @since 1.1.10
+	 */
+	public static String normalize(String compression, File file) {
+		if (compression == null || AUTO.equalsIgnoreCase(compression)) {
+			return file != null ? getCompression(file.getName()) : NONE;
+		}
+
+		String lower = compression.toLowerCase();
+
+		if (GZIP.equals(lower) || DEFLATE.equals(lower) || NONE.equals(lower)) {
+			return lower;
+		}
+
+		throw new IllegalArgumentException("Unsupported compression: " + compression);
+	}
+}
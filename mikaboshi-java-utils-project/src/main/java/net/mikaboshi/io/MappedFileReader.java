@@ -0,0 +1,166 @@
+package net.mikaboshi.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * <p>
+ * ファイルをメモリにマップし、マップしたバッファから直接文字にデコードする {@link Reader}。
+ * </p><p>
+ * {@link java.io.InputStreamReader} と異なり、バイトを中間のバッファにコピーせずに、
+ * 呼び出し元が渡した char 配列へ直接デコードする。
+ * ファイルは、ウィンドウサイズごとに順にマップし直すので、2GBを超えるファイルも読み込める。
+ * 不正なバイト列は、{@link java.io.InputStreamReader} と同様に置換文字に変換する。
+ * </p><p>
+ * <i>(注意)このクラスのインスタンスは非同期である。</i>
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public class MappedFileReader extends Reader {
+
+	/** マップするウィンドウサイズのデフォルト（64MB） */
+	public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+	private final RandomAccessFile file;
+
+	private final FileChannel channel;
+
+	private final long size;
+
+	private final int windowSize;
+
+	private final CharsetDecoder decoder;
+
+	/** 現在マップしているウィンドウの、ファイル上の開始位置 */
+	private long windowPosition = 0L;
+
+	private MappedByteBuffer window;
+
+	/** サロゲートペアの後半など、出力しきれなかった文字 */
+	private final CharBuffer pending = CharBuffer.allocate(2);
+
+	private boolean flushed = false;
+
+	/**
+	 * 読み込むファイルと文字セットを指定するコンストラクタ。
+	 *
+	 * @param file 読み込むファイル
+	 * @param charset ファイルの文字セット
+	 * @throws IOException ファイルを開けなかった場合
+	 */
+	public MappedFileReader(File file, String charset) throws IOException {
+		this(file, charset, DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * 読み込むファイル、文字セット、マップするウィンドウサイズを指定するコンストラクタ。
+	 *
+	 * @param file 読み込むファイル
+	 * @param charset ファイルの文字セット
+	 * @param windowSize 一度にマップするバイト数（16以上）
+	 * @throws IOException ファイルを開けなかった場合
+	 * @throws IllegalArgumentException windowSizeが16未満の場合
+	 */
+	public MappedFileReader(File file, String charset, int windowSize) throws IOException {
+		if (windowSize < 16) {
+			throw new IllegalArgumentException("windowSize must be 16 or more : " + windowSize);
+		}
+
+		this.decoder = Charset.forName(charset).newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.windowSize = windowSize;
+
+		this.file = new RandomAccessFile(file, "r");
+		this.channel = this.file.getChannel();
+		this.size = this.channel.size();
+		this.pending.flip();
+
+		map(0L);
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+
+		CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+
+		while (this.pending.hasRemaining() && out.hasRemaining()) {
+			out.put(this.pending.get());
+		}
+
+		while (out.position() == off) {
+			if (this.flushed) {
+				return -1;
+			}
+
+			boolean endOfInput =
+				this.windowPosition + this.window.limit() == this.size;
+
+			CoderResult result = this.decoder.decode(this.window, out, endOfInput);
+
+			if (result.isError()) {
+				result.throwException();
+			}
+
+			if (out.position() != off) {
+				break;
+			}
+
+			if (result.isOverflow()) {
+				// 1文字分の空きに、2文字（サロゲートペア）をデコードしようとした場合
+				this.pending.clear();
+				result = this.decoder.decode(this.window, this.pending, endOfInput);
+				this.pending.flip();
+
+				if (result.isError()) {
+					result.throwException();
+				}
+
+				out.put(this.pending.get());
+				break;
+			}
+
+			if (!endOfInput) {
+				// ウィンドウの終わりまでデコードしたので、残りのバイトからマップし直す
+				map(this.windowPosition + this.window.position());
+				continue;
+			}
+
+			this.decoder.flush(out);
+			this.flushed = true;
+		}
+
+		return out.position() - off;
+	}
+
+	@Override
+	public boolean ready() {
+		return this.pending.hasRemaining() || this.window.hasRemaining();
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.file.close();
+	}
+
+	private void map(long position) throws IOException {
+		long length = Math.min(this.windowSize, this.size - position);
+
+		this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+		this.windowPosition = position;
+	}
+}
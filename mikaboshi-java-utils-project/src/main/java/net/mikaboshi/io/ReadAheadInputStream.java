@@ -0,0 +1,228 @@
+package net.mikaboshi.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * <p>
+ * 別スレッドで元のストリームを先読みする {@link InputStream}。
+ * </p><p>
+ * 元のストリームの読み込み（伸長など）と、呼び出し元での処理を並行して行う。
+ * 先読みしたデータは、チャンク単位で最大 queueSize 個までキューに保持する。
+ * 先読み中に発生した例外は、呼び出し元の read でスローされる。
+ * 例外が発生した後は、read のたびに同じ例外をスローする。
+ * </p><p>
+ * <i>(注意)このクラスのインスタンスは非同期である。</i>
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+class ReadAheadInputStream extends InputStream {
+
+	/** ストリームの終わりを示すチャンク */
+	private static final Chunk END = new Chunk(new byte[0], 0);
+
+	private final InputStream in;
+
+	private final BlockingQueue<Chunk> queue;
+
+	private final Thread thread;
+
+	private volatile Throwable error;
+
+	private volatile boolean closed = false;
+
+	private Chunk current;
+
+	private int position = 0;
+
+	/**
+	 * @param in 元のストリーム。{@link #close()} で閉じられる。
+	 * @param chunkSize 1回に先読みするバイト数
+	 * @param queueSize 先読みしたチャンクを保持する数
+	 */
+	ReadAheadInputStream(InputStream in, final int chunkSize, int queueSize) {
+		this.in = in;
+		this.queue = new ArrayBlockingQueue<Chunk>(queueSize);
+
+		this.thread = new Thread(new Runnable() {
+			public void run() {
+				readAhead(chunkSize);
+			}
+		}, "ReadAheadInputStream");
+
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	private void readAhead(int chunkSize) {
+		try {
+			while (!this.closed) {
+				byte[] buffer = new byte[chunkSize];
+				int length = readFully(buffer);
+
+				if (length > 0) {
+					this.queue.put(new Chunk(buffer, length));
+				}
+
+				if (length < chunkSize) {
+					break;
+				}
+			}
+		} catch (InterruptedException e) {
+			// closeされた
+		} catch (Throwable t) {
+			// 伸長処理のRuntimeException等も、呼び出し元に伝える
+			this.error = t;
+		} finally {
+			// ENDを渡さないと、呼び出し元がキューを待ち続ける
+			if (!this.closed) {
+				try {
+					this.queue.put(END);
+				} catch (InterruptedException e) {
+					// closeされた
+				}
+			}
+		}
+	}
+
+	/**
+	 * バッファが一杯になるか、ストリームの終わりまで読み込む。
+	 * @return 読み込んだバイト数
+	 */
+	private int readFully(byte[] buffer) throws IOException {
+		int length = 0;
+
+		while (length < buffer.length) {
+			int n = this.in.read(buffer, length, buffer.length - length);
+
+			if (n == -1) {
+				break;
+			}
+
+			length += n;
+		}
+
+		return length;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!fill()) {
+			return -1;
+		}
+
+		return this.current.buffer[this.position++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+
+		if (!fill()) {
+			return -1;
+		}
+
+		int n = Math.min(len, this.current.length - this.position);
+		System.arraycopy(this.current.buffer, this.position, b, off, n);
+		this.position += n;
+
+		return n;
+	}
+
+	@Override
+	public int available() {
+		return this.current != null ? this.current.length - this.position : 0;
+	}
+
+	/**
+	 * 先読みを中止し、元のストリームを閉じる。
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+
+		this.closed = true;
+		this.thread.interrupt();
+
+		try {
+			this.thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		this.in.close();
+	}
+
+	/**
+	 * 読み込むデータがあるチャンクを取得する。
+	 * @return データがある場合はtrue。ストリームの終わりの場合はfalse。
+	 */
+	private boolean fill() throws IOException {
+		if (this.closed) {
+			throw new IOException("Stream closed");
+		}
+
+		while (this.current == null || this.position == this.current.length) {
+			if (this.current == END) {
+				if (this.error != null) {
+					throwError();
+				}
+
+				return false;
+			}
+
+			try {
+				this.current = this.queue.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+
+			this.position = 0;
+		}
+
+		return true;
+	}
+
+	/**
+	 * 先読み中に発生した例外をスローする。
+	 */
+	private void throwError() throws IOException {
+		Throwable t = this.error;
+
+		if (t instanceof IOException) {
+			throw (IOException) t;
+		}
+
+		if (t instanceof RuntimeException) {
+			throw (RuntimeException) t;
+		}
+
+		if (t instanceof Error) {
+			throw (Error) t;
+		}
+
+		IOException e = new IOException(t.toString());
+		e.initCause(t);
+		throw e;
+	}
+
+	private static class Chunk {
+		final byte[] buffer;
+		final int length;
+
+		Chunk(byte[] buffer, int length) {
+			this.buffer = buffer;
+			this.length = length;
+		}
+	}
+}
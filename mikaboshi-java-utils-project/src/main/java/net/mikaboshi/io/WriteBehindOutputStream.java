@@ -0,0 +1,207 @@
+package net.mikaboshi.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * <p>
+ * 別スレッドで出力先のストリームに書き込む {@link OutputStream}。
+ * </p><p>
+ * 呼び出し元での処理と、出力先への書き込み（圧縮など）を並行して行う。
+ * 書き込まれたデータは、チャンク単位で最大 queueSize 個までキューに保持する。
+ * 出力先への書き込みで発生した例外は、以降の write、flush、close でスローされる。
+ * </p><p>
+ * <i>(注意)このクラスのインスタンスは非同期である。</i>
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+class WriteBehindOutputStream extends OutputStream {
+
+	/** ストリームの終わりを示すチャンク */
+	private static final byte[] END = new byte[0];
+
+	/** 書き込み済みのデータのフラッシュを要求するチャンク */
+	private static final byte[] FLUSH = new byte[0];
+
+	private final OutputStream out;
+
+	private final BlockingQueue<byte[]> queue;
+
+	private final Thread thread;
+
+	private final int chunkSize;
+
+	private volatile IOException error;
+
+	private boolean closed = false;
+
+	private byte[] buffer;
+
+	private int position = 0;
+
+	/**
+	 * @param out 出力先のストリーム。{@link #close()} で閉じられる。
+	 * @param chunkSize 1回に出力先へ渡すバイト数
+	 * @param queueSize 書き込み待ちのチャンクを保持する数
+	 */
+	WriteBehindOutputStream(OutputStream out, int chunkSize, int queueSize) {
+		this.out = out;
+		this.chunkSize = chunkSize;
+		this.buffer = new byte[chunkSize];
+		this.queue = new ArrayBlockingQueue<byte[]>(queueSize);
+
+		this.thread = new Thread(new Runnable() {
+			public void run() {
+				writeBehind();
+			}
+		}, "WriteBehindOutputStream");
+
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	private void writeBehind() {
+		try {
+			while (true) {
+				byte[] chunk = this.queue.take();
+
+				if (chunk == END) {
+					break;
+				}
+
+				if (this.error != null) {
+					// エラー後は、終わりまで読み捨てる
+					continue;
+				}
+
+				try {
+					if (chunk == FLUSH) {
+						this.out.flush();
+					} else {
+						this.out.write(chunk);
+					}
+				} catch (IOException e) {
+					this.error = e;
+				}
+			}
+		} catch (InterruptedException e) {
+			// 中断された
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ensureOpen();
+
+		this.buffer[this.position++] = (byte) b;
+
+		if (this.position == this.chunkSize) {
+			sendBuffer();
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		ensureOpen();
+
+		while (len > 0) {
+			int n = Math.min(len, this.chunkSize - this.position);
+			System.arraycopy(b, off, this.buffer, this.position, n);
+			this.position += n;
+			off += n;
+			len -= n;
+
+			if (this.position == this.chunkSize) {
+				sendBuffer();
+			}
+		}
+	}
+
+	/**
+	 * 書き込み済みのデータを出力先に渡し、出力先のフラッシュを要求する。
+	 * 出力先への書き込みの完了は待たない。
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+
+		if (this.position != 0) {
+			sendBuffer();
+		}
+
+		put(FLUSH);
+	}
+
+	/**
+	 * 書き込み済みのデータをすべて出力先に書き込み、出力先を閉じる。
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+
+		try {
+			if (this.position != 0) {
+				sendBuffer();
+			}
+
+			put(END);
+
+			try {
+				this.thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+
+		} finally {
+			this.closed = true;
+			this.thread.interrupt();
+			this.out.close();
+		}
+
+		if (this.error != null) {
+			throw this.error;
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (this.closed) {
+			throw new IOException("Stream closed");
+		}
+
+		if (this.error != null) {
+			throw this.error;
+		}
+	}
+
+	private void sendBuffer() throws IOException {
+		byte[] chunk;
+
+		if (this.position == this.chunkSize) {
+			chunk = this.buffer;
+			this.buffer = new byte[this.chunkSize];
+		} else {
+			chunk = new byte[this.position];
+			System.arraycopy(this.buffer, 0, chunk, 0, this.position);
+		}
+
+		this.position = 0;
+		put(chunk);
+	}
+
+	private void put(byte[] chunk) throws IOException {
+		try {
+			this.queue.put(chunk);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+	}
+}
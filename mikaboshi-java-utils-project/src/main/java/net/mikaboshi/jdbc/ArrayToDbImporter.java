@@ -5,19 +5,33 @@ import static net.mikaboshi.validator.SimpleValidator.validateNotNullNorEmpty;
 import static net.mikaboshi.validator.SimpleValidator.validatePattern;
 import static net.mikaboshi.validator.SimpleValidator.validatePositive;
 
+import java.io.IOException;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import net.mikaboshi.csv.CSVColumnType;
+import net.mikaboshi.csv.TypedCSVReader;
+import net.mikaboshi.jdbc.bulk.BulkLoader;
 import net.mikaboshi.jdbc.schema.ColumnInfo;
 import net.mikaboshi.jdbc.schema.DataTypeUtils;
+import net.mikaboshi.jdbc.schema.NameIndex;
+import net.mikaboshi.jdbc.schema.ParameterBinder;
 import net.mikaboshi.jdbc.schema.PrimaryKeyInfo;
+import net.mikaboshi.jdbc.schema.SchemaCache;
 import net.mikaboshi.jdbc.schema.SchemaUtils;
 import net.mikaboshi.validator.ValidatorException;
 
@@ -36,6 +50,13 @@ import org.apache.commons.logging.LogFactory;
 public class ArrayToDbImporter {
 	
 	private static Log logger = LogFactory.getLog(ArrayToDbImporter.class);
+	
+	/**
+	 * 複数行INSERTで、1つの文に含めるパラメータ数の上限のデフォルト。
+	 * （SQL Serverの上限2100を下回る値）
+	 * @since 1.1.10
+	 */
+	public static final int DEFAULT_MAX_PARAMETERS = 2000;
 
 	private Connection connection;
 	
@@ -169,6 +190,188 @@ public class ArrayToDbImporter {
 		this.caseSensitive = b;
 	}
 	
+	private int batchSize = 1;
+	
+	/**
+	 * <p>
+	 * INSERTをまとめて実行する件数（バッチサイズ）を設定する。
+	 * </p><p>
+	 * 2以上を指定した場合、INSERTは {@link PreparedStatement#addBatch()} でバッチに追加し、
+	 * 指定した件数に達した時点でまとめて実行する。
+	 * 最後に {@link #flush()} を呼び出して、残りの行を実行すること。
+	 * バッチ実行に失敗した場合は、{@link BatchImportException} がスローされ、
+	 * 失敗した行の行番号を取得できる。
+	 * </p><p>
+	 * replaceが指定されている場合は、1行ずつ実行する。
+	 * （{@link #setPreloadPrimaryKeys(boolean)} を指定した場合は、UPDATEとINSERTをバッチで実行する）
+	 * デフォルトは1（バッチを使用しない）。
+	 * </p><p>
+	 * {@link #initialize()}を実行する前に設定すること。
+	 * </p>
+	 * @param batchSize バッチサイズ（1以上）
+	 * @throws IllegalArgumentException batchSizeが1未満の場合
+	 * @since 1.1.10
+	 */
+	public void setBatchSize(int batchSize) {
+		validatePositive(batchSize, "batchSize", IllegalArgumentException.class);
+		this.batchSize = batchSize;
+	}
+	
+	private int rowsPerInsert = 1;
+	
+	/**
+	 * <p>
+	 * 1つのINSERT文でまとめて挿入する行数を設定する。
+	 * </p><p>
+	 * 2以上を指定した場合、{@code insert into T (...) values (?, ?), (?, ?), ...} の形式で、
+	 * 指定した行数ごとにINSERTを実行する。
+	 * バッチ更新が遅いドライバで、バッチの代わりに使用する。（バッチサイズの指定は無視される）
+	 * 最後に {@link #flush()} を呼び出して、残りの行を実行すること。
+	 * 残りの行は、その行数のINSERT文で実行する。
+	 * </p><p>
+	 * 1つの文のパラメータ数が {@link #setMaxParameters(int)} を超えないように、
+	 * 行数は切り詰められる。
+	 * INSERTに失敗した場合は、{@link BatchImportException} がスローされ、
+	 * その文に含まれる全ての行が失敗した行となる。
+	 * </p><p>
+	 * 複数行のVALUES句をサポートしないDBでは、{@link #initialize()} でSQLExceptionとなる。
+	 * replaceが指定されている場合は、1行ずつ実行する。
+	 * デフォルトは1。
+	 * </p><p>
+	 * {@link #initialize()}を実行する前に設定すること。
+	 * </p>
+	 * @param rowsPerInsert 1つのINSERT文の行数（1以上）
+	 * @throws IllegalArgumentException rowsPerInsertが1未満の場合
+	 * @since 1.1.10
+	 */
+	public void setRowsPerInsert(int rowsPerInsert) {
+		validatePositive(rowsPerInsert, "rowsPerInsert", IllegalArgumentException.class);
+		this.rowsPerInsert = rowsPerInsert;
+	}
+	
+	private int maxParameters = DEFAULT_MAX_PARAMETERS;
+	
+	/**
+	 * <p>
+	 * 複数行INSERTで、1つの文に含めるパラメータ数の上限を設定する。
+	 * </p><p>
+	 * ドライバの上限に合わせて指定する。
+	 * デフォルトは、{@link #DEFAULT_MAX_PARAMETERS}。
+	 * </p><p>
+	 * {@link #initialize()}を実行する前に設定すること。
+	 * </p>
+	 * @param maxParameters パラメータ数の上限（1以上）
+	 * @throws IllegalArgumentException maxParametersが1未満の場合
+	 * @see #setRowsPerInsert(int)
+	 * @since 1.1.10
+	 */
+	public void setMaxParameters(int maxParameters) {
+		validatePositive(maxParameters, "maxParameters", IllegalArgumentException.class);
+		this.maxParameters = maxParameters;
+	}
+	
+	private int replaceBatchSize = 1;
+	
+	/**
+	 * <p>
+	 * replaceを、指定した行数ごとに集合指向で行う。
+	 * </p><p>
+	 * 2以上を指定した場合、replaceが指定されていれば、行を1行ずつUPDATE/INSERTする代わりに、
+	 * 指定した行数ごとにステージングテーブルへ投入し、
+	 * 1回のMERGE（DBによっては、UPDATEとINSERT ... WHERE NOT EXISTS）で反映する。
+	 * SQLの方言は、{@link DatabaseMetaData} の製品名とバージョンで決定する。
+	 * 最後に {@link #flush()} を呼び出して、残りの行を反映すること。
+	 * </p><p>
+	 * 主キーが同じ行が複数ある場合は、後の行で上書きされる。
+	 * 反映に失敗した場合は、{@link BatchImportException} がスローされ、
+	 * その集合に含まれる全ての行が失敗した行となる。
+	 * </p><p>
+	 * デフォルトは1（1行ずつ実行する）。
+	 * </p><p>
+	 * {@link #initialize()}を実行する前に設定すること。
+	 * </p>
+	 * @param replaceBatchSize 1回で反映する行数（1以上）
+	 * @throws IllegalArgumentException replaceBatchSizeが1未満の場合
+	 * @see #setStagingTableName(String)
+	 * @since 1.1.10
+	 */
+	public void setReplaceBatchSize(int replaceBatchSize) {
+		validatePositive(replaceBatchSize, "replaceBatchSize", IllegalArgumentException.class);
+		this.replaceBatchSize = replaceBatchSize;
+	}
+	
+	private String stagingTableName;
+	
+	/**
+	 * <p>
+	 * 集合指向のreplaceで使用する、既存のステージングテーブル名を設定する。
+	 * </p><p>
+	 * ステージングテーブルは、インポートするカラムと同じ名前のカラムを持つこと。
+	 * 反映する前に、ステージングテーブルの全ての行は削除される。
+	 * </p><p>
+	 * 指定しなかった場合は、一時テーブル（STG_テーブル名）を生成し、{@link #close()} で削除する。
+	 * DDLでコミットされるDB（Oracle等）では、あらかじめ作成した一時表を指定すること。
+	 * </p><p>
+	 * {@link #initialize()}を実行する前に設定すること。
+	 * </p>
+	 * @param stagingTableName ステージングテーブル名
+	 * @see #setReplaceBatchSize(int)
+	 * @since 1.1.10
+	 */
+	public void setStagingTableName(String stagingTableName) {
+		if (stagingTableName != null) {
+			DbUtils.validateTableName(stagingTableName);
+		}
+		
+		this.stagingTableName = stagingTableName;
+	}
+	
+	private boolean preloadPrimaryKeys = false;
+	
+	/**
+	 * <p>
+	 * replaceで、インポート先のテーブルに存在する主キーを、最初にまとめて読み込むかどうかを設定する。
+	 * </p><p>
+	 * trueを指定した場合、{@link #initialize()} でテーブルの全ての主キーをメモリに読み込み、
+	 * 各行の主キーが存在するかどうかを、DBに問い合わせずに判定する。
+	 * 存在する行はUPDATEのみ、存在しない行はINSERTのみを実行し、
+	 * INSERTした行の主キーはキャッシュに追加する。
+	 * バッチサイズを指定した場合は、UPDATEとINSERTをそれぞれバッチで実行する。
+	 * （INSERTのバッチを先に実行する）
+	 * </p><p>
+	 * 主キーのデータ型が、数値と文字列以外の場合は無視される。
+	 * インポート中に、他のセッションが同じテーブルを更新しないこと。
+	 * 集合指向のreplace（{@link #setReplaceBatchSize(int)}）を指定した場合は無視される。
+	 * デフォルトはfalse。
+	 * </p><p>
+	 * {@link #initialize()}を実行する前に設定すること。
+	 * </p>
+	 * @param preloadPrimaryKeys 主キーを読み込む場合はtrue
+	 * @since 1.1.10
+	 */
+	public void setPreloadPrimaryKeys(boolean preloadPrimaryKeys) {
+		this.preloadPrimaryKeys = preloadPrimaryKeys;
+	}
+	
+	private SchemaCache schemaCache;
+	
+	/**
+	 * <p>
+	 * テーブル名のセット、カラム情報、主キー情報を取得するキャッシュを設定する。
+	 * </p><p>
+	 * 同じDBの複数のテーブルにインポートする場合に、インポーター間で共有すると、
+	 * テーブルごとのメタ情報の取得（全てのテーブル名の取得を含む）を省略できる。
+	 * 指定しなかった場合は、{@link #initialize()} のたびにDBからメタ情報を取得する。
+	 * </p><p>
+	 * {@link #initialize()}を実行する前に設定すること。
+	 * </p>
+	 * @param schemaCache メタ情報のキャッシュ
+	 * @since 1.1.10
+	 */
+	public void setSchemaCache(SchemaCache schemaCache) {
+		this.schemaCache = schemaCache;
+	}
+	
 	/**
 	 * 指定されたテーブルからメタ情報を取得し、インポートの準備を行う。
 	 * 
@@ -191,10 +394,28 @@ public class ArrayToDbImporter {
 
 		// INSERT文のPreparedStatement生成
 		createInsertPreparedStatement();
+		this.insertBinder = new ParameterBinder(this.insertDataTypes);
 		
-		// UPDATE文のPreparedStatement生成
-		if (this.replace) {
+		if (isSetBasedReplace()) {
+			// ステージングテーブルの準備
+			createSetBasedReplacer();
+			
+		} else if (this.replace) {
+			// UPDATE文のPreparedStatement生成
 			createUpdatePreparedStatement();
+			this.updateBinder = new ParameterBinder(getUpdateDataTypes());
+			
+			if (this.preloadPrimaryKeys) {
+				// 存在する主キーの読み込み
+				createPrimaryKeyCache();
+			}
+		}
+		
+		if (isBatch()) {
+			this.batchLineNumbers = new int[this.batchSize];
+			this.batchCount = 0;
+			this.updateBatchLineNumbers = new int[this.batchSize];
+			this.updateBatchCount = 0;
 		}
 	}
 	
@@ -203,32 +424,32 @@ public class ArrayToDbImporter {
 	 * @throws SQLException 
 	 */
 	private void adjustTableName() throws SQLException {
-		Set<String> allTableNames = SchemaUtils.getAllTableNames(
-				this.connection, null, this.schemaName, null, null);
+		NameIndex<String> tableNameIndex = this.schemaCache != null ?
+				this.schemaCache.getTableNameIndex(null, this.schemaName) :
+				NameIndex.of(SchemaUtils.getAllTableNames(
+						this.connection, null, this.schemaName, null, null));
 		
-		if (allTableNames.contains(this.tableName)) {
-			return;
+		String s = tableNameIndex.get(this.tableName, this.caseSensitive);
+		
+		if (s == null) {
+			throw new SQLException("Table '" + this.tableName + "' not found.");
 		}
 		
-		if (!this.caseSensitive) {
-			for (String s : allTableNames) {
-				if (s.equalsIgnoreCase(this.tableName)) {
-					if (logger.isDebugEnabled()) {
-						logger.debug(String.format("指定されたテーブル<%s>の代わりに<%s>を適用します",
-								this.tableName, s));
-					}
-					this.tableName = s;
-					return;
-				}
+		if (!s.equals(this.tableName)) {
+			if (logger.isDebugEnabled()) {
+				logger.debug(String.format("指定されたテーブル<%s>の代わりに<%s>を適用します",
+						this.tableName, s));
 			}
+			this.tableName = s;
 		}
-		
-		throw new SQLException("Table '" + this.tableName + "' not found.");
 	}
 	
 	/** 指定されたテーブルのカラム情報 */
 	private List<ColumnInfo> columnInfoList;
 	
+	/** カラム名からカラム情報を検索する索引 */
+	private NameIndex<ColumnInfo> columnIndex;
+	
 	/** INSERT文の順序が設定されたカラム名の配列 */
 	private String[] insertColumnNames;
 	
@@ -244,12 +465,70 @@ public class ArrayToDbImporter {
 	/** SELECT文のPreparedStatement */
 	private PreparedStatement selectStatement;
 	
+	/** INSERT文のパラメータの設定処理 */
+	private ParameterBinder insertBinder;
+	
+	/** UPDATE文（主キーのみのテーブルの場合はSELECT文）のパラメータの設定処理 */
+	private ParameterBinder updateBinder;
+	
 	/** 対象テーブルの主キーのカラム名の配列 */
 	private String[] primaryKeyColumnNames;
 	
+	/** 対象テーブルの主キーのカラム名のセット */
+	private Set<String> primaryKeyColumnNameSet;
+	
 	/** 対象テーブルの主キーカラムのデータ型（java.sql.Types）の配列 */
 	private int[] primaryKeyColumnTypes;
 	
+	/** {@link #execute(String[])} で実行した行数 */
+	private int rowCount = 0;
+	
+	/** バッチに追加した行の行番号 */
+	private int[] batchLineNumbers;
+	
+	/** バッチに追加し、まだ実行していない行数 */
+	private int batchCount = 0;
+	
+	/** UPDATEのバッチに追加した行の行番号 */
+	private int[] updateBatchLineNumbers;
+	
+	/** UPDATEのバッチに追加し、まだ実行していない行数 */
+	private int updateBatchCount = 0;
+	
+	/** インポート先のテーブルに存在する主キー */
+	private PrimaryKeyCache primaryKeyCache;
+	
+	/** 複数行INSERTの、1つの文の行数（1の場合は複数行INSERTを使用しない） */
+	private int multiRowCount = 1;
+	
+	/** 行数をキーとした、複数行INSERTのPreparedStatement */
+	private Map<Integer, PreparedStatement> multiRowStatements =
+			new HashMap<Integer, PreparedStatement>();
+	
+	/** 複数行INSERTで、まだ実行していない行 */
+	private String[][] multiRows;
+	
+	/** 複数行INSERTで、まだ実行していない行の行番号 */
+	private int[] multiRowLineNumbers;
+	
+	/** 複数行INSERTで、まだ実行していない行数 */
+	private int multiRowPendingCount = 0;
+	
+	/** 集合指向のreplace */
+	private SetBasedReplacer setBasedReplacer;
+	
+	/** 集合指向のreplaceで、まだ反映していない行（キーは主キーの値） */
+	private LinkedHashMap<List<String>, String[]> replaceRows;
+	
+	/** 集合指向のreplaceで、まだ反映していない行の行番号 */
+	private int[] replaceLineNumbers;
+	
+	/** 集合指向のreplaceで、まだ反映していない行数（主キーの重複を含む） */
+	private int replacePendingCount = 0;
+	
+	/** インポートするカラムのうち、主キーのインデックス */
+	private int[] primaryKeyIndexes;
+	
 	/**
 	 * String配列で与えられた１行のデータをインポートする。
 	 * 
@@ -258,6 +537,29 @@ public class ArrayToDbImporter {
 	 * @throws SQLException
 	 */
 	public int execute(String[] rowData) throws SQLException {
+		return execute(rowData, this.rowCount + 1);
+	}
+	
+	/**
+	 * <p>
+	 * String配列で与えられた１行のデータを、インポート元の行番号を指定してインポートする。
+	 * </p><p>
+	 * 行番号は、バッチ実行に失敗した場合に、{@link BatchImportException} で失敗した行を
+	 * 特定するために使用する。
+	 * </p>
+	 * 
+	 * @param rowData 
+	 * @param lineNumber インポート元の行番号
+	 * @return INSERT/UPDATEの件数。バッチに追加しただけの場合は0、
+	 * 		バッチを実行した場合はバッチ全体の件数。
+	 * @throws SQLException
+	 * @throws BatchImportException バッチ実行に失敗した場合
+	 * @see #setBatchSize(int)
+	 * @since 1.1.10
+	 */
+	public int execute(String[] rowData, int lineNumber) throws SQLException {
+		this.rowCount++;
+		
 		// null値の置換
 		if (this.nullString != null) {
 			for (int i = 0; i < rowData.length; i++) {
@@ -266,7 +568,15 @@ public class ArrayToDbImporter {
 				}
 			}
 		}
+		
+		if (isSetBasedReplace()) {
+			return addReplaceRow(rowData, lineNumber);
+		}
 
+		if (this.primaryKeyCache != null) {
+			return executeWithPrimaryKeyCache(rowData, lineNumber);
+		}
+		
 		if (this.replace) {
 			// replaceが指定された場合は、まず主キーでUPDATEを試みる
 			
@@ -280,10 +590,7 @@ public class ArrayToDbImporter {
 					logger.debug("select keys: <'" + StringUtils.join(updateRowData, "', '") + "'>");
 				}
 				
-				DataTypeUtils.setParameter(
-						this.selectStatement, 
-						updateRowData, 
-						getUpdateDataTypes());
+				this.updateBinder.bind(this.selectStatement, updateRowData);
 				
 				ResultSet rs = null;
 				try {
@@ -309,10 +616,7 @@ public class ArrayToDbImporter {
 					logger.debug("update parameters: <'" + StringUtils.join(updateRowData, "', '") + "'>");
 				}
 				
-				DataTypeUtils.setParameter(
-						this.updateStatement, 
-						updateRowData, 
-						getUpdateDataTypes());
+				this.updateBinder.bind(this.updateStatement, updateRowData);
 				
 				int count = this.updateStatement.executeUpdate();
 				
@@ -330,13 +634,584 @@ public class ArrayToDbImporter {
 			logger.debug("insert parameters: <'" + StringUtils.join(rowData, "', '") + "'>");
 		}
 		
+		if (isMultiRow()) {
+			return addMultiRow(rowData, lineNumber);
+		}
+		
 		// InsertのPreparedStatementパラメータセット
+		this.insertBinder.bind(this.insertStatement, rowData);
+		
+		return executeInsert(lineNumber);
+	}
+	
+	/**
+	 * <p>
+	 * {@link TypedCSVReader} の現在の行をインポートする。
+	 * </p><p>
+	 * 数値・日付の列は、文字列を経由せずに設定する。
+	 * nullの判定は {@link TypedCSVReader#isNull(int)} で行う。
+	 * replaceまたは複数行INSERTが指定されている場合は、
+	 * 文字列の配列に変換して {@link #execute(String[], int)} を実行する。
+	 * </p>
+	 * 
+	 * @param row 現在の行をインポートするTypedCSVReader
+	 * @return
+	 * @throws SQLException
+	 * @see #getCSVColumnTypes()
+	 * @since 1.1.10
+	 */
+	public int execute(TypedCSVReader row) throws SQLException {
+		return execute(row, row.getLineCount());
+	}
+	
+	/**
+	 * <p>
+	 * {@link TypedCSVReader} の現在の行を、行番号を指定してインポートする。
+	 * </p><p>
+	 * 途中の位置から読み込みを開始したTypedCSVReaderのように、
+	 * {@link TypedCSVReader#getLineCount()} がファイル上の行番号と一致しない場合に使用する。
+	 * </p>
+	 * 
+	 * @param row 現在の行をインポートするTypedCSVReader
+	 * @param lineNumber 行番号（エラー時の報告に使用する）
+	 * @return
+	 * @throws SQLException
+	 * @see #execute(TypedCSVReader)
+	 * @since 1.1.10
+	 */
+	public int execute(TypedCSVReader row, int lineNumber) throws SQLException {
+		if (this.replace || isMultiRow()) {
+			String[] rowData = new String[this.insertColumnNames.length];
+			
+			for (int i = 0; i < rowData.length; i++) {
+				rowData[i] = row.getString(i);
+			}
+			
+			return execute(rowData, lineNumber);
+		}
+		
+		if (logger.isDebugEnabled()) {
+			logger.debug("insert line: " + lineNumber);
+		}
+		
 		DataTypeUtils.setParameter(
 				this.insertStatement, 
-				rowData, 
+				row, 
 				this.insertDataTypes);
 		
-		return this.insertStatement.executeUpdate();
+		return executeInsert(lineNumber);
+	}
+	
+	/**
+	 * <p>
+	 * 全ての行のデータを、DB製品固有の一括ロードの機能でインポートする。
+	 * </p><p>
+	 * 行データは、nullStringの置換を行い、INSERT文のカラムの順序（{@link #setColumnNames(String[])}）
+	 * でインポートする。
+	 * replaceは指定できない。バッチサイズ等の指定は適用されない。
+	 * 一括ロードに失敗した場合は、どの行で失敗したかは特定できない。
+	 * </p><p>
+	 * {@link #initialize()}を実行した後に呼び出すこと。
+	 * </p>
+	 * 
+	 * @param loader 一括ロードを実行するBulkLoader
+	 * @param rows 全ての行のデータ
+	 * @return インポートした件数
+	 * @throws SQLException
+	 * @throws IOException 行データの変換、または一時ファイルの書き込みに失敗した場合
+	 * @throws IllegalStateException replaceが指定されている場合
+	 * @see net.mikaboshi.jdbc.bulk.BulkLoaders#getBulkLoader(Connection)
+	 * @since 1.1.10
+	 */
+	public int executeBulk(BulkLoader loader, final Iterator<String[]> rows)
+			throws SQLException, IOException {
+		
+		validateNotNull(loader, "loader", NullPointerException.class);
+		validateNotNull(rows, "rows", NullPointerException.class);
+		
+		if (this.replace) {
+			throw new IllegalStateException("bulk load does not support replace");
+		}
+		
+		List<ColumnInfo> columns = new ArrayList<ColumnInfo>();
+		
+		for (String columnName : this.insertColumnNames) {
+			columns.add(this.columnIndex.get(columnName, true));
+		}
+		
+		if (logger.isDebugEnabled()) {
+			logger.debug("bulk load: " + loader.getClass().getName());
+		}
+		
+		Iterator<String[]> normalizedRows = new Iterator<String[]>() {
+			
+			public boolean hasNext() {
+				return rows.hasNext();
+			}
+			
+			public String[] next() {
+				String[] rowData = rows.next();
+				
+				rowCount++;
+				
+				// null値の置換
+				if (nullString != null) {
+					for (int i = 0; i < rowData.length; i++) {
+						if (nullString.equals(rowData[i])) {
+							rowData[i] = null;
+						}
+					}
+				}
+				
+				return rowData;
+			}
+			
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+		
+		return (int) loader.load(this.connection, this.tableName, columns, normalizedRows);
+	}
+	
+	/**
+	 * パラメータを設定したINSERT文を実行する。
+	 * バッチを使用する場合は、バッチに追加し、バッチサイズに達したら実行する。
+	 */
+	private int executeInsert(int lineNumber) throws SQLException {
+		if (!isBatch()) {
+			return this.insertStatement.executeUpdate();
+		}
+		
+		this.insertStatement.addBatch();
+		this.batchLineNumbers[this.batchCount++] = lineNumber;
+		
+		if (this.batchCount < this.batchSize) {
+			return 0;
+		}
+		
+		return flush();
+	}
+	
+	/**
+	 * 主キーのキャッシュで、UPDATEかINSERTのどちらかを実行する。
+	 */
+	private int executeWithPrimaryKeyCache(String[] rowData, int lineNumber)
+			throws SQLException {
+		
+		if (!this.primaryKeyCache.contains(rowData) && !this.primaryKeyCache.isPending(rowData)) {
+			this.insertBinder.bind(this.insertStatement, rowData);
+			
+			if (!isBatch()) {
+				int count = this.insertStatement.executeUpdate();
+				
+				// 同じ主キーの後続の行は、UPDATEとする
+				this.primaryKeyCache.add(rowData);
+				
+				return count;
+			}
+			
+			// 同じ主キーの後続の行は、UPDATEとする。
+			// INSERTに失敗した行の主キーを残さないように、バッチの実行に成功してから確定する
+			this.primaryKeyCache.addPending(rowData);
+			
+			return executeInsert(lineNumber);
+		}
+		
+		if (this.updateStatement == null) {
+			// 主キーのみのテーブルで、同じ行が存在する
+			return 0;
+		}
+		
+		this.updateBinder.bind(this.updateStatement, sortRowDataForUpdate(rowData));
+		
+		if (!isBatch()) {
+			return this.updateStatement.executeUpdate();
+		}
+		
+		this.updateStatement.addBatch();
+		this.updateBatchLineNumbers[this.updateBatchCount++] = lineNumber;
+		
+		if (this.updateBatchCount < this.batchSize) {
+			return 0;
+		}
+		
+		return flush();
+	}
+	
+	/**
+	 * インポート先のテーブルに存在する主キーを読み込む。
+	 * 主キーのデータ型をサポートしない場合は、読み込まない。
+	 */
+	private void createPrimaryKeyCache() throws SQLException {
+		int[] indexes = new int[this.primaryKeyColumnNames.length];
+		
+		for (int i = 0; i < indexes.length; i++) {
+			indexes[i] = ArrayUtils.indexOf(this.insertColumnNames, this.primaryKeyColumnNames[i]);
+			
+			if (indexes[i] < 0) {
+				throw new ValidatorException(
+						String.format("主キーの全てのカラムを指定してください。（スキーマ:<%s>, テーブル<%s>）", 
+								this.schemaName, this.tableName));
+			}
+		}
+		
+		if (!PrimaryKeyCache.isSupported(this.primaryKeyColumnTypes)) {
+			logger.info(String.format("主キーのデータ型がサポートされないため、主キーを読み込みません。（テーブル<%s>）",
+					this.tableName));
+			return;
+		}
+		
+		this.primaryKeyCache = PrimaryKeyCache.load(
+				this.connection,
+				this.tableName,
+				this.primaryKeyColumnNames,
+				this.primaryKeyColumnTypes,
+				indexes);
+	}
+	
+	/**
+	 * 複数行INSERTの行を追加し、1つの文の行数に達したら実行する。
+	 */
+	private int addMultiRow(String[] rowData, int lineNumber) throws SQLException {
+		if (rowData.length != this.insertDataTypes.length) {
+			throw new IllegalArgumentException("length of rowData and length of types are not match.");
+		}
+		
+		// 呼び出し元が配列を再利用する場合があるので、コピーして保持する
+		this.multiRows[this.multiRowPendingCount] = rowData.clone();
+		this.multiRowLineNumbers[this.multiRowPendingCount] = lineNumber;
+		this.multiRowPendingCount++;
+		
+		if (this.multiRowPendingCount < this.multiRowCount) {
+			return 0;
+		}
+		
+		return flush();
+	}
+	
+	/**
+	 * 保持している行を、複数行INSERTで実行する。
+	 */
+	private int flushMultiRow() throws SQLException {
+		int rows = this.multiRowPendingCount;
+		
+		if (rows == 0) {
+			return 0;
+		}
+		
+		int[] lineNumbers = Arrays.copyOf(this.multiRowLineNumbers, rows);
+		this.multiRowPendingCount = 0;
+		
+		int columns = this.insertDataTypes.length;
+		
+		if (logger.isDebugEnabled()) {
+			logger.debug("execute multi-row insert: " + rows + " rows");
+		}
+		
+		try {
+			PreparedStatement statement = getMultiRowStatement(rows);
+			statement.clearParameters();
+			
+			for (int i = 0; i < rows; i++) {
+				this.insertBinder.bind(statement, this.multiRows[i], i * columns);
+			}
+			
+			return statement.executeUpdate();
+			
+		} catch (SQLException e) {
+			throw new BatchImportException(e, lineNumbers);
+			
+		} finally {
+			Arrays.fill(this.multiRows, 0, rows, null);
+		}
+	}
+	
+	/**
+	 * 指定された行数の複数行INSERTのPreparedStatementを返す。
+	 * 生成したPreparedStatementは、行数ごとにキャッシュする。
+	 */
+	private PreparedStatement getMultiRowStatement(int rows) throws SQLException {
+		Integer key = Integer.valueOf(rows);
+		PreparedStatement statement = this.multiRowStatements.get(key);
+		
+		if (statement == null) {
+			String sql = createInsertSql(
+					this.tableName, this.insertColumnNames, this.insertDataTypes.length, rows);
+			
+			if (logger.isDebugEnabled()) {
+				logger.debug("create multi-row insert statement: " + rows + " rows");
+			}
+			
+			statement = this.connection.prepareStatement(sql);
+			this.multiRowStatements.put(key, statement);
+		}
+		
+		return statement;
+	}
+	
+	/**
+	 * 集合指向のreplaceの行を追加し、指定された行数に達したら反映する。
+	 */
+	private int addReplaceRow(String[] rowData, int lineNumber) throws SQLException {
+		if (rowData.length != this.insertDataTypes.length) {
+			throw new IllegalArgumentException("length of rowData and length of types are not match.");
+		}
+		
+		List<String> key = new ArrayList<String>(this.primaryKeyIndexes.length);
+		
+		for (int index : this.primaryKeyIndexes) {
+			key.add(rowData[index]);
+		}
+		
+		// 主キーが同じ行は、後の行で上書きする（MERGEは同じ行を2回更新できない）
+		this.replaceRows.remove(key);
+		this.replaceRows.put(key, rowData.clone());
+		this.replaceLineNumbers[this.replacePendingCount++] = lineNumber;
+		
+		if (this.replacePendingCount < this.replaceBatchSize) {
+			return 0;
+		}
+		
+		return flush();
+	}
+	
+	/**
+	 * 保持している行を、集合指向のreplaceで反映する。
+	 */
+	private int flushReplaceRows() throws SQLException {
+		if (this.replacePendingCount == 0) {
+			return 0;
+		}
+		
+		int[] lineNumbers = Arrays.copyOf(this.replaceLineNumbers, this.replacePendingCount);
+		this.replacePendingCount = 0;
+		
+		if (logger.isDebugEnabled()) {
+			logger.debug("execute set-based replace: " + this.replaceRows.size() + " rows");
+		}
+		
+		try {
+			return this.setBasedReplacer.execute(this.replaceRows.values(), lineNumbers);
+		} finally {
+			this.replaceRows.clear();
+		}
+	}
+	
+	/**
+	 * 集合指向のreplaceを行うかどうか。
+	 */
+	private boolean isSetBasedReplace() {
+		return this.replace && this.replaceBatchSize > 1;
+	}
+	
+	/**
+	 * 集合指向のreplaceの準備を行う。
+	 */
+	private void createSetBasedReplacer() throws SQLException {
+		List<ColumnInfo> columns = new ArrayList<ColumnInfo>();
+		List<Integer> keyIndexes = new ArrayList<Integer>();
+		
+		for (int i = 0; i < this.insertColumnNames.length; i++) {
+			columns.add(this.columnIndex.get(this.insertColumnNames[i], true));
+			
+			if (this.primaryKeyColumnNameSet.contains(this.insertColumnNames[i])) {
+				keyIndexes.add(Integer.valueOf(i));
+			}
+		}
+		
+		if (keyIndexes.size() != this.primaryKeyColumnNames.length) {
+			throw new ValidatorException(
+					String.format("主キーの全てのカラムを指定してください。（スキーマ:<%s>, テーブル<%s>）", 
+							this.schemaName, this.tableName));
+		}
+		
+		this.primaryKeyIndexes = new int[keyIndexes.size()];
+		
+		for (int i = 0; i < this.primaryKeyIndexes.length; i++) {
+			this.primaryKeyIndexes[i] = keyIndexes.get(i).intValue();
+		}
+		
+		this.setBasedReplacer = new SetBasedReplacer(
+				this.connection,
+				this.tableName,
+				this.stagingTableName,
+				columns,
+				this.primaryKeyColumnNames);
+		
+		this.replaceRows = new LinkedHashMap<List<String>, String[]>();
+		this.replaceLineNumbers = new int[this.replaceBatchSize];
+		this.replacePendingCount = 0;
+	}
+	
+	/**
+	 * 複数行INSERTを使用するかどうか。
+	 */
+	private boolean isMultiRow() {
+		return this.multiRowCount > 1;
+	}
+	
+	/**
+	 * <p>
+	 * バッチ、複数行INSERT、集合指向のreplaceで保持され、まだ実行されていない行を実行する。
+	 * </p><p>
+	 * これらを使用しない場合や、未実行の行がない場合は何もしない。
+	 * </p>
+	 * 
+	 * @return 実行した行のINSERTの件数
+	 * @throws SQLException
+	 * @throws BatchImportException バッチ実行または複数行INSERTに失敗した場合
+	 * @since 1.1.10
+	 */
+	public int flush() throws SQLException {
+		if (isSetBasedReplace()) {
+			return flushReplaceRows();
+		}
+		
+		if (isMultiRow()) {
+			return flushMultiRow();
+		}
+		
+		if (this.batchCount == 0 && this.updateBatchCount == 0) {
+			return 0;
+		}
+		
+		int[] lineNumbers = Arrays.copyOf(this.batchLineNumbers, this.batchCount);
+		this.batchCount = 0;
+		
+		int[] updateLineNumbers = new int[0];
+		
+		if (this.updateBatchCount != 0) {
+			updateLineNumbers = Arrays.copyOf(this.updateBatchLineNumbers, this.updateBatchCount);
+			this.updateBatchCount = 0;
+		}
+		
+		int count = 0;
+		
+		try {
+			// UPDATEのバッチには、INSERTのバッチで挿入する行の更新が含まれるので、INSERTを先に実行する
+			count += executeBatch(this.insertStatement, lineNumbers);
+			
+			if (this.primaryKeyCache != null) {
+				this.primaryKeyCache.commitPending(null);
+			}
+			
+		} catch (BatchImportException e) {
+			if (this.primaryKeyCache != null) {
+				// 失敗した行と、実行されなかった行の主キーは確定しない
+				this.primaryKeyCache.commitPending(
+						getDiscardedLines(lineNumbers, e));
+			}
+			
+			if (updateLineNumbers.length != 0) {
+				try {
+					this.updateStatement.clearBatch();
+				} catch (SQLException ignore) {
+				}
+				
+				e.addNotExecutedLineNumbers(updateLineNumbers);
+			}
+			
+			throw e;
+			
+		} catch (SQLException e) {
+			if (this.primaryKeyCache != null) {
+				// INSERTのバッチの結果が不明なので、主キーは確定しない
+				boolean[] discarded = new boolean[lineNumbers.length];
+				Arrays.fill(discarded, true);
+				this.primaryKeyCache.commitPending(discarded);
+			}
+			
+			throw e;
+		}
+		
+		count += executeBatch(this.updateStatement, updateLineNumbers);
+		
+		return count;
+	}
+	
+	/**
+	 * バッチの各行について、失敗した行または実行されなかった行の場合にtrueとした配列を返す。
+	 * 
+	 * @param lineNumbers バッチに追加した行の行番号
+	 * @param e バッチ実行時にスローされた例外
+	 */
+	private static boolean[] getDiscardedLines(int[] lineNumbers, BatchImportException e) {
+		int[] failed = e.getFailedLineNumbers();
+		int[] notExecuted = e.getNotExecutedLineNumbers();
+		
+		boolean[] discarded = new boolean[lineNumbers.length];
+		
+		for (int i = 0; i < lineNumbers.length; i++) {
+			discarded[i] = ArrayUtils.contains(failed, lineNumbers[i])
+					|| ArrayUtils.contains(notExecuted, lineNumbers[i]);
+		}
+		
+		return discarded;
+	}
+	
+	/**
+	 * バッチを実行する。
+	 * 
+	 * @param statement バッチを追加したPreparedStatement
+	 * @param lineNumbers バッチに追加した行の行番号
+	 * @return 更新件数の合計
+	 * @throws BatchImportException バッチ実行に失敗した場合
+	 */
+	private int executeBatch(PreparedStatement statement, int[] lineNumbers)
+			throws SQLException {
+		
+		if (lineNumbers.length == 0) {
+			return 0;
+		}
+		
+		if (logger.isDebugEnabled()) {
+			logger.debug("execute batch: " + lineNumbers.length + " rows");
+		}
+		
+		int[] updateCounts;
+		
+		try {
+			updateCounts = statement.executeBatch();
+			
+		} catch (BatchUpdateException e) {
+			try {
+				statement.clearBatch();
+			} catch (SQLException ignore) {
+			}
+			
+			throw new BatchImportException(e, lineNumbers);
+		}
+		
+		int count = 0;
+		
+		for (int updateCount : updateCounts) {
+			count += updateCount == Statement.SUCCESS_NO_INFO ? 1 : updateCount;
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * INSERTをバッチで実行するかどうか。
+	 */
+	private boolean isBatch() {
+		return this.batchSize > 1
+				&& (!this.replace || this.primaryKeyCache != null)
+				&& !isMultiRow();
+	}
+	
+	/**
+	 * <p>
+	 * INSERT文のカラムのデータ型に対応する、{@link TypedCSVReader} の列の型を返す。
+	 * </p><p>
+	 * {@link #initialize()}を実行した後に呼び出すこと。
+	 * </p>
+	 * @return CSVの列の型の配列
+	 * @since 1.1.10
+	 */
+	public CSVColumnType[] getCSVColumnTypes() {
+		return DataTypeUtils.toCSVColumnTypes(this.insertDataTypes);
 	}
 	
 	/**
@@ -348,12 +1223,30 @@ public class ArrayToDbImporter {
 	}
 	
 	/**
+	 * <p>
 	 * インポートに使用したPreparedStatementを閉じる。
 	 * 必ず最後に実行すること。
+	 * </p><p>
+	 * バッチ、複数行INSERT、集合指向のreplaceで保持され、
+	 * {@link #flush()} で実行されていない行は破棄される。
+	 * 集合指向のreplaceで生成した一時テーブルは削除される。
+	 * </p>
 	 */
 	public void close() {
+		if (this.setBasedReplacer != null) {
+			this.setBasedReplacer.close();
+			this.setBasedReplacer = null;
+		}
+		
+		DbUtils.closeQuietly(this.selectStatement);
 		DbUtils.closeQuietly(this.updateStatement);
 		DbUtils.closeQuietly(this.insertStatement);
+		
+		for (PreparedStatement statement : this.multiRowStatements.values()) {
+			DbUtils.closeQuietly(statement);
+		}
+		
+		this.multiRowStatements.clear();
 	}
 	
 	/**
@@ -365,20 +1258,19 @@ public class ArrayToDbImporter {
 		DatabaseMetaData dbMeta = this.connection.getMetaData();
 		
 		// 対象テーブルのカラム情報取得
-		this.columnInfoList = SchemaUtils.getColumnInfo(
-				dbMeta, null, this.schemaName, this.tableName, null);
+		this.columnInfoList = this.schemaCache != null ?
+				this.schemaCache.getColumnInfo(null, this.schemaName, this.tableName, null) :
+				SchemaUtils.getColumnInfo(dbMeta, null, this.schemaName, this.tableName, null);
 		
-		// カラム名に同じものが複数ないかチェックする
-		Set<String> columnNameSetForUniqueCheck =
-				new HashSet<String>(this.columnInfoList.size());
+		// カラム名の索引を作成し、同じものが複数ないかチェックする
+		this.columnIndex = new NameIndex<ColumnInfo>(this.columnInfoList.size());
 		
 		for (ColumnInfo info : this.columnInfoList) {
-			if (columnNameSetForUniqueCheck.contains(info.getColumnName())) {
+			if (!this.columnIndex.put(info.getColumnName(), info)) {
 				throw new ValidatorException(
 						String.format("カラム<%s>が特定できません。（スキーマ:<%s>, テーブル<%s>）", 
 								info.getColumnName(), this.schemaName, this.tableName));
 			}
-			columnNameSetForUniqueCheck.add(info.getColumnName());
 		}
 		
 		validateNotNullNorEmpty(
@@ -386,8 +1278,9 @@ public class ArrayToDbImporter {
 		
 		if (this.replace) {
 			// 主キー情報の取得
-			Set<PrimaryKeyInfo> pkInfoSet = SchemaUtils.getPrimaryKeys(
-					dbMeta, null, this.schemaName, this.tableName);
+			Set<PrimaryKeyInfo> pkInfoSet = this.schemaCache != null ?
+					this.schemaCache.getPrimaryKeys(null, this.schemaName, this.tableName) :
+					SchemaUtils.getPrimaryKeys(dbMeta, null, this.schemaName, this.tableName);
 			
 			if (pkInfoSet.size() != 1) {
 				throw new ValidatorException(
@@ -405,21 +1298,22 @@ public class ArrayToDbImporter {
 								this.schemaName, this.tableName));
 			}
 			
+			this.primaryKeyColumnNameSet =
+					new HashSet<String>(Arrays.asList(this.primaryKeyColumnNames));
+			
 			// 主キーのデータ型
 			this.primaryKeyColumnTypes = new int[this.primaryKeyColumnNames.length];
 			
-			OUT_LOOP:
 			for (int i = 0; i < this.primaryKeyColumnTypes.length; i++) {
-				for (ColumnInfo columnInfo : this.columnInfoList) {
-					if (columnInfo.getColumnName().equalsIgnoreCase(this.primaryKeyColumnNames[i])) {
-						this.primaryKeyColumnTypes[i] = columnInfo.getDataType();
-						continue OUT_LOOP;
-					}
+				ColumnInfo columnInfo = this.columnIndex.get(this.primaryKeyColumnNames[i], false);
+				
+				if (columnInfo == null) {
+					throw new ValidatorException(
+							String.format("カラム<%s>のデータ型が特定できません。（スキーマ:<%s>, テーブル<%s>）", 
+									this.primaryKeyColumnNames[i], this.schemaName, this.tableName));
 				}
 				
-				throw new ValidatorException(
-						String.format("カラム<%s>のデータ型が特定できません。（スキーマ:<%s>, テーブル<%s>）", 
-								this.primaryKeyColumnNames[i], this.schemaName, this.tableName));
+				this.primaryKeyColumnTypes[i] = columnInfo.getDataType();
 			}
 		}
 	}
@@ -446,68 +1340,98 @@ public class ArrayToDbImporter {
 			// カラムの順番が指定されている場合
 			this.insertDataTypes = new int[columnSize];
 			
-			OUT_LOOP:
 			for (int i = 0; i < this.insertColumnNames.length; i++) {
-				for (ColumnInfo columnInfo : this.columnInfoList) {
-					
-					if (this.caseSensitive) {
-						if (columnInfo.getColumnName()
-								.equals(this.insertColumnNames[i])) {
-						
-							this.insertDataTypes[i] = columnInfo.getDataType();
-							continue OUT_LOOP;
-						}
-					} else {
-						if (columnInfo.getColumnName()
-								.equalsIgnoreCase(this.insertColumnNames[i])) {
-							
-							if (logger.isDebugEnabled() && 
-									!this.insertColumnNames[i].equals(columnInfo.getColumnName())) {
-								// 大文字/小文字が異なる場合
-								logger.debug(
-										String.format("テーブル<%s>: 指定されたカラム名<%s>の代わりに<%s>を適用します",
-												this.tableName,
-												this.insertColumnNames[i], 
-												columnInfo.getColumnName()));
-							}
-							
-							this.insertColumnNames[i] = columnInfo.getColumnName();
-							this.insertDataTypes[i] = columnInfo.getDataType();
-							continue OUT_LOOP;
-						}
-					}
+				ColumnInfo columnInfo =
+						this.columnIndex.get(this.insertColumnNames[i], this.caseSensitive);
+				
+				if (columnInfo == null) {
+					throw new SQLException(
+							String.format("テーブル<%s>: 存在しないカラム<%s>", 
+									this.tableName, this.insertColumnNames[i]));
+				}
+				
+				if (logger.isDebugEnabled() && 
+						!this.insertColumnNames[i].equals(columnInfo.getColumnName())) {
+					// 大文字/小文字が異なる場合
+					logger.debug(
+							String.format("テーブル<%s>: 指定されたカラム名<%s>の代わりに<%s>を適用します",
+									this.tableName,
+									this.insertColumnNames[i], 
+									columnInfo.getColumnName()));
 				}
 				
-				throw new SQLException(
-						String.format("テーブル<%s>: 存在しないカラム<%s>", 
-								this.tableName, this.insertColumnNames[i]));
+				this.insertColumnNames[i] = columnInfo.getColumnName();
+				this.insertDataTypes[i] = columnInfo.getDataType();
 			}
 		}
 		
 		// INSERT文PreparedStatement生成
+		String insertSql = createInsertSql(
+				this.tableName, this.insertColumnNames, columnSize, 1);
+		
+		if (logger.isDebugEnabled()) {
+			logger.debug("create insert statement: " + insertSql);
+		}
+		
+		this.insertStatement = 
+			this.connection.prepareStatement(insertSql);
+		
+		// 複数行INSERTの行数を、パラメータ数の上限を超えないように決定
+		this.multiRowCount = 1;
+		
+		if (this.rowsPerInsert > 1 && !this.replace) {
+			this.multiRowCount = Math.max(1,
+					Math.min(this.rowsPerInsert, this.maxParameters / columnSize));
+		}
+		
+		if (isMultiRow()) {
+			this.multiRows = new String[this.multiRowCount][];
+			this.multiRowLineNumbers = new int[this.multiRowCount];
+			this.multiRowPendingCount = 0;
+			
+			// 行数が揃った場合の文は、先に生成しておく
+			getMultiRowStatement(this.multiRowCount);
+		}
+	}
+	
+	/**
+	 * INSERT文を生成する。
+	 * 
+	 * @param tableName テーブル名
+	 * @param columnNames カラム名の配列
+	 * @param columnSize 1行のパラメータ数
+	 * @param rows VALUES句の行数
+	 * @return INSERT文
+	 */
+	static String createInsertSql(
+			String tableName, String[] columnNames, int columnSize, int rows) {
+		
 		StringBuilder insertSql = new StringBuilder();
 		insertSql.append("insert into ");
-		insertSql.append(this.tableName);
+		insertSql.append(tableName);
 		insertSql.append(" (");
-		insertSql.append(StringUtils.join(this.insertColumnNames, ", "));
-		insertSql.append(") values (");
+		insertSql.append(StringUtils.join(columnNames, ", "));
+		insertSql.append(") values ");
 		
-		for (int i = 0; i < columnSize; i++) {
-			if (i == 0) {
-				insertSql.append("?");
-			} else {
-				insertSql.append(", ?");
+		for (int row = 0; row < rows; row++) {
+			if (row != 0) {
+				insertSql.append(", ");
 			}
+			
+			insertSql.append("(");
+			
+			for (int i = 0; i < columnSize; i++) {
+				if (i == 0) {
+					insertSql.append("?");
+				} else {
+					insertSql.append(", ?");
+				}
+			}
+			
+			insertSql.append(")");
 		}
 		
-		insertSql.append(")");
-		
-		if (logger.isDebugEnabled()) {
-			logger.debug("create insert statement: " + insertSql);
-		}
-		
-		this.insertStatement = 
-			this.connection.prepareStatement(insertSql.toString());
+		return insertSql.toString();
 	}
 
 	/**
@@ -531,7 +1455,7 @@ public class ArrayToDbImporter {
 
 		// 主キー以外のカラムのSET句
 		for (String columnName : this.insertColumnNames) {
-			if (!ArrayUtils.contains(this.primaryKeyColumnNames, columnName)) {
+			if (!this.primaryKeyColumnNameSet.contains(columnName)) {
 				setParams.add(columnName + " = ? ");
 			}
 		}
@@ -600,7 +1524,7 @@ public class ArrayToDbImporter {
 		List<Integer> list2 = new ArrayList<Integer>();
 		
 		for (int i = 0; i < this.insertColumnNames.length; i++) {
-			if (ArrayUtils.contains(this.primaryKeyColumnNames, this.insertColumnNames[i])) {
+			if (this.primaryKeyColumnNameSet.contains(this.insertColumnNames[i])) {
 				list2.add(new Integer(i));
 			} else {		
 				list1.add(new Integer(i));
@@ -0,0 +1,149 @@
+package net.mikaboshi.jdbc;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * {@link ArrayToDbImporter} のバッチ実行に失敗した場合にスローされる例外。
+ * </p><p>
+ * {@link BatchUpdateException} の更新件数を、インポート元の行番号に対応付ける。
+ * ドライバがバッチの途中で処理を中止した場合、失敗した行より後の行は実行されていないので、
+ * {@link #getNotExecutedLineNumbers()} で取得できる。
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public class BatchImportException extends SQLException {
+
+	private static final long serialVersionUID = -1942063618327215307L;
+
+	private final int[] failedLineNumbers;
+
+	private int[] notExecutedLineNumbers;
+
+	private final int updateCount;
+
+	/**
+	 * @param cause バッチ実行時にスローされた例外
+	 * @param lineNumbers バッチに追加した各行の行番号（追加した順）
+	 */
+	public BatchImportException(BatchUpdateException cause, int[] lineNumbers) {
+		this(cause, lineNumbers, cause.getUpdateCounts());
+	}
+
+	/**
+	 * 複数行を1つの文でINSERTした場合のように、全ての行が失敗した場合のコンストラクタ。
+	 *
+	 * @param cause 実行時にスローされた例外
+	 * @param lineNumbers 失敗した各行の行番号
+	 */
+	public BatchImportException(SQLException cause, int[] lineNumbers) {
+		super(createMessage(cause, lineNumbers, null),
+				cause.getSQLState(),
+				cause.getErrorCode(),
+				cause);
+
+		this.failedLineNumbers = lineNumbers.clone();
+		this.notExecutedLineNumbers = new int[0];
+		this.updateCount = 0;
+	}
+
+	private BatchImportException(
+			BatchUpdateException cause, int[] lineNumbers, int[] updateCounts) {
+
+		super(createMessage(cause, lineNumbers, updateCounts),
+				cause.getSQLState(),
+				cause.getErrorCode(),
+				cause);
+
+		if (updateCounts == null) {
+			updateCounts = new int[0];
+		}
+
+		List<Integer> failed = new ArrayList<Integer>();
+		int count = 0;
+
+		for (int i = 0; i < updateCounts.length && i < lineNumbers.length; i++) {
+			if (updateCounts[i] == Statement.EXECUTE_FAILED) {
+				failed.add(Integer.valueOf(lineNumbers[i]));
+			} else {
+				count += updateCounts[i] == Statement.SUCCESS_NO_INFO ? 1 : updateCounts[i];
+			}
+		}
+
+		if (updateCounts.length < lineNumbers.length) {
+			// ドライバが最初のエラーで処理を中止した場合、その次の行が失敗した行
+			failed.add(Integer.valueOf(lineNumbers[updateCounts.length]));
+
+			this.notExecutedLineNumbers = Arrays.copyOfRange(
+					lineNumbers, updateCounts.length + 1, lineNumbers.length);
+		} else {
+			this.notExecutedLineNumbers = new int[0];
+		}
+
+		this.failedLineNumbers = new int[failed.size()];
+
+		for (int i = 0; i < this.failedLineNumbers.length; i++) {
+			this.failedLineNumbers[i] = failed.get(i).intValue();
+		}
+
+		this.updateCount = count;
+	}
+
+	private static String createMessage(
+			SQLException cause, int[] lineNumbers, int[] updateCounts) {
+
+		int executed = updateCounts == null ? 0 : updateCounts.length;
+
+		return String.format("Batch execution failed (lines %d-%d, %d executed): %s",
+				lineNumbers.length == 0 ? 0 : lineNumbers[0],
+				lineNumbers.length == 0 ? 0 : lineNumbers[lineNumbers.length - 1],
+				executed,
+				cause.getMessage());
+	}
+
+	/**
+	 * 同時に実行する予定だった別のバッチの行を、実行されなかった行として追加する。
+	 *
+	 * @param lineNumbers 実行されなかった行の行番号
+	 */
+	void addNotExecutedLineNumbers(int[] lineNumbers) {
+		int[] merged = new int[this.notExecutedLineNumbers.length + lineNumbers.length];
+		System.arraycopy(this.notExecutedLineNumbers, 0, merged, 0, this.notExecutedLineNumbers.length);
+		System.arraycopy(lineNumbers, 0, merged, this.notExecutedLineNumbers.length, lineNumbers.length);
+		Arrays.sort(merged);
+
+		this.notExecutedLineNumbers = merged;
+	}
+
+	/**
+	 * 失敗した行の行番号を返す。
+	 * @return 失敗した行の行番号の配列
+	 */
+	public int[] getFailedLineNumbers() {
+		return this.failedLineNumbers.clone();
+	}
+
+	/**
+	 * ドライバが処理を中止したために、実行されなかった行の行番号を返す。
+	 * @return 実行されなかった行の行番号の配列
+	 */
+	public int[] getNotExecutedLineNumbers() {
+		return this.notExecutedLineNumbers.clone();
+	}
+
+	/**
+	 * バッチのうち、成功した行の更新件数の合計を返す。
+	 * 件数が不明な行（{@link Statement#SUCCESS_NO_INFO}）は、1件として数える。
+	 * @return 更新件数
+	 */
+	public int getUpdateCount() {
+		return this.updateCount;
+	}
+}
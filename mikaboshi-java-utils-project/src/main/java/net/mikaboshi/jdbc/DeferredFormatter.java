@@ -0,0 +1,51 @@
+package net.mikaboshi.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * <p>
+ * ResultSetからの値の取得と、文字列への変換を分けて行える {@link ResultDataFormatter}。
+ * </p><p>
+ * {@link ResultSetToFileHandler} のパイプラインモードでは、JDBCのスレッドは
+ * {@link #getValue(ResultSet, int, int)} で値を取得するだけで次の行に進み、
+ * 文字列への変換（{@link #formatValue(Object, int)}）は別のスレッドで行う。
+ * </p><p>
+ * {@link #format(ResultSet, int, int)} の結果は、
+ * formatValue(getValue(rs, columnIndex, columnType), columnType) と同じでなければならない。
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public interface DeferredFormatter extends ResultDataFormatter {
+
+	/**
+	 * <p>
+	 * ResultSetの現在の行から、文字列に変換する前の値を取得する。
+	 * </p><p>
+	 * 返す値は、ResultSetが次の行に進んだ後や閉じられた後も参照できなければならない。
+	 * LOBのように、ResultSetが進むと参照できなくなる値は、このメソッドで文字列に変換して返すこと。
+	 * </p>
+	 *
+	 * @param rs データを取得する元の ResultSet
+	 * @param columnIndex 取得対象カラムの番号
+	 * @param columnType {@link java.sql.Types} で定義されるデータ型
+	 * @return 値
+	 * @throws SQLException
+	 */
+	Object getValue(ResultSet rs, int columnIndex, int columnType) throws SQLException;
+
+	/**
+	 * <p>
+	 * {@link #getValue(ResultSet, int, int)} で取得した値を、文字列に変換する。
+	 * </p><p>
+	 * JDBCのスレッドとは別のスレッドから呼び出されることがある。
+	 * </p>
+	 *
+	 * @param value getValueで取得した値
+	 * @param columnType {@link java.sql.Types} で定義されるデータ型
+	 * @return 値を文字列に変換した値
+	 */
+	String formatValue(Object value, int columnType);
+}
@@ -8,6 +8,7 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 
+import net.mikaboshi.jdbc.schema.ParameterBinder;
 import net.mikaboshi.validator.SimpleValidator;
 
 import org.apache.commons.lang.StringUtils;
@@ -212,6 +213,38 @@ public class DmlExecutor {
 		return pstmt.executeUpdate();
 	}
 	
+	/**
+	 * <p>
+	 * PreparedStatementに、事前に決定した設定処理でパラメータを設定して実行する。
+	 * このメソッドでは、PreparedStatementのcloseを行わない。
+	 * </p><p>
+	 * 同じPreparedStatementを複数回実行する場合は、{@link ParameterBinder} を1度だけ生成し、
+	 * 再利用すること。
+	 * </p>
+	 * 
+	 * @param pstmt
+	 * @param params
+	 * @param binder パラメータのデータ型に応じた設定処理
+	 * @return
+	 * @throws SQLException
+	 * @since 1.1.10
+	 */
+	public static int execute(
+			PreparedStatement pstmt, 
+			Object[] params,
+			ParameterBinder binder) 
+			throws SQLException {
+		
+		if (logger.isDebugEnabled()) {
+			logger.debug("PreparedStatement instance: " + pstmt);
+			logger.debug("parameters : <'" + StringUtils.join(params, "', '") + "'>");
+		}
+		
+		binder.bind(pstmt, params);
+		
+		return pstmt.executeUpdate();
+	}
+	
 	/**
 	 * 文字列のDML文の「?」にパラメータを設定して実行する。
 	 * 
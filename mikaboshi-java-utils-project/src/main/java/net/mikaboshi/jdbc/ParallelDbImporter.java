@@ -0,0 +1,456 @@
+package net.mikaboshi.jdbc;
+
+import static net.mikaboshi.validator.SimpleValidator.validateNotNull;
+import static net.mikaboshi.validator.SimpleValidator.validatePositive;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * <p>
+ * 複数のコネクションを使用して、行データを並列にDBにインポートする。
+ * </p><p>
+ * 呼び出し元のスレッドが行データを読み込み、チャンク（指定行数ごとのまとまり）に分けて
+ * 有限のキューに入れる。書き込みスレッドは、それぞれ専用のコネクションと
+ * {@link ArrayToDbImporter} を持ち、キューから取り出したチャンクをインポートする。
+ * キューが一杯の場合、読み込みは書き込みが追いつくまで待機する。
+ * </p><p>
+ * コミットはチャンクごとに行う。（コネクションが自動コミットの場合は行わない）
+ * 書き込みスレッドで処理を中断するエラーが発生した場合は、そのチャンクをロールバックし、
+ * 他のスレッドは処理中のチャンクをコミットして終了する。
+ * それまでにコミットされた行は取り消されないので、件数は {@link #getCommittedCount()} で取得する。
+ * </p><p>
+ * チャンクは異なるトランザクションで並行して処理されるため、行の順序は保証されない。
+ * 同じ主キーの行が複数ある場合、どの行が反映されるかは不定である。
+ * </p><p>
+ * <i>(注意)このクラスのインスタンスは非同期である。</i>
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public class ParallelDbImporter {
+
+	private static Log logger = LogFactory.getLog(ParallelDbImporter.class);
+
+	/** チャンクの行数のデフォルト */
+	public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+	/** キューの空き、またはチャンクを待機する間隔（ミリ秒） */
+	private static final long POLL_INTERVAL = 100L;
+
+	/** 書き込みスレッドの終了を表すチャンク */
+	private static final Chunk END = new Chunk(0, Collections.<String[]>emptyList());
+
+	/**
+	 * 書き込みスレッドが使用するコネクションとインポーターを生成する。
+	 * 各メソッドは、書き込みスレッドから呼び出される。
+	 */
+	public interface ImporterFactory {
+
+		/**
+		 * 書き込みスレッド用の新しいコネクションを生成する。
+		 * @return コネクション
+		 * @throws SQLException
+		 */
+		Connection createConnection() throws SQLException;
+
+		/**
+		 * 指定したコネクションに対して、初期化済みの {@link ArrayToDbImporter} を生成する。
+		 * @param connection {@link #createConnection()} で生成したコネクション
+		 * @return 初期化済みのインポーター
+		 * @throws SQLException
+		 */
+		ArrayToDbImporter createImporter(Connection connection) throws SQLException;
+	}
+
+	/**
+	 * 行のインポートで発生したSQLExceptionを処理する。
+	 * 書き込みスレッドから呼び出される。
+	 */
+	public interface ErrorHandler {
+
+		/**
+		 * 行のインポートで発生したSQLExceptionを処理する。
+		 *
+		 * @param e 発生した例外
+		 * @param lineNumber 行番号
+		 * @param connection 例外が発生したコネクション
+		 * @return 処理を続ける場合は、バッチのうち成功した行の件数
+		 * @throws SQLException 処理を中断する場合
+		 */
+		int handleError(SQLException e, int lineNumber, Connection connection)
+				throws SQLException;
+	}
+
+	private final ImporterFactory factory;
+
+	private final int threads;
+
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	private int queueCapacity;
+
+	private ErrorHandler errorHandler;
+
+	private final AtomicInteger committedCount = new AtomicInteger();
+
+	private int rowCount = 0;
+
+	/** 処理を中断する場合にtrue */
+	private volatile boolean aborted = false;
+
+	/**
+	 * インポーターの生成方法と、書き込みスレッド数を指定するコンストラクタ。
+	 *
+	 * @param factory 書き込みスレッドのコネクションとインポーターを生成するオブジェクト
+	 * @param threads 書き込みスレッド数（1以上）
+	 * @throws NullPointerException factoryがnullの場合
+	 * @throws IllegalArgumentException threadsが1未満の場合
+	 */
+	public ParallelDbImporter(ImporterFactory factory, int threads) {
+		validateNotNull(factory, "factory", NullPointerException.class);
+		validatePositive(threads, "threads", IllegalArgumentException.class);
+
+		this.factory = factory;
+		this.threads = threads;
+		this.queueCapacity = threads * 2;
+	}
+
+	/**
+	 * チャンク（コミットの単位）の行数を設定する。（デフォルトは1000）
+	 * @param chunkSize チャンクの行数（1以上）
+	 * @throws IllegalArgumentException chunkSizeが1未満の場合
+	 */
+	public void setChunkSize(int chunkSize) {
+		validatePositive(chunkSize, "chunkSize", IllegalArgumentException.class);
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * 読み込み済みで、書き込みを待つチャンクの最大数を設定する。（デフォルトはスレッド数の2倍）
+	 * @param queueCapacity キューの容量（1以上）
+	 * @throws IllegalArgumentException queueCapacityが1未満の場合
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		validatePositive(queueCapacity, "queueCapacity", IllegalArgumentException.class);
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * 行のインポートで発生したSQLExceptionの処理を設定する。
+	 * 設定しない場合は、最初の例外で処理を中断する。
+	 * @param errorHandler
+	 */
+	public void setErrorHandler(ErrorHandler errorHandler) {
+		this.errorHandler = errorHandler;
+	}
+
+	/**
+	 * <p>
+	 * 全ての行データを並列にインポートする。
+	 * </p><p>
+	 * 書き込みスレッドで処理を中断するエラーが発生した場合は、残りの行を読み込まずに
+	 * 全てのスレッドの終了を待ち、最初の例外をスローする。
+	 * 行データの読み込みに失敗した場合も、全てのスレッドの終了を待ってから例外をスローする。
+	 * </p>
+	 *
+	 * @param rows 行データ
+	 * @param firstLineNumber 最初の行データの行番号
+	 * @return INSERTまたはUPDATEに成功した件数
+	 * @throws SQLException 処理を中断するエラーが発生した場合
+	 */
+	public int execute(Iterator<String[]> rows, int firstLineNumber) throws SQLException {
+		this.committedCount.set(0);
+		this.rowCount = 0;
+		this.aborted = false;
+
+		BlockingQueue<Chunk> queue = new ArrayBlockingQueue<Chunk>(this.queueCapacity);
+
+		ExecutorService executor = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "ParallelDbImporter");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		try {
+			List<Future<Integer>> futures = new ArrayList<Future<Integer>>(this.threads);
+
+			for (int i = 0; i < this.threads; i++) {
+				futures.add(executor.submit(new Writer(queue)));
+			}
+
+			int lineNumber = firstLineNumber;
+			List<String[]> lines = new ArrayList<String[]>(this.chunkSize);
+
+			while (!this.aborted && rows.hasNext()) {
+				lines.add(rows.next());
+				this.rowCount++;
+
+				if (lines.size() == this.chunkSize) {
+					put(queue, new Chunk(lineNumber, lines));
+					lineNumber += lines.size();
+					lines = new ArrayList<String[]>(this.chunkSize);
+				}
+			}
+
+			if (!lines.isEmpty()) {
+				put(queue, new Chunk(lineNumber, lines));
+			}
+
+			for (int i = 0; i < this.threads; i++) {
+				put(queue, END);
+			}
+
+			int count = 0;
+			SQLException error = null;
+
+			for (Future<Integer> future : futures) {
+				try {
+					count += get(future);
+				} catch (SQLException e) {
+					if (error == null) {
+						error = e;
+					}
+				}
+			}
+
+			if (error != null) {
+				throw error;
+			}
+
+			return count;
+
+		} catch (RuntimeException e) {
+			// 行データの読み込みに失敗した場合は、書き込みスレッドを中断する
+			this.aborted = true;
+			throw e;
+
+		} finally {
+			executor.shutdownNow();
+
+			// getCommittedCount()が確定するように、コミット中のスレッドの終了を待つ
+			awaitTermination(executor);
+		}
+	}
+
+	/**
+	 * コミットが完了したチャンクの、INSERTまたはUPDATEに成功した件数を返す。
+	 * {@link #execute(Iterator, int)} が例外をスローした場合も、取り消されなかった件数を返す。
+	 * @return コミット済みの件数
+	 */
+	public int getCommittedCount() {
+		return this.committedCount.get();
+	}
+
+	/**
+	 * 読み込んだ行データの数を返す。
+	 * @return 行データの数
+	 */
+	public int getRowCount() {
+		return this.rowCount;
+	}
+
+	/**
+	 * キューにチャンクを入れる。処理が中断された場合は、入れずに戻る。
+	 */
+	private void put(BlockingQueue<Chunk> queue, Chunk chunk) throws SQLException {
+		try {
+			while (!this.aborted) {
+				if (queue.offer(chunk, POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+					return;
+				}
+			}
+		} catch (InterruptedException e) {
+			this.aborted = true;
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while queueing rows");
+		}
+	}
+
+	/**
+	 * 全ての書き込みスレッドが終了するまで待つ。
+	 */
+	private static void awaitTermination(ExecutorService executor) {
+		try {
+			while (!executor.awaitTermination(POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+				// 待ち続ける
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * 書き込みスレッドの結果を取得する。
+	 */
+	private static int get(Future<Integer> future) throws SQLException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for writers");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+
+			if (cause instanceof SQLException) {
+				throw (SQLException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+
+			SQLException sqlException = new SQLException(String.valueOf(cause));
+			sqlException.initCause(cause);
+			throw sqlException;
+		}
+	}
+
+	/**
+	 * 行番号が連続する行データのまとまり。
+	 */
+	private static class Chunk {
+
+		private final int firstLineNumber;
+
+		private final List<String[]> lines;
+
+		Chunk(int firstLineNumber, List<String[]> lines) {
+			this.firstLineNumber = firstLineNumber;
+			this.lines = lines;
+		}
+	}
+
+	/**
+	 * キューからチャンクを取り出し、専用のコネクションでインポートする書き込みスレッド。
+	 */
+	private class Writer implements Callable<Integer> {
+
+		private final BlockingQueue<Chunk> queue;
+
+		Writer(BlockingQueue<Chunk> queue) {
+			this.queue = queue;
+		}
+
+		public Integer call() throws SQLException {
+			Connection connection = null;
+			ArrayToDbImporter importer = null;
+			int count = 0;
+
+			try {
+				connection = factory.createConnection();
+				importer = factory.createImporter(connection);
+
+				while (!aborted) {
+					Chunk chunk = this.queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+
+					if (chunk == null || aborted) {
+						continue;
+					}
+
+					if (chunk == END) {
+						break;
+					}
+
+					count += importChunk(importer, connection, chunk);
+				}
+
+				return count;
+
+			} catch (InterruptedException e) {
+				DbUtils.rollbackQuietly(connection);
+				Thread.currentThread().interrupt();
+				return count;
+
+			} catch (SQLException e) {
+				aborted = true;
+				DbUtils.rollbackQuietly(connection);
+				throw e;
+
+			} catch (RuntimeException e) {
+				aborted = true;
+				DbUtils.rollbackQuietly(connection);
+				throw e;
+
+			} finally {
+				if (importer != null) {
+					importer.close();
+				}
+
+				DbUtils.closeQuietly(connection);
+			}
+		}
+
+		/**
+		 * 1つのチャンクをインポートし、コミットする。
+		 */
+		private int importChunk(
+				ArrayToDbImporter importer,
+				Connection connection,
+				Chunk chunk) throws SQLException {
+
+			int count = 0;
+			int lineNumber = chunk.firstLineNumber;
+
+			for (String[] rowData : chunk.lines) {
+				try {
+					count += importer.execute(rowData, lineNumber);
+				} catch (SQLException e) {
+					count += handleError(e, lineNumber, connection);
+				}
+
+				lineNumber++;
+			}
+
+			try {
+				// バッチの残りを実行
+				count += importer.flush();
+			} catch (SQLException e) {
+				count += handleError(e, lineNumber - 1, connection);
+			}
+
+			if (!connection.getAutoCommit()) {
+				connection.commit();
+			}
+
+			committedCount.addAndGet(count);
+
+			if (logger.isDebugEnabled()) {
+				logger.debug("commit chunk: lines " + chunk.firstLineNumber + " - "
+						+ (lineNumber - 1) + ", " + count + " rows");
+			}
+
+			return count;
+		}
+
+		private int handleError(SQLException e, int lineNumber, Connection connection)
+				throws SQLException {
+
+			if (errorHandler == null) {
+				throw e;
+			}
+
+			return errorHandler.handleError(e, lineNumber, connection);
+		}
+	}
+}
@@ -0,0 +1,533 @@
+package net.mikaboshi.jdbc;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * <p>
+ * インポート先のテーブルに存在する主キーを、メモリ上に保持する。
+ * </p><p>
+ * 主キーが整数型の1カラムの場合は、long値のハッシュセット（オープンアドレス法）で保持する。
+ * それ以外の場合は、正規化した値を連結した文字列のハッシュセットで保持する。
+ * </p><p>
+ * 主キーの値は、{@link ArrayToDbImporter} に与えられる文字列で判定するので、
+ * 文字列と数値の型のみをサポートする。
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+abstract class PrimaryKeyCache {
+
+	private static Log logger = LogFactory.getLog(PrimaryKeyCache.class);
+
+	/** 複合キーの値の区切り */
+	private static final char SEPARATOR = '\u0000';
+
+	/** バッチに追加し、まだ実行していない行の主キー（追加した順。主キーがnullの行はnull） */
+	private final List<Object> pendingKeys = new ArrayList<Object>();
+
+	/** {@link #pendingKeys} の検索用 */
+	private final Set<Object> pendingKeySet = new HashSet<Object>();
+
+	/**
+	 * 主キーのデータ型が、キャッシュをサポートするかどうか。
+	 *
+	 * @param types 主キーのデータ型（java.sql.Types）
+	 * @return サポートする場合はtrue
+	 */
+	static boolean isSupported(int[] types) {
+		for (int type : types) {
+			if (!isIntegerType(type) && !isDecimalType(type) && !isCharacterType(type)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * テーブルに存在する主キーを全て読み込む。
+	 *
+	 * @param connection 接続済みのDBコネクション
+	 * @param tableName テーブル名
+	 * @param columnNames 主キーのカラム名
+	 * @param types 主キーのデータ型（java.sql.Types）
+	 * @param indexes 行データにおける、主キーの各カラムのインデックス
+	 * @return 読み込んだ主キーのキャッシュ
+	 * @throws SQLException
+	 * @throws IllegalArgumentException サポートしないデータ型の場合
+	 */
+	static PrimaryKeyCache load(
+			Connection connection,
+			String tableName,
+			String[] columnNames,
+			int[] types,
+			int[] indexes) throws SQLException {
+
+		if (!isSupported(types)) {
+			throw new IllegalArgumentException("Unsupported primary key type");
+		}
+
+		PrimaryKeyCache cache = types.length == 1 && isIntegerType(types[0]) ?
+				new LongKeyCache(indexes[0]) :
+				new CompositeKeyCache(types, indexes);
+
+		String sql = "select " + StringUtils.join(columnNames, ", ") + " from " + tableName;
+
+		Statement stmt = null;
+		ResultSet rs = null;
+
+		try {
+			stmt = connection.createStatement();
+			stmt.setFetchSize(1000);
+			rs = stmt.executeQuery(sql);
+
+			String[] values = new String[columnNames.length];
+
+			while (rs.next()) {
+				for (int i = 0; i < values.length; i++) {
+					values[i] = rs.getString(i + 1);
+				}
+
+				cache.addKey(values);
+			}
+
+		} finally {
+			DbUtils.closeQuietly(rs);
+			DbUtils.closeQuietly(stmt);
+		}
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("load primary keys: " + cache.size() + " keys from " + tableName);
+		}
+
+		return cache;
+	}
+
+	/**
+	 * 行の主キーが存在するかどうかを判定する。
+	 *
+	 * @param rowData 行データ
+	 * @return 存在する場合はtrue
+	 */
+	abstract boolean contains(String[] rowData);
+
+	/**
+	 * 行の主キーを追加する。
+	 *
+	 * @param rowData 行データ
+	 */
+	abstract void add(String[] rowData);
+
+	/**
+	 * 保持している主キーの数を返す。
+	 * @return
+	 */
+	abstract int size();
+
+	/**
+	 * 行の主キーを、判定・保持に使用する値に変換する。
+	 *
+	 * @param rowData 行データ
+	 * @return 主キーの値。nullの場合や、変換できない場合はnull。
+	 */
+	abstract Object toKey(String[] rowData);
+
+	/**
+	 * {@link #toKey(String[])} で変換した主キーを追加する。
+	 */
+	abstract void addConvertedKey(Object key);
+
+	/**
+	 * <p>
+	 * バッチに追加した行の主キーを、実行前の主キーとして保持する。
+	 * </p><p>
+	 * 実行前の主キーは、{@link #isPending(String[])} で判定でき、
+	 * {@link #commitPending(boolean[])} で存在する主キーとして確定する。
+	 * </p>
+	 *
+	 * @param rowData 行データ
+	 */
+	void addPending(String[] rowData) {
+		Object key = toKey(rowData);
+
+		this.pendingKeys.add(key);
+
+		if (key != null) {
+			this.pendingKeySet.add(key);
+		}
+	}
+
+	/**
+	 * 行の主キーが、実行前の主キーとして保持されているかどうかを判定する。
+	 *
+	 * @param rowData 行データ
+	 * @return 保持されている場合はtrue
+	 */
+	boolean isPending(String[] rowData) {
+		if (this.pendingKeySet.isEmpty()) {
+			return false;
+		}
+
+		Object key = toKey(rowData);
+
+		return key != null && this.pendingKeySet.contains(key);
+	}
+
+	/**
+	 * 実行前の主キーを、存在する主キーとして確定し、実行前の主キーを空にする。
+	 *
+	 * @param discarded 確定しない（実行に失敗した）行を、{@link #addPending(String[])}
+	 * 		で追加した順にtrueとした配列。nullの場合は全て確定する。
+	 */
+	void commitPending(boolean[] discarded) {
+		for (int i = 0; i < this.pendingKeys.size(); i++) {
+			Object key = this.pendingKeys.get(i);
+
+			if (key != null && (discarded == null || !discarded[i])) {
+				addConvertedKey(key);
+			}
+		}
+
+		this.pendingKeys.clear();
+		this.pendingKeySet.clear();
+	}
+
+	/**
+	 * 主キーの値（主キーのカラム順）を追加する。
+	 */
+	abstract void addKey(String[] keyValues);
+
+	private static boolean isIntegerType(int type) {
+		switch (type) {
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+			case Types.BIGINT:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private static boolean isDecimalType(int type) {
+		switch (type) {
+			case Types.NUMERIC:
+			case Types.DECIMAL:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private static boolean isCharacterType(int type) {
+		switch (type) {
+			case Types.CHAR:
+			case Types.VARCHAR:
+			case Types.NCHAR:
+			case Types.NVARCHAR:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * 整数の主キー（1カラム）のキャッシュ。
+	 */
+	static class LongKeyCache extends PrimaryKeyCache {
+
+		private final int index;
+
+		private final LongHashSet set = new LongHashSet();
+
+		LongKeyCache(int index) {
+			this.index = index;
+		}
+
+		@Override
+		boolean contains(String[] rowData) {
+			String value = rowData[this.index];
+
+			if (value == null) {
+				return false;
+			}
+
+			try {
+				return this.set.contains(toLong(value));
+			} catch (NumberFormatException e) {
+				return false;
+			}
+		}
+
+		@Override
+		void add(String[] rowData) {
+			String value = rowData[this.index];
+
+			if (value != null) {
+				this.set.add(toLong(value));
+			}
+		}
+
+		@Override
+		void addKey(String[] keyValues) {
+			if (keyValues[0] != null) {
+				this.set.add(toLong(keyValues[0]));
+			}
+		}
+
+		@Override
+		int size() {
+			return this.set.size();
+		}
+
+		@Override
+		Object toKey(String[] rowData) {
+			String value = rowData[this.index];
+
+			if (value == null) {
+				return null;
+			}
+
+			try {
+				return Long.valueOf(toLong(value));
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+
+		@Override
+		void addConvertedKey(Object key) {
+			this.set.add(((Long) key).longValue());
+		}
+
+		/**
+		 * {@link net.mikaboshi.jdbc.schema.ParameterBinder} と同様に、
+		 * 小数部を切り捨ててlong値に変換する。
+		 */
+		private static long toLong(String value) {
+			return new BigDecimal(value.trim()).longValue();
+		}
+	}
+
+	/**
+	 * 複合キー、または整数以外の主キーのキャッシュ。
+	 */
+	static class CompositeKeyCache extends PrimaryKeyCache {
+
+		private final int[] types;
+
+		private final int[] indexes;
+
+		private final Set<String> set = new HashSet<String>();
+
+		private final StringBuilder buffer = new StringBuilder();
+
+		CompositeKeyCache(int[] types, int[] indexes) {
+			this.types = types;
+			this.indexes = indexes;
+		}
+
+		@Override
+		boolean contains(String[] rowData) {
+			try {
+				String key = toKey(rowData, this.indexes);
+				return key != null && this.set.contains(key);
+			} catch (NumberFormatException e) {
+				return false;
+			}
+		}
+
+		@Override
+		void add(String[] rowData) {
+			String key = toKey(rowData, this.indexes);
+
+			if (key != null) {
+				this.set.add(key);
+			}
+		}
+
+		@Override
+		void addKey(String[] keyValues) {
+			String key = toKey(keyValues, null);
+
+			if (key != null) {
+				this.set.add(key);
+			}
+		}
+
+		@Override
+		int size() {
+			return this.set.size();
+		}
+
+		@Override
+		Object toKey(String[] rowData) {
+			try {
+				return toKey(rowData, this.indexes);
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+
+		@Override
+		void addConvertedKey(Object key) {
+			this.set.add((String) key);
+		}
+
+		/**
+		 * 主キーの値を正規化して連結する。値がnullの場合はnullを返す。
+		 */
+		private String toKey(String[] values, int[] indexes) {
+			this.buffer.setLength(0);
+
+			for (int i = 0; i < this.types.length; i++) {
+				String value = values[indexes == null ? i : indexes[i]];
+
+				if (value == null) {
+					return null;
+				}
+
+				if (i != 0) {
+					this.buffer.append(SEPARATOR);
+				}
+
+				int type = this.types[i];
+
+				if (isIntegerType(type) || isDecimalType(type)) {
+					// 1.0と1、01と1を同じ値とする
+					BigDecimal decimal = new BigDecimal(value.trim());
+
+					if (isIntegerType(type)) {
+						// 整数型のカラムには、小数部を切り捨てて設定される
+						decimal = decimal.setScale(0, RoundingMode.DOWN);
+					}
+
+					if (decimal.signum() == 0) {
+						this.buffer.append('0');
+					} else {
+						this.buffer.append(decimal.stripTrailingZeros().toPlainString());
+					}
+
+				} else if (type == Types.CHAR || type == Types.NCHAR) {
+					// 固定長文字列は、末尾の空白を無視する
+					this.buffer.append(StringUtils.stripEnd(value, " "));
+
+				} else {
+					this.buffer.append(value);
+				}
+			}
+
+			return this.buffer.toString();
+		}
+	}
+
+	/**
+	 * long値のハッシュセット（オープンアドレス法、線形探索）。
+	 */
+	static class LongHashSet {
+
+		/** 空きスロットを表す値（この値自体は {@link #containsEmptyValue} で保持する） */
+		private static final long EMPTY = 0L;
+
+		private long[] table = new long[16];
+
+		private int size = 0;
+
+		private boolean containsEmptyValue = false;
+
+		boolean contains(long value) {
+			if (value == EMPTY) {
+				return this.containsEmptyValue;
+			}
+
+			int mask = this.table.length - 1;
+
+			for (int i = hash(value) & mask; ; i = (i + 1) & mask) {
+				long v = this.table[i];
+
+				if (v == value) {
+					return true;
+				}
+
+				if (v == EMPTY) {
+					return false;
+				}
+			}
+		}
+
+		boolean add(long value) {
+			if (value == EMPTY) {
+				if (this.containsEmptyValue) {
+					return false;
+				}
+
+				this.containsEmptyValue = true;
+				this.size++;
+				return true;
+			}
+
+			if (!insert(this.table, value)) {
+				return false;
+			}
+
+			this.size++;
+
+			// 負荷率を1/2以下に保つ
+			if (this.size * 2 > this.table.length) {
+				long[] newTable = new long[this.table.length * 2];
+
+				for (long v : this.table) {
+					if (v != EMPTY) {
+						insert(newTable, v);
+					}
+				}
+
+				this.table = newTable;
+			}
+
+			return true;
+		}
+
+		int size() {
+			return this.size;
+		}
+
+		private static boolean insert(long[] table, long value) {
+			int mask = table.length - 1;
+
+			for (int i = hash(value) & mask; ; i = (i + 1) & mask) {
+				long v = table[i];
+
+				if (v == value) {
+					return false;
+				}
+
+				if (v == EMPTY) {
+					table[i] = value;
+					return true;
+				}
+			}
+		}
+
+		private static int hash(long value) {
+			// 連番のキーが偏らないように混ぜる
+			long h = value * 0x9E3779B97F4A7C15L;
+			return (int) (h ^ (h >>> 32));
+		}
+	}
+}
@@ -15,8 +15,20 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 /**
+ * <p>
  * クエリSQLを実行する。
  * ResultSetの処理は、{@link ResultSetHandler}に委譲する。
+ * </p><p>
+ * ストリーミングモード（{@link #setStreaming(boolean)}）では、結果セットを
+ * 前方スクロールのみ・読み取り専用で生成し、フェッチサイズを設定して、
+ * 全行をメモリに読み込まずに少しずつ取得する。
+ * ドライバが必要とする設定は、DB製品名により次のように行う。
+ * </p>
+ * <ul>
+ *   <li>MySQL, MariaDB : フェッチサイズに {@link Integer#MIN_VALUE} を設定し、1行ずつ取得する。</li>
+ *   <li>PostgreSQL : カーソルによる取得にはトランザクションが必要なため、
+ *       自動コミットが有効な場合は、実行中のみ無効にする。</li>
+ * </ul>
  * 
  * @author Takuma Umezawa
  *
@@ -28,6 +40,19 @@ public class QueryExecutor {
 	
 	private static Log logger = LogFactory.getLog(QueryExecutor.class);
 	
+	/**
+	 * ストリーミングモードで、フェッチサイズが指定されていない場合のフェッチサイズ
+	 * @since 1.1.10
+	 */
+	public static final int DEFAULT_STREAMING_FETCH_SIZE = 1000;
+	
+	private boolean streaming = false;
+	
+	private int fetchSize = 0;
+	
+	/** DB製品名（遅延取得） */
+	private String productName;
+	
 	/**
 	 * 
 	 * @param connection DBコネクション
@@ -46,6 +71,54 @@ public class QueryExecutor {
 		this.resultSetHandler = resultSetHandler;
 	}
 	
+	/**
+	 * ストリーミングモードで実行するかどうかを設定する。（デフォルトはfalse）
+	 * 
+	 * @param streaming
+	 * @since 1.1.10
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+	
+	/**
+	 * ストリーミングモードで実行するかどうかを取得する。
+	 * @return
+	 * @since 1.1.10
+	 */
+	public boolean isStreaming() {
+		return this.streaming;
+	}
+	
+	/**
+	 * <p>
+	 * 結果セットのフェッチサイズを設定する。
+	 * 0の場合（デフォルト）は、ドライバのデフォルトとなる。
+	 * ただし、ストリーミングモードでは {@link #DEFAULT_STREAMING_FETCH_SIZE} となる。
+	 * </p><p>
+	 * ストリーミングモードのMySQL, MariaDBでは、この設定は無視される。
+	 * </p>
+	 * 
+	 * @param fetchSize フェッチサイズ（0以上）
+	 * @throws IllegalArgumentException fetchSizeが負の場合
+	 * @since 1.1.10
+	 */
+	public void setFetchSize(int fetchSize) {
+		SimpleValidator.validatePositiveOrZero(
+				fetchSize, "fetchSize", IllegalArgumentException.class);
+		
+		this.fetchSize = fetchSize;
+	}
+	
+	/**
+	 * 結果セットのフェッチサイズを取得する。
+	 * @return
+	 * @since 1.1.10
+	 */
+	public int getFetchSize() {
+		return this.fetchSize;
+	}
+	
 	/**
 	 * 指定されたSQLを実行する。
 	 * 
@@ -60,9 +133,18 @@ public class QueryExecutor {
 		
 		Statement stmt = null;
 		ResultSet rs = null;
+		boolean autoCommitChanged = beginStreaming();
 		
 		try {
-			stmt = this.conn.createStatement();
+			if (this.streaming) {
+				stmt = this.conn.createStatement(
+						ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			} else {
+				stmt = this.conn.createStatement();
+			}
+			
+			applyFetchSize(stmt);
+			
 			rs = stmt.executeQuery(sql);
 			
 			this.resultSetHandler.before(rs.getMetaData());
@@ -78,6 +160,8 @@ public class QueryExecutor {
 			
 			DbUtils.closeQuietly(rs);
 			DbUtils.closeQuietly(stmt);
+			
+			endStreaming(autoCommitChanged);
 		}
 	}
 	
@@ -99,9 +183,17 @@ public class QueryExecutor {
 		
 		PreparedStatement pstmt = null;
 		ResultSet rs = null;
+		boolean autoCommitChanged = beginStreaming();
 		
 		try {
-			pstmt = this.conn.prepareStatement(sql);
+			if (this.streaming) {
+				pstmt = this.conn.prepareStatement(sql,
+						ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			} else {
+				pstmt = this.conn.prepareStatement(sql);
+			}
+			
+			applyFetchSize(pstmt);
 			
 			for (int i = 0; i < params.length; i++) {
 				pstmt.setObject(i + 1, params[i]);
@@ -122,9 +214,69 @@ public class QueryExecutor {
 			
 			DbUtils.closeQuietly(rs);
 			DbUtils.closeQuietly(pstmt);
+			
+			endStreaming(autoCommitChanged);
+		}
+	}
+	
+	/**
+	 * ストリーミングモードで、自動コミットを無効にする必要がある場合は無効にする。
+	 * 
+	 * @return 自動コミットを無効にした場合はtrue
+	 */
+	private boolean beginStreaming() throws SQLException {
+		if (!this.streaming || !isProduct("PostgreSQL") || !this.conn.getAutoCommit()) {
+			return false;
+		}
+		
+		this.conn.setAutoCommit(false);
+		
+		return true;
+	}
+	
+	/**
+	 * {@link #beginStreaming()} で無効にした自動コミットを元に戻す。
+	 */
+	private void endStreaming(boolean autoCommitChanged) {
+		if (!autoCommitChanged) {
+			return;
+		}
+		
+		try {
+			// 参照のみのトランザクションなので、ロールバックして終了する
+			this.conn.rollback();
+			this.conn.setAutoCommit(true);
+		} catch (SQLException e) {
+			logger.warn("Unable to restore auto-commit mode", e);
 		}
 	}
 	
+	private void applyFetchSize(Statement stmt) throws SQLException {
+		int size = this.fetchSize;
+		
+		if (this.streaming) {
+			if (isProduct("MySQL") || isProduct("MariaDB")) {
+				// MySQL Connector/Jは、Integer.MIN_VALUEの場合のみ1行ずつ取得する
+				size = Integer.MIN_VALUE;
+			} else if (size == 0) {
+				size = DEFAULT_STREAMING_FETCH_SIZE;
+			}
+		}
+		
+		if (size != 0) {
+			stmt.setFetchSize(size);
+		}
+	}
+	
+	private boolean isProduct(String name) throws SQLException {
+		if (this.productName == null) {
+			String product = this.conn.getMetaData().getDatabaseProductName();
+			this.productName = product == null ? StringUtils.EMPTY : product;
+		}
+		
+		return this.productName.startsWith(name);
+	}
+	
 	/**
 	 * クエリを実行してリストで返すユーティリティメソッド（パラメータあり）。
 	 * @param conn
@@ -0,0 +1,311 @@
+package net.mikaboshi.jdbc;
+
+import static net.mikaboshi.validator.SimpleValidator.validateNotBlank;
+import static net.mikaboshi.validator.SimpleValidator.validateNotNull;
+import static net.mikaboshi.validator.SimpleValidator.validatePositive;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import net.mikaboshi.jdbc.schema.ColumnInfo;
+import net.mikaboshi.jdbc.schema.PrimaryKeyInfo;
+import net.mikaboshi.jdbc.schema.SchemaUtils;
+
+import org.apache.commons.lang.ArrayUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * <p>
+ * テーブルを数値カラムの値の範囲で分割した、1つの範囲を表す。
+ * </p><p>
+ * {@link #split(Connection, String, String, int)} は、カラムの最小値・最大値を取得し、
+ * その間を等間隔に分割する。最初の範囲は最小値より小さい値とnullを、
+ * 最後の範囲は最大値より大きい値を含むので、分割後に追加された行も、いずれかの範囲に含まれる。
+ * 各範囲の行は、{@link #getCondition()} のWHERE条件と {@link #getParameters()} のパラメータで取得する。
+ * </p><p>
+ * インスタンスは不変なので、複数のスレッドで共有できる。
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public class RangePartition {
+
+	private static Log logger = LogFactory.getLog(RangePartition.class);
+
+	private final String columnName;
+
+	/** 下限（この値を含む）。nullの場合は下限なし。 */
+	private final BigDecimal lower;
+
+	/** 上限（この値を含まない）。nullの場合は上限なし。 */
+	private final BigDecimal upper;
+
+	RangePartition(String columnName, BigDecimal lower, BigDecimal upper) {
+		this.columnName = columnName;
+		this.lower = lower;
+		this.upper = upper;
+	}
+
+	/**
+	 * テーブル全体（条件のない範囲）を返す。
+	 * @return
+	 */
+	public static RangePartition all() {
+		return new RangePartition(null, null, null);
+	}
+
+	/**
+	 * <p>
+	 * テーブルを分割するカラムとして、主キーのカラム名を返す。
+	 * </p><p>
+	 * 主キーが1カラムで、整数型またはNUMERIC, DECIMAL型の場合のみ分割できる。
+	 * それ以外の場合は、nullを返す。
+	 * </p>
+	 *
+	 * @param conn
+	 * @param schema スキーマ名。nullの場合は指定無し。
+	 * @param tableName テーブル名（スキーマ名を含まない）
+	 * @return カラム名。分割できない場合はnull。
+	 * @throws SQLException
+	 */
+	public static String getPartitionColumn(
+			Connection conn, String schema, String tableName) throws SQLException {
+
+		validateNotNull(conn, "conn", NullPointerException.class);
+		validateNotNull(tableName, "tableName", NullPointerException.class);
+
+		DatabaseMetaData dbMeta = conn.getMetaData();
+
+		Set<PrimaryKeyInfo> pkInfoSet =
+				SchemaUtils.getPrimaryKeys(dbMeta, null, schema, tableName);
+
+		if (pkInfoSet.size() != 1) {
+			return null;
+		}
+
+		String[] pkColumnNames = pkInfoSet.iterator().next().getColumnNames();
+
+		if (pkColumnNames.length != 1) {
+			return null;
+		}
+
+		List<ColumnInfo> columnInfoList =
+				SchemaUtils.getColumnInfo(dbMeta, null, schema, tableName, null);
+
+		for (ColumnInfo columnInfo : columnInfoList) {
+			if (ArrayUtils.contains(pkColumnNames, columnInfo.getColumnName())) {
+				return isNumericType(columnInfo.getDataType()) ?
+						columnInfo.getColumnName() : null;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * <p>
+	 * テーブルを、数値カラムの値の範囲で分割する。
+	 * </p><p>
+	 * 範囲は整数の境界で区切るので、最小値と最大値の差が小さい場合は、
+	 * 指定した数より少なく分割する。
+	 * テーブルが空の場合、または分割数が1の場合は、条件のない範囲を1つだけ返す。
+	 * </p>
+	 *
+	 * @param conn
+	 * @param tableName テーブル名（スキーマ名で修飾してもよい）
+	 * @param columnName 分割に使用する数値カラム名
+	 * @param partitions 分割数（1以上）
+	 * @return 分割した範囲（値の昇順）
+	 * @throws SQLException
+	 * @throws IllegalArgumentException partitionsが1未満の場合
+	 */
+	public static List<RangePartition> split(
+			Connection conn,
+			String tableName,
+			String columnName,
+			int partitions) throws SQLException {
+
+		validateNotNull(conn, "conn", NullPointerException.class);
+		validateNotBlank(tableName, "tableName", IllegalArgumentException.class);
+		validateNotBlank(columnName, "columnName", IllegalArgumentException.class);
+		validatePositive(partitions, "partitions", IllegalArgumentException.class);
+
+		if (partitions == 1) {
+			return Collections.singletonList(new RangePartition(columnName, null, null));
+		}
+
+		String sql = "select min(" + columnName + "), max(" + columnName + ") from " + tableName;
+
+		BigDecimal min;
+		BigDecimal max;
+
+		Statement stmt = null;
+		ResultSet rs = null;
+
+		try {
+			stmt = conn.createStatement();
+			rs = stmt.executeQuery(sql);
+			rs.next();
+
+			min = rs.getBigDecimal(1);
+			max = rs.getBigDecimal(2);
+
+		} finally {
+			DbUtils.closeQuietly(rs);
+			DbUtils.closeQuietly(stmt);
+		}
+
+		List<RangePartition> result = new ArrayList<RangePartition>(partitions);
+
+		if (min == null || max == null) {
+			result.add(new RangePartition(columnName, null, null));
+			return result;
+		}
+
+		min = min.setScale(0, RoundingMode.FLOOR);
+		max = max.setScale(0, RoundingMode.FLOOR);
+
+		BigDecimal width = max.subtract(min).add(BigDecimal.ONE);
+		BigDecimal count = BigDecimal.valueOf(partitions);
+		BigDecimal lower = null;
+
+		for (int i = 1; i < partitions; i++) {
+			// min + width * i / partitions（整数に切り捨て）
+			BigDecimal boundary = min.add(width.multiply(BigDecimal.valueOf(i))
+					.divide(count, 0, RoundingMode.FLOOR));
+
+			if (boundary.compareTo(min) <= 0 ||
+					(lower != null && boundary.compareTo(lower) <= 0)) {
+				// 値の範囲が分割数より小さい場合
+				continue;
+			}
+
+			result.add(new RangePartition(columnName, lower, boundary));
+			lower = boundary;
+		}
+
+		result.add(new RangePartition(columnName, lower, null));
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("split " + tableName + " into " + result.size() +
+					" partitions by " + columnName + " (" + min + " - " + max + ")");
+		}
+
+		return result;
+	}
+
+	/**
+	 * 分割に使用するカラム名を返す。テーブル全体の場合はnullのこともある。
+	 * @return
+	 */
+	public String getColumnName() {
+		return this.columnName;
+	}
+
+	/**
+	 * 範囲の下限（この値を含む）を返す。下限がない場合はnull。
+	 * @return
+	 */
+	public BigDecimal getLower() {
+		return this.lower;
+	}
+
+	/**
+	 * 範囲の上限（この値を含まない）を返す。上限がない場合はnull。
+	 * @return
+	 */
+	public BigDecimal getUpper() {
+		return this.upper;
+	}
+
+	/**
+	 * <p>
+	 * 範囲の行を取得するWHERE条件を返す。パラメータは「?」で表す。
+	 * </p><p>
+	 * 下限がない範囲はnullの値を含む。下限・上限ともにない場合は、nullを返す。
+	 * </p>
+	 *
+	 * @return WHERE条件（WHEREを含まない）。条件がない場合はnull。
+	 */
+	public String getCondition() {
+		if (this.lower == null && this.upper == null) {
+			return null;
+		}
+
+		if (this.lower == null) {
+			return "(" + this.columnName + " < ? or " + this.columnName + " is null)";
+		}
+
+		if (this.upper == null) {
+			return this.columnName + " >= ?";
+		}
+
+		return this.columnName + " >= ? and " + this.columnName + " < ?";
+	}
+
+	/**
+	 * {@link #getCondition()} のパラメータを返す。
+	 * @return パラメータ。条件がない場合は空の配列。
+	 */
+	public Object[] getParameters() {
+		List<Object> params = new ArrayList<Object>(2);
+
+		if (this.lower != null) {
+			params.add(this.lower);
+		}
+
+		if (this.upper != null) {
+			params.add(this.upper);
+		}
+
+		return params.toArray();
+	}
+
+	/**
+	 * 範囲の行を取得するSELECT文を返す。
+	 *
+	 * @param tableName テーブル名
+	 * @return SELECT文（パラメータは「?」）
+	 */
+	public String getSelectSql(String tableName) {
+		String condition = getCondition();
+
+		if (condition == null) {
+			return "select * from " + tableName;
+		}
+
+		return "select * from " + tableName + " where " + condition;
+	}
+
+	@Override
+	public String toString() {
+		return "[" + (this.lower == null ? "" : this.lower.toPlainString()) +
+				", " + (this.upper == null ? "" : this.upper.toPlainString()) + ")";
+	}
+
+	private static boolean isNumericType(int type) {
+		switch (type) {
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+			case Types.BIGINT:
+			case Types.NUMERIC:
+			case Types.DECIMAL:
+				return true;
+			default:
+				return false;
+		}
+	}
+}
@@ -20,6 +20,9 @@ public class ResultSetToCSVHandler extends ResultSetToFileHandler {
 	
 	private CSVStrategy csvStrategy;
 	
+	/** 1行の出力に使用する配列 */
+	private String[] lineBuffer = new String[0];
+	
 	/**
 	 * 出力内容を指定するコンストラクタ。
 	 * 
@@ -52,7 +55,9 @@ public class ResultSetToCSVHandler extends ResultSetToFileHandler {
 	/**
 	 * コンストラクタで指定された writer をフラッシュする。（close は行わない）
 	 */
+	@Override
 	public void close() throws SQLException {
+		super.close();
 		this.writer.flush();
 	}
 
@@ -61,7 +66,12 @@ public class ResultSetToCSVHandler extends ResultSetToFileHandler {
 	 */
 	@Override
 	protected void println(List<String> line) {
-		this.csvStrategy.printLine(line.toArray(), this.writer);
+		// 行ごとに配列を生成しないように、同じ項目数ならば配列を再利用する
+		if (this.lineBuffer.length != line.size()) {
+			this.lineBuffer = new String[line.size()];
+		}
+		
+		this.csvStrategy.printLine(line.toArray(this.lineBuffer), this.writer);
 	}
 
 }
@@ -4,12 +4,27 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import net.mikaboshi.validator.SimpleValidator;
 
 /**
+ * <p>
  * ResultSetからファイルに出力する抽象クラス。
+ * </p><p>
+ * パイプラインモード（{@link #setPipelined(boolean)}）では、JDBCのスレッドは各カラムの値を
+ * 再利用する行バッファにコピーして次の行に進み、文字列への変換と出力（{@link #println(List)}）は
+ * 書き込みスレッドで行う。JDBCのスレッドと書き込みスレッドの間は、有限のリングバッファでつなぐ。
+ * 書き込みが追いつかない場合、JDBCのスレッドはバッファに空きができるまで待機する。
+ * </p><p>
+ * 文字列への変換を書き込みスレッドで行うのは、値の整形オブジェクトが {@link DeferredFormatter}
+ * を実装する場合のみである。それ以外の場合は、JDBCのスレッドで文字列に変換し、
+ * 出力のみを書き込みスレッドで行う。
+ * </p>
  * 
  * @author Takuma Umezawa
  *
@@ -51,6 +66,65 @@ public abstract class ResultSetToFileHandler implements ResultSetHandler {
 	}
 
 	private int rowCount;
+	
+	/** カラムのデータ型（{@link #before(ResultSetMetaData)} で取得する） */
+	private int[] columnTypes;
+	
+	/** 1行の出力に再利用する配列 */
+	private String[] lineArray;
+	
+	/** {@link #lineArray} のリストとしてのビュー */
+	private List<String> lineView;
+	
+	/**
+	 * パイプラインモードのリングバッファの行数のデフォルト
+	 * @since 1.1.10
+	 */
+	public static final int DEFAULT_PIPELINE_CAPACITY = 1024;
+	
+	/** 書き込みスレッドの終了、またはバッファの空きを待機する間隔（ミリ秒） */
+	private static final long POLL_INTERVAL = 100L;
+	
+	private boolean pipelined = false;
+	
+	private int pipelineCapacity = DEFAULT_PIPELINE_CAPACITY;
+	
+	/** 実行中のパイプライン。最初の行で開始する。 */
+	private Pipeline pipeline;
+	
+	/**
+	 * パイプラインモードで出力するかどうかを設定する。（デフォルトはfalse）
+	 * 
+	 * @param pipelined
+	 * @since 1.1.10
+	 */
+	public void setPipelined(boolean pipelined) {
+		this.pipelined = pipelined;
+	}
+	
+	/**
+	 * パイプラインモードで出力するかどうかを取得する。
+	 * @return
+	 * @since 1.1.10
+	 */
+	public boolean isPipelined() {
+		return this.pipelined;
+	}
+	
+	/**
+	 * パイプラインモードのリングバッファの行数を設定する。
+	 * （デフォルトは {@link #DEFAULT_PIPELINE_CAPACITY}）
+	 * 
+	 * @param pipelineCapacity 行数（1以上）
+	 * @throws IllegalArgumentException pipelineCapacityが1未満の場合
+	 * @since 1.1.10
+	 */
+	public void setPipelineCapacity(int pipelineCapacity) {
+		SimpleValidator.validatePositive(
+				pipelineCapacity, "pipelineCapacity", IllegalArgumentException.class);
+		
+		this.pipelineCapacity = pipelineCapacity;
+	}
 
 	/**
 	 * カラムのメタ情報を出力する。
@@ -60,6 +134,8 @@ public abstract class ResultSetToFileHandler implements ResultSetHandler {
 	public void before(ResultSetMetaData meta) throws SQLException {
 		this.rowCount = 0;
 		
+		initColumns(meta);
+		
 		int columnCount = meta.getColumnCount();
 		
 		// 列名
@@ -135,9 +211,35 @@ public abstract class ResultSetToFileHandler implements ResultSetHandler {
 	}
 	
 	/**
-	 * このクラスでは何も行わない。
+	 * パイプラインモードの場合は、全ての行の出力が完了するのを待つ。
+	 * それ以外の場合は、何も行わない。
 	 */
 	public void after() throws SQLException {
+		if (this.pipeline != null) {
+			try {
+				this.pipeline.finish();
+			} finally {
+				this.pipeline = null;
+			}
+		}
+	}
+	
+	/**
+	 * <p>
+	 * パイプラインモードの書き込みスレッドが動作している場合は、中断して終了を待つ。
+	 * </p><p>
+	 * サブクラスでオーバーライドする場合は、出力先を閉じる前にこのメソッドを呼び出すこと。
+	 * </p>
+	 * @since 1.1.10
+	 */
+	public void close() throws SQLException {
+		if (this.pipeline != null) {
+			try {
+				this.pipeline.abort();
+			} finally {
+				this.pipeline = null;
+			}
+		}
 	}
 	
 	/**
@@ -146,26 +248,268 @@ public abstract class ResultSetToFileHandler implements ResultSetHandler {
 	public void handle(ResultSet rs) throws SQLException {
 		this.rowCount++;
 		
-		List<String> line = new ArrayList<String>();
+		if (this.columnTypes == null) {
+			// beforeが呼び出されていない場合
+			initColumns(rs.getMetaData());
+		}
+		
+		if (this.pipelined) {
+			if (this.pipeline == null) {
+				this.pipeline = new Pipeline();
+			}
+			
+			this.pipeline.put(rs, this.rowCount);
+			return;
+		}
+		
+		int offset = 0;
 		
 		if (this.outputRowNumber) {
-			line.add(String.valueOf(this.rowCount));
+			this.lineArray[offset++] = String.valueOf(this.rowCount);
 		}
 		
-		ResultSetMetaData meta = rs.getMetaData();
+		for (int i = 0; i < this.columnTypes.length; i++) {
+			this.lineArray[offset + i] = this.formatter.format(rs, i + 1, this.columnTypes[i]);
+		}
+		
+		println(this.lineView);
+	}
+	
+	/**
+	 * カラムのデータ型を取得し、1行の出力に再利用する配列を用意する。
+	 */
+	private void initColumns(ResultSetMetaData meta) throws SQLException {
 		int columnCount = meta.getColumnCount();
 		
-		for (int i = 1; i <= columnCount; i++) {
-			line.add(this.formatter.format(rs, i, meta.getColumnType(i)));
+		this.columnTypes = new int[columnCount];
+		
+		for (int i = 0; i < columnCount; i++) {
+			this.columnTypes[i] = meta.getColumnType(i + 1);
 		}
 		
-		println(line);
+		this.lineArray = new String[getLineLength()];
+		this.lineView = Arrays.asList(this.lineArray);
+		
+		if (this.formatter instanceof TypedFormatter) {
+			((TypedFormatter) this.formatter).prepare(meta);
+		}
 	}
 	
 	/**
+	 * 1行の項目数（行番号を含む）を返す。
+	 */
+	private int getLineLength() {
+		return this.columnTypes.length + (this.outputRowNumber ? 1 : 0);
+	}
+	
+	/**
+	 * <p>
 	 * １行分のデータをファイルに出力する
+	 * </p><p>
+	 * データ行の場合、引数のリストは配列のビュー（サイズ変更不可）で、次の行の出力に再利用される。
+	 * このメソッドから戻った後にリストを参照しないこと。
+	 * </p>
 	 * @param line
 	 */
 	abstract protected void println(List<String> line); 
+	
+	/**
+	 * パイプラインモードで、リングバッファに入れる1行の値。
+	 */
+	private static class Row {
+		
+		/** 行番号 */
+		int rowNumber;
+		
+		/** カラムの値（整形前の値、または文字列に変換した値） */
+		final Object[] values;
+		
+		Row(int columnCount) {
+			this.values = new Object[columnCount];
+		}
+	}
+	
+	/** 書き込みスレッドの終了を表す行 */
+	private static final Row END = new Row(0);
+	
+	/**
+	 * パイプラインモードの、リングバッファと書き込みスレッド。
+	 * 空の行バッファは free、値をコピーした行バッファは filled のキューに入れて循環させる。
+	 */
+	private class Pipeline implements Runnable {
+		
+		private final int[] columnTypes;
+		
+		/** 文字列への変換を書き込みスレッドで行う場合の整形オブジェクト */
+		private final DeferredFormatter deferredFormatter;
+		
+		private final BlockingQueue<Row> free;
+		
+		private final BlockingQueue<Row> filled;
+		
+		private final Thread thread;
+		
+		/** 書き込みスレッドで発生した例外 */
+		private volatile Throwable error;
+		
+		/** 書き込みスレッドで、1行の出力に再利用する配列 */
+		private final String[] lineArray;
+		
+		private final List<String> lineView;
+		
+		Pipeline() {
+			this.columnTypes = ResultSetToFileHandler.this.columnTypes;
+			
+			int columnCount = this.columnTypes.length;
+			
+			this.lineArray = new String[getLineLength()];
+			this.lineView = Arrays.asList(this.lineArray);
+			
+			ResultDataFormatter formatter = ResultSetToFileHandler.this.formatter;
+			
+			this.deferredFormatter = formatter instanceof DeferredFormatter ?
+					(DeferredFormatter) formatter : null;
+			
+			int capacity = ResultSetToFileHandler.this.pipelineCapacity;
+			
+			this.free = new ArrayBlockingQueue<Row>(capacity);
+			
+			// 全ての行バッファと、終了を表す行が入る
+			this.filled = new ArrayBlockingQueue<Row>(capacity + 1);
+			
+			for (int i = 0; i < capacity; i++) {
+				this.free.add(new Row(columnCount));
+			}
+			
+			this.thread = new Thread(this, "ResultSetToFileHandler");
+			this.thread.setDaemon(true);
+			this.thread.start();
+		}
+		
+		/**
+		 * ResultSetの現在の行の値を行バッファにコピーし、書き込みスレッドに渡す。
+		 */
+		void put(ResultSet rs, int rowNumber) throws SQLException {
+			Row row = takeFreeRow();
+			
+			row.rowNumber = rowNumber;
+			
+			for (int i = 0; i < this.columnTypes.length; i++) {
+				if (this.deferredFormatter != null) {
+					row.values[i] = this.deferredFormatter.getValue(rs, i + 1, this.columnTypes[i]);
+				} else {
+					row.values[i] = ResultSetToFileHandler.this.formatter.format(
+							rs, i + 1, this.columnTypes[i]);
+				}
+			}
+			
+			this.filled.add(row);
+		}
+		
+		/**
+		 * 全ての行の出力が完了するのを待つ。
+		 */
+		void finish() throws SQLException {
+			this.filled.add(END);
+			
+			join();
+			throwIfFailed();
+		}
+		
+		/**
+		 * 書き込みスレッドを中断し、終了を待つ。
+		 */
+		void abort() throws SQLException {
+			this.thread.interrupt();
+			
+			join();
+		}
+		
+		public void run() {
+			try {
+				while (true) {
+					Row row = this.filled.take();
+					
+					if (row == END) {
+						return;
+					}
+					
+					int offset = 0;
+					
+					if (ResultSetToFileHandler.this.outputRowNumber) {
+						this.lineArray[offset++] = String.valueOf(row.rowNumber);
+					}
+					
+					for (int i = 0; i < this.columnTypes.length; i++) {
+						if (this.deferredFormatter != null) {
+							this.lineArray[offset + i] = this.deferredFormatter.formatValue(
+									row.values[i], this.columnTypes[i]);
+						} else {
+							this.lineArray[offset + i] = (String) row.values[i];
+						}
+						
+						row.values[i] = null;
+					}
+					
+					// 行バッファを空けてから出力し、JDBCのスレッドが次の行をコピーできるようにする
+					this.free.add(row);
+					
+					println(this.lineView);
+				}
+				
+			} catch (InterruptedException e) {
+				// 中断された場合は、そのまま終了する
+			} catch (Throwable t) {
+				this.error = t;
+			}
+		}
+		
+		private Row takeFreeRow() throws SQLException {
+			try {
+				while (true) {
+					Row row = this.free.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+					
+					if (row != null) {
+						return row;
+					}
+					
+					if (!this.thread.isAlive()) {
+						throwIfFailed();
+						throw new SQLException("Writer thread terminated");
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SQLException("Interrupted while waiting for writer");
+			}
+		}
+		
+		private void join() throws SQLException {
+			try {
+				this.thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SQLException("Interrupted while waiting for writer");
+			}
+		}
+		
+		private void throwIfFailed() throws SQLException {
+			Throwable t = this.error;
+			
+			if (t == null) {
+				return;
+			}
+			
+			if (t instanceof RuntimeException) {
+				throw (RuntimeException) t;
+			} else if (t instanceof Error) {
+				throw (Error) t;
+			}
+			
+			SQLException e = new SQLException("Failed to write a row");
+			e.initCause(t);
+			throw e;
+		}
+	}
 
 }
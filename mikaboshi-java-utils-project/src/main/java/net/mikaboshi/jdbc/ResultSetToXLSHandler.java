@@ -146,7 +146,10 @@ public class ResultSetToXLSHandler extends ResultSetToFileHandler {
 	/**
 	 * Excelファイルへの書き出しを行い、ファイルを閉じる。
 	 */
+	@Override
 	public void close() throws SQLException {
+		super.close();
+		
 		OutputStream os = null;
 		
 		try {
@@ -0,0 +1,469 @@
+package net.mikaboshi.jdbc;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import net.mikaboshi.jdbc.schema.ColumnInfo;
+import net.mikaboshi.jdbc.schema.ParameterBinder;
+
+import org.apache.commons.lang.ArrayUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * <p>
+ * 複数行をステージングテーブルに投入し、1回のMERGE（またはUPDATEとINSERT）で
+ * インポート先のテーブルに反映する。
+ * </p><p>
+ * {@link ArrayToDbImporter} で、replaceを集合指向で行う場合に使用する。
+ * 反映するSQLの方言は、{@link DatabaseMetaData} の製品名とバージョンで決定する。
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+class SetBasedReplacer {
+
+	private static Log logger = LogFactory.getLog(SetBasedReplacer.class);
+
+	/**
+	 * 反映するSQLの方言
+	 */
+	enum Dialect {
+		/** MERGE文（Oracle, DB2, HSQLDB 2.x） */
+		MERGE,
+		/** MERGE文（SQL Server。文末にセミコロンが必要） */
+		SQLSERVER,
+		/** INSERT ... ON DUPLICATE KEY UPDATE（MySQL） */
+		MYSQL,
+		/** INSERT ... ON CONFLICT（PostgreSQL 9.5以降） */
+		POSTGRESQL,
+		/** 相関副問い合わせのUPDATEと、INSERT ... WHERE NOT EXISTS */
+		GENERIC
+	}
+
+	/**
+	 * DBの製品名とバージョンから、反映するSQLの方言を決定する。
+	 *
+	 * @param meta
+	 * @return
+	 * @throws SQLException
+	 */
+	static Dialect getDialect(DatabaseMetaData meta) throws SQLException {
+		String product = meta.getDatabaseProductName();
+		int major = meta.getDatabaseMajorVersion();
+		int minor = meta.getDatabaseMinorVersion();
+
+		if (product == null) {
+			return Dialect.GENERIC;
+		}
+
+		if (product.startsWith("Oracle") || product.startsWith("DB2")) {
+			return Dialect.MERGE;
+		}
+
+		if (product.startsWith("Microsoft SQL Server")) {
+			return Dialect.SQLSERVER;
+		}
+
+		if (product.startsWith("HSQL") && major >= 2) {
+			return Dialect.MERGE;
+		}
+
+		if (product.startsWith("MySQL") || product.startsWith("MariaDB")) {
+			return Dialect.MYSQL;
+		}
+
+		if (product.startsWith("PostgreSQL")
+				&& (major > 9 || (major == 9 && minor >= 5))) {
+			return Dialect.POSTGRESQL;
+		}
+
+		return Dialect.GENERIC;
+	}
+
+	private final Connection connection;
+
+	private final String stagingTableName;
+
+	/** ステージングテーブルを生成した場合はtrue（closeで削除する） */
+	private final boolean createStagingTable;
+
+	private final String[] columnNames;
+
+	private final ParameterBinder stagingBinder;
+
+	private final String[] applySqls;
+
+	private PreparedStatement stagingStatement;
+
+	/**
+	 * ステージングテーブルを準備する。
+	 *
+	 * @param connection 接続済みのDBコネクション
+	 * @param tableName インポート先のテーブル名
+	 * @param stagingTableName 既存のステージングテーブル名。nullの場合は一時テーブルを生成する。
+	 * @param columns インポートするカラムの情報（INSERTの順）
+	 * @param primaryKeyColumnNames 主キーのカラム名
+	 * @throws SQLException ステージングテーブルの生成に失敗した場合
+	 */
+	SetBasedReplacer(
+			Connection connection,
+			String tableName,
+			String stagingTableName,
+			List<ColumnInfo> columns,
+			String[] primaryKeyColumnNames) throws SQLException {
+
+		this.connection = connection;
+
+		this.columnNames = new String[columns.size()];
+		int[] dataTypes = new int[columns.size()];
+
+		for (int i = 0; i < this.columnNames.length; i++) {
+			this.columnNames[i] = columns.get(i).getColumnName();
+			dataTypes[i] = columns.get(i).getDataType();
+		}
+
+		this.stagingBinder = new ParameterBinder(dataTypes);
+
+		Dialect dialect = getDialect(connection.getMetaData());
+
+		if (stagingTableName == null) {
+			this.stagingTableName = createTemporaryTableName(tableName, dialect);
+			this.createStagingTable = true;
+
+			DmlExecutor.execute(connection,
+					createStagingTableSql(dialect, this.stagingTableName, columns));
+		} else {
+			this.stagingTableName = stagingTableName;
+			this.createStagingTable = false;
+		}
+
+		this.applySqls = createApplySqls(
+				dialect,
+				tableName,
+				this.stagingTableName,
+				this.columnNames,
+				primaryKeyColumnNames);
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("replace dialect: " + dialect);
+
+			for (String sql : this.applySqls) {
+				logger.debug("create apply statement: " + sql);
+			}
+		}
+
+		this.stagingStatement = connection.prepareStatement(
+				ArrayToDbImporter.createInsertSql(
+						this.stagingTableName, this.columnNames, this.columnNames.length, 1));
+	}
+
+	/**
+	 * 行をステージングテーブルに投入し、インポート先のテーブルに反映する。
+	 *
+	 * @param rows 反映する行（主キーの重複がないこと）
+	 * @param lineNumbers 各行の行番号（失敗した場合に使用する）
+	 * @return 反映したSQLの更新件数の合計
+	 * @throws BatchImportException 失敗した場合
+	 */
+	int execute(Collection<String[]> rows, int[] lineNumbers) throws SQLException {
+		try {
+			DmlExecutor.execute(this.connection, "delete from " + this.stagingTableName);
+
+			for (String[] row : rows) {
+				this.stagingBinder.bind(this.stagingStatement, row);
+				this.stagingStatement.addBatch();
+			}
+
+			this.stagingStatement.executeBatch();
+
+			int count = 0;
+
+			for (String sql : this.applySqls) {
+				count += DmlExecutor.execute(this.connection, sql);
+			}
+
+			return count;
+
+		} catch (BatchUpdateException e) {
+			try {
+				this.stagingStatement.clearBatch();
+			} catch (SQLException ignore) {
+			}
+
+			// 重複を除いているので、ステージングの行と元の行番号は対応しない
+			throw new BatchImportException((SQLException) e, lineNumbers);
+
+		} catch (SQLException e) {
+			throw new BatchImportException(e, lineNumbers);
+		}
+	}
+
+	/**
+	 * ステージングテーブルへのINSERT文を閉じ、生成した一時テーブルを削除する。
+	 */
+	void close() {
+		DbUtils.closeQuietly(this.stagingStatement);
+
+		if (this.createStagingTable) {
+			try {
+				DmlExecutor.execute(this.connection, "drop table " + this.stagingTableName);
+			} catch (SQLException e) {
+				logger.warn("Failed to drop " + this.stagingTableName, e);
+			}
+		}
+	}
+
+	/**
+	 * 一時テーブルの名前を決定する。
+	 */
+	static String createTemporaryTableName(String tableName, Dialect dialect) {
+		// スキーマ名は外し、30文字に収める
+		String name = "STG_" + tableName.substring(tableName.lastIndexOf('.') + 1);
+
+		if (name.length() > 30) {
+			name = name.substring(0, 30);
+		}
+
+		return dialect == Dialect.SQLSERVER ? "#" + name : name;
+	}
+
+	/**
+	 * 一時テーブルのCREATE文を生成する。
+	 */
+	static String createStagingTableSql(
+			Dialect dialect, String stagingTableName, List<ColumnInfo> columns) {
+
+		StringBuilder sql = new StringBuilder();
+
+		switch (dialect) {
+			case SQLSERVER:
+				sql.append("create table ");
+				break;
+			case MYSQL:
+			case POSTGRESQL:
+				sql.append("create temporary table ");
+				break;
+			default:
+				sql.append("create global temporary table ");
+				break;
+		}
+
+		sql.append(stagingTableName);
+		sql.append(" (");
+
+		for (int i = 0; i < columns.size(); i++) {
+			if (i != 0) {
+				sql.append(", ");
+			}
+
+			sql.append(getColumnDefinition(columns.get(i)));
+		}
+
+		sql.append(")");
+
+		if (dialect == Dialect.MERGE || dialect == Dialect.GENERIC) {
+			// SQL標準のデフォルトは、コミット時に行が削除される
+			sql.append(" on commit preserve rows");
+		}
+
+		return sql.toString();
+	}
+
+	/**
+	 * カラムの定義（カラム名とデータ型）を返す。
+	 */
+	private static String getColumnDefinition(ColumnInfo column) {
+		String definition = column.getColumnName() + " " + column.getTypeName();
+
+		switch (column.getDataType()) {
+			case Types.CHAR:
+			case Types.VARCHAR:
+			case Types.NCHAR:
+			case Types.NVARCHAR:
+			case Types.BINARY:
+			case Types.VARBINARY:
+				if (column.getColumnSize() > 0 && column.getTypeName().indexOf('(') == -1) {
+					definition += "(" + column.getColumnSize() + ")";
+				}
+				break;
+
+			case Types.DECIMAL:
+			case Types.NUMERIC:
+				if (column.getColumnSize() > 0 && column.getTypeName().indexOf('(') == -1) {
+					definition += "(" + column.getColumnSize() + ", " + column.getDecimalDigits() + ")";
+				}
+				break;
+		}
+
+		return definition;
+	}
+
+	/**
+	 * ステージングテーブルの行をインポート先のテーブルに反映するSQLを生成する。
+	 *
+	 * @param dialect SQLの方言
+	 * @param tableName インポート先のテーブル名
+	 * @param stagingTableName ステージングテーブル名
+	 * @param columnNames インポートするカラム名
+	 * @param primaryKeyColumnNames 主キーのカラム名
+	 * @return 順に実行するSQLの配列
+	 */
+	static String[] createApplySqls(
+			Dialect dialect,
+			String tableName,
+			String stagingTableName,
+			String[] columnNames,
+			String[] primaryKeyColumnNames) {
+
+		List<String> valueColumnNames = new ArrayList<String>();
+
+		for (String columnName : columnNames) {
+			if (!ArrayUtils.contains(primaryKeyColumnNames, columnName)) {
+				valueColumnNames.add(columnName);
+			}
+		}
+
+		String columnList = StringUtils.join(columnNames, ", ");
+		String sColumnList = "s." + StringUtils.join(columnNames, ", s.");
+		StringBuilder sql = new StringBuilder();
+
+		switch (dialect) {
+			case MERGE:
+			case SQLSERVER:
+				sql.append("merge into ").append(tableName).append(" t using ");
+				sql.append(stagingTableName).append(" s on (");
+				appendKeyCondition(sql, primaryKeyColumnNames, "t", "s");
+				sql.append(")");
+
+				if (!valueColumnNames.isEmpty()) {
+					sql.append(" when matched then update set ");
+					appendAssignments(sql, valueColumnNames, "s.");
+				}
+
+				sql.append(" when not matched then insert (").append(columnList);
+				sql.append(") values (").append(sColumnList).append(")");
+
+				if (dialect == Dialect.SQLSERVER) {
+					sql.append(";");
+				}
+
+				return new String[] {sql.toString()};
+
+			case MYSQL:
+				appendInsertSelect(sql, tableName, stagingTableName, columnList, sColumnList);
+				sql.append(" on duplicate key update ");
+
+				if (valueColumnNames.isEmpty()) {
+					sql.append(primaryKeyColumnNames[0]).append(" = ");
+					sql.append(tableName).append(".").append(primaryKeyColumnNames[0]);
+				} else {
+					appendAssignments(sql, valueColumnNames, "s.");
+				}
+
+				return new String[] {sql.toString()};
+
+			case POSTGRESQL:
+				appendInsertSelect(sql, tableName, stagingTableName, columnList, sColumnList);
+				sql.append(" on conflict (");
+				sql.append(StringUtils.join(primaryKeyColumnNames, ", "));
+				sql.append(")");
+
+				if (valueColumnNames.isEmpty()) {
+					sql.append(" do nothing");
+				} else {
+					sql.append(" do update set ");
+					appendAssignments(sql, valueColumnNames, "excluded.");
+				}
+
+				return new String[] {sql.toString()};
+
+			default:
+				List<String> sqls = new ArrayList<String>();
+
+				if (!valueColumnNames.isEmpty()) {
+					// 主キーが一致する行を、ステージングテーブルの値で更新
+					sql.append("update ").append(tableName).append(" set ");
+
+					for (int i = 0; i < valueColumnNames.size(); i++) {
+						if (i != 0) {
+							sql.append(", ");
+						}
+
+						sql.append(valueColumnNames.get(i)).append(" = (select s.");
+						sql.append(valueColumnNames.get(i)).append(" from ");
+						sql.append(stagingTableName).append(" s where ");
+						appendKeyCondition(sql, primaryKeyColumnNames, "s", tableName);
+						sql.append(")");
+					}
+
+					sql.append(" where exists (select 1 from ").append(stagingTableName);
+					sql.append(" s where ");
+					appendKeyCondition(sql, primaryKeyColumnNames, "s", tableName);
+					sql.append(")");
+
+					sqls.add(sql.toString());
+					sql.setLength(0);
+				}
+
+				// 主キーが一致する行がないものを挿入
+				appendInsertSelect(sql, tableName, stagingTableName, columnList, sColumnList);
+				sql.append(" where not exists (select 1 from ").append(tableName);
+				sql.append(" t where ");
+				appendKeyCondition(sql, primaryKeyColumnNames, "t", "s");
+				sql.append(")");
+
+				sqls.add(sql.toString());
+
+				return sqls.toArray(new String[sqls.size()]);
+		}
+	}
+
+	private static void appendInsertSelect(
+			StringBuilder sql,
+			String tableName,
+			String stagingTableName,
+			String columnList,
+			String sColumnList) {
+
+		sql.append("insert into ").append(tableName).append(" (").append(columnList);
+		sql.append(") select ").append(sColumnList).append(" from ");
+		sql.append(stagingTableName).append(" s");
+	}
+
+	private static void appendKeyCondition(
+			StringBuilder sql, String[] primaryKeyColumnNames, String left, String right) {
+
+		for (int i = 0; i < primaryKeyColumnNames.length; i++) {
+			if (i != 0) {
+				sql.append(" and ");
+			}
+
+			sql.append(left).append(".").append(primaryKeyColumnNames[i]);
+			sql.append(" = ");
+			sql.append(right).append(".").append(primaryKeyColumnNames[i]);
+		}
+	}
+
+	private static void appendAssignments(
+			StringBuilder sql, List<String> columnNames, String valuePrefix) {
+
+		for (int i = 0; i < columnNames.size(); i++) {
+			if (i != 0) {
+				sql.append(", ");
+			}
+
+			sql.append(columnNames.get(i)).append(" = ").append(valuePrefix);
+			sql.append(columnNames.get(i));
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package net.mikaboshi.jdbc;
 
+import java.sql.Blob;
+import java.sql.Clob;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
@@ -16,12 +18,14 @@ import org.apache.commons.lang.StringUtils;
  * </p><p>
  * 例えば、BLOB型のtoString()でバイナリダンプを出力するようなJDBCの実装があった場合、
  * 大量の文字列が出力される可能性があることに注意すること。
+ * </p><p>
+ * {@link DeferredFormatter} を実装するので、値の取得と文字列への変換を別のスレッドで行える。
  * </p>
  * 
  * @author Takuma Umezawa
  *
  */
-public class SimpleFormatter implements ResultDataFormatter {
+public class SimpleFormatter implements DeferredFormatter {
 
 	/* (非 Javadoc)
 	 * @see net.mikaboshi.jdbc.ResultDataFormatter#format(java.sql.ResultSet, int, int)
@@ -29,13 +33,39 @@ public class SimpleFormatter implements ResultDataFormatter {
 	public String format(ResultSet rs, int columnIndex, int columnType)
 			throws SQLException {
 		
+		return formatValue(getValue(rs, columnIndex, columnType), columnType);
+	}
+	
+	/**
+	 * ResultSet#getObject() の値を返す。
+	 * LOBの場合は、ResultSetが進むと参照できなくなるため、文字列に変換して返す。
+	 * 
+	 * @since 1.1.10
+	 */
+	public Object getValue(ResultSet rs, int columnIndex, int columnType)
+			throws SQLException {
+		
 		Object data = rs.getObject(columnIndex);
 		
-		if (data == null) {
+		if (data instanceof Blob || data instanceof Clob) {
+			return data.toString();
+		}
+		
+		return data;
+	}
+	
+	/**
+	 * nullの場合は空文字（{@link #setNullString(String)} で設定した文字列）、
+	 * それ以外の場合は toString() の値を返す。
+	 * 
+	 * @since 1.1.10
+	 */
+	public String formatValue(Object value, int columnType) {
+		if (value == null) {
 			return getNullString();
 		}
 		
-		return rs.getObject(columnIndex).toString();
+		return value.toString();
 	}
 	
 	private String nullString = StringUtils.EMPTY;
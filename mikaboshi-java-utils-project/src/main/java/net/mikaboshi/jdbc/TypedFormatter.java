@@ -0,0 +1,274 @@
+package net.mikaboshi.jdbc;
+
+import java.math.BigDecimal;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+/**
+ * <p>
+ * ResultSet を、カラムのデータ型に応じた getXxx メソッドで取得してフォーマットする。
+ * </p><p>
+ * 出力する文字列は {@link SimpleFormatter} と同じ（nullの場合は空文字、
+ * それ以外は値の toString()）だが、ResultSetごとに最初の1回だけメタ情報を参照して
+ * カラムごとの取得処理を決定し、全ての行で再利用する。
+ * 整数型は {@link ResultSet#getLong(int)}、浮動小数点数型は {@link ResultSet#getDouble(int)}
+ * のようにプリミティブ型で取得し、{@link ResultSet#wasNull()} でnullを判定するので、
+ * 値ごとのラッパーオブジェクトの生成を行わない。
+ * </p><p>
+ * DATE, TIME, BIT型や、符号なしのBIGINT型、LOBなど、上記以外の型は
+ * {@link SimpleFormatter} と同じく ResultSet#getObject() で取得する。
+ * </p><p>
+ * <i>(注意)このクラスのインスタンスは非同期である。</i>
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public class TypedFormatter extends SimpleFormatter {
+
+	/** カラムごとの取得処理を決定した ResultSet */
+	private ResultSet preparedResultSet;
+
+	/** カラムごとの取得処理（0から始まる） */
+	private ColumnAccessor[] accessors = new ColumnAccessor[0];
+
+	/** {@link #prepare(ResultSetMetaData)} で生成した取得処理を、次の ResultSet に使用する場合にtrue */
+	private boolean prepared = false;
+
+	/* (非 Javadoc)
+	 * @see net.mikaboshi.jdbc.SimpleFormatter#format(java.sql.ResultSet, int, int)
+	 */
+	@Override
+	public String format(ResultSet rs, int columnIndex, int columnType)
+			throws SQLException {
+
+		String value = getAccessor(rs, columnIndex).format(rs, columnIndex);
+
+		return value == null ? getNullString() : value;
+	}
+
+	/**
+	 * カラムのデータ型に応じた getXxx メソッドで取得した値を返す。
+	 * LOBの場合は、ResultSetが進むと参照できなくなるため、文字列に変換して返す。
+	 */
+	@Override
+	public Object getValue(ResultSet rs, int columnIndex, int columnType)
+			throws SQLException {
+
+		return getAccessor(rs, columnIndex).getValue(rs, columnIndex);
+	}
+
+	/**
+	 * <p>
+	 * メタ情報から、カラムごとの取得処理を生成する。
+	 * 生成した取得処理は、次にフォーマットする ResultSet に使用する。
+	 * </p><p>
+	 * 呼び出さなかった場合は、ResultSetごとに最初にフォーマットする際に、
+	 * ResultSet#getMetaData() で取得したメタ情報から生成する。
+	 * </p>
+	 *
+	 * @param meta
+	 * @throws SQLException
+	 */
+	public void prepare(ResultSetMetaData meta) throws SQLException {
+		int columnCount = meta.getColumnCount();
+
+		this.accessors = new ColumnAccessor[columnCount];
+
+		for (int i = 0; i < columnCount; i++) {
+			this.accessors[i] = createAccessor(meta, i + 1);
+		}
+
+		this.prepared = true;
+	}
+
+	private ColumnAccessor getAccessor(ResultSet rs, int columnIndex) throws SQLException {
+		if (rs != this.preparedResultSet || columnIndex > this.accessors.length) {
+			if (!this.prepared || columnIndex > this.accessors.length) {
+				prepare(rs.getMetaData());
+			}
+
+			this.prepared = false;
+			this.preparedResultSet = rs;
+		}
+
+		return this.accessors[columnIndex - 1];
+	}
+
+	private static ColumnAccessor createAccessor(ResultSetMetaData meta, int column)
+			throws SQLException {
+
+		switch (meta.getColumnType(column)) {
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+				return LONG;
+
+			case Types.BIGINT:
+				// 符号なしの場合は、longの範囲を超えることがある
+				return meta.isSigned(column) ? LONG : OBJECT;
+
+			case Types.FLOAT:
+			case Types.DOUBLE:
+				return DOUBLE;
+
+			case Types.NUMERIC:
+			case Types.DECIMAL:
+				return DECIMAL;
+
+			case Types.CHAR:
+			case Types.VARCHAR:
+			case Types.LONGVARCHAR:
+			case Types.NCHAR:
+			case Types.NVARCHAR:
+			case Types.LONGNVARCHAR:
+				return STRING;
+
+			case Types.TIMESTAMP:
+				return TIMESTAMP;
+
+			case Types.BOOLEAN:
+				return BOOLEAN;
+
+			// REALを倍精度で保持するドライバ（HSQLDB等）があるので、getFloatで取得すると
+			// 精度が落ちる。getObjectが返す型のまま変換する。
+			case Types.REAL:
+			default:
+				return OBJECT;
+		}
+	}
+
+	/**
+	 * 1つのカラムの取得処理。
+	 */
+	private static abstract class ColumnAccessor {
+
+		/**
+		 * 値を文字列に変換して返す。nullの場合はnullを返す。
+		 */
+		abstract String format(ResultSet rs, int columnIndex) throws SQLException;
+
+		/**
+		 * ResultSetが進んだ後も参照できる値を返す。
+		 */
+		abstract Object getValue(ResultSet rs, int columnIndex) throws SQLException;
+	}
+
+	/** TINYINT, SMALLINT, INTEGER, BIGINT */
+	private static final ColumnAccessor LONG = new ColumnAccessor() {
+
+		@Override
+		String format(ResultSet rs, int columnIndex) throws SQLException {
+			long value = rs.getLong(columnIndex);
+			return rs.wasNull() ? null : Long.toString(value);
+		}
+
+		@Override
+		Object getValue(ResultSet rs, int columnIndex) throws SQLException {
+			long value = rs.getLong(columnIndex);
+			return rs.wasNull() ? null : Long.valueOf(value);
+		}
+	};
+
+	/** FLOAT, DOUBLE */
+	private static final ColumnAccessor DOUBLE = new ColumnAccessor() {
+
+		@Override
+		String format(ResultSet rs, int columnIndex) throws SQLException {
+			double value = rs.getDouble(columnIndex);
+			return rs.wasNull() ? null : Double.toString(value);
+		}
+
+		@Override
+		Object getValue(ResultSet rs, int columnIndex) throws SQLException {
+			double value = rs.getDouble(columnIndex);
+			return rs.wasNull() ? null : Double.valueOf(value);
+		}
+	};
+
+	/** NUMERIC, DECIMAL */
+	private static final ColumnAccessor DECIMAL = new ColumnAccessor() {
+
+		@Override
+		String format(ResultSet rs, int columnIndex) throws SQLException {
+			BigDecimal value = rs.getBigDecimal(columnIndex);
+			return value == null ? null : value.toString();
+		}
+
+		@Override
+		Object getValue(ResultSet rs, int columnIndex) throws SQLException {
+			return rs.getBigDecimal(columnIndex);
+		}
+	};
+
+	/** 文字列型 */
+	private static final ColumnAccessor STRING = new ColumnAccessor() {
+
+		@Override
+		String format(ResultSet rs, int columnIndex) throws SQLException {
+			return rs.getString(columnIndex);
+		}
+
+		@Override
+		Object getValue(ResultSet rs, int columnIndex) throws SQLException {
+			return rs.getString(columnIndex);
+		}
+	};
+
+	/** TIMESTAMP */
+	private static final ColumnAccessor TIMESTAMP = new ColumnAccessor() {
+
+		@Override
+		String format(ResultSet rs, int columnIndex) throws SQLException {
+			Timestamp value = rs.getTimestamp(columnIndex);
+			return value == null ? null : value.toString();
+		}
+
+		@Override
+		Object getValue(ResultSet rs, int columnIndex) throws SQLException {
+			return rs.getTimestamp(columnIndex);
+		}
+	};
+
+	/** BOOLEAN */
+	private static final ColumnAccessor BOOLEAN = new ColumnAccessor() {
+
+		@Override
+		String format(ResultSet rs, int columnIndex) throws SQLException {
+			boolean value = rs.getBoolean(columnIndex);
+			return rs.wasNull() ? null : String.valueOf(value);
+		}
+
+		@Override
+		Object getValue(ResultSet rs, int columnIndex) throws SQLException {
+			boolean value = rs.getBoolean(columnIndex);
+			return rs.wasNull() ? null : Boolean.valueOf(value);
+		}
+	};
+
+	/** その他の型（SimpleFormatterと同じく getObject で取得する） */
+	private static final ColumnAccessor OBJECT = new ColumnAccessor() {
+
+		@Override
+		String format(ResultSet rs, int columnIndex) throws SQLException {
+			Object value = rs.getObject(columnIndex);
+			return value == null ? null : value.toString();
+		}
+
+		@Override
+		Object getValue(ResultSet rs, int columnIndex) throws SQLException {
+			Object value = rs.getObject(columnIndex);
+
+			if (value instanceof Blob || value instanceof Clob) {
+				return value.toString();
+			}
+
+			return value;
+		}
+	};
+}
@@ -0,0 +1,202 @@
+package net.mikaboshi.jdbc.bulk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Wrapper;
+import java.util.List;
+
+import net.mikaboshi.jdbc.schema.ColumnInfo;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * <p>
+ * {@link BulkLoader} の実装の基底クラス。
+ * </p><p>
+ * DBの製品名（{@link java.sql.DatabaseMetaData#getDatabaseProductName()}）の前方一致で、
+ * 対象のDBを判定する。
+ * JDBCドライバのクラスは、コンパイル時に依存しないように、コネクションのクラスローダーから
+ * リフレクションで使用する。
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public abstract class AbstractBulkLoader implements BulkLoader {
+
+	private final String[] productNames;
+
+	/**
+	 * 対象のDBの製品名を指定するコンストラクタ。
+	 *
+	 * @param productNames 対象のDBの製品名（前方一致）
+	 */
+	protected AbstractBulkLoader(String... productNames) {
+		this.productNames = productNames;
+	}
+
+	/**
+	 * DBの製品名が対象と一致し、{@link #isAvailable(Connection)} がtrueを返す場合にtrueを返す。
+	 */
+	public boolean isSupported(Connection connection) throws SQLException {
+		String product = connection.getMetaData().getDatabaseProductName();
+
+		if (product == null) {
+			return false;
+		}
+
+		for (String name : this.productNames) {
+			if (product.startsWith(name)) {
+				return isAvailable(connection);
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * 対象のDBのコネクションで、一括ロードを実行できるかどうか判定する。
+	 * （JDBCドライバのクラスや、接続形態の判定）
+	 *
+	 * @param connection 対象のDBのコネクション
+	 * @return 実行できる場合はtrue
+	 * @throws SQLException
+	 */
+	protected abstract boolean isAvailable(Connection connection) throws SQLException;
+
+	/**
+	 * 一括ロードが、呼び出し元のトランザクションの中で実行されるかどうかを返す。
+	 * DDLの実行などにより、それまでのトランザクションがコミットされる場合はfalseを返す。
+	 *
+	 * @return トランザクションの中で実行される場合はtrue（デフォルトはtrue）
+	 * @since 1.1.10
+	 */
+	public boolean isTransactional() {
+		return true;
+	}
+
+	/**
+	 * カラム名をカンマ区切りで連結する。
+	 *
+	 * @param columns
+	 * @return
+	 */
+	protected static String joinColumnNames(List<ColumnInfo> columns) {
+		StringBuilder sb = new StringBuilder();
+
+		for (ColumnInfo column : columns) {
+			if (sb.length() != 0) {
+				sb.append(", ");
+			}
+
+			sb.append(column.getColumnName());
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * JDBCドライバのクラスを、オブジェクト（コネクション等）のクラスローダーから読み込む。
+	 *
+	 * @param object JDBCドライバのオブジェクト
+	 * @param className 読み込むクラス名
+	 * @return 読み込んだクラス。見つからない場合はnull。
+	 */
+	protected static Class<?> loadDriverClass(Object object, String className) {
+		try {
+			return Class.forName(className, false, object.getClass().getClassLoader());
+		} catch (ClassNotFoundException e) {
+			return null;
+		} catch (LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * JDBCのオブジェクトを、指定されたクラスのインスタンスとして取り出す。
+	 *
+	 * @param object JDBCのオブジェクト（コネクション、ステートメント）
+	 * @param type 取り出すクラス
+	 * @return 取り出したオブジェクト
+	 * @throws SQLException 取り出せない場合
+	 */
+	protected static Object unwrap(Wrapper object, Class<?> type) throws SQLException {
+		if (type.isInstance(object)) {
+			return object;
+		}
+
+		if (object.isWrapperFor(type)) {
+			return object.unwrap(type);
+		}
+
+		throw new SQLException(object.getClass().getName() + " is not a wrapper for " + type.getName());
+	}
+
+	/**
+	 * JDBCドライバのメソッドを、リフレクションで呼び出す。
+	 *
+	 * @param method 呼び出すメソッド
+	 * @param target 呼び出すオブジェクト（staticメソッドの場合はnull）
+	 * @param args 引数
+	 * @return メソッドの戻り値
+	 * @throws SQLException メソッドがSQLExceptionをスローした場合、または呼び出しに失敗した場合
+	 * @throws IOException メソッドがIOExceptionをスローした場合
+	 */
+	protected static Object invoke(Method method, Object target, Object... args)
+			throws SQLException, IOException {
+
+		try {
+			return method.invoke(target, args);
+
+		} catch (InvocationTargetException e) {
+			Throwable cause = e.getCause();
+
+			if (cause instanceof SQLException) {
+				throw (SQLException) cause;
+			}
+
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+
+			throw new SQLException(String.valueOf(cause), cause);
+
+		} catch (IllegalAccessException e) {
+			throw new SQLException(e.toString(), e);
+		}
+	}
+
+	/**
+	 * 行データのCSVを、ファイルに書き込む。
+	 *
+	 * @param in 行データのCSV
+	 * @param file 書き込むファイル
+	 * @return 書き込んだ行数
+	 * @throws IOException
+	 */
+	protected static long writeFile(CSVRowInputStream in, File file) throws IOException {
+		OutputStream out = FileUtils.openOutputStream(file);
+
+		try {
+			IOUtils.copy(in, out);
+		} finally {
+			IOUtils.closeQuietly(out);
+		}
+
+		return in.getRowCount();
+	}
+}
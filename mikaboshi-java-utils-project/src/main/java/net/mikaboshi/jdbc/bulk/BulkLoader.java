@@ -0,0 +1,55 @@
+package net.mikaboshi.jdbc.bulk;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+
+import net.mikaboshi.jdbc.schema.ColumnInfo;
+
+/**
+ * <p>
+ * DB製品固有の一括ロードの機能（PostgreSQLのCOPY、MySQLのLOAD DATA等）で、
+ * 行データをテーブルにインポートする。
+ * </p><p>
+ * 実装クラスは、{@link BulkLoaders#getBulkLoader(Connection)} により、
+ * {@link #isSupported(Connection)} がtrueを返すものが選択される。
+ * 組み込みの実装の他に、{@link java.util.ServiceLoader} の仕組み
+ * （META-INF/services/net.mikaboshi.jdbc.bulk.BulkLoader）で実装クラスを追加できる。
+ * </p><p>
+ * 実装クラスは、引数なしのコンストラクタを持ち、複数のスレッドで共有できなければならない。
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public interface BulkLoader {
+
+	/**
+	 * 指定されたコネクションで、一括ロードを実行できるかどうか判定する。
+	 *
+	 * @param connection 接続済みのDBコネクション
+	 * @return 実行できる場合はtrue
+	 * @throws SQLException
+	 */
+	boolean isSupported(Connection connection) throws SQLException;
+
+	/**
+	 * 行データを一括ロードする。コミットは行わない。
+	 *
+	 * @param connection 接続済みのDBコネクション
+	 * @param tableName インポート先のテーブル名
+	 * @param columns インポートするカラムの情報（行データの値の順）
+	 * @param rows 行データ。値がnullの要素はnullとしてインポートする。
+	 * @return インポートした件数
+	 * @throws SQLException
+	 * @throws IOException 行データの変換、または一時ファイルの書き込みに失敗した場合
+	 */
+	long load(
+			Connection connection,
+			String tableName,
+			List<ColumnInfo> columns,
+			Iterator<String[]> rows)
+		throws SQLException, IOException;
+}
@@ -0,0 +1,71 @@
+package net.mikaboshi.jdbc.bulk;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ServiceLoader;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * {@link BulkLoader} の実装を選択するユーティリティクラス。
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public final class BulkLoaders {
+
+	private BulkLoaders() {}
+
+	private static Log logger = LogFactory.getLog(BulkLoaders.class);
+
+	/** 組み込みの実装 */
+	private static final BulkLoader[] BUILT_IN_LOADERS = {
+		new PostgreSQLBulkLoader(),
+		new MySQLBulkLoader(),
+		new H2BulkLoader(),
+		new HSQLDBBulkLoader()
+	};
+
+	/**
+	 * <p>
+	 * 指定されたコネクションで使用できる {@link BulkLoader} を返す。
+	 * </p><p>
+	 * {@link java.util.ServiceLoader} で登録された実装を、組み込みの実装
+	 * （{@link PostgreSQLBulkLoader}, {@link MySQLBulkLoader}, {@link H2BulkLoader},
+	 * {@link HSQLDBBulkLoader}）より優先する。
+	 * </p>
+	 *
+	 * @param connection 接続済みのDBコネクション
+	 * @return 使用できるBulkLoader。ない場合はnull。
+	 * @throws SQLException
+	 */
+	public static BulkLoader getBulkLoader(Connection connection) throws SQLException {
+		for (BulkLoader loader : ServiceLoader.load(BulkLoader.class)) {
+			if (loader.isSupported(connection)) {
+				return found(loader);
+			}
+		}
+
+		for (BulkLoader loader : BUILT_IN_LOADERS) {
+			if (loader.isSupported(connection)) {
+				return found(loader);
+			}
+		}
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("bulk loader not found: "
+					+ connection.getMetaData().getDatabaseProductName());
+		}
+
+		return null;
+	}
+
+	private static BulkLoader found(BulkLoader loader) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("bulk loader: " + loader.getClass().getName());
+		}
+
+		return loader;
+	}
+}
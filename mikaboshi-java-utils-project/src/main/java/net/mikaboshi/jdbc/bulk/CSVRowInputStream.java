@@ -0,0 +1,167 @@
+package net.mikaboshi.jdbc.bulk;
+
+import static net.mikaboshi.validator.SimpleValidator.validateNotNull;
+import static net.mikaboshi.validator.SimpleValidator.validatePositive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * <p>
+ * 行データを、一括ロード用のCSV（UTF-8）として読み込む入力ストリーム。
+ * </p><p>
+ * 値は全て引用符（"）で囲み、値の中の引用符は2つ重ねる。
+ * nullの値は、引用符で囲まずに、指定された文字列を出力する。
+ * 行の区切りはLFとする。
+ * 行データは、ストリームの読み込みに応じて必要な分だけ取得する。
+ * </p><p>
+ * <i>(注意)このクラスのインスタンスは非同期である。</i>
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public class CSVRowInputStream extends InputStream {
+
+	/** 文字セット */
+	public static final String CHARSET = "UTF-8";
+
+	/** 一度に変換する文字数の目安 */
+	private static final int CHUNK_SIZE = 8192;
+
+	private final Iterator<String[]> rows;
+
+	private final int columnCount;
+
+	private final String nullValue;
+
+	private final StringBuilder chunk = new StringBuilder();
+
+	private byte[] buffer = new byte[0];
+
+	private int position = 0;
+
+	private long rowCount = 0L;
+
+	/**
+	 * @param rows 行データ
+	 * @param columnCount 1行の値の数
+	 * @param nullValue nullの値を表す文字列（引用符で囲まずに出力する）
+	 * @throws NullPointerException rows, nullValueがnullの場合
+	 * @throws IllegalArgumentException columnCountが1未満の場合
+	 */
+	public CSVRowInputStream(Iterator<String[]> rows, int columnCount, String nullValue) {
+		validateNotNull(rows, "rows", NullPointerException.class);
+		validatePositive(columnCount, "columnCount", IllegalArgumentException.class);
+		validateNotNull(nullValue, "nullValue", NullPointerException.class);
+
+		this.rows = rows;
+		this.columnCount = columnCount;
+		this.nullValue = nullValue;
+	}
+
+	/**
+	 * これまでに読み込んだ（変換した）行数を返す。
+	 * @return
+	 */
+	public long getRowCount() {
+		return this.rowCount;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!fill()) {
+			return -1;
+		}
+
+		return this.buffer[this.position++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+
+		if (!fill()) {
+			return -1;
+		}
+
+		int n = Math.min(len, this.buffer.length - this.position);
+		System.arraycopy(this.buffer, this.position, b, off, n);
+		this.position += n;
+
+		return n;
+	}
+
+	@Override
+	public int available() {
+		return this.buffer.length - this.position;
+	}
+
+	/**
+	 * バッファが空の場合は、次の行データを変換する。
+	 *
+	 * @return 読み込むデータがある場合はtrue
+	 */
+	private boolean fill() throws IOException {
+		if (this.position < this.buffer.length) {
+			return true;
+		}
+
+		this.chunk.setLength(0);
+
+		while (this.chunk.length() < CHUNK_SIZE && this.rows.hasNext()) {
+			appendRow(this.rows.next());
+		}
+
+		if (this.chunk.length() == 0) {
+			return false;
+		}
+
+		this.buffer = this.chunk.toString().getBytes(CHARSET);
+		this.position = 0;
+
+		return true;
+	}
+
+	private void appendRow(String[] row) throws IOException {
+		this.rowCount++;
+
+		if (row.length != this.columnCount) {
+			throw new IOException(String.format(
+					"number of values is %d, but %d columns expected (row %d)",
+					row.length, this.columnCount, this.rowCount));
+		}
+
+		for (int i = 0; i < row.length; i++) {
+			if (i != 0) {
+				this.chunk.append(',');
+			}
+
+			String value = row[i];
+
+			if (value == null) {
+				this.chunk.append(this.nullValue);
+				continue;
+			}
+
+			this.chunk.append('"');
+
+			for (int j = 0, length = value.length(); j < length; j++) {
+				char c = value.charAt(j);
+
+				if (c == '"') {
+					this.chunk.append('"');
+				}
+
+				this.chunk.append(c);
+			}
+
+			this.chunk.append('"');
+		}
+
+		this.chunk.append('\n');
+	}
+}
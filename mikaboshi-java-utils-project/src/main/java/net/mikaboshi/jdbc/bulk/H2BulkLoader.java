@@ -0,0 +1,93 @@
+package net.mikaboshi.jdbc.bulk;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+
+import net.mikaboshi.jdbc.DbUtils;
+import net.mikaboshi.jdbc.schema.ColumnInfo;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * <p>
+ * H2のCSVREAD関数で一括ロードする。
+ * </p><p>
+ * 行データはCSV形式の一時ファイルに書き込み、
+ * {@code INSERT INTO ... SELECT * FROM CSVREAD(...)} で読み込む。
+ * nullの値は、引用符で囲まない空文字列として書き込む。
+ * </p><p>
+ * 一時ファイルをDBから読み込むため、組み込みモードの接続（URLが jdbc:h2:tcp: 、
+ * jdbc:h2:ssl: 以外）のみをサポートする。
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public class H2BulkLoader extends AbstractBulkLoader {
+
+	private static Log logger = LogFactory.getLog(H2BulkLoader.class);
+
+	public H2BulkLoader() {
+		super("H2");
+	}
+
+	@Override
+	protected boolean isAvailable(Connection connection) throws SQLException {
+		String url = connection.getMetaData().getURL();
+
+		return url != null
+				&& !url.startsWith("jdbc:h2:tcp:")
+				&& !url.startsWith("jdbc:h2:ssl:");
+	}
+
+	public long load(
+			Connection connection,
+			String tableName,
+			List<ColumnInfo> columns,
+			Iterator<String[]> rows)
+		throws SQLException, IOException {
+
+		File file = File.createTempFile("bulk", ".csv");
+
+		try {
+			if (writeFile(new CSVRowInputStream(rows, columns.size(), ""), file) == 0L) {
+				return 0L;
+			}
+
+			String columnNames = joinColumnNames(columns);
+
+			// カラム名を指定すると、1行目をヘッダーとして扱わない
+			String sql = "insert into " + tableName + " (" + columnNames + ")"
+					+ " select * from csvread(?, ?, ?)";
+
+			if (logger.isDebugEnabled()) {
+				logger.debug(sql + " : " + file.getAbsolutePath());
+			}
+
+			PreparedStatement pstmt = null;
+
+			try {
+				pstmt = connection.prepareStatement(sql);
+				pstmt.setString(1, file.getAbsolutePath());
+				pstmt.setString(2, columnNames.replace(", ", ","));
+				pstmt.setString(3, "charset=" + CSVRowInputStream.CHARSET);
+
+				return pstmt.executeUpdate();
+
+			} finally {
+				DbUtils.closeQuietly(pstmt);
+			}
+
+		} finally {
+			if (!file.delete()) {
+				file.deleteOnExit();
+			}
+		}
+	}
+}
@@ -0,0 +1,199 @@
+package net.mikaboshi.jdbc.bulk;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.List;
+
+import net.mikaboshi.jdbc.DbUtils;
+import net.mikaboshi.jdbc.schema.ColumnInfo;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * <p>
+ * HSQLDBのテキストテーブルで一括ロードする。
+ * </p><p>
+ * 行データはCSV形式の一時ファイルとしてDBのディレクトリに書き込み、
+ * そのファイルをソースとするテキストテーブルを作成して、
+ * {@code INSERT INTO ... SELECT} でインポート先のテーブルに挿入する。
+ * nullの値は、引用符で囲まない空文字列として書き込む。
+ * テキストテーブルと一時ファイルは、挿入後に削除する。
+ * </p><p>
+ * テキストテーブルはファイルのDBでのみ作成できるため、URLが
+ * jdbc:hsqldb:file: （またはプロトコルの指定なし）の接続のみをサポートする。
+ * </p><p>
+ * <i>(注意)HSQLDB 1.8では、テキストテーブルの作成・削除（DDL）により、
+ * それまでのトランザクションがコミットされる。</i>
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public class HSQLDBBulkLoader extends AbstractBulkLoader {
+
+	private static Log logger = LogFactory.getLog(HSQLDBBulkLoader.class);
+
+	private static final String URL_PREFIX = "jdbc:hsqldb:";
+
+	/** ファイル以外のDBのプロトコル */
+	private static final String[] NON_FILE_PROTOCOLS = {
+		"mem:", "res:", "hsql:", "hsqls:", "http:", "https:"
+	};
+
+	public HSQLDBBulkLoader() {
+		super("HSQL Database Engine");
+	}
+
+	@Override
+	protected boolean isAvailable(Connection connection) throws SQLException {
+		return getDatabaseDirectory(connection.getMetaData().getURL()) != null;
+	}
+
+	/**
+	 * テキストテーブルの作成・削除でコミットされるので、falseを返す。
+	 */
+	@Override
+	public boolean isTransactional() {
+		return false;
+	}
+
+	/**
+	 * URLから、DBのファイルがあるディレクトリを取得する。
+	 *
+	 * @param url DBのURL
+	 * @return DBのディレクトリ。ファイルのDBでない場合はnull。
+	 */
+	static File getDatabaseDirectory(String url) {
+		if (url == null || !url.startsWith(URL_PREFIX)) {
+			return null;
+		}
+
+		String path = url.substring(URL_PREFIX.length());
+
+		for (String protocol : NON_FILE_PROTOCOLS) {
+			if (path.startsWith(protocol)) {
+				return null;
+			}
+		}
+
+		if (path.startsWith("file:")) {
+			path = path.substring("file:".length());
+		}
+
+		// 接続プロパティを除く
+		int semicolon = path.indexOf(';');
+
+		if (semicolon != -1) {
+			path = path.substring(0, semicolon);
+		}
+
+		if (path.length() == 0) {
+			return null;
+		}
+
+		return new File(path).getAbsoluteFile().getParentFile();
+	}
+
+	public long load(
+			Connection connection,
+			String tableName,
+			List<ColumnInfo> columns,
+			Iterator<String[]> rows)
+		throws SQLException, IOException {
+
+		File directory = getDatabaseDirectory(connection.getMetaData().getURL());
+
+		if (directory == null) {
+			throw new SQLException("Text tables are not supported: " + connection.getMetaData().getURL());
+		}
+
+		// テキストテーブルのソースは、DBのディレクトリからの相対パスで指定する
+		File file = File.createTempFile("bulk", ".csv", directory);
+
+		try {
+			if (writeFile(new CSVRowInputStream(rows, columns.size(), ""), file) == 0L) {
+				return 0L;
+			}
+
+			String stagingTableName = "STG_" + file.getName()
+					.substring(0, file.getName().indexOf('.')).toUpperCase();
+
+			Statement stmt = null;
+
+			try {
+				stmt = connection.createStatement();
+
+				execute(stmt, createTextTableSql(stagingTableName, columns));
+
+				try {
+					execute(stmt, "set table " + stagingTableName + " source \""
+							+ file.getName() + ";encoding=" + CSVRowInputStream.CHARSET + "\"");
+
+					String columnNames = joinColumnNames(columns);
+
+					String sql = "insert into " + tableName + " (" + columnNames + ")"
+							+ " select " + columnNames + " from " + stagingTableName;
+
+					if (logger.isDebugEnabled()) {
+						logger.debug(sql);
+					}
+
+					return stmt.executeUpdate(sql);
+
+				} finally {
+					try {
+						execute(stmt, "drop table " + stagingTableName);
+					} catch (SQLException e) {
+						logger.warn("drop table failed: " + stagingTableName, e);
+					}
+				}
+
+			} finally {
+				DbUtils.closeQuietly(stmt);
+			}
+
+		} finally {
+			if (!file.delete()) {
+				file.deleteOnExit();
+			}
+		}
+	}
+
+	/**
+	 * 全てのカラムを文字列型とするテキストテーブルのCREATE文を生成する。
+	 * （値の変換は、INSERT時にHSQLDBが行う）
+	 */
+	private static String createTextTableSql(String stagingTableName, List<ColumnInfo> columns) {
+		StringBuilder sql = new StringBuilder();
+
+		sql.append("create text table ");
+		sql.append(stagingTableName);
+		sql.append(" (");
+
+		for (int i = 0; i < columns.size(); i++) {
+			if (i != 0) {
+				sql.append(", ");
+			}
+
+			sql.append(columns.get(i).getColumnName());
+			sql.append(" varchar");
+		}
+
+		sql.append(")");
+
+		return sql.toString();
+	}
+
+	private static void execute(Statement stmt, String sql) throws SQLException {
+		if (logger.isDebugEnabled()) {
+			logger.debug(sql);
+		}
+
+		stmt.execute(sql);
+	}
+}
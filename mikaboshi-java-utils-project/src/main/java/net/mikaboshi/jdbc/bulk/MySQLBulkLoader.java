@@ -0,0 +1,104 @@
+package net.mikaboshi.jdbc.bulk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.List;
+
+import net.mikaboshi.jdbc.DbUtils;
+import net.mikaboshi.jdbc.schema.ColumnInfo;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * <p>
+ * MySQL（MariaDB）のLOAD DATA LOCAL INFILEで一括ロードする。
+ * </p><p>
+ * 行データはCSV形式に変換し、JDBCドライバのステートメントの
+ * {@code setLocalInfileInputStream(InputStream)} で、一時ファイルを作成せずに送信する。
+ * nullの値は、引用符で囲まない NULL として送信する。
+ * </p><p>
+ * サーバーとJDBCドライバで、LOCAL INFILEが許可されている必要がある。
+ * （Connector/Jの場合は、接続プロパティ allowLoadLocalInfile=true）
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public class MySQLBulkLoader extends AbstractBulkLoader {
+
+	private static Log logger = LogFactory.getLog(MySQLBulkLoader.class);
+
+	/** setLocalInfileInputStreamを持つ、ステートメントのクラス */
+	private static final String[] STATEMENT_CLASSES = {
+		"com.mysql.cj.jdbc.JdbcStatement",
+		"com.mysql.jdbc.Statement",
+		"org.mariadb.jdbc.MariaDbStatement"
+	};
+
+	public MySQLBulkLoader() {
+		super("MySQL", "MariaDB");
+	}
+
+	@Override
+	protected boolean isAvailable(Connection connection) {
+		return getStatementClass(connection) != null;
+	}
+
+	public long load(
+			Connection connection,
+			String tableName,
+			List<ColumnInfo> columns,
+			Iterator<String[]> rows)
+		throws SQLException, IOException {
+
+		String sql = "load data local infile 'stream' into table " + tableName
+				+ " character set utf8mb4"
+				+ " fields terminated by ',' optionally enclosed by '\"' escaped by ''"
+				+ " lines terminated by '\\n'"
+				+ " (" + joinColumnNames(columns) + ")";
+
+		if (logger.isDebugEnabled()) {
+			logger.debug(sql);
+		}
+
+		Class<?> statementClass = getStatementClass(connection);
+
+		if (statementClass == null) {
+			throw new SQLException("MySQL JDBC driver (setLocalInfileInputStream) is not available.");
+		}
+
+		Statement stmt = null;
+
+		try {
+			stmt = connection.createStatement();
+
+			invoke(statementClass.getMethod("setLocalInfileInputStream", InputStream.class),
+					unwrap(stmt, statementClass),
+					new CSVRowInputStream(rows, columns.size(), "NULL"));
+
+			return stmt.executeUpdate(sql);
+
+		} catch (NoSuchMethodException e) {
+			throw new SQLException(e.toString(), e);
+		} finally {
+			DbUtils.closeQuietly(stmt);
+		}
+	}
+
+	private static Class<?> getStatementClass(Connection connection) {
+		for (String className : STATEMENT_CLASSES) {
+			Class<?> c = loadDriverClass(connection, className);
+
+			if (c != null) {
+				return c;
+			}
+		}
+
+		return null;
+	}
+}
@@ -0,0 +1,86 @@
+package net.mikaboshi.jdbc.bulk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+
+import net.mikaboshi.jdbc.schema.ColumnInfo;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * <p>
+ * PostgreSQLのCOPY（FROM STDIN）で一括ロードする。
+ * </p><p>
+ * 行データはCSV形式に変換し、PostgreSQL JDBCドライバの
+ * {@code org.postgresql.copy.CopyManager} で、一時ファイルを作成せずに送信する。
+ * nullの値は、引用符で囲まない空文字列として送信する。
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public class PostgreSQLBulkLoader extends AbstractBulkLoader {
+
+	private static Log logger = LogFactory.getLog(PostgreSQLBulkLoader.class);
+
+	private static final String BASE_CONNECTION = "org.postgresql.core.BaseConnection";
+
+	private static final String COPY_MANAGER = "org.postgresql.copy.CopyManager";
+
+	public PostgreSQLBulkLoader() {
+		super("PostgreSQL");
+	}
+
+	@Override
+	protected boolean isAvailable(Connection connection) {
+		return loadDriverClass(connection, COPY_MANAGER) != null
+				&& loadDriverClass(connection, BASE_CONNECTION) != null;
+	}
+
+	public long load(
+			Connection connection,
+			String tableName,
+			List<ColumnInfo> columns,
+			Iterator<String[]> rows)
+		throws SQLException, IOException {
+
+		String sql = "copy " + tableName + " (" + joinColumnNames(columns) + ") from stdin with csv";
+
+		if (logger.isDebugEnabled()) {
+			logger.debug(sql);
+		}
+
+		Class<?> baseConnection = loadDriverClass(connection, BASE_CONNECTION);
+		Class<?> copyManager = loadDriverClass(connection, COPY_MANAGER);
+
+		if (baseConnection == null || copyManager == null) {
+			throw new SQLException("PostgreSQL JDBC driver (CopyManager) is not available.");
+		}
+
+		try {
+			Object manager = copyManager.getConstructor(baseConnection)
+					.newInstance(unwrap(connection, baseConnection));
+
+			return ((Number) invoke(
+					copyManager.getMethod("copyIn", String.class, InputStream.class),
+					manager,
+					sql,
+					new CSVRowInputStream(rows, columns.size(), ""))).longValue();
+
+		} catch (NoSuchMethodException e) {
+			throw new SQLException(e.toString(), e);
+		} catch (InstantiationException e) {
+			throw new SQLException(e.toString(), e);
+		} catch (IllegalAccessException e) {
+			throw new SQLException(e.toString(), e);
+		} catch (InvocationTargetException e) {
+			throw new SQLException(String.valueOf(e.getCause()), e.getCause());
+		}
+	}
+}
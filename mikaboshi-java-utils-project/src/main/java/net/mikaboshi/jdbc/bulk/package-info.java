@@ -0,0 +1,4 @@
+/**
+ * DB製品固有の一括ロードの機能で、データをインポートするクラスを提供する。
+ */
+package net.mikaboshi.jdbc.bulk;
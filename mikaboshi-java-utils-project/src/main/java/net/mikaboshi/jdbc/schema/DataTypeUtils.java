@@ -1,11 +1,12 @@
 package net.mikaboshi.jdbc.schema;
 
-import java.math.BigDecimal;
-import java.sql.Blob;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Types;
 
+import net.mikaboshi.csv.CSVColumnType;
+import net.mikaboshi.csv.TypedCSVReader;
+
 /**
  * SQLデータ型に関する処理を行うユーティリティクラス。
  * 
@@ -152,11 +153,20 @@ public class DataTypeUtils {
 	}
 	
 	/**
-	 * PreparedStatementオブジェクトにパラメータを設定する。
+	 * <p>
+	 * PreparedStatementオブジェクトに、1行分のパラメータを設定する。
+	 * </p><p>
+	 * 1行だけ設定する場合の簡易メソッドである。
+	 * 呼び出しごとに {@link ParameterBinder} を生成し、データ型ごとの設定処理を決め直すので、
+	 * 同じデータ型で複数の行を設定する場合は、このメソッドを行ごとに呼び出さずに、
+	 * ParameterBinder を1度だけ生成して {@link ParameterBinder#bind(PreparedStatement, Object[])}
+	 * を行ごとに呼び出すこと。
+	 * </p>
 	 * @param pstmt
 	 * @param rowData
 	 * @param types
 	 * @throws SQLException
+	 * @see ParameterBinder
 	 */
 	public static void setParameter(
 			final PreparedStatement pstmt,
@@ -167,57 +177,127 @@ public class DataTypeUtils {
 			throw new IllegalArgumentException("length of rowData and length of types are not match.");
 		}
 		
+		new ParameterBinder(types).bind(pstmt, rowData);
+	}
+	
+	/**
+	 * <p>
+	 * SQLデータ型（java.sql.Types）に対応する、{@link TypedCSVReader} の列の型を返す。
+	 * </p><p>
+	 * 数値型と日付・日時型以外は、{@link CSVColumnType#STRING} を返す。
+	 * </p>
+	 * 
+	 * @param type SQLデータ型（java.sql.Types）
+	 * @return CSVの列の型
+	 * @since 1.1.10
+	 */
+	public static CSVColumnType toCSVColumnType(int type) {
+		switch (type) {
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+				return CSVColumnType.INT;
+				
+			case Types.BIGINT:
+				return CSVColumnType.LONG;
+				
+			case Types.REAL:
+			case Types.FLOAT:
+			case Types.DOUBLE:
+				return CSVColumnType.DOUBLE;
+				
+			case Types.NUMERIC:
+			case Types.DECIMAL:
+				return CSVColumnType.DECIMAL;
+				
+			case Types.DATE:
+				return CSVColumnType.DATE;
+				
+			case Types.TIMESTAMP:
+				return CSVColumnType.TIMESTAMP;
+				
+			default:
+				return CSVColumnType.STRING;
+		}
+	}
+	
+	/**
+	 * SQLデータ型（java.sql.Types）の配列に対応する、{@link TypedCSVReader} の列の型の配列を返す。
+	 * 
+	 * @param types SQLデータ型（java.sql.Types）の配列
+	 * @return CSVの列の型の配列
+	 * @since 1.1.10
+	 */
+	public static CSVColumnType[] toCSVColumnTypes(int[] types) {
+		CSVColumnType[] result = new CSVColumnType[types.length];
+		
+		for (int i = 0; i < types.length; i++) {
+			result[i] = toCSVColumnType(types[i]);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * <p>
+	 * PreparedStatementオブジェクトに、{@link TypedCSVReader} の現在の行をパラメータとして設定する。
+	 * </p><p>
+	 * 数値・日付の列は、文字列を経由せずにプリミティブ値のまま設定する。
+	 * STRINGの列は、{@link #setParameter(PreparedStatement, Object[], int[])} と同様に
+	 * 文字列で設定する。
+	 * </p>
+	 * 
+	 * @param pstmt
+	 * @param row 現在の行を設定するTypedCSVReader
+	 * @param types パラメータのSQLデータ型（java.sql.Types）
+	 * @throws SQLException
+	 * @since 1.1.10
+	 */
+	public static void setParameter(
+			final PreparedStatement pstmt,
+			final TypedCSVReader row,
+			final int[] types) throws SQLException {
+		
 		pstmt.clearParameters();
 		
-		for (int i = 0; i < rowData.length; i++) {
-			if (rowData[i] instanceof BigDecimal) {
-				final BigDecimal dec = (BigDecimal) rowData[i];
-				
-				if (dec.scale() >= 0) {
-					pstmt.setObject(i + 1, rowData[i], types[i], dec.scale());
-					continue;
-				}
-			}
-			
-			if (rowData[i] instanceof Blob) {
-				Blob blob = (Blob) rowData[i];
-				pstmt.setBinaryStream(i + 1, blob.getBinaryStream(), (int) blob.length());
+		for (int i = 0; i < types.length; i++) {
+			if (row.isNull(i)) {
+				pstmt.setNull(i + 1, types[i]);
 				continue;
 			}
 			
-			if (rowData[i] instanceof String) {
-				
-				String data = (String) rowData[i];
-				
-				switch (types[i]) {
-					case Types.TINYINT:
-					case Types.SMALLINT:
-					case Types.INTEGER:
-						
-						pstmt.setInt(i + 1, new BigDecimal(data).intValue());
-						continue;
-						
-					case Types.BIGINT:
-						pstmt.setLong(i + 1, new BigDecimal(data).longValue());
-						continue;
-						
-					case Types.REAL:
-						pstmt.setFloat(i + 1, new BigDecimal(data).floatValue());
-						continue;
-						
-					case Types.FLOAT:
-					case Types.DOUBLE:
-						pstmt.setDouble(i + 1, new BigDecimal(data).doubleValue());
-						continue;
-						
-					case Types.NUMERIC:
-					case Types.DECIMAL:
-						pstmt.setBigDecimal(i + 1, new BigDecimal(data));
-						continue;
-				}
+			switch (row.getColumnType(i)) {
+				case INT:
+					pstmt.setInt(i + 1, row.getInt(i));
+					break;
+					
+				case LONG:
+					pstmt.setLong(i + 1, row.getLong(i));
+					break;
+					
+				case DOUBLE:
+					if (types[i] == Types.REAL) {
+						pstmt.setFloat(i + 1, (float) row.getDouble(i));
+					} else {
+						pstmt.setDouble(i + 1, row.getDouble(i));
+					}
+					break;
+					
+				case DECIMAL:
+					pstmt.setBigDecimal(i + 1, row.getDecimal(i));
+					break;
+					
+				case DATE:
+					pstmt.setDate(i + 1, row.getDate(i));
+					break;
+					
+				case TIMESTAMP:
+					pstmt.setTimestamp(i + 1, row.getTimestamp(i));
+					break;
+					
+				default:
+					pstmt.setObject(i + 1, row.getString(i), types[i]);
 			}
-			
-			pstmt.setObject(i + 1, rowData[i], types[i]);
 		}
 	}
 
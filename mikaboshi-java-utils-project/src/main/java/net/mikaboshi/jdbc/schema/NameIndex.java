@@ -0,0 +1,148 @@
+package net.mikaboshi.jdbc.schema;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * テーブル名・カラム名などの名前から、値を検索するハッシュ索引。
+ * </p><p>
+ * 名前そのままの索引と、大文字/小文字を区別しないように正規化した名前の索引を保持し、
+ * 名前の数に関わらず一定の時間で検索する。
+ * 大文字/小文字を区別しない検索では、名前が完全に一致するものを優先する。
+ * 大文字/小文字だけが異なる名前が複数ある場合は、先に追加したものを返す。
+ * </p><p>
+ * 大文字/小文字の区別は、{@link String#equalsIgnoreCase(String)} と同じ規則で判定する。
+ * </p><p>
+ * <i>(注意)このクラスのインスタンスは非同期である。
+ * 追加が完了した後は、複数のスレッドで検索のみを行うことができる。</i>
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ * @param <T> 値の型
+ */
+public class NameIndex<T> {
+
+	private final Map<String, T> exact;
+
+	private final Map<String, T> normalized;
+
+	/**
+	 * 空の索引を生成する。
+	 */
+	public NameIndex() {
+		this(16);
+	}
+
+	/**
+	 * 追加する名前の数の見込みを指定して、空の索引を生成する。
+	 *
+	 * @param expectedSize 追加する名前の数の見込み
+	 */
+	public NameIndex(int expectedSize) {
+		int capacity = Math.max(16, (int) (expectedSize / 0.75f) + 1);
+
+		this.exact = new HashMap<String, T>(capacity);
+		this.normalized = new HashMap<String, T>(capacity);
+	}
+
+	/**
+	 * 名前自体を値とする索引を生成する。
+	 *
+	 * @param names 名前
+	 * @return
+	 */
+	public static NameIndex<String> of(Collection<String> names) {
+		NameIndex<String> index = new NameIndex<String>(names.size());
+
+		for (String name : names) {
+			index.put(name, name);
+		}
+
+		return index;
+	}
+
+	/**
+	 * カラム名からカラム情報を検索する索引を生成する。
+	 *
+	 * @param columns カラム情報
+	 * @return
+	 */
+	public static NameIndex<ColumnInfo> ofColumns(Collection<ColumnInfo> columns) {
+		NameIndex<ColumnInfo> index = new NameIndex<ColumnInfo>(columns.size());
+
+		for (ColumnInfo column : columns) {
+			index.put(column.getColumnName(), column);
+		}
+
+		return index;
+	}
+
+	/**
+	 * 名前と値を追加する。同じ名前が既にある場合は、追加しない。
+	 *
+	 * @param name 名前
+	 * @param value 値
+	 * @return 追加した場合はtrue
+	 */
+	public boolean put(String name, T value) {
+		if (this.exact.containsKey(name)) {
+			return false;
+		}
+
+		this.exact.put(name, value);
+
+		String key = normalize(name);
+
+		if (!this.normalized.containsKey(key)) {
+			this.normalized.put(key, value);
+		}
+
+		return true;
+	}
+
+	/**
+	 * 名前に対応する値を返す。
+	 *
+	 * @param name 名前
+	 * @param caseSensitive 大文字/小文字を区別する場合はtrue
+	 * @return 値。ない場合はnull。
+	 */
+	public T get(String name, boolean caseSensitive) {
+		T value = this.exact.get(name);
+
+		if (value != null || caseSensitive || name == null) {
+			return value;
+		}
+
+		return this.normalized.get(normalize(name));
+	}
+
+	/**
+	 * 追加した名前の数を返す。
+	 * @return
+	 */
+	public int size() {
+		return this.exact.size();
+	}
+
+	/**
+	 * 大文字/小文字を区別しない比較のために、名前を正規化する。
+	 * （{@link String#equalsIgnoreCase(String)} と同様に、1文字ずつ大文字にしてから小文字にする）
+	 */
+	static String normalize(String name) {
+		if (name == null) {
+			return null;
+		}
+
+		char[] chars = new char[name.length()];
+
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+		}
+
+		return new String(chars);
+	}
+}
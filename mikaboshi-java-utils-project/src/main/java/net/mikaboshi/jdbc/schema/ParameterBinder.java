@@ -0,0 +1,294 @@
+package net.mikaboshi.jdbc.schema;
+
+import static net.mikaboshi.validator.SimpleValidator.validateNotNull;
+
+import java.math.BigDecimal;
+import java.sql.Blob;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * <p>
+ * PreparedStatementにパラメータを設定する処理を、カラムごとに事前に決定して保持する。
+ * </p><p>
+ * 生成時にカラムごとの設定処理を決定し、全ての行で再利用する。
+ * （{@link DataTypeUtils#setParameter(PreparedStatement, Object[], int[])} は、
+ * 呼び出しごとにこのクラスを生成する、1行だけ設定する場合の簡易メソッドである）
+ * 文字列の値は、整数型ならば {@link Integer#parseInt(String)} で変換して
+ * {@link PreparedStatement#setInt(int, int)} で設定するなど、BigDecimalを経由せずに設定する。
+ * 設定される値は、{@link DataTypeUtils#setParameter(PreparedStatement, Object[], int[])}
+ * と同じである。
+ * </p><p>
+ * インスタンスは不変なので、複数のスレッドで共有できる。
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public class ParameterBinder {
+
+	private final ColumnBinder[] binders;
+
+	/**
+	 * パラメータのSQLデータ型を指定するコンストラクタ。
+	 *
+	 * @param types パラメータのSQLデータ型（java.sql.Types）
+	 * @throws NullPointerException typesがnullの場合
+	 */
+	public ParameterBinder(int[] types) {
+		validateNotNull(types, "types", NullPointerException.class);
+
+		this.binders = new ColumnBinder[types.length];
+
+		for (int i = 0; i < types.length; i++) {
+			this.binders[i] = createColumnBinder(types[i]);
+		}
+	}
+
+	/**
+	 * パラメータの数を返す。
+	 * @return
+	 */
+	public int getParameterCount() {
+		return this.binders.length;
+	}
+
+	/**
+	 * PreparedStatementのパラメータをクリアし、1行のデータを設定する。
+	 *
+	 * @param pstmt
+	 * @param rowData 行データ
+	 * @throws SQLException
+	 * @throws IllegalArgumentException 行データの長さがパラメータの数と異なる場合
+	 */
+	public void bind(PreparedStatement pstmt, Object[] rowData) throws SQLException {
+		validateLength(rowData);
+
+		pstmt.clearParameters();
+
+		bindRow(pstmt, rowData, 0);
+	}
+
+	/**
+	 * <p>
+	 * 指定した位置から、1行のデータを設定する。パラメータのクリアは行わない。
+	 * </p><p>
+	 * 複数行のVALUES句のように、1つの文に複数行のパラメータがある場合に使用する。
+	 * </p>
+	 *
+	 * @param pstmt
+	 * @param rowData 行データ
+	 * @param offset 行データの最初の値の前にある、パラメータの数
+	 * @throws SQLException
+	 * @throws IllegalArgumentException 行データの長さがパラメータの数と異なる場合
+	 */
+	public void bind(PreparedStatement pstmt, Object[] rowData, int offset) throws SQLException {
+		validateLength(rowData);
+
+		bindRow(pstmt, rowData, offset);
+	}
+
+	private void validateLength(Object[] rowData) {
+		if (rowData.length != this.binders.length) {
+			throw new IllegalArgumentException("length of rowData and length of types are not match.");
+		}
+	}
+
+	private void bindRow(PreparedStatement pstmt, Object[] rowData, int offset) throws SQLException {
+		for (int i = 0; i < this.binders.length; i++) {
+			this.binders[i].bind(pstmt, offset + i + 1, rowData[i]);
+		}
+	}
+
+	private static ColumnBinder createColumnBinder(int type) {
+		switch (type) {
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+				return new IntBinder(type);
+
+			case Types.BIGINT:
+				return new LongBinder(type);
+
+			case Types.REAL:
+				return new FloatBinder(type);
+
+			case Types.FLOAT:
+			case Types.DOUBLE:
+				return new DoubleBinder(type);
+
+			case Types.NUMERIC:
+			case Types.DECIMAL:
+				return new DecimalBinder(type);
+
+			default:
+				return new ColumnBinder(type);
+		}
+	}
+
+	/**
+	 * 文字列が、符号・数字・小数点・指数だけで構成されるかどうか。
+	 * （{@link BigDecimal#BigDecimal(String)} が受け付けない "NaN" 等を浮動小数点数に変換しないため）
+	 */
+	private static boolean isPlainNumber(String value) {
+		int length = value.length();
+
+		if (length == 0) {
+			return false;
+		}
+
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+
+			if ((c < '0' || c > '9') && c != '.' && c != '-' && c != '+'
+					&& c != 'e' && c != 'E') {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * 1つのカラムの設定処理。
+	 * 文字列の値は、SQLデータ型を指定して {@link PreparedStatement#setObject(int, Object, int)} で設定する。
+	 */
+	private static class ColumnBinder {
+
+		protected final int type;
+
+		ColumnBinder(int type) {
+			this.type = type;
+		}
+
+		final void bind(PreparedStatement pstmt, int index, Object value) throws SQLException {
+			if (value instanceof String) {
+				bindString(pstmt, index, (String) value);
+				return;
+			}
+
+			if (value instanceof BigDecimal) {
+				BigDecimal dec = (BigDecimal) value;
+
+				if (dec.scale() >= 0) {
+					pstmt.setObject(index, value, this.type, dec.scale());
+					return;
+				}
+			}
+
+			if (value instanceof Blob) {
+				Blob blob = (Blob) value;
+				pstmt.setBinaryStream(index, blob.getBinaryStream(), (int) blob.length());
+				return;
+			}
+
+			pstmt.setObject(index, value, this.type);
+		}
+
+		void bindString(PreparedStatement pstmt, int index, String value) throws SQLException {
+			pstmt.setObject(index, value, this.type);
+		}
+	}
+
+	/**
+	 * TINYINT, SMALLINT, INTEGER
+	 */
+	private static class IntBinder extends ColumnBinder {
+
+		IntBinder(int type) {
+			super(type);
+		}
+
+		@Override
+		void bindString(PreparedStatement pstmt, int index, String value) throws SQLException {
+			int i;
+
+			try {
+				i = Integer.parseInt(value);
+			} catch (NumberFormatException e) {
+				// 小数点や指数を含む場合
+				i = new BigDecimal(value).intValue();
+			}
+
+			pstmt.setInt(index, i);
+		}
+	}
+
+	/**
+	 * BIGINT
+	 */
+	private static class LongBinder extends ColumnBinder {
+
+		LongBinder(int type) {
+			super(type);
+		}
+
+		@Override
+		void bindString(PreparedStatement pstmt, int index, String value) throws SQLException {
+			long l;
+
+			try {
+				l = Long.parseLong(value);
+			} catch (NumberFormatException e) {
+				// 小数点や指数を含む場合
+				l = new BigDecimal(value).longValue();
+			}
+
+			pstmt.setLong(index, l);
+		}
+	}
+
+	/**
+	 * REAL
+	 */
+	private static class FloatBinder extends ColumnBinder {
+
+		FloatBinder(int type) {
+			super(type);
+		}
+
+		@Override
+		void bindString(PreparedStatement pstmt, int index, String value) throws SQLException {
+			if (isPlainNumber(value)) {
+				pstmt.setFloat(index, Float.parseFloat(value));
+			} else {
+				pstmt.setFloat(index, new BigDecimal(value).floatValue());
+			}
+		}
+	}
+
+	/**
+	 * FLOAT, DOUBLE
+	 */
+	private static class DoubleBinder extends ColumnBinder {
+
+		DoubleBinder(int type) {
+			super(type);
+		}
+
+		@Override
+		void bindString(PreparedStatement pstmt, int index, String value) throws SQLException {
+			if (isPlainNumber(value)) {
+				pstmt.setDouble(index, Double.parseDouble(value));
+			} else {
+				pstmt.setDouble(index, new BigDecimal(value).doubleValue());
+			}
+		}
+	}
+
+	/**
+	 * NUMERIC, DECIMAL
+	 */
+	private static class DecimalBinder extends ColumnBinder {
+
+		DecimalBinder(int type) {
+			super(type);
+		}
+
+		@Override
+		void bindString(PreparedStatement pstmt, int index, String value) throws SQLException {
+			pstmt.setBigDecimal(index, new BigDecimal(value));
+		}
+	}
+}
@@ -0,0 +1,316 @@
+package net.mikaboshi.jdbc.schema;
+
+import static net.mikaboshi.validator.SimpleValidator.validateNotNull;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * <p>
+ * 1つのコネクションについて、{@link SchemaUtils} で取得するスキーマのメタ情報
+ * （テーブル名のセット、カラム情報、主キー情報）をキャッシュする。
+ * </p><p>
+ * 同じ引数で取得したメタ情報は、有効期間（TTL）が経過するまで、DBに問い合わせずに返す。
+ * テーブルの作成・変更を行った場合は、{@link #invalidate()} または
+ * {@link #invalidateTable(String)} でキャッシュを破棄すること。
+ * </p><p>
+ * 返すコレクションは変更不可で、キャッシュ内のオブジェクトを共有するため、
+ * 要素（{@link ColumnInfo} 等）を変更してはならない。
+ * </p><p>
+ * このクラスのメソッドは同期化されているので、複数のスレッドで共有できる。
+ * </p>
+ *
+ * @author Takuma Umezawa
+ * @since 1.1.10
+ */
+public class SchemaCache {
+
+	private static Log logger = LogFactory.getLog(SchemaCache.class);
+
+	/** 有効期間（ミリ秒）のデフォルト */
+	public static final long DEFAULT_TTL = 5L * 60L * 1000L;
+
+	private static final String TABLE_NAMES = "tableNames";
+
+	private static final String TABLE_NAME_INDEX = "tableNameIndex";
+
+	private static final String COLUMNS = "columns";
+
+	private static final String PRIMARY_KEYS = "primaryKeys";
+
+	/** キーのうち、テーブル名（パターン）のインデックス */
+	private static final int TABLE_INDEX = 3;
+
+	private final Connection connection;
+
+	/** 有効期間（ナノ秒）。0以下の場合は無期限。 */
+	private long ttlNanos;
+
+	private final Map<List<Object>, Entry> entries = new HashMap<List<Object>, Entry>();
+
+	/**
+	 * メタ情報を取得するコネクションを指定するコンストラクタ。
+	 * 有効期間は {@link #DEFAULT_TTL} となる。
+	 *
+	 * @param connection 接続済みのDBコネクション
+	 * @throws NullPointerException connectionがnullの場合
+	 */
+	public SchemaCache(Connection connection) {
+		this(connection, DEFAULT_TTL);
+	}
+
+	/**
+	 * メタ情報を取得するコネクションと、有効期間を指定するコンストラクタ。
+	 *
+	 * @param connection 接続済みのDBコネクション
+	 * @param ttl 有効期間（ミリ秒）。0以下の場合は無期限。
+	 * @throws NullPointerException connectionがnullの場合
+	 */
+	public SchemaCache(Connection connection, long ttl) {
+		validateNotNull(connection, "connection", NullPointerException.class);
+
+		this.connection = connection;
+		setTtl(ttl);
+	}
+
+	/**
+	 * キャッシュの有効期間を設定する。設定済みのキャッシュにも適用される。
+	 *
+	 * @param ttl 有効期間（ミリ秒）。0以下の場合は無期限。
+	 */
+	public synchronized void setTtl(long ttl) {
+		this.ttlNanos = ttl > 0L ? ttl * 1000000L : 0L;
+	}
+
+	/**
+	 * 全テーブル名のセットを取得する。
+	 *
+	 * @param catalog カタログ。nullの場合は全て。
+	 * @param schemaPattern スキーマ（%、_でワイルドカード）。nullの場合は全て。
+	 * @param tableNamePattern テーブル名のパターン（%、_でワイルドカード）。nullの場合は全て。
+	 * @param types テーブルの型。nullの場合は全て。
+	 * @return テーブル名のセット（変更不可）
+	 * @throws SQLException
+	 * @see SchemaUtils#getAllTableNames(Connection, String, String, String, String[])
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized Set<String> getAllTableNames(
+			String catalog,
+			String schemaPattern,
+			String tableNamePattern,
+			String[] types)
+			throws SQLException {
+
+		List<Object> key = createKey(TABLE_NAMES, catalog, schemaPattern, tableNamePattern,
+				types == null ? null : Arrays.asList(types));
+
+		Object value = lookup(key);
+
+		if (value == null) {
+			value = Collections.unmodifiableSet(SchemaUtils.getAllTableNames(
+					this.connection, catalog, schemaPattern, tableNamePattern, types));
+			store(key, value);
+		}
+
+		return (Set<String>) value;
+	}
+
+	/**
+	 * <p>
+	 * 全テーブル名の索引を取得する。
+	 * </p><p>
+	 * 大文字/小文字を区別せずにテーブル名を検索する場合に、
+	 * テーブル名のセットを走査せずに検索できる。
+	 * </p>
+	 *
+	 * @param catalog カタログ。nullの場合は全て。
+	 * @param schemaPattern スキーマ（%、_でワイルドカード）。nullの場合は全て。
+	 * @return テーブル名自体を値とする索引（名前を追加してはならない）
+	 * @throws SQLException
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized NameIndex<String> getTableNameIndex(
+			String catalog,
+			String schemaPattern)
+			throws SQLException {
+
+		List<Object> key = createKey(TABLE_NAME_INDEX, catalog, schemaPattern, null, null);
+
+		Object value = lookup(key);
+
+		if (value == null) {
+			value = NameIndex.of(getAllTableNames(catalog, schemaPattern, null, null));
+			store(key, value);
+		}
+
+		return (NameIndex<String>) value;
+	}
+
+	/**
+	 * カラムの情報を取得する。
+	 *
+	 * @param catalog
+	 * @param schemaPattern
+	 * @param tableNamePattern
+	 * @param columnNamePattern
+	 * @return カラムの情報（変更不可）
+	 * @throws SQLException
+	 * @see SchemaUtils#getColumnInfo(java.sql.DatabaseMetaData, String, String, String, String)
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized List<ColumnInfo> getColumnInfo(
+			String catalog,
+			String schemaPattern,
+			String tableNamePattern,
+			String columnNamePattern) throws SQLException {
+
+		List<Object> key = createKey(COLUMNS, catalog, schemaPattern, tableNamePattern,
+				columnNamePattern);
+
+		Object value = lookup(key);
+
+		if (value == null) {
+			value = Collections.unmodifiableList(SchemaUtils.getColumnInfo(
+					this.connection.getMetaData(),
+					catalog, schemaPattern, tableNamePattern, columnNamePattern));
+			store(key, value);
+		}
+
+		return (List<ColumnInfo>) value;
+	}
+
+	/**
+	 * テーブルの主キーを取得する。
+	 *
+	 * @param catalog
+	 * @param schema
+	 * @param table
+	 * @return 主キーの情報（変更不可）
+	 * @throws SQLException
+	 * @see SchemaUtils#getPrimaryKeys(java.sql.DatabaseMetaData, String, String, String)
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized Set<PrimaryKeyInfo> getPrimaryKeys(
+			String catalog,
+			String schema,
+			String table) throws SQLException {
+
+		List<Object> key = createKey(PRIMARY_KEYS, catalog, schema, table, null);
+
+		Object value = lookup(key);
+
+		if (value == null) {
+			value = Collections.unmodifiableSet(SchemaUtils.getPrimaryKeys(
+					this.connection.getMetaData(), catalog, schema, table));
+			store(key, value);
+		}
+
+		return (Set<PrimaryKeyInfo>) value;
+	}
+
+	/**
+	 * テーブルが存在するか判定する。
+	 *
+	 * @param catalog
+	 * @param schemaPattern
+	 * @param tableNamePattern
+	 * @return
+	 * @throws SQLException
+	 * @see SchemaUtils#existsTable(java.sql.DatabaseMetaData, String, String, String)
+	 */
+	public boolean existsTable(
+			String catalog,
+			String schemaPattern,
+			String tableNamePattern) throws SQLException {
+
+		return !getColumnInfo(catalog, schemaPattern, tableNamePattern, null).isEmpty();
+	}
+
+	/**
+	 * 全てのキャッシュを破棄する。
+	 */
+	public synchronized void invalidate() {
+		this.entries.clear();
+	}
+
+	/**
+	 * <p>
+	 * 指定したテーブルに関するキャッシュを破棄する。
+	 * </p><p>
+	 * テーブル名（パターン）が大文字/小文字を区別せずに一致する、またはテーブル名を限定しない
+	 * カラム情報・主キー情報と、
+	 * 全てのテーブル名のセット・索引を破棄する。
+	 * </p>
+	 *
+	 * @param tableName テーブル名
+	 */
+	public synchronized void invalidateTable(String tableName) {
+		Iterator<List<Object>> iterator = this.entries.keySet().iterator();
+
+		while (iterator.hasNext()) {
+			List<Object> key = iterator.next();
+			Object table = key.get(TABLE_INDEX);
+
+			if (TABLE_NAMES.equals(key.get(0))
+					|| TABLE_NAME_INDEX.equals(key.get(0))
+					|| table == null
+					|| ((String) table).equalsIgnoreCase(tableName)) {
+				iterator.remove();
+			}
+		}
+	}
+
+	private static List<Object> createKey(
+			String kind, String catalog, String schema, String table, Object option) {
+
+		return Arrays.<Object>asList(kind, catalog, schema, table, option);
+	}
+
+	/**
+	 * 有効なキャッシュを返す。ない場合、または期限切れの場合はnullを返す。
+	 */
+	private Object lookup(List<Object> key) {
+		Entry entry = this.entries.get(key);
+
+		if (entry == null) {
+			return null;
+		}
+
+		if (this.ttlNanos > 0L && System.nanoTime() - entry.created > this.ttlNanos) {
+			this.entries.remove(key);
+			return null;
+		}
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("schema cache hit: " + key);
+		}
+
+		return entry.value;
+	}
+
+	private void store(List<Object> key, Object value) {
+		this.entries.put(key, new Entry(value, System.nanoTime()));
+	}
+
+	private static class Entry {
+
+		final Object value;
+
+		final long created;
+
+		Entry(Object value, long created) {
+			this.value = value;
+			this.created = created;
+		}
+	}
+}
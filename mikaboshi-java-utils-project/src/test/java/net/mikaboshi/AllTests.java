@@ -3,23 +3,43 @@ package net.mikaboshi;
 
 import net.mikaboshi.csv.CSVFileUtilsTest;
 import net.mikaboshi.csv.CSVIteratorTest;
+import net.mikaboshi.csv.CSVLineIndexTest;
+import net.mikaboshi.csv.CSVLineOffsetInputStreamTest;
+import net.mikaboshi.csv.CSVRowReaderTest;
+import net.mikaboshi.csv.CSVRowWriterTest;
+import net.mikaboshi.csv.CSVTokenizerTest;
+import net.mikaboshi.csv.MappedCSVReaderTest;
+import net.mikaboshi.csv.ParallelCSVReaderTest;
 import net.mikaboshi.csv.StandardCSVStrategyIteratorTest;
 import net.mikaboshi.csv.StandardCSVStrategyTest;
 import net.mikaboshi.csv.TSVTest;
+import net.mikaboshi.csv.TypedCSVReaderTest;
+import net.mikaboshi.io.CompressionUtilsTest;
 import net.mikaboshi.io.FileIterableTest;
+import net.mikaboshi.io.MappedFileReaderTest;
 import net.mikaboshi.io.TeePrintWriterTest;
 import net.mikaboshi.jdbc.ArrayToDbImporterTest;
 import net.mikaboshi.jdbc.DmlExecutorTest;
 import net.mikaboshi.jdbc.DmlExecutorTest2;
 import net.mikaboshi.jdbc.InsertBuilderTest;
+import net.mikaboshi.jdbc.ParallelDbImporterTest;
+import net.mikaboshi.jdbc.PrimaryKeyCacheTest;
 import net.mikaboshi.jdbc.QueryExecutorTest;
+import net.mikaboshi.jdbc.RangePartitionTest;
 import net.mikaboshi.jdbc.ResultSetToCSVHandlerTest;
 import net.mikaboshi.jdbc.ResultSetToMapListHandlerTest;
 import net.mikaboshi.jdbc.SQLFormatterTest;
+import net.mikaboshi.jdbc.SetBasedReplacerTest;
+import net.mikaboshi.jdbc.TypedFormatterTest;
+import net.mikaboshi.jdbc.bulk.CSVRowInputStreamTest;
+import net.mikaboshi.jdbc.bulk.HSQLDBBulkLoaderTest;
 import net.mikaboshi.jdbc.count.CountResultSetHandlerTest;
 import net.mikaboshi.jdbc.count.RecordCountUtilsTest;
 import net.mikaboshi.jdbc.schema.MetadataWriterTest;
+import net.mikaboshi.jdbc.schema.NameIndexTest;
+import net.mikaboshi.jdbc.schema.ParameterBinderTest;
 import net.mikaboshi.jdbc.schema.PrimaryKeyInfoTest;
+import net.mikaboshi.jdbc.schema.SchemaCacheTest;
 import net.mikaboshi.jdbc.schema.SchemaUtilsTest;
 import net.mikaboshi.log.SimpleFileLoggerTest;
 import net.mikaboshi.property.PropertyFileLoaderTest;
@@ -49,10 +69,20 @@ import org.junit.runners.Suite.SuiteClasses;
 	CSVFileUtilsTest.class,
 	TSVTest.class,
 	CSVIteratorTest.class,
+	CSVTokenizerTest.class,
+	ParallelCSVReaderTest.class,
+	MappedCSVReaderTest.class,
+	CSVRowReaderTest.class,
+	CSVRowWriterTest.class,
+	TypedCSVReaderTest.class,
+	CSVLineIndexTest.class,
+	CSVLineOffsetInputStreamTest.class,
 	
 	// io
 	FileIterableTest.class,
 	TeePrintWriterTest.class,
+	MappedFileReaderTest.class,
+	CompressionUtilsTest.class,
 	
 	// util
 	MkStringUtilsTest.class,
@@ -78,10 +108,19 @@ import org.junit.runners.Suite.SuiteClasses;
 	DmlExecutorTest.class,
 	DmlExecutorTest2.class,
 	InsertBuilderTest.class,
+	ParallelDbImporterTest.class,
+	PrimaryKeyCacheTest.class,
 	QueryExecutorTest.class,
+	RangePartitionTest.class,
 	ResultSetToCSVHandlerTest.class,
 	ResultSetToMapListHandlerTest.class,
 	SQLFormatterTest.class,
+	SetBasedReplacerTest.class,
+	TypedFormatterTest.class,
+	
+	// jdbc.bulk
+	CSVRowInputStreamTest.class,
+	HSQLDBBulkLoaderTest.class,
 	
 	// jdbc.count
 	RecordCountUtilsTest.class,
@@ -89,7 +128,10 @@ import org.junit.runners.Suite.SuiteClasses;
 	
 	// jdbc.schema
 	MetadataWriterTest.class,
+	NameIndexTest.class,
+	ParameterBinderTest.class,
 	PrimaryKeyInfoTest.class,
+	SchemaCacheTest.class,
 	SchemaUtilsTest.class,
 	
 	// validator
@@ -97,5 +97,10 @@ public class CSVFileUtilsTest {
 		}
 		
 	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetThreads_Zero() {
+		new CSVFileUtils("UTF-8").setThreads(0);
+	}
 
 }
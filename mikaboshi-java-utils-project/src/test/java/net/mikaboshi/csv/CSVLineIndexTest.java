@@ -0,0 +1,180 @@
+package net.mikaboshi.csv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CSVLineIndexTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		this.file = File.createTempFile("CSVLineIndexTest", ".csv");
+
+		StringBuilder sb = new StringBuilder();
+
+		for (int i = 0; i < 50; i++) {
+			sb.append(i).append(",あいう,");
+
+			if (i % 3 == 0) {
+				sb.append("\"引用\r\n中の\n改行,\"\"\"");
+			} else if (i % 5 == 0) {
+				sb.append("\r\n");
+			}
+
+			sb.append(i % 2 == 0 ? "\r\n" : i % 7 == 0 ? "\r" : "\n");
+		}
+
+		FileUtils.writeStringToFile(this.file, sb.toString(), "UTF-8");
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(CSVLineIndex.getIndexFile(this.file));
+		FileUtils.deleteQuietly(this.file);
+	}
+
+	private List<List<String>> sequential() throws IOException {
+		List<List<String>> result = new ArrayList<List<String>>();
+
+		for (String[] line : new StandardCSVStrategy().csvLines(
+				new StringReader(FileUtils.readFileToString(this.file, "UTF-8")))) {
+			result.add(Arrays.asList(line));
+		}
+
+		return result;
+	}
+
+	/**
+	 * 任意の論理行からの読み込み
+	 */
+	@Test
+	public void testOpenReader() throws IOException {
+		List<List<String>> expected = sequential();
+
+		for (int interval : new int[] {1, 3, 7, 1000}) {
+			CSVLineIndex index = CSVLineIndex.build(this.file, "UTF-8", interval);
+
+			assertEquals(expected.size(), index.getLineCount());
+
+			for (int line = 0; line <= expected.size(); line++) {
+				CSVRowReader reader = index.openReader(
+						this.file, new StandardCSVStrategy(), "UTF-8", line);
+
+				try {
+					if (line == expected.size()) {
+						assertFalse(reader.hasNext());
+					} else {
+						assertEquals("interval=" + interval + ", line=" + line,
+								expected.get(line), reader.next());
+					}
+				} finally {
+					reader.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * 読み飛ばし中に失敗した場合は、ファイルを閉じる
+	 */
+	@Test
+	public void testOpenReaderFailure() throws IOException {
+		CSVLineIndex index = CSVLineIndex.build(this.file, "UTF-8", 10);
+		final Reader[] opened = new Reader[1];
+
+		CSVStrategy failing = new StandardCSVStrategy() {
+			@Override
+			public Iterable<String[]> csvLines(Reader reader) {
+				opened[0] = reader;
+				final Iterator<String[]> iterator = super.csvLines(reader).iterator();
+
+				return new Iterable<String[]>() {
+					public Iterator<String[]> iterator() {
+						return new Iterator<String[]>() {
+							public boolean hasNext() {
+								return iterator.hasNext();
+							}
+
+							public String[] next() {
+								throw new IllegalStateException("broken");
+							}
+
+							public void remove() {
+								throw new UnsupportedOperationException();
+							}
+						};
+					}
+				};
+			}
+		};
+
+		try {
+			index.openReader(this.file, failing, "UTF-8", 5);
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("broken", e.getMessage());
+		}
+
+		try {
+			opened[0].read();
+			fail();
+		} catch (IOException e) {
+			// 閉じられている
+		}
+	}
+
+	/**
+	 * 索引ファイルの保存と読み込み
+	 */
+	@Test
+	public void testLoadOrBuild() throws IOException {
+		File indexFile = CSVLineIndex.getIndexFile(this.file);
+		assertFalse(indexFile.exists());
+
+		CSVLineIndex built = CSVLineIndex.loadOrBuild(this.file, "UTF-8", 4);
+		assertTrue(indexFile.exists());
+
+		CSVLineIndex loaded = CSVLineIndex.load(indexFile);
+		assertEquals(built.getLineCount(), loaded.getLineCount());
+		assertEquals(4, loaded.getInterval());
+
+		for (int line = 0; line < built.getLineCount(); line++) {
+			assertEquals(built.getOffset(line), loaded.getOffset(line));
+		}
+
+		assertTrue(loaded.isValidFor(this.file));
+
+		FileUtils.writeStringToFile(this.file, "a\nb\n", "UTF-8");
+		assertFalse(loaded.isValidFor(this.file));
+
+		CSVLineIndex rebuilt = CSVLineIndex.loadOrBuild(this.file, "UTF-8", 4);
+		assertEquals(2, rebuilt.getLineCount());
+		assertEquals(0L, rebuilt.getOffset(1));
+		assertEquals(4L, rebuilt.getOffset(2));
+	}
+
+	/**
+	 * 対応しない文字セット
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedCharset() throws IOException {
+		CSVLineIndex.build(this.file, "UTF-16", 10);
+	}
+}
@@ -0,0 +1,129 @@
+package net.mikaboshi.csv;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Iterator;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class CSVLineOffsetInputStreamTest {
+	
+	/** 論理行の開始位置: 0, 5, 13, (終わり)16 */
+	private static final String CSV = "a,b\r\n\"x\ny\",2\nz,3";
+	
+	private static byte[] getBytes() throws IOException {
+		return CSV.getBytes("UTF-8");
+	}
+	
+	/**
+	 * 全ての論理行の開始位置を記録
+	 * @throws IOException
+	 */
+	@Test
+	public void testGetLineOffset() throws IOException {
+		CSVLineOffsetInputStream in = new CSVLineOffsetInputStream(
+				new ByteArrayInputStream(getBytes()), 0L, 0, 1);
+		
+		IOUtils.toByteArray(in);
+		
+		assertEquals(0L, in.getLineOffset(0));
+		assertEquals(5L, in.getLineOffset(1));
+		assertEquals(13L, in.getLineOffset(2));
+		assertEquals(16L, in.getLineOffset(3));
+		
+		// 取得済み
+		assertEquals(-1L, in.getLineOffset(2));
+	}
+	
+	/**
+	 * N論理行ごとに記録
+	 * @throws IOException
+	 */
+	@Test
+	public void testInterval() throws IOException {
+		CSVLineOffsetInputStream in = new CSVLineOffsetInputStream(
+				new ByteArrayInputStream(getBytes()), 0L, 0, 2);
+		
+		IOUtils.toByteArray(in);
+		
+		assertEquals(-1L, in.getLineOffset(1));
+		assertEquals(13L, in.getLineOffset(2));
+		assertEquals(-1L, in.getLineOffset(3));
+	}
+	
+	/**
+	 * 途中の論理行から読み込む
+	 * @throws IOException
+	 */
+	@Test
+	public void testStartPosition() throws IOException {
+		byte[] bytes = getBytes();
+		
+		CSVLineOffsetInputStream in = new CSVLineOffsetInputStream(
+				new ByteArrayInputStream(bytes, 5, bytes.length - 5), 5L, 1, 1);
+		
+		IOUtils.toByteArray(in);
+		
+		assertEquals(13L, in.getLineOffset(2));
+		assertEquals(16L, in.getLineOffset(3));
+	}
+	
+	/**
+	 * パースした行数の開始位置から、続きを読み込めること
+	 * @throws IOException
+	 */
+	@Test
+	public void testResumeFromOffset() throws IOException {
+		byte[] bytes = getBytes();
+		
+		CSVLineOffsetInputStream in = new CSVLineOffsetInputStream(
+				new ByteArrayInputStream(bytes), 0L, 0, 1);
+		
+		Iterator<String[]> lines = new StandardCSVStrategy().csvLines(
+				new BufferedReader(new InputStreamReader(in, "UTF-8"))).iterator();
+		
+		lines.next();
+		assertArrayEquals(new String[] {"x\ny", "2"}, lines.next());
+		
+		long offset = in.getLineOffset(2);
+		assertEquals(13L, offset);
+		
+		InputStream resumed = new ByteArrayInputStream(bytes, (int) offset, bytes.length - (int) offset);
+		
+		Iterator<String[]> rest = new StandardCSVStrategy().csvLines(
+				new BufferedReader(new InputStreamReader(resumed, "UTF-8"))).iterator();
+		
+		assertTrue(rest.hasNext());
+		assertArrayEquals(new String[] {"z", "3"}, rest.next());
+		assertFalse(rest.hasNext());
+	}
+	
+	/**
+	 * 1バイトずつ読み込む
+	 * @throws IOException
+	 */
+	@Test
+	public void testReadSingleByte() throws IOException {
+		CSVLineOffsetInputStream in = new CSVLineOffsetInputStream(
+				new ByteArrayInputStream(getBytes()), 0L, 0, 1);
+		
+		int count = 0;
+		
+		while (in.read() != -1) {
+			count++;
+		}
+		
+		assertEquals(16, count);
+		assertEquals(5L, in.getLineOffset(1));
+		assertEquals(16L, in.getLineOffset(3));
+	}
+}
@@ -0,0 +1,91 @@
+package net.mikaboshi.csv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class CSVRowReaderTest {
+
+	/**
+	 * 1行ずつの読み込み
+	 */
+	@Test
+	public void testNext() throws IOException {
+		CSVRowReader reader = new CSVRowReader(
+				new StringReader("a,b,c\r\n\"d\r\ne\",\"f\"\"\"\r\ng"),
+				new StandardCSVStrategy());
+
+		try {
+			assertTrue(reader.hasNext());
+			assertEquals(Arrays.asList("a", "b", "c"), reader.next());
+			assertEquals(1, reader.getLineCount());
+
+			assertTrue(reader.hasNext());
+			assertEquals(Arrays.asList("d\r\ne", "f\""), reader.next());
+
+			assertTrue(reader.hasNext());
+			assertEquals(Arrays.asList("g"), reader.next());
+			assertEquals(3, reader.getLineCount());
+
+			assertFalse(reader.hasNext());
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * 最後の行の次を読み込む
+	 */
+	@Test(expected = NoSuchElementException.class)
+	public void testNextAfterEnd() throws IOException {
+		CSVRowReader reader = new CSVRowReader(
+				new StringReader("a"), new StandardCSVStrategy());
+
+		try {
+			reader.next();
+			reader.next();
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * CSVFileUtilsから開いたカーソルでの読み込み
+	 */
+	@Test
+	public void testOpenReader() throws IOException {
+		File file = File.createTempFile("CSVRowReaderTest", ".csv");
+
+		try {
+			FileUtils.writeStringToFile(file, "あ,い\r\nう,\"え,お\"\r\n", "UTF-8");
+
+			CSVRowReader reader = new CSVFileUtils("UTF-8").openReader(file);
+			List<List<String>> actual = new ArrayList<List<String>>();
+
+			try {
+				for (List<String> row : reader) {
+					actual.add(row);
+				}
+			} finally {
+				reader.close();
+			}
+
+			assertEquals(2, actual.size());
+			assertEquals(Arrays.asList("あ", "い"), actual.get(0));
+			assertEquals(Arrays.asList("う", "え,お"), actual.get(1));
+		} finally {
+			FileUtils.deleteQuietly(file);
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package net.mikaboshi.csv;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class CSVRowWriterTest {
+
+	private CSVStrategy createStrategy() {
+		CSVStrategy strategy = new StandardCSVStrategy();
+		strategy.setLineSeparator(IOUtils.LINE_SEPARATOR_WINDOWS);
+		return strategy;
+	}
+
+	/**
+	 * 列数を指定した書き出し
+	 */
+	@Test
+	public void testDeclaredColumnCount() throws IOException {
+		StringWriter out = new StringWriter();
+		CSVRowWriter writer = new CSVRowWriter(
+				new PrintWriter(out), createStrategy(), 3);
+
+		writer.writeRow(Arrays.asList("a", "b"));
+		writer.writeRow(new Object[] {"c", "d,e", "f"});
+		writer.writeRow(new String[0]);
+		writer.close();
+
+		assertEquals(3, writer.getLineCount());
+		assertEquals(
+				"a,b,\r\nc,\"d,e\",f\r\n,,\r\n",
+				out.toString());
+	}
+
+	/**
+	 * 最初の行から列数を決める書き出し
+	 */
+	@Test
+	public void testLearnedColumnCount() throws IOException {
+		StringWriter out = new StringWriter();
+		CSVRowWriter writer = new CSVRowWriter(
+				new PrintWriter(out), createStrategy(), 0);
+
+		assertEquals(0, writer.getColumnCount());
+
+		writer.writeRow(Arrays.asList("a", "b"));
+		writer.writeRow(Arrays.asList("c"));
+		writer.close();
+
+		assertEquals(2, writer.getColumnCount());
+		assertEquals("a,b\r\nc,\r\n", out.toString());
+	}
+
+	/**
+	 * 列数を決める前の空の行
+	 */
+	@Test
+	public void testEmptyFirstRow() throws IOException {
+		StringWriter out = new StringWriter();
+		CSVRowWriter writer = new CSVRowWriter(
+				new PrintWriter(out), createStrategy(), 0);
+
+		writer.writeRow(Arrays.asList());
+		assertEquals(0, writer.getColumnCount());
+
+		writer.writeRow(Arrays.asList("a", "b"));
+		writer.writeRow(Arrays.asList("c"));
+		writer.close();
+
+		assertEquals(2, writer.getColumnCount());
+		assertEquals(3, writer.getLineCount());
+		assertEquals("\r\na,b\r\nc,\r\n", out.toString());
+	}
+
+	/**
+	 * 列数を超える項目数の行
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooManyItems() {
+		CSVRowWriter writer = new CSVRowWriter(
+				new PrintWriter(new StringWriter()), createStrategy(), 0);
+
+		writer.writeRow(Arrays.asList("a"));
+		writer.writeRow(Arrays.asList("b", "c"));
+	}
+
+	/**
+	 * CSVFileUtilsから開いたライターでの書き出し
+	 */
+	@Test
+	public void testOpenWriter() throws IOException {
+		File file = File.createTempFile("CSVRowWriterTest", ".csv");
+
+		try {
+			CSVRowWriter writer = new CSVFileUtils(createStrategy(), "UTF-8").openWriter(file);
+
+			try {
+				writer.writeRow(Arrays.asList("あ", "い"));
+				writer.writeRow(Arrays.asList("う"));
+			} finally {
+				writer.close();
+			}
+
+			assertEquals(
+					"あ,い\r\nう,\r\n",
+					FileUtils.readFileToString(file, "UTF-8"));
+		} finally {
+			FileUtils.deleteQuietly(file);
+		}
+	}
+}
@@ -0,0 +1,203 @@
+package net.mikaboshi.csv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.CharArrayReader;
+import java.io.Reader;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+/**
+ * CSVTokenizerのテストケース。
+ * バッファより長い論理行や、バッファ境界をまたぐ区切り文字・引用符を確認する。
+ */
+public class CSVTokenizerTest {
+
+	private String[] nextLine(CSVTokenizer tokenizer) {
+		assertTrue(tokenizer.nextLine());
+
+		String[] result = new String[tokenizer.getFieldCount()];
+
+		for (int i = 0; i < result.length; i++) {
+			int start = tokenizer.getFieldStart(i);
+			result[i] = new String(
+					tokenizer.getBuffer(), start, tokenizer.getFieldEnd(i) - start);
+		}
+
+		return result;
+	}
+
+	/**
+	 * 区切り文字に引用符を指定
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidDelimiter() {
+		new CSVTokenizer(new CharArrayReader(new char[0]), "\"");
+	}
+
+	/**
+	 * 空文字
+	 */
+	@Test
+	public void testBlank() {
+		CSVTokenizer tokenizer = new CSVTokenizer(
+				new CharArrayReader(new char[0]), ",");
+
+		assertFalse(tokenizer.hasNext());
+		assertFalse(tokenizer.nextLine());
+	}
+
+	/**
+	 * 区切り文字に空文字を指定
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testBlankDelimiter() {
+		new CSVTokenizer(new CharArrayReader(new char[0]), "");
+	}
+
+	/**
+	 * 半角1文字の区切り文字
+	 */
+	@Test
+	public void testDelimiterAscii1() {
+		CSVTokenizer tokenizer = new CSVTokenizer(
+				new CharArrayReader("a#b".toCharArray()), "#");
+
+		String[] data = nextLine(tokenizer);
+		assertEquals(2, data.length);
+		assertEquals("a", data[0]);
+		assertEquals("b", data[1]);
+	}
+
+	/**
+	 * 半角2文字の区切り文字（1文字だけ一致する場合は区切らない）
+	 */
+	@Test
+	public void testDelimiterAscii2() {
+		CSVTokenizer tokenizer = new CSVTokenizer(
+				new CharArrayReader("a#b##c\n###".toCharArray()), "##");
+
+		String[] data1 = nextLine(tokenizer);
+		assertEquals(2, data1.length);
+		assertEquals("a#b", data1[0]);
+		assertEquals("c", data1[1]);
+
+		String[] data2 = nextLine(tokenizer);
+		assertEquals(2, data2.length);
+		assertEquals("", data2[0]);
+		assertEquals("#", data2[1]);
+	}
+
+	/**
+	 * 全角2文字の区切り文字
+	 */
+	@Test
+	public void testDelimiterMulti2() {
+		CSVTokenizer tokenizer = new CSVTokenizer(
+				new CharArrayReader("あ△b△■c".toCharArray()), "△■");
+
+		String[] data = nextLine(tokenizer);
+		assertEquals(2, data.length);
+		assertEquals("あ△b", data[0]);
+		assertEquals("c", data[1]);
+	}
+
+	/**
+	 * バッファより長い行
+	 */
+	@Test
+	public void testLongLine() {
+		String longItem = StringUtils.repeat("x", 100);
+		Reader reader = new CharArrayReader(
+				(longItem + ",\"a\r\n" + longItem + "\"\r\nb,c").toCharArray());
+
+		CSVTokenizer tokenizer = new CSVTokenizer(reader, ",", 3);
+
+		String[] data1 = nextLine(tokenizer);
+		assertEquals(2, data1.length);
+		assertEquals(longItem, data1[0]);
+		assertEquals("\"a\r\n" + longItem + "\"", data1[1]);
+
+		String[] data2 = nextLine(tokenizer);
+		assertEquals(2, data2.length);
+		assertEquals("b", data2[0]);
+		assertEquals("c", data2[1]);
+
+		assertFalse(tokenizer.hasNext());
+	}
+
+	/**
+	 * バッファ境界をまたぐ複数文字の区切り文字、CRLF、連続する引用符
+	 */
+	@Test
+	public void testBufferBoundary() {
+		for (int bufferSize = 1; bufferSize <= 8; bufferSize++) {
+			Reader reader = new CharArrayReader(
+					"ab##c\r\n\"d\"\"e\"##\r\n##".toCharArray());
+
+			CSVTokenizer tokenizer = new CSVTokenizer(reader, "##", bufferSize);
+
+			String[] data1 = nextLine(tokenizer);
+			assertEquals(2, data1.length);
+			assertEquals("ab", data1[0]);
+			assertEquals("c", data1[1]);
+
+			String[] data2 = nextLine(tokenizer);
+			assertEquals(2, data2.length);
+			assertEquals("\"d\"\"e\"", data2[0]);
+			assertEquals("", data2[1]);
+
+			String[] data3 = nextLine(tokenizer);
+			assertEquals(2, data3.length);
+			assertEquals("", data3[0]);
+			assertEquals("", data3[1]);
+
+			assertFalse(tokenizer.nextLine());
+		}
+	}
+
+	/**
+	 * 空行と、末尾の改行
+	 */
+	@Test
+	public void testEmptyLine() {
+		Reader reader = new CharArrayReader("a\n\r\nb\n".toCharArray());
+
+		CSVTokenizer tokenizer = new CSVTokenizer(reader, ",", 2);
+
+		assertEquals(1, nextLine(tokenizer).length);
+		assertEquals(0, nextLine(tokenizer).length);
+
+		String[] data = nextLine(tokenizer);
+		assertEquals(1, data.length);
+		assertEquals("b", data[0]);
+
+		assertFalse(tokenizer.hasNext());
+	}
+
+	/**
+	 * マークとリセット
+	 */
+	@Test
+	public void testMarkReset() throws Exception {
+		Reader reader = new CharArrayReader("a,b\nc,d\ne".toCharArray());
+
+		CSVTokenizer tokenizer = new CSVTokenizer(reader, ",", 2);
+
+		nextLine(tokenizer);
+		tokenizer.mark(100);
+
+		assertEquals("c", nextLine(tokenizer)[0]);
+		assertEquals("e", nextLine(tokenizer)[0]);
+		assertFalse(tokenizer.hasNext());
+
+		tokenizer.reset();
+
+		assertEquals("c", nextLine(tokenizer)[0]);
+		assertEquals("e", nextLine(tokenizer)[0]);
+		assertFalse(tokenizer.hasNext());
+	}
+}
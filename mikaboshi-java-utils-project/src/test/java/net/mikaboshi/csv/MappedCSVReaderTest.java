@@ -0,0 +1,138 @@
+package net.mikaboshi.csv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedCSVReaderTest {
+
+	private static final String DATA =
+		"abc,\"de,f\",\"gh\"\"ijk\"\r\n" +
+		"\"abc\r\ndef\",ghi\r\n" +
+		"あいう,\"えお\rかき\nく\",\"\",,\"\"\"\"\n" +
+		"\n" +
+		"last";
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		this.file = File.createTempFile("MappedCSVReaderTest", ".csv");
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(this.file);
+	}
+
+	/**
+	 * csvLines(Reader)と同じ結果になること
+	 */
+	@Test
+	public void testSameAsCsvLines() throws IOException {
+		List<String> expected = new ArrayList<String>();
+
+		for (String[] line : new StandardCSVStrategy().csvLines(new StringReader(DATA))) {
+			expected.add(Arrays.asList(line).toString());
+		}
+
+		for (String charset : new String[] {"UTF-8", "Windows-31J"}) {
+			FileUtils.writeStringToFile(this.file, DATA, charset);
+
+			MappedCSVReader reader = new MappedCSVReader(
+					this.file, new StandardCSVStrategy(), charset);
+
+			List<String> actual = new ArrayList<String>();
+
+			try {
+				while (reader.next()) {
+					List<String> items = new ArrayList<String>();
+
+					for (int i = 0; i < reader.getFieldCount(); i++) {
+						items.add(reader.getString(i));
+					}
+
+					actual.add(items.toString());
+				}
+			} finally {
+				reader.close();
+			}
+
+			assertEquals(charset, expected, actual);
+		}
+	}
+
+	/**
+	 * CharSequenceとしての参照
+	 */
+	@Test
+	public void testCharSequence() throws IOException {
+		FileUtils.writeStringToFile(this.file, DATA, "UTF-8");
+
+		MappedCSVReader reader = new MappedCSVReader(
+				this.file, new StandardCSVStrategy(), "UTF-8");
+
+		try {
+			assertTrue(reader.next());
+			assertEquals(3, reader.getFieldCount());
+
+			CharSequence item1 = reader.get(1);
+			assertEquals(4, item1.length());
+			assertEquals('d', item1.charAt(0));
+			assertEquals(',', item1.charAt(2));
+			assertEquals("e,", item1.subSequence(1, 3).toString());
+
+			CharSequence item2 = reader.get(2);
+			assertEquals(6, item2.length());
+			assertEquals('"', item2.charAt(2));
+			assertEquals("gh\"ijk", item2.toString());
+
+			assertTrue(reader.next());
+			assertTrue(reader.next());
+			assertEquals(5, reader.getFieldCount());
+			assertEquals(0, reader.get(2).length());
+			assertEquals(0, reader.get(3).length());
+			assertEquals("\"", reader.getString(4));
+
+			assertTrue(reader.next());
+			assertEquals(0, reader.getFieldCount());
+
+			assertTrue(reader.next());
+			assertEquals("last", reader.getString(0));
+
+			assertFalse(reader.next());
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * 項目数を超えるインデックス
+	 */
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testIndexOutOfBounds() throws IOException {
+		FileUtils.writeStringToFile(this.file, "a,b", "UTF-8");
+
+		MappedCSVReader reader = new MappedCSVReader(
+				this.file, new StandardCSVStrategy(), "UTF-8");
+
+		try {
+			assertTrue(reader.next());
+			reader.get(2);
+		} finally {
+			reader.close();
+		}
+	}
+}
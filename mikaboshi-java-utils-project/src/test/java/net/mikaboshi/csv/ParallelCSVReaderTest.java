@@ -0,0 +1,153 @@
+package net.mikaboshi.csv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelCSVReaderTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		this.file = File.createTempFile("ParallelCSVReaderTest", ".csv");
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(this.file);
+	}
+
+	private String createData() {
+		StringBuilder sb = new StringBuilder();
+
+		for (int i = 0; i < 200; i++) {
+			sb.append(i).append(",あいう,");
+
+			if (i % 3 == 0) {
+				sb.append("\"引用\r\n中の\n改行,\"\"と区切り\"");
+			} else {
+				sb.append("\"\"");
+			}
+
+			sb.append(i % 2 == 0 ? "\r\n" : "\n");
+		}
+
+		return sb.toString();
+	}
+
+	private List<String> sequential(String data) {
+		List<String> result = new ArrayList<String>();
+
+		for (String[] line : new StandardCSVStrategy().csvLines(new StringReader(data))) {
+			result.add(Arrays.asList(line).toString());
+		}
+
+		return result;
+	}
+
+	/**
+	 * 順序どおりの読み込み
+	 */
+	@Test
+	public void testCsvLines() throws IOException {
+		String data = createData();
+		List<String> expected = sequential(data);
+
+		for (String charset : new String[] {"UTF-8", "Windows-31J"}) {
+			FileUtils.writeStringToFile(this.file, data, charset);
+
+			for (long chunkSize = 1L; chunkSize < 100L; chunkSize += 7L) {
+				ParallelCSVReader reader = new ParallelCSVReader(
+						this.file, new StandardCSVStrategy(), charset);
+				reader.setThreads(3);
+				reader.setChunkSize(chunkSize);
+
+				List<String> actual = new ArrayList<String>();
+
+				try {
+					for (String[] line : reader.csvLines()) {
+						actual.add(Arrays.asList(line).toString());
+					}
+				} finally {
+					reader.close();
+				}
+
+				assertEquals(charset + " chunkSize=" + chunkSize, expected, actual);
+			}
+		}
+	}
+
+	/**
+	 * 完了順のチャンク読み込み
+	 */
+	@Test
+	public void testChunks() throws IOException {
+		String data = createData();
+		List<String> expected = sequential(data);
+
+		FileUtils.writeStringToFile(this.file, data, "UTF-8");
+
+		ParallelCSVReader reader = new ParallelCSVReader(
+				this.file, new StandardCSVStrategy(), "UTF-8");
+		reader.setThreads(4);
+		reader.setChunkSize(64L);
+
+		List<List<String>> chunks = new ArrayList<List<String>>();
+
+		try {
+			for (ParallelCSVReader.CSVChunk chunk : reader.chunks()) {
+				while (chunks.size() <= chunk.getIndex()) {
+					chunks.add(null);
+				}
+
+				List<String> lines = new ArrayList<String>();
+
+				for (String[] line : chunk.getLines()) {
+					lines.add(Arrays.asList(line).toString());
+				}
+
+				chunks.set(chunk.getIndex(), lines);
+			}
+		} finally {
+			reader.close();
+		}
+
+		assertTrue(chunks.size() > 1);
+
+		List<String> actual = new ArrayList<String>();
+
+		for (List<String> lines : chunks) {
+			actual.addAll(lines);
+		}
+
+		assertEquals(expected, actual);
+	}
+
+	/**
+	 * CSVFileUtilsからの並列読み込み
+	 */
+	@Test
+	public void testCSVFileUtils() throws IOException {
+		String data = createData();
+
+		FileUtils.writeStringToFile(this.file, data, "UTF-8");
+
+		CSVFileUtils sequential = new CSVFileUtils("UTF-8");
+		CSVFileUtils parallel = new CSVFileUtils("UTF-8");
+		parallel.setThreads(4);
+
+		assertEquals(sequential.readFile(this.file), parallel.readFile(this.file));
+	}
+}
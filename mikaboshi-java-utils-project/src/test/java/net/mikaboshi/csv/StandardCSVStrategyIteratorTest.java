@@ -408,4 +408,97 @@ public class StandardCSVStrategyIteratorTest {
 		assertFalse(iter.hasNext());
 	}
 	
+	/**
+	 * 末尾が改行
+	 */
+	@Test
+	public void testEndWithNewLine() {
+		Reader reader = new CharArrayReader("abc,def\nghi\n".toCharArray());
+		
+		CSVStrategy csvStrategy = new StandardCSVStrategy();
+		
+		Iterator<String[]> iter = csvStrategy.csvLines(reader).iterator();
+		
+		String[] data1 = iter.next();
+		assertEquals(2, data1.length);
+		assertEquals("abc", data1[0]);
+		assertEquals("def", data1[1]);
+		
+		String[] data2 = iter.next();
+		assertEquals(1, data2.length);
+		assertEquals("ghi", data2[0]);
+		
+		assertFalse(iter.hasNext());
+	}
+	
+	/**
+	 * 列の指定
+	 */
+	@Test
+	public void testColumns() {
+		Reader reader = new CharArrayReader("a,b,\"c,d\"\ne\n\nf,g,h".toCharArray());
+		
+		StandardCSVStrategy csvStrategy = new StandardCSVStrategy();
+		
+		Iterator<String[]> iter = csvStrategy.csvLines(reader, new int[] {2, 0}).iterator();
+		
+		String[] data1 = iter.next();
+		assertEquals(2, data1.length);
+		assertEquals("c,d", data1[0]);
+		assertEquals("a", data1[1]);
+		
+		String[] data2 = iter.next();
+		assertNull(data2[0]);
+		assertEquals("e", data2[1]);
+		
+		String[] data3 = iter.next();
+		assertNull(data3[0]);
+		assertNull(data3[1]);
+		
+		String[] data4 = iter.next();
+		assertEquals("h", data4[0]);
+		assertEquals("f", data4[1]);
+		
+		assertFalse(iter.hasNext());
+	}
+	
+	/**
+	 * キー列によるフィルタ
+	 */
+	@Test
+	public void testFilter() {
+		Reader reader = new CharArrayReader(
+				"1,\"A\"\nx\n2,B\n3,C\n\n2,\"D\"\"\"".toCharArray());
+		
+		StandardCSVStrategy csvStrategy = new StandardCSVStrategy();
+		
+		final int[] calls = new int[1];
+		
+		CSVLineFilter filter = new CSVLineFilter() {
+			public boolean accept(String key) {
+				calls[0]++;
+				return "x".equals(key) || "2".equals(key);
+			}
+		};
+		
+		Iterator<String[]> iter = csvStrategy.csvLines(
+				reader, new int[] {1}, 0, filter).iterator();
+		
+		assertTrue(iter.hasNext());
+		assertTrue(iter.hasNext());
+		assertNull(iter.next()[0]);
+		
+		assertEquals("B", iter.next()[0]);
+		assertEquals("D\"", iter.next()[0]);
+		
+		assertFalse(iter.hasNext());
+		assertEquals(6, calls[0]);
+		
+		try {
+			iter.next();
+			fail();
+		} catch (NoSuchElementException e) {
+		}
+	}
+	
 }
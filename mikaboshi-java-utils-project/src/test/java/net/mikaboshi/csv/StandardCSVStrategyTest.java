@@ -5,6 +5,8 @@ import static junit.framework.Assert.assertEquals;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigDecimal;
 
 import net.mikaboshi.csv.StandardCSVStrategy;
 
@@ -197,4 +199,114 @@ public class StandardCSVStrategyTest {
 			+ IOUtils.LINE_SEPARATOR;
 		assertEquals(expected, getOutput());
 	}
+	
+	/**
+	 * 数値・真偽値の出力
+	 */
+	@Test
+	public void testPrintNumbers() {
+		Object[] data = new Object[] {
+				Integer.valueOf(-123), Long.valueOf(Long.MIN_VALUE), Short.valueOf((short) 0),
+				Byte.valueOf((byte) 7), Double.valueOf(1.5), new BigDecimal("-0.10"),
+				Boolean.TRUE, null};
+		
+		this.csvStrategy.printLine(data, this.writer);
+		
+		String expected = "-123,-9223372036854775808,0,7,1.5,-0.10,true,"
+			+ IOUtils.LINE_SEPARATOR;
+		assertEquals(expected, getOutput());
+	}
+	
+	/**
+	 * 整数の桁の境界値の出力
+	 */
+	@Test
+	public void testPrintLongBoundary() {
+		Object[] data = new Object[] {
+				Long.valueOf(Long.MAX_VALUE), Integer.valueOf(10), Integer.valueOf(-100),
+				Integer.valueOf(999), Long.valueOf(1000000000000000000L)};
+		
+		this.csvStrategy.printLine(data, this.writer);
+		
+		String expected = "9223372036854775807,10,-100,999,1000000000000000000"
+			+ IOUtils.LINE_SEPARATOR;
+		assertEquals(expected, getOutput());
+	}
+	
+	/**
+	 * 数値の文字を含む区切り文字での数値の出力
+	 */
+	@Test
+	public void testPrintNumbersWithNumericDelimiter() {
+		Object[] data = new Object[] {Integer.valueOf(102), Double.valueOf(0.5), "x"};
+		this.csvStrategy.setDelimiter("0");
+		
+		this.csvStrategy.printLine(data, this.writer);
+		
+		String expected = "\"102\"0\"0.5\"0x"
+			+ IOUtils.LINE_SEPARATOR;
+		assertEquals(expected, getOutput());
+	}
+	
+	/**
+	 * 常に引用符を付ける出力
+	 */
+	@Test
+	public void testPrintAlwaysQuote() {
+		Object[] data = new Object[] {Integer.valueOf(1), "", null, "a\"b"};
+		this.csvStrategy.setAlwaysQuote(true);
+		this.csvStrategy.setNullString("NULL");
+		
+		this.csvStrategy.printLine(data, this.writer);
+		
+		String expected = "\"1\",\"\",\"NULL\",\"a\"\"b\""
+			+ IOUtils.LINE_SEPARATOR;
+		assertEquals(expected, getOutput());
+	}
+	
+	/**
+	 * 出力とescapeの結果が一致すること
+	 */
+	@Test
+	public void testPrintLineSameAsEscape() {
+		String[] items = new String[] {
+				"", "a", "\"", "\"\"", "a\"b\"", ",", "a,b", "\r", "x\r\ny", "a\"\n,\"", "あ\"い"};
+		
+		for (boolean alwaysQuote : new boolean[] {false, true}) {
+			for (String delimiter : new String[] {",", "\t", "::"}) {
+				StandardCSVStrategy strategy = new StandardCSVStrategy();
+				strategy.setAlwaysQuote(alwaysQuote);
+				strategy.setDelimiter(delimiter);
+				
+				for (String item : items) {
+					StringWriter out = new StringWriter();
+					strategy.printLine(new Object[] {item + delimiter, item}, new PrintWriter(out));
+					
+					assertEquals(
+							strategy.escape(item + delimiter) + delimiter + strategy.escape(item)
+								+ IOUtils.LINE_SEPARATOR,
+							out.toString());
+				}
+			}
+		}
+	}
+	
+	/**
+	 * escapeをオーバーライドしたサブクラスの出力
+	 */
+	@Test
+	public void testPrintOverriddenEscape() {
+		StandardCSVStrategy strategy = new StandardCSVStrategy() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public String escape(Object rawItem) {
+				return "<" + rawItem + ">";
+			}
+		};
+		
+		strategy.printLine(new Object[] {"a", Integer.valueOf(1)}, this.writer);
+		
+		assertEquals("<a>,<1>" + IOUtils.LINE_SEPARATOR, getOutput());
+	}
 }
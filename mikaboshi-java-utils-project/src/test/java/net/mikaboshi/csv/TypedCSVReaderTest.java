@@ -0,0 +1,182 @@
+package net.mikaboshi.csv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+
+import org.junit.Test;
+
+public class TypedCSVReaderTest {
+
+	private static final CSVColumnType[] TYPES = new CSVColumnType[] {
+		CSVColumnType.INT,
+		CSVColumnType.LONG,
+		CSVColumnType.DOUBLE,
+		CSVColumnType.DECIMAL,
+		CSVColumnType.DATE,
+		CSVColumnType.TIMESTAMP,
+		CSVColumnType.STRING
+	};
+
+	private TypedCSVReader createReader(String data) {
+		return new TypedCSVReader(new StringReader(data), new StandardCSVStrategy(), TYPES);
+	}
+
+	/**
+	 * 各型の読み込み
+	 */
+	@Test
+	public void testNext() throws IOException {
+		TypedCSVReader reader = createReader(
+				"-123,9223372036854775807,1.25,\"-0.50\",2010-01-02,2010/1/2 3:04:05.6,\"a\"\"b\"\r\n" +
+				"+7.9,-9223372036854775808,-3e2,1E+3,1981/2/20,2010-12-31T23:59,x");
+
+		try {
+			assertTrue(reader.next());
+			assertEquals(7, reader.getFieldCount());
+			assertEquals(-123, reader.getInt(0));
+			assertEquals(Long.MAX_VALUE, reader.getLong(1));
+			assertEquals(1.25, reader.getDouble(2), 0.0);
+			assertEquals(new BigDecimal("-0.50"), reader.getDecimal(3));
+			assertEquals(Date.valueOf("2010-01-02"), reader.getDate(4));
+			assertEquals(Timestamp.valueOf("2010-01-02 03:04:05.6"), reader.getTimestamp(5));
+			assertEquals("a\"b", reader.getString(6));
+			assertEquals("-0.50", reader.getString(3));
+
+			assertTrue(reader.next());
+			assertEquals(7, reader.getInt(0));
+			assertEquals(Long.MIN_VALUE, reader.getLong(1));
+			assertEquals(-300.0, reader.getDouble(2), 0.0);
+			assertEquals(new BigDecimal("1E+3"), reader.getDecimal(3));
+			assertEquals(Date.valueOf("1981-02-20"), reader.getDate(4));
+			assertEquals(Timestamp.valueOf("2010-12-31 23:59:00"), reader.getTimestamp(5));
+			assertEquals(Integer.valueOf(7), reader.getObject(0));
+			assertEquals(2, reader.getLineCount());
+
+			assertFalse(reader.next());
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * doubleの変換がDouble#parseDoubleと一致すること
+	 */
+	@Test
+	public void testParseDouble() {
+		String[] values = new String[] {
+				"0", "-0", "0.1", "0.3", "123456789012345", "1234567890123456789",
+				"3.14159265358979", "2.718281828459045235", "1e22", "1e23", "1e-22", "1e-300",
+				"4.9e-324", "1.7976931348623157e308", "0.000001234", ".5", "5.", "00012.5000"};
+
+		for (String value : values) {
+			char[] buffer = ("x" + value + "x").toCharArray();
+
+			assertEquals(value,
+					Double.doubleToLongBits(Double.parseDouble(value)),
+					Double.doubleToLongBits(
+							TypedCSVReader.parseDouble(buffer, 1, buffer.length - 1)));
+		}
+	}
+
+	/**
+	 * nullの判定
+	 */
+	@Test
+	public void testNull() throws IOException {
+		TypedCSVReader reader = createReader(",,,\"\",,NULL,NULL\r\n1");
+		reader.setNullString("NULL");
+
+		try {
+			assertTrue(reader.next());
+
+			for (int i = 0; i < TYPES.length; i++) {
+				assertTrue(String.valueOf(i), reader.isNull(i));
+				assertNull(String.valueOf(i), reader.getObject(i));
+			}
+
+			assertEquals(0, reader.getInt(0));
+			assertNull(reader.getDate(4));
+
+			assertTrue(reader.next());
+			assertFalse(reader.isNull(0));
+			assertTrue(reader.isNull(1));
+			assertTrue(reader.isNull(6));
+			assertNull(reader.getString(6));
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * 不正な値
+	 */
+	@Test
+	public void testInvalidValues() throws IOException {
+		String[] lines = new String[] {
+				"2147483648", "abc", ",x", ",,1.2.3", ",,,1,2", ",,,,2010-13-01",
+				",,,,,2010-01-01 12", ",,,,2010-01-01 00:00:00"};
+
+		for (String line : lines) {
+			TypedCSVReader reader = createReader(line);
+
+			try {
+				reader.next();
+				fail(line);
+			} catch (IllegalArgumentException e) {
+				assertTrue(e.getMessage(), e.getMessage().startsWith("line 1, column "));
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+	/**
+	 * 型が異なる列の取得
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testWrongType() throws IOException {
+		TypedCSVReader reader = createReader("1,2");
+
+		try {
+			reader.next();
+			reader.getDouble(0);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * 値を変換しない読み飛ばし（カラム名の行）
+	 */
+	@Test
+	public void testSkip() throws IOException {
+		TypedCSVReader reader = createReader(
+				"INT_COL,LONG_COL,DOUBLE_COL,DECIMAL_COL,DATE_COL,TS_COL,STR_COL\r\n" +
+				"1,2,3,4,2010-01-02,2010-01-02 03:04,x");
+
+		try {
+			assertTrue(reader.skip());
+			assertEquals(1, reader.getLineCount());
+			assertEquals("INT_COL", reader.getString(0));
+			assertTrue(reader.isNull(0));
+
+			assertTrue(reader.next());
+			assertEquals(2, reader.getLineCount());
+			assertEquals(1, reader.getInt(0));
+			assertEquals("x", reader.getString(6));
+
+			assertFalse(reader.skip());
+		} finally {
+			reader.close();
+		}
+	}
+}
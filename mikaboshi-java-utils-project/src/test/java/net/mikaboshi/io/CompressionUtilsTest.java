@@ -0,0 +1,203 @@
+package net.mikaboshi.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompressionUtilsTest {
+
+	private File dir;
+
+	@Before
+	public void setUp() throws IOException {
+		this.dir = File.createTempFile("CompressionUtilsTest", "");
+		this.dir.delete();
+		this.dir.mkdir();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(this.dir);
+	}
+
+	private byte[] createData() {
+		// 複数のチャンクにまたがる、ある程度圧縮できるデータ
+		byte[] data = new byte[1024 * 1024 + 123];
+		Random random = new Random(0L);
+
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) ('a' + random.nextInt(4));
+		}
+
+		return data;
+	}
+
+	private void write(File file, String compression, byte[] data) throws IOException {
+		OutputStream out = CompressionUtils.openOutputStream(file, compression);
+
+		try {
+			// 1バイトの書き込みと、配列の書き込みを混ぜる
+			out.write(data[0]);
+			out.write(data, 1, 1000);
+			out.flush();
+			out.write(data, 1001, data.length - 1001);
+		} finally {
+			out.close();
+		}
+	}
+
+	private byte[] read(File file, String compression) throws IOException {
+		InputStream in = CompressionUtils.openInputStream(file, compression);
+
+		try {
+			return IOUtils.toByteArray(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * 拡張子による判定での読み書き
+	 */
+	@Test
+	public void testAuto() throws IOException {
+		byte[] data = createData();
+
+		for (String name : new String[] {"a.csv", "a.csv.gz", "a.csv.deflate"}) {
+			File file = new File(this.dir, name);
+
+			write(file, null, data);
+			assertTrue(name, Arrays.equals(data, read(file, CompressionUtils.AUTO)));
+		}
+
+		assertEquals(data.length, new File(this.dir, "a.csv").length());
+
+		GZIPInputStream gzip = new GZIPInputStream(
+				FileUtils.openInputStream(new File(this.dir, "a.csv.gz")));
+
+		try {
+			assertTrue(Arrays.equals(data, IOUtils.toByteArray(gzip)));
+		} finally {
+			gzip.close();
+		}
+	}
+
+	/**
+	 * 圧縮形式の指定
+	 */
+	@Test
+	public void testExplicitCompression() throws IOException {
+		byte[] data = createData();
+		File file = new File(this.dir, "a.dat");
+
+		write(file, "GZIP", data);
+		assertTrue(Arrays.equals(data, read(file, CompressionUtils.GZIP)));
+
+		write(file, CompressionUtils.DEFLATE, data);
+		assertTrue(Arrays.equals(data, read(file, CompressionUtils.DEFLATE)));
+	}
+
+	/**
+	 * 不正な圧縮データ
+	 */
+	@Test
+	public void testCorruptData() throws IOException {
+		byte[] data = createData();
+		File file = new File(this.dir, "a.csv.gz");
+
+		write(file, null, data);
+
+		byte[] compressed = FileUtils.readFileToByteArray(file);
+		byte[] truncated = new byte[compressed.length / 2];
+		System.arraycopy(compressed, 0, truncated, 0, truncated.length);
+		FileUtils.writeByteArrayToFile(file, truncated);
+
+		try {
+			read(file, null);
+			fail();
+		} catch (IOException e) {
+			// OK
+		}
+	}
+
+	/**
+	 * 先読み中のRuntimeException
+	 */
+	@Test
+	public void testReadAheadRuntimeException() throws IOException {
+		InputStream broken = new InputStream() {
+			private int count = 0;
+
+			@Override
+			public int read() {
+				if (++this.count > 100) {
+					throw new IllegalStateException("broken");
+				}
+
+				return 'a';
+			}
+		};
+
+		InputStream in = new ReadAheadInputStream(broken, 16, 2);
+
+		try {
+			IOUtils.toByteArray(in);
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("broken", e.getMessage());
+		}
+
+		// 以降の読み込みでも、ストリームの終わりとせずに例外とする
+		try {
+			in.read();
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("broken", e.getMessage());
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * 拡張子の操作
+	 */
+	@Test
+	public void testExtension() {
+		assertEquals(CompressionUtils.GZIP, CompressionUtils.getCompression("EMP.CSV.GZ"));
+		assertEquals(CompressionUtils.DEFLATE, CompressionUtils.getCompression("EMP.csv.zz"));
+		assertEquals(CompressionUtils.NONE, CompressionUtils.getCompression("EMP.csv"));
+
+		assertEquals("EMP.csv", CompressionUtils.removeExtension("EMP.csv.gz"));
+		assertEquals("EMP.csv", CompressionUtils.removeExtension("EMP.csv"));
+
+		assertEquals(".gz", CompressionUtils.getExtension("gzip"));
+		assertEquals("", CompressionUtils.getExtension(null));
+
+		assertEquals(CompressionUtils.GZIP, CompressionUtils.normalize("GZIP", null));
+		assertEquals(CompressionUtils.DEFLATE,
+				CompressionUtils.normalize(CompressionUtils.AUTO, new File("a.csv.zz")));
+		assertEquals(CompressionUtils.NONE, CompressionUtils.normalize(null, null));
+	}
+
+	/**
+	 * 不正な圧縮形式
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidCompression() {
+		CompressionUtils.getExtension("zstd");
+	}
+}
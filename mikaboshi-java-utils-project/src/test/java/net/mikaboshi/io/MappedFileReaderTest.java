@@ -0,0 +1,85 @@
+package net.mikaboshi.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedFileReaderTest {
+
+	private static final String DATA = "abcde\r\nあいうえお\r\n𠮷野家,ｱｲｳ\r\n";
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		this.file = File.createTempFile("MappedFileReaderTest", ".txt");
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(this.file);
+	}
+
+	private String readAll(String charset, int windowSize, int readSize) throws IOException {
+		Reader reader = new MappedFileReader(this.file, charset, windowSize);
+
+		try {
+			StringBuilder sb = new StringBuilder();
+			char[] cbuf = new char[readSize];
+			int n;
+
+			while ((n = reader.read(cbuf, 0, cbuf.length)) != -1) {
+				sb.append(cbuf, 0, n);
+			}
+
+			return sb.toString();
+
+		} finally {
+			IOUtils.closeQuietly(reader);
+		}
+	}
+
+	/**
+	 * UTF-8。ウィンドウ境界をまたぐマルチバイト文字、1文字ずつの読み込み。
+	 */
+	@Test
+	public void testUTF8() throws IOException {
+		FileUtils.writeStringToFile(this.file, DATA, "UTF-8");
+
+		for (int windowSize = 16; windowSize < 24; windowSize++) {
+			assertEquals(DATA, readAll("UTF-8", windowSize, 1));
+			assertEquals(DATA, readAll("UTF-8", windowSize, 5));
+		}
+
+		assertEquals(DATA, readAll("UTF-8", MappedFileReader.DEFAULT_WINDOW_SIZE, 8192));
+	}
+
+	/**
+	 * Windows-31J
+	 */
+	@Test
+	public void testWindows31J() throws IOException {
+		String data = "abcde\r\nあいうえお\r\n表示,ｱｲｳ\r\n";
+		FileUtils.writeStringToFile(this.file, data, "Windows-31J");
+
+		for (int windowSize = 16; windowSize < 24; windowSize++) {
+			assertEquals(data, readAll("Windows-31J", windowSize, 3));
+		}
+	}
+
+	/**
+	 * 空ファイル
+	 */
+	@Test
+	public void testEmpty() throws IOException {
+		assertEquals("", readAll("UTF-8", 16, 10));
+	}
+}
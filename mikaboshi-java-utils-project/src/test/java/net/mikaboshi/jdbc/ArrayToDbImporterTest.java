@@ -2,11 +2,22 @@ package net.mikaboshi.jdbc;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
+import net.mikaboshi.csv.StandardCSVStrategy;
+import net.mikaboshi.csv.TypedCSVReader;
 import net.mikaboshi.jdbc.ArrayToDbImporter;
 
 import org.junit.Test;
@@ -364,5 +375,475 @@ public class ArrayToDbImporterTest extends HSQLDBTestCase {
 			assertNull(rowData.get("DEPTNO"));
 		}
 	}
+	
+	/**
+	 * TypedCSVReaderの行をInsert
+	 * @throws SQLException
+	 * @throws IOException 
+	 */
+	@Test
+	public void testInsertTypedCSVReader() throws SQLException, IOException {
+		String tableName = "EMP";
+		
+		int before = getRecordCount(tableName);
+		
+		ArrayToDbImporter importer =
+			new ArrayToDbImporter(getConnection());
+		importer.setTableName(tableName);
+		importer.initialize();
+		
+		TypedCSVReader reader = new TypedCSVReader(
+				new StringReader(
+						"9998,\"A,B\",CLERK,7902,1980/12/17,1234.50,,20\r\n" +
+						"9999,C,CLERK,,1981/1/1,800,0,10\r\n"),
+				new StandardCSVStrategy(),
+				importer.getCSVColumnTypes());
+		
+		try {
+			while (reader.next()) {
+				assertEquals(1, importer.execute(reader));
+			}
+		} finally {
+			reader.close();
+			importer.close();
+		}
+		
+		List<Map<String, Object>> resultList = getAllRecords(tableName);
+		
+		assertEquals(before + 2, resultList.size());
+		
+		for (Map<String, Object> rowData : resultList) {
+			if (rowData.get("EMPNO").equals(9998)) {
+				assertEquals("A,B", rowData.get("ENAME"));
+				assertEquals(7902, rowData.get("MGR"));
+				assertEquals("1980/12/17", rowData.get("HIREDATE"));
+				assertEquals(0, new BigDecimal("1234.5").compareTo((BigDecimal) rowData.get("SAL")));
+				assertNull(rowData.get("COMM"));
+				assertEquals(20, rowData.get("DEPTNO"));
+			} else if (rowData.get("EMPNO").equals(9999)) {
+				assertNull(rowData.get("MGR"));
+				assertEquals(0, BigDecimal.ZERO.compareTo((BigDecimal) rowData.get("COMM")));
+			}
+		}
+	}
+
+	/**
+	 * バッチでINSERT
+	 * @throws SQLException
+	 */
+	@Test
+	public void testInsertBatch() throws SQLException {
+		String tableName = "SAMPLE_TAB1";
+		
+		int before = getRecordCount(tableName);
+		
+		ArrayToDbImporter importer =
+			new ArrayToDbImporter(getConnection());
+		importer.setTableName(tableName);
+		importer.setBatchSize(3);
+		importer.initialize();
+		
+		try {
+			int[] expected = {0, 0, 3, 0, 0, 3, 0};
+			
+			for (int i = 0; i < expected.length; i++) {
+				assertEquals(expected[i],
+						importer.execute(new String[] {String.valueOf(100 + i), "X"}));
+				
+				// バッチを実行するまでは、INSERTされない
+				assertEquals(before + (i + 1) / 3 * 3, getRecordCount(tableName));
+			}
+			
+			assertEquals(1, importer.flush());
+			assertEquals(0, importer.flush());
+			
+		} finally {
+			importer.close();
+		}
+		
+		assertEquals(before + 7, getRecordCount(tableName));
+	}
+	
+	/**
+	 * バッチでINSERT（一意制約違反の行を含む）
+	 * @throws SQLException
+	 */
+	@Test
+	public void testInsertBatchFailure() throws SQLException {
+		String tableName = "SAMPLE_TAB1";
+		
+		ArrayToDbImporter importer =
+			new ArrayToDbImporter(getConnection());
+		importer.setTableName(tableName);
+		importer.setBatchSize(5);
+		importer.initialize();
+		
+		try {
+			importer.execute(new String[] {"100", "X"}, 10);
+			importer.execute(new String[] {"101", "X"}, 11);
+			importer.execute(new String[] {"1", "X"}, 12);
+			importer.execute(new String[] {"102", "X"}, 13);
+			importer.execute(new String[] {"103", "X"}, 14);
+			fail();
+			
+		} catch (BatchImportException e) {
+			assertEquals("[12]", Arrays.toString(e.getFailedLineNumbers()));
+			
+			// ドライバによって、失敗した行の後を実行するかどうかが異なる
+			int[] notExecuted = e.getNotExecutedLineNumbers();
+			assertEquals(4, e.getUpdateCount() + notExecuted.length);
+			
+			if (notExecuted.length != 0) {
+				assertEquals("[13, 14]", Arrays.toString(notExecuted));
+			}
+			
+			// 失敗したバッチは破棄される
+			assertEquals(0, importer.flush());
+			
+		} finally {
+			importer.close();
+		}
+	}
+	
+	/**
+	 * バッチサイズが不正
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBatchSize() {
+		new ArrayToDbImporter(getConnection()).setBatchSize(0);
+	}
+
+	/**
+	 * 複数行INSERT文の生成
+	 */
+	@Test
+	public void testCreateInsertSql() {
+		String[] columnNames = new String[] {"ID", "NAME"};
+		
+		assertEquals(
+				"insert into T (ID, NAME) values (?, ?)",
+				ArrayToDbImporter.createInsertSql("T", columnNames, 2, 1));
+		
+		assertEquals(
+				"insert into T (ID, NAME) values (?, ?), (?, ?), (?, ?)",
+				ArrayToDbImporter.createInsertSql("T", columnNames, 2, 3));
+	}
+	
+	/**
+	 * 複数行INSERT（パラメータ数の上限により1行ずつ実行）
+	 * @throws SQLException
+	 */
+	@Test
+	public void testRowsPerInsertMaxParameters() throws SQLException {
+		String tableName = "SAMPLE_TAB1";
+		
+		int before = getRecordCount(tableName);
+		
+		ArrayToDbImporter importer =
+			new ArrayToDbImporter(getConnection());
+		importer.setTableName(tableName);
+		importer.setRowsPerInsert(100);
+		importer.setMaxParameters(3);
+		importer.initialize();
+		
+		try {
+			assertEquals(1, importer.execute(new String[] {"100", "X"}));
+			assertEquals(1, importer.execute(new String[] {"101", "X"}));
+			assertEquals(0, importer.flush());
+		} finally {
+			importer.close();
+		}
+		
+		assertEquals(before + 2, getRecordCount(tableName));
+	}
 
+	/**
+	 * 複数行INSERT（行数が揃った文と、残りの行数の文）
+	 * @throws SQLException
+	 */
+	@Test
+	public void testRowsPerInsert() throws SQLException {
+		// HSQLDB 1.8は複数行のVALUES句をサポートしないので、文は実行せずに記録する
+		JdbcRecorder recorder = new JdbcRecorder() {
+			@Override
+			protected Object invoke(Object target, Method method, Object[] args)
+					throws Throwable {
+				
+				if (method.getName().equals("prepareStatement")) {
+					return wrap(null, PreparedStatement.class);
+				}
+				
+				return super.invoke(target, method, args);
+			}
+		};
+		
+		ArrayToDbImporter importer =
+			new ArrayToDbImporter(recorder.wrap(getConnection(), Connection.class));
+		importer.setTableName("SAMPLE_TAB1");
+		importer.setRowsPerInsert(3);
+		importer.initialize();
+		
+		try {
+			// 行数が揃った場合の文は、initializeで生成する
+			List<Object[]> sqls = recorder.getArguments("prepareStatement");
+			assertEquals(2, sqls.size());
+			assertEquals(
+					"insert into SAMPLE_TAB1 (ID, NAME) values (?, ?), (?, ?), (?, ?)",
+					sqls.get(1)[0]);
+			
+			recorder.clear();
+			
+			for (int i = 1; i <= 5; i++) {
+				importer.execute(new String[] {String.valueOf(100 + i), "N" + i}, i);
+			}
+			
+			importer.flush();
+			
+			// 3行ずつ実行し、残りの2行は2行の文で実行する
+			assertEquals(Arrays.asList(
+					"clearParameters",
+					"setInt[1, 101]",
+					"setObject[2, N1, " + Types.VARCHAR + "]",
+					"setInt[3, 102]",
+					"setObject[4, N2, " + Types.VARCHAR + "]",
+					"setInt[5, 103]",
+					"setObject[6, N3, " + Types.VARCHAR + "]",
+					"executeUpdate",
+					"prepareStatement[insert into SAMPLE_TAB1 (ID, NAME) values (?, ?), (?, ?)]",
+					"clearParameters",
+					"setInt[1, 104]",
+					"setObject[2, N4, " + Types.VARCHAR + "]",
+					"setInt[3, 105]",
+					"setObject[4, N5, " + Types.VARCHAR + "]",
+					"executeUpdate"),
+					recorder.getCalls());
+			
+		} finally {
+			importer.close();
+		}
+	}
+	
+	/**
+	 * 集合指向のreplace（InsertとUpdateを交互に）
+	 * @throws SQLException
+	 */
+	@Test
+	public void testSetBasedReplace() throws SQLException {
+		String tableName = "SAMPLE_TAB1";
+		
+		int before = getRecordCount(tableName);
+		
+		// 2: 複数回に分けて反映、10: 主キーが重複する行を1回で反映
+		for (int replaceBatchSize : new int[] {2, 10}) {
+			ArrayToDbImporter importer =
+				new ArrayToDbImporter(getConnection());
+			importer.setTableName(tableName);
+			importer.setReplace(true);
+			importer.setReplaceBatchSize(replaceBatchSize);
+			importer.initialize();
+			
+			try {
+				importer.execute(new String[] {"100", "A"});
+				importer.execute(new String[] {"1", "B"});
+				importer.execute(new String[] {"101", "C"});
+				importer.execute(new String[] {"2", "D"});
+				importer.execute(new String[] {"1", "E"});
+				importer.flush();
+			} finally {
+				importer.close();
+			}
+			
+			List<Map<String, Object>> resultList = getAllRecords(tableName);
+			
+			assertEquals(before + 2, resultList.size());
+			
+			for (Map<String, Object> rowData : resultList) {
+				int id = (Integer) rowData.get("id");
+				String name = (String) rowData.get("name");
+				
+				switch (id) {
+				case 1:
+					assertEquals("E", name);
+					break;
+				case 2:
+					assertEquals("D", name);
+					break;
+				case 100:
+					assertEquals("A", name);
+					break;
+				case 101:
+					assertEquals("C", name);
+					break;
+				default:
+					
+				}
+			}
+		}
+	}
+
+	/**
+	 * 主キーを読み込んでreplace（InsertとUpdateを交互に）
+	 * @throws SQLException
+	 */
+	@Test
+	public void testReplacePreloadPrimaryKeys() throws SQLException {
+		String tableName = "SAMPLE_TAB1";
+		
+		int before = getRecordCount(tableName);
+		
+		// 1: 1行ずつ実行、2: UPDATEとINSERTをバッチで実行
+		for (int batchSize : new int[] {1, 2}) {
+			ArrayToDbImporter importer =
+				new ArrayToDbImporter(getConnection());
+			importer.setTableName(tableName);
+			importer.setReplace(true);
+			importer.setPreloadPrimaryKeys(true);
+			importer.setBatchSize(batchSize);
+			importer.initialize();
+			
+			int count = 0;
+			
+			try {
+				count += importer.execute(new String[] {"100", "A"});
+				count += importer.execute(new String[] {"1", "B"});
+				count += importer.execute(new String[] {"101", "C"});
+				count += importer.execute(new String[] {"100", "D"});
+				count += importer.execute(new String[] {"1", "E"});
+				count += importer.flush();
+			} finally {
+				importer.close();
+			}
+			
+			assertEquals(5, count);
+			
+			List<Map<String, Object>> resultList = getAllRecords(tableName);
+			
+			assertEquals(before + 2, resultList.size());
+			
+			for (Map<String, Object> rowData : resultList) {
+				int id = (Integer) rowData.get("id");
+				String name = (String) rowData.get("name");
+				
+				switch (id) {
+				case 1:
+					assertEquals("E", name);
+					break;
+				case 100:
+					assertEquals("D", name);
+					break;
+				case 101:
+					assertEquals("C", name);
+					break;
+				default:
+					
+				}
+			}
+		}
+	}
+	/**
+	 * 主キーを読み込んでreplace（INSERTのバッチが失敗した後に、同じ主キーの行）
+	 * @throws SQLException
+	 */
+	@Test
+	public void testReplacePreloadPrimaryKeysBatchFailure() throws SQLException {
+		DmlExecutor.execute(getConnection(),
+				"create table PK_CACHE_TEST (id integer primary key, name varchar not null)");
+		
+		try {
+			ArrayToDbImporter importer =
+				new ArrayToDbImporter(getConnection());
+			importer.setTableName("PK_CACHE_TEST");
+			importer.setReplace(true);
+			importer.setPreloadPrimaryKeys(true);
+			importer.setBatchSize(2);
+			importer.initialize();
+			
+			try {
+				// NOT NULL制約違反
+				importer.execute(new String[] {"2", null}, 1);
+				
+				try {
+					importer.execute(new String[] {"1", "A"}, 2);
+					fail();
+					
+				} catch (BatchImportException e) {
+					assertEquals("[1]", Arrays.toString(e.getFailedLineNumbers()));
+				}
+				
+				// 失敗した行の主キーはキャッシュに残らないので、UPDATEではなくINSERTとなる
+				importer.execute(new String[] {"2", "B"}, 3);
+				importer.execute(new String[] {"1", "C"}, 4);
+				importer.flush();
+				
+			} finally {
+				importer.close();
+			}
+			
+			List<Map<String, Object>> resultList = getAllRecords("PK_CACHE_TEST");
+			
+			assertEquals(2, resultList.size());
+			
+			for (Map<String, Object> rowData : resultList) {
+				int id = (Integer) rowData.get("id");
+				String name = (String) rowData.get("name");
+				
+				switch (id) {
+				case 1:
+					assertEquals("C", name);
+					break;
+				case 2:
+					assertEquals("B", name);
+					break;
+				default:
+					fail();
+				}
+			}
+			
+		} finally {
+			DmlExecutor.execute(getConnection(), "drop table PK_CACHE_TEST");
+		}
+	}
+	
+	/**
+	 * 主キーを読み込んでreplace（整数型の主キーに小数を指定）
+	 * @throws SQLException
+	 */
+	@Test
+	public void testReplacePreloadPrimaryKeysNonIntegral() throws SQLException {
+		DmlExecutor.execute(getConnection(),
+				"create table PK_CACHE_TEST (id integer primary key, name varchar)");
+		
+		try {
+			for (int batchSize : new int[] {1, 2}) {
+				ArrayToDbImporter importer =
+					new ArrayToDbImporter(getConnection());
+				importer.setTableName("PK_CACHE_TEST");
+				importer.setReplace(true);
+				importer.setPreloadPrimaryKeys(true);
+				importer.setBatchSize(batchSize);
+				importer.initialize();
+				
+				try {
+					// 1.5は1として登録されるので、2行目はUPDATEとなる
+					importer.execute(new String[] {"1.5", "A"});
+					importer.execute(new String[] {"1", "B"});
+					importer.flush();
+					
+				} finally {
+					importer.close();
+				}
+				
+				List<Map<String, Object>> resultList = getAllRecords("PK_CACHE_TEST");
+				
+				assertEquals(1, resultList.size());
+				assertEquals(1, resultList.get(0).get("id"));
+				assertEquals("B", resultList.get(0).get("name"));
+				
+				DmlExecutor.execute(getConnection(), "delete from PK_CACHE_TEST");
+			}
+			
+		} finally {
+			DmlExecutor.execute(getConnection(), "drop table PK_CACHE_TEST");
+		}
+	}
 }
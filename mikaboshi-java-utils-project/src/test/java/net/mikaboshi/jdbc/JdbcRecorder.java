@@ -0,0 +1,171 @@
+package net.mikaboshi.jdbc;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * テスト用に、JDBCのオブジェクトのメソッド呼び出しを記録するプロキシを作成する。
+ * </p><p>
+ * プロキシは、呼び出しを記録してから元のオブジェクトに委譲する。
+ * 元のオブジェクトがnullの場合は、委譲せずにnull（プリミティブ型の場合は0またはfalse）を返す。
+ * {@link #wrapResults(Class...)} で指定したインタフェースを返すメソッドの戻り値も、
+ * 同じ記録を共有するプロキシとする。（ConnectionのprepareStatementなど）
+ * </p><p>
+ * 呼び出しの結果を置き換える場合は、{@link #invoke(Object, Method, Object[])}
+ * をオーバーライドする。
+ * </p>
+ */
+public class JdbcRecorder {
+
+	private final List<Class<?>> resultTypes = new ArrayList<Class<?>>();
+
+	private final List<String> names = new ArrayList<String>();
+
+	private final List<Object[]> arguments = new ArrayList<Object[]>();
+
+	/**
+	 * 戻り値もプロキシとするインタフェースを指定する。
+	 * @param types
+	 * @return このインスタンス
+	 */
+	public JdbcRecorder wrapResults(Class<?>... types) {
+		this.resultTypes.addAll(Arrays.asList(types));
+		return this;
+	}
+
+	/**
+	 * 呼び出しを記録するプロキシを返す。
+	 * @param target 委譲するオブジェクト（null可）
+	 * @param type プロキシのインタフェース
+	 * @return プロキシ
+	 */
+	public <T> T wrap(final Object target, Class<T> type) {
+		return type.cast(Proxy.newProxyInstance(
+				getClass().getClassLoader(),
+				new Class<?>[] {type},
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args)
+							throws Throwable {
+
+						record(method.getName(), args);
+
+						Object result = JdbcRecorder.this.invoke(target, method, args);
+
+						return wrapResult(result, method.getReturnType());
+					}
+				}));
+	}
+
+	/**
+	 * 元のオブジェクトのメソッドを呼び出す。
+	 * @param target 委譲するオブジェクト（null可）
+	 * @param method
+	 * @param args
+	 * @return 戻り値
+	 * @throws Throwable 元のオブジェクトがスローした例外
+	 */
+	protected Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		if (target == null) {
+			return getDefaultValue(method.getReturnType());
+		}
+
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	private static Object getDefaultValue(Class<?> type) {
+		if (!type.isPrimitive() || type == void.class) {
+			return null;
+		}
+
+		// プリミティブ型の配列の要素の初期値（0、false）
+		return Array.get(Array.newInstance(type, 1), 0);
+	}
+
+	private synchronized void record(String name, Object[] args) {
+		this.names.add(name);
+		this.arguments.add(args == null ? new Object[0] : args.clone());
+	}
+
+	private Object wrapResult(Object result, Class<?> returnType) {
+		if (result == null || !returnType.isInterface()) {
+			return result;
+		}
+
+		for (Class<?> type : this.resultTypes) {
+			if (type.isAssignableFrom(returnType)) {
+				return wrap(result, returnType);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * メソッドの呼び出し回数を返す。
+	 * @param name メソッド名
+	 * @return
+	 */
+	public synchronized int getCount(String name) {
+		int count = 0;
+
+		for (String n : this.names) {
+			if (n.equals(name)) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * メソッドの呼び出しごとの引数を、呼び出し順に返す。
+	 * @param name メソッド名
+	 * @return
+	 */
+	public synchronized List<Object[]> getArguments(String name) {
+		List<Object[]> result = new ArrayList<Object[]>();
+
+		for (int i = 0; i < this.names.size(); i++) {
+			if (this.names.get(i).equals(name)) {
+				result.add(this.arguments.get(i));
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * 全ての呼び出しを、「メソッド名[引数, ...]」（引数がない場合はメソッド名のみ）の形式で、
+	 * 呼び出し順に返す。
+	 * @return
+	 */
+	public synchronized List<String> getCalls() {
+		List<String> result = new ArrayList<String>();
+
+		for (int i = 0; i < this.names.size(); i++) {
+			Object[] args = this.arguments.get(i);
+			result.add(this.names.get(i) + (args.length == 0 ? "" : Arrays.asList(args).toString()));
+		}
+
+		return result;
+	}
+
+	/**
+	 * 記録を消去する。
+	 */
+	public synchronized void clear() {
+		this.names.clear();
+		this.arguments.clear();
+	}
+}
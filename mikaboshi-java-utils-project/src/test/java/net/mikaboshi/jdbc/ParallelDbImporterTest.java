@@ -0,0 +1,235 @@
+package net.mikaboshi.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+@SuppressWarnings("boxing")
+public class ParallelDbImporterTest extends HSQLDBTestCase {
+	
+	private static final String TABLE_NAME = "SAMPLE_TAB1";
+	
+	private int batchSize = 10;
+	
+	private ParallelDbImporter.ImporterFactory factory =
+		new ParallelDbImporter.ImporterFactory() {
+		
+			public Connection createConnection() throws SQLException {
+				try {
+					Connection conn = DbUtils.getConnection(
+							getTestPath(getJdbcPropFileName()));
+					conn.setAutoCommit(false);
+					return conn;
+				} catch (IOException e) {
+					throw new IllegalStateException(e);
+				} catch (ClassNotFoundException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+			
+			public ArrayToDbImporter createImporter(Connection connection)
+					throws SQLException {
+				ArrayToDbImporter importer = new ArrayToDbImporter(connection);
+				importer.setTableName(TABLE_NAME);
+				importer.setBatchSize(batchSize);
+				importer.initialize();
+				return importer;
+			}
+		};
+	
+	private List<String[]> createRows(int count) {
+		List<String[]> rows = new ArrayList<String[]>();
+		
+		for (int i = 0; i < count; i++) {
+			rows.add(new String[] {String.valueOf(1000 + i), "N" + i});
+		}
+		
+		return rows;
+	}
+	
+	/**
+	 * 複数のスレッドでINSERT
+	 * @throws SQLException
+	 */
+	@Test
+	public void testExecute() throws SQLException {
+		int before = getRecordCount(TABLE_NAME);
+		
+		ParallelDbImporter importer = new ParallelDbImporter(this.factory, 3);
+		importer.setChunkSize(100);
+		importer.setQueueCapacity(2);
+		
+		int count = importer.execute(createRows(2550).iterator(), 1);
+		
+		assertEquals(2550, count);
+		assertEquals(2550, importer.getCommittedCount());
+		assertEquals(2550, importer.getRowCount());
+		assertEquals(before + 2550, getRecordCount(TABLE_NAME));
+	}
+	
+	/**
+	 * 行データが無い場合
+	 * @throws SQLException
+	 */
+	@Test
+	public void testExecuteEmpty() throws SQLException {
+		ParallelDbImporter importer = new ParallelDbImporter(this.factory, 2);
+		
+		assertEquals(0, importer.execute(
+				Collections.<String[]>emptyList().iterator(), 1));
+	}
+	
+	/**
+	 * エラーで中断（コミット済みのチャンクは残る）
+	 * @throws SQLException
+	 */
+	@Test
+	public void testHaltOnError() throws SQLException {
+		int before = getRecordCount(TABLE_NAME);
+		
+		List<String[]> rows = createRows(1000);
+		// 主キー重複
+		rows.set(550, new String[] {"1", "X"});
+		
+		ParallelDbImporter importer = new ParallelDbImporter(this.factory, 2);
+		importer.setChunkSize(100);
+		
+		try {
+			importer.execute(rows.iterator(), 1);
+			fail();
+		} catch (SQLException e) {
+		}
+		
+		int committed = importer.getCommittedCount();
+		
+		assertTrue(committed < 1000);
+		assertEquals(0, committed % 100);
+		assertEquals(before + committed, getRecordCount(TABLE_NAME));
+	}
+	
+	/**
+	 * 行データの読み込みに失敗（コミット中のチャンクの終了を待つ）
+	 * @throws SQLException
+	 */
+	@Test
+	public void testReadFailure() throws SQLException {
+		int before = getRecordCount(TABLE_NAME);
+		
+		final CountDownLatch started = new CountDownLatch(1);
+		
+		// 最初の行で時間がかかる書き込みスレッド
+		ParallelDbImporter.ImporterFactory slowFactory = new ParallelDbImporter.ImporterFactory() {
+			
+			public Connection createConnection() throws SQLException {
+				return factory.createConnection();
+			}
+			
+			public ArrayToDbImporter createImporter(Connection connection)
+					throws SQLException {
+				ArrayToDbImporter importer = new ArrayToDbImporter(connection) {
+					@Override
+					public int execute(String[] rowData, int lineNumber) throws SQLException {
+						if (started.getCount() > 0) {
+							started.countDown();
+							
+							// 割り込みでは中断されない処理
+							long end = System.nanoTime() + 300L * 1000L * 1000L;
+							while (System.nanoTime() < end) {
+								Thread.yield();
+							}
+						}
+						
+						return super.execute(rowData, lineNumber);
+					}
+				};
+				importer.setTableName(TABLE_NAME);
+				importer.initialize();
+				return importer;
+			}
+		};
+		
+		final List<String[]> rows = createRows(100);
+		
+		// 1つ目のチャンクの書き込み中に失敗する
+		Iterator<String[]> iterator = new Iterator<String[]>() {
+			private int index = 0;
+			
+			public boolean hasNext() {
+				return true;
+			}
+			
+			public String[] next() {
+				if (this.index == rows.size()) {
+					try {
+						started.await();
+					} catch (InterruptedException e) {
+						throw new IllegalStateException(e);
+					}
+					throw new IllegalStateException("broken");
+				}
+				return rows.get(this.index++);
+			}
+			
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+		
+		ParallelDbImporter importer = new ParallelDbImporter(slowFactory, 1);
+		importer.setChunkSize(100);
+		
+		try {
+			importer.execute(iterator, 1);
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("broken", e.getMessage());
+		}
+		
+		assertEquals(100, importer.getCommittedCount());
+		assertEquals(before + 100, getRecordCount(TABLE_NAME));
+	}
+	
+	/**
+	 * エラーが発生した行をスキップして継続
+	 * @throws SQLException
+	 */
+	@Test
+	public void testContinueOnError() throws SQLException {
+		int before = getRecordCount(TABLE_NAME);
+		
+		List<String[]> rows = createRows(1000);
+		rows.set(550, new String[] {"1", "X"});
+		
+		// 1行ずつ実行
+		this.batchSize = 1;
+		
+		final List<Integer> errorLines = Collections.synchronizedList(new ArrayList<Integer>());
+		
+		ParallelDbImporter importer = new ParallelDbImporter(this.factory, 2);
+		importer.setChunkSize(100);
+		importer.setErrorHandler(new ParallelDbImporter.ErrorHandler() {
+			public int handleError(SQLException e, int lineNumber, Connection connection) {
+				errorLines.add(lineNumber);
+				return 0;
+			}
+		});
+		
+		int count = importer.execute(rows.iterator(), 11);
+		
+		assertEquals(1, errorLines.size());
+		assertEquals(561, errorLines.get(0).intValue());
+		assertEquals(999, count);
+		assertEquals(before + 999, getRecordCount(TABLE_NAME));
+	}
+}
@@ -0,0 +1,147 @@
+package net.mikaboshi.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Types;
+
+import net.mikaboshi.jdbc.PrimaryKeyCache.CompositeKeyCache;
+import net.mikaboshi.jdbc.PrimaryKeyCache.LongHashSet;
+import net.mikaboshi.jdbc.PrimaryKeyCache.LongKeyCache;
+
+import org.junit.Test;
+
+public class PrimaryKeyCacheTest {
+	
+	/**
+	 * long値のハッシュセット
+	 */
+	@Test
+	public void testLongHashSet() {
+		LongHashSet set = new LongHashSet();
+		
+		for (long i = -1000L; i < 1000L; i += 2L) {
+			assertTrue(set.add(i * 1024L));
+		}
+		
+		assertFalse(set.add(0L));
+		assertFalse(set.add(-2048L));
+		assertEquals(1000, set.size());
+		
+		for (long i = -1000L; i < 1000L; i++) {
+			assertEquals(i % 2L == 0L, set.contains(i * 1024L));
+		}
+		
+		assertFalse(set.contains(1L));
+		assertFalse(set.contains(Long.MAX_VALUE));
+	}
+	
+	/**
+	 * 整数の主キー
+	 */
+	@Test
+	public void testLongKeyCache() {
+		LongKeyCache cache = new LongKeyCache(1);
+		cache.addKey(new String[] {"10"});
+		cache.add(new String[] {"X", "0"});
+		
+		assertTrue(cache.contains(new String[] {"Y", "10"}));
+		assertTrue(cache.contains(new String[] {"Y", " 10.0 "}));
+		assertTrue(cache.contains(new String[] {"Y", "0"}));
+		assertFalse(cache.contains(new String[] {"Y", "11"}));
+		assertFalse(cache.contains(new String[] {"Y", "abc"}));
+		assertFalse(cache.contains(new String[] {"Y", null}));
+		assertEquals(2, cache.size());
+	}
+	
+	/**
+	 * 整数以外の値は、整数型のカラムに設定される値（小数部を切り捨てた値）とする
+	 */
+	@Test
+	public void testNonIntegralKey() {
+		LongKeyCache cache = new LongKeyCache(0);
+		cache.add(new String[] {"1.5"});
+		cache.addPending(new String[] {"-2.9"});
+		
+		assertTrue(cache.contains(new String[] {"1"}));
+		assertTrue(cache.contains(new String[] {"1.99"}));
+		assertFalse(cache.contains(new String[] {"2"}));
+		assertTrue(cache.isPending(new String[] {"-2"}));
+		assertEquals(1, cache.size());
+		
+		CompositeKeyCache compositeCache = new CompositeKeyCache(
+				new int[] {Types.INTEGER, Types.DECIMAL}, new int[] {0, 1});
+		compositeCache.add(new String[] {"1.5", "1.5"});
+		
+		assertTrue(compositeCache.contains(new String[] {"1", "1.50"}));
+		assertFalse(compositeCache.contains(new String[] {"1", "1"}));
+	}
+	
+	/**
+	 * 複合キー
+	 */
+	@Test
+	public void testCompositeKeyCache() {
+		CompositeKeyCache cache = new CompositeKeyCache(
+				new int[] {Types.CHAR, Types.DECIMAL, Types.VARCHAR},
+				new int[] {2, 0, 1});
+		
+		// DBから読み込んだ値（固定長文字列は空白で埋められている）
+		cache.addKey(new String[] {"A   ", "1.50", "b"});
+		
+		assertTrue(cache.contains(new String[] {"1.5", "b", "A"}));
+		assertTrue(cache.contains(new String[] {"01.500", "b", "A  "}));
+		assertFalse(cache.contains(new String[] {"1.5", "b ", "A"}));
+		assertFalse(cache.contains(new String[] {"1.5", "B", "A"}));
+		assertFalse(cache.contains(new String[] {"1.5", null, "A"}));
+		
+		cache.add(new String[] {"0.0", "c", "D"});
+		assertTrue(cache.contains(new String[] {"0", "c", "D"}));
+		assertEquals(2, cache.size());
+	}
+	
+	/**
+	 * サポートするデータ型
+	 */
+	@Test
+	public void testIsSupported() {
+		assertTrue(PrimaryKeyCache.isSupported(new int[] {Types.INTEGER, Types.VARCHAR}));
+		assertFalse(PrimaryKeyCache.isSupported(new int[] {Types.INTEGER, Types.DATE}));
+	}
+	
+	/**
+	 * 実行前の主キーの確定と破棄
+	 */
+	@Test
+	public void testPending() {
+		LongKeyCache cache = new LongKeyCache(0);
+		cache.addPending(new String[] {"1"});
+		cache.addPending(new String[] {null});
+		cache.addPending(new String[] {"2"});
+		
+		assertTrue(cache.isPending(new String[] {"1.0"}));
+		assertTrue(cache.isPending(new String[] {"2"}));
+		assertFalse(cache.contains(new String[] {"1"}));
+		
+		// 2行目（null）と3行目を破棄
+		cache.commitPending(new boolean[] {false, true, true});
+		
+		assertTrue(cache.contains(new String[] {"1"}));
+		assertFalse(cache.contains(new String[] {"2"}));
+		assertFalse(cache.isPending(new String[] {"1"}));
+		assertFalse(cache.isPending(new String[] {"2"}));
+		assertEquals(1, cache.size());
+		
+		CompositeKeyCache compositeCache = new CompositeKeyCache(
+				new int[] {Types.VARCHAR, Types.INTEGER}, new int[] {0, 1});
+		compositeCache.addPending(new String[] {"a", "01"});
+		
+		assertTrue(compositeCache.isPending(new String[] {"a", "1"}));
+		
+		compositeCache.commitPending(null);
+		
+		assertTrue(compositeCache.contains(new String[] {"a", "1"}));
+		assertFalse(compositeCache.isPending(new String[] {"a", "1"}));
+	}
+}
@@ -2,7 +2,13 @@ package net.mikaboshi.jdbc;
 
 import static org.junit.Assert.*;
 
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -68,4 +74,146 @@ public class QueryExecutorTest extends HSQLDBTestCase {
 		assertEquals(2, resultList.get(0).get("ID"));
 		assertEquals("あああ", resultList.get(0).get("name"));
 	}
+
+	@Test
+	public void testExecute_Streaming() throws SQLException {
+		ResultSetToMapListHandler handler = new ResultSetToMapListHandler();
+		
+		QueryExecutor executor = new QueryExecutor(getConnection(), handler);
+		executor.setStreaming(true);
+		executor.setFetchSize(2);
+		executor.execute("select * from SAMPLE_TAB1 order by id");
+		
+		assertEquals(3, handler.getResultList().size());
+	}
+	
+	@Test
+	public void testExecute_StreamingFetchSize() throws SQLException {
+		RecordingConnection recorder = new RecordingConnection(getConnection(), "HSQL Database Engine");
+		
+		QueryExecutor executor = new QueryExecutor(recorder.getProxy(), new ResultSetToMapListHandler());
+		executor.setStreaming(true);
+		executor.execute("select * from SAMPLE_TAB1");
+		executor.execute("select * from SAMPLE_TAB1 where id < ?", new Object[] {3});
+		
+		assertEquals(2, recorder.fetchSizes.size());
+		assertEquals(QueryExecutor.DEFAULT_STREAMING_FETCH_SIZE, recorder.fetchSizes.get(0).intValue());
+		assertEquals(QueryExecutor.DEFAULT_STREAMING_FETCH_SIZE, recorder.fetchSizes.get(1).intValue());
+		assertEquals(2, recorder.forwardOnlyCount);
+	}
+	
+	@Test
+	public void testExecute_NotStreaming() throws SQLException {
+		RecordingConnection recorder = new RecordingConnection(getConnection(), "HSQL Database Engine");
+		
+		QueryExecutor executor = new QueryExecutor(recorder.getProxy(), new ResultSetToMapListHandler());
+		executor.execute("select * from SAMPLE_TAB1");
+		
+		// 従来どおり、フェッチサイズは設定しない
+		assertEquals(0, recorder.fetchSizes.size());
+		assertEquals(0, recorder.forwardOnlyCount);
+	}
+	
+	@Test
+	public void testExecute_StreamingMySQL() throws SQLException {
+		RecordingConnection recorder = new RecordingConnection(getConnection(), "MySQL");
+		
+		QueryExecutor executor = new QueryExecutor(recorder.getProxy(), new ResultSetToMapListHandler());
+		executor.setStreaming(true);
+		executor.setFetchSize(500);
+		executor.execute("select * from SAMPLE_TAB1");
+		
+		assertEquals(1, recorder.fetchSizes.size());
+		assertEquals(Integer.MIN_VALUE, recorder.fetchSizes.get(0).intValue());
+	}
+	
+	@Test
+	public void testExecute_StreamingPostgreSQL() throws SQLException {
+		Connection conn = getConnection();
+		boolean autoCommit = conn.getAutoCommit();
+		
+		try {
+			conn.setAutoCommit(true);
+			
+			RecordingConnection recorder = new RecordingConnection(conn, "PostgreSQL");
+			
+			QueryExecutor executor = new QueryExecutor(recorder.getProxy(), new ResultSetToMapListHandler());
+			executor.setStreaming(true);
+			executor.setFetchSize(500);
+			executor.execute("select * from SAMPLE_TAB1");
+			
+			assertEquals(500, recorder.fetchSizes.get(0).intValue());
+			
+			// 実行中のみ自動コミットを無効にする
+			assertEquals(2, recorder.autoCommits.size());
+			assertFalse(recorder.autoCommits.get(0));
+			assertTrue(recorder.autoCommits.get(1));
+			assertTrue(conn.getAutoCommit());
+			
+		} finally {
+			conn.setAutoCommit(autoCommit);
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetFetchSize_Negative() throws SQLException {
+		new QueryExecutor(getConnection(), new ResultSetToMapListHandler()).setFetchSize(-1);
+	}
+	
+	/**
+	 * DB製品名を置き換え、フェッチサイズ等の設定を記録するコネクション。
+	 */
+	private static class RecordingConnection extends JdbcRecorder {
+		
+		private final Connection connection;
+		
+		private final String productName;
+		
+		final List<Integer> fetchSizes = new ArrayList<Integer>();
+		
+		final List<Boolean> autoCommits = new ArrayList<Boolean>();
+		
+		int forwardOnlyCount = 0;
+		
+		RecordingConnection(Connection connection, String productName) {
+			this.connection = connection;
+			this.productName = productName;
+			wrapResults(DatabaseMetaData.class, Statement.class);
+		}
+		
+		Connection getProxy() {
+			return wrap(this.connection, Connection.class);
+		}
+		
+		@Override
+		protected Object invoke(Object target, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			
+			if (name.equals("getDatabaseProductName")) {
+				return this.productName;
+			}
+			
+			if (name.equals("setAutoCommit")) {
+				this.autoCommits.add((Boolean) args[0]);
+			}
+			
+			if ((name.equals("createStatement") && args != null && args.length == 2 ||
+					name.equals("prepareStatement") && args.length == 3) &&
+					((Integer) args[args.length - 2]).intValue() == ResultSet.TYPE_FORWARD_ONLY &&
+					((Integer) args[args.length - 1]).intValue() == ResultSet.CONCUR_READ_ONLY) {
+				this.forwardOnlyCount++;
+			}
+			
+			if (name.equals("setFetchSize")) {
+				this.fetchSizes.add((Integer) args[0]);
+				
+				if (((Integer) args[0]).intValue() < 0) {
+					// Integer.MIN_VALUEはMySQL固有の値
+					return null;
+				}
+			}
+			
+			return super.invoke(target, method, args);
+		}
+	}
 }
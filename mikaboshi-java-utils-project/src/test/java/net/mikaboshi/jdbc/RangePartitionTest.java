@@ -0,0 +1,108 @@
+package net.mikaboshi.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class RangePartitionTest extends HSQLDBTestCase {
+
+	@Test
+	public void testGetPartitionColumn() throws SQLException {
+		assertEquals("EMPNO", RangePartition.getPartitionColumn(getConnection(), null, "EMP"));
+	}
+	
+	@Test
+	public void testGetPartitionColumn_CompositeKey() throws SQLException {
+		assertNull(RangePartition.getPartitionColumn(getConnection(), null, "SAMPLE_TAB2"));
+	}
+	
+	@Test
+	public void testSplit() throws SQLException {
+		List<RangePartition> partitions =
+			RangePartition.split(getConnection(), "EMP", "EMPNO", 4);
+		
+		assertEquals(4, partitions.size());
+		
+		assertNull(partitions.get(0).getLower());
+		assertNull(partitions.get(3).getUpper());
+		
+		for (int i = 1; i < partitions.size(); i++) {
+			assertEquals(partitions.get(i - 1).getUpper(), partitions.get(i).getLower());
+		}
+		
+		// 全ての範囲で、全ての行を重複なく取得する
+		Set<Object> empnos = new HashSet<Object>();
+		int count = 0;
+		
+		for (RangePartition partition : partitions) {
+			List<Map<String, Object>> rows = QueryExecutor.query(
+					getConnection(),
+					partition.getSelectSql("EMP"),
+					partition.getParameters());
+			
+			assertFalse(rows.isEmpty());
+			
+			for (Map<String, Object> row : rows) {
+				empnos.add(row.get("EMPNO"));
+				count++;
+			}
+		}
+		
+		assertEquals(14, count);
+		assertEquals(14, empnos.size());
+	}
+	
+	@Test
+	public void testSplit_NarrowRange() throws SQLException {
+		// idは1～3
+		List<RangePartition> partitions =
+			RangePartition.split(getConnection(), "SAMPLE_TAB1", "ID", 10);
+		
+		assertEquals(3, partitions.size());
+		
+		for (RangePartition partition : partitions) {
+			List<Map<String, Object>> rows = QueryExecutor.query(
+					getConnection(),
+					partition.getSelectSql("SAMPLE_TAB1"),
+					partition.getParameters());
+			
+			assertEquals(1, rows.size());
+		}
+	}
+	
+	@Test
+	public void testSplit_EmptyTable() throws SQLException {
+		DmlExecutor.execute(getConnection(), "delete from SAMPLE_TAB1");
+		
+		List<RangePartition> partitions =
+			RangePartition.split(getConnection(), "SAMPLE_TAB1", "ID", 4);
+		
+		assertEquals(1, partitions.size());
+		assertNull(partitions.get(0).getCondition());
+		assertEquals(0, partitions.get(0).getParameters().length);
+		assertEquals("select * from SAMPLE_TAB1", partitions.get(0).getSelectSql("SAMPLE_TAB1"));
+	}
+	
+	@Test
+	public void testGetCondition() {
+		RangePartition first = new RangePartition("ID", null, BigDecimal.TEN);
+		assertEquals("(ID < ? or ID is null)", first.getCondition());
+		assertEquals(1, first.getParameters().length);
+		
+		RangePartition last = new RangePartition("ID", BigDecimal.TEN, null);
+		assertEquals("ID >= ?", last.getCondition());
+		
+		RangePartition middle = new RangePartition("ID", BigDecimal.ONE, BigDecimal.TEN);
+		assertEquals("ID >= ? and ID < ?", middle.getCondition());
+		assertEquals(2, middle.getParameters().length);
+		
+		assertNull(RangePartition.all().getCondition());
+	}
+}
@@ -1,6 +1,13 @@
 package net.mikaboshi.jdbc;
 
+import static org.junit.Assert.*;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
 
 import net.mikaboshi.csv.StandardCSVStrategy;
 import net.mikaboshi.jdbc.QueryExecutor;
@@ -43,4 +50,127 @@ public class ResultSetToCSVHandlerTest extends HSQLDBTestCase {
 		QueryExecutor queryExec = new QueryExecutor(getConnection(), handler);
 		queryExec.execute("select * from EMP");
 	}
+
+	@Test
+	public void testPipelined() throws SQLException {
+		String expected = export(new SimpleFormatter(), false, 0, true);
+		
+		assertEquals(expected, export(new SimpleFormatter(), true, 0, true));
+		
+		// バッファが1行の場合
+		assertEquals(expected, export(new SimpleFormatter(), true, 1, true));
+	}
+	
+	@Test
+	public void testPipelined_NotDeferredFormatter() throws SQLException {
+		ResultDataFormatter formatter = new ResultDataFormatter() {
+			public String format(ResultSet rs, int columnIndex, int columnType)
+					throws SQLException {
+				String value = rs.getString(columnIndex);
+				return value == null ? "(null)" : value;
+			}
+		};
+		
+		assertEquals(
+				export(formatter, false, 0, false),
+				export(formatter, true, 2, false));
+	}
+	
+	@Test
+	public void testPipelined_Error() throws SQLException {
+		ResultSetHandler handler =
+			new ResultSetToCSVHandler(
+					getWriter(),
+					false,
+					false,
+					false,
+					new SimpleFormatter(),
+					new StandardCSVStrategy()) {
+			
+			@Override
+			protected void println(List<String> line) {
+				throw new IllegalStateException("println failed");
+			}
+		};
+		
+		((ResultSetToFileHandler) handler).setPipelined(true);
+		((ResultSetToFileHandler) handler).setPipelineCapacity(1);
+		
+		try {
+			new QueryExecutor(getConnection(), handler).execute("select * from EMP");
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("println failed", e.getMessage());
+		}
+	}
+	
+	private String export(
+			ResultDataFormatter formatter,
+			boolean pipelined,
+			int capacity,
+			boolean verbose) throws SQLException {
+		
+		StringWriter out = new StringWriter();
+		
+		ResultSetToCSVHandler handler =
+			new ResultSetToCSVHandler(
+					new PrintWriter(out),
+					true,
+					verbose,
+					verbose,
+					formatter,
+					new StandardCSVStrategy());
+		
+		handler.setPipelined(pipelined);
+		
+		if (capacity > 0) {
+			handler.setPipelineCapacity(capacity);
+		}
+		
+		new QueryExecutor(getConnection(), handler).execute("select * from EMP order by EMPNO");
+		
+		return out.toString();
+	}
+
+	@Test
+	public void testHandle_NoMetaDataPerRow() throws SQLException {
+		StringWriter out = new StringWriter();
+		
+		ResultSetToCSVHandler handler =
+			new ResultSetToCSVHandler(
+					new PrintWriter(out),
+					false,
+					false,
+					true,
+					new SimpleFormatter(),
+					new StandardCSVStrategy());
+		
+		Statement stmt = getConnection().createStatement();
+		
+		try {
+			ResultSet rs = stmt.executeQuery("select EMPNO, ENAME from EMP order by EMPNO");
+			
+			JdbcRecorder recorder = new JdbcRecorder();
+			ResultSet proxy = recorder.wrap(rs, ResultSet.class);
+			
+			handler.before(rs.getMetaData());
+			
+			while (proxy.next()) {
+				handler.handle(proxy);
+			}
+			
+			handler.after();
+			handler.close();
+			
+			assertEquals(0, recorder.getCount("getMetaData"));
+			
+		} finally {
+			stmt.close();
+		}
+		
+		String[] lines = out.toString().split("\r\n|\n");
+		assertEquals(14, lines.length);
+		assertEquals("1,7369,SMITH", lines[0]);
+		assertEquals("14,7934,MILLER", lines[13]);
+	}
 }
@@ -0,0 +1,90 @@
+package net.mikaboshi.jdbc;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import net.mikaboshi.jdbc.SetBasedReplacer.Dialect;
+
+import org.junit.Test;
+
+public class SetBasedReplacerTest {
+	
+	private static final String[] COLUMNS = new String[] {"ID", "NAME", "AGE"};
+	
+	private static final String[] KEYS = new String[] {"ID"};
+	
+	private String apply(Dialect dialect, String[] columns) {
+		return Arrays.asList(SetBasedReplacer.createApplySqls(
+				dialect, "T", "STG_T", columns, KEYS)).toString();
+	}
+	
+	/**
+	 * MERGE文
+	 */
+	@Test
+	public void testMerge() {
+		assertEquals(
+				"[merge into T t using STG_T s on (t.ID = s.ID)" +
+				" when matched then update set NAME = s.NAME, AGE = s.AGE" +
+				" when not matched then insert (ID, NAME, AGE) values (s.ID, s.NAME, s.AGE)]",
+				apply(Dialect.MERGE, COLUMNS));
+		
+		// 主キーのみ
+		assertEquals(
+				"[merge into T t using STG_T s on (t.ID = s.ID)" +
+				" when not matched then insert (ID) values (s.ID);]",
+				apply(Dialect.SQLSERVER, KEYS));
+	}
+	
+	/**
+	 * INSERT ... ON CONFLICT / ON DUPLICATE KEY UPDATE
+	 */
+	@Test
+	public void testInsertOnConflict() {
+		assertEquals(
+				"[insert into T (ID, NAME, AGE) select s.ID, s.NAME, s.AGE from STG_T s" +
+				" on conflict (ID) do update set NAME = excluded.NAME, AGE = excluded.AGE]",
+				apply(Dialect.POSTGRESQL, COLUMNS));
+		
+		assertEquals(
+				"[insert into T (ID) select s.ID from STG_T s on conflict (ID) do nothing]",
+				apply(Dialect.POSTGRESQL, KEYS));
+		
+		assertEquals(
+				"[insert into T (ID, NAME, AGE) select s.ID, s.NAME, s.AGE from STG_T s" +
+				" on duplicate key update NAME = s.NAME, AGE = s.AGE]",
+				apply(Dialect.MYSQL, COLUMNS));
+	}
+	
+	/**
+	 * UPDATEとINSERT ... WHERE NOT EXISTS
+	 */
+	@Test
+	public void testGeneric() {
+		assertEquals(
+				"[update T set NAME = (select s.NAME from STG_T s where s.ID = T.ID)," +
+				" AGE = (select s.AGE from STG_T s where s.ID = T.ID)" +
+				" where exists (select 1 from STG_T s where s.ID = T.ID)," +
+				" insert into T (ID, NAME, AGE) select s.ID, s.NAME, s.AGE from STG_T s" +
+				" where not exists (select 1 from T t where t.ID = s.ID)]",
+				apply(Dialect.GENERIC, COLUMNS));
+		
+		// 主キーのみ
+		assertEquals(
+				"[insert into T (ID) select s.ID from STG_T s" +
+				" where not exists (select 1 from T t where t.ID = s.ID)]",
+				apply(Dialect.GENERIC, KEYS));
+	}
+	
+	/**
+	 * 一時テーブル名
+	 */
+	@Test
+	public void testCreateTemporaryTableName() {
+		assertEquals("STG_EMP", SetBasedReplacer.createTemporaryTableName("SCOTT.EMP", Dialect.MERGE));
+		assertEquals("#STG_EMP", SetBasedReplacer.createTemporaryTableName("EMP", Dialect.SQLSERVER));
+		assertEquals("STG_ABCDEFGHIJKLMNOPQRSTUVWXYZ",
+				SetBasedReplacer.createTemporaryTableName("ABCDEFGHIJKLMNOPQRSTUVWXYZ0123", Dialect.GENERIC));
+	}
+}
@@ -0,0 +1,212 @@
+package net.mikaboshi.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+import net.mikaboshi.csv.StandardCSVStrategy;
+
+import org.junit.Test;
+
+public class TypedFormatterTest extends HSQLDBTestCase {
+
+	private void createTable() throws SQLException {
+		DmlExecutor.execute(getConnection(),
+				"create table TYPED_FORMATTER_TEST (" +
+				"id integer primary key, " +
+				"c_tinyint tinyint, " +
+				"c_smallint smallint, " +
+				"c_bigint bigint, " +
+				"c_real real, " +
+				"c_double double, " +
+				"c_numeric numeric(10, 2), " +
+				"c_char char(5), " +
+				"c_varchar varchar(10), " +
+				"c_date date, " +
+				"c_time time, " +
+				"c_timestamp timestamp, " +
+				"c_boolean boolean)");
+		
+		DmlExecutor.execute(getConnection(),
+				"insert into TYPED_FORMATTER_TEST values (1, 12, -300, 9223372036854775807, " +
+				"1.5, -0.125, 12345.67, 'ab', 'xyz', '2010-01-02', '03:04:05', " +
+				"'2010-01-02 03:04:05.123', true)");
+		
+		DmlExecutor.execute(getConnection(),
+				"insert into TYPED_FORMATTER_TEST values (2, null, null, null, " +
+				"null, null, null, null, null, null, null, null, null)");
+		
+		DmlExecutor.execute(getConnection(),
+				"insert into TYPED_FORMATTER_TEST values (3, 0, 0, -9223372036854775808, " +
+				"0, 0, 0, '', '', '1999-12-31', '23:59:59', " +
+				"'1999-12-31 23:59:59.0', false)");
+		
+		// floatでは正確に表せないREALの値
+		DmlExecutor.execute(getConnection(),
+				"insert into TYPED_FORMATTER_TEST values (4, null, null, null, " +
+				"1234567.89, null, null, null, null, null, null, null, null)");
+	}
+	
+	private void dropTable() throws SQLException {
+		DmlExecutor.execute(getConnection(), "drop table TYPED_FORMATTER_TEST");
+	}
+	
+	@Test
+	public void testFormat_SameAsSimpleFormatter() throws SQLException {
+		createTable();
+		
+		try {
+			SimpleFormatter simple = new SimpleFormatter();
+			simple.setNullString("\\N");
+			
+			TypedFormatter typed = new TypedFormatter();
+			typed.setNullString("\\N");
+			
+			Statement stmt = getConnection().createStatement();
+			
+			try {
+				ResultSet rs = stmt.executeQuery("select * from TYPED_FORMATTER_TEST order by id");
+				ResultSetMetaData meta = rs.getMetaData();
+				int rows = 0;
+			
+				while (rs.next()) {
+					rows++;
+				
+					for (int i = 1; i <= meta.getColumnCount(); i++) {
+						int type = meta.getColumnType(i);
+						String expected = simple.format(rs, i, type);
+					
+						assertEquals(meta.getColumnName(i), expected, typed.format(rs, i, type));
+						assertEquals(meta.getColumnName(i), expected,
+								typed.formatValue(typed.getValue(rs, i, type), type));
+					}
+				}
+			
+				assertEquals(4, rows);
+			
+			} finally {
+				stmt.close();
+			}
+			
+		} finally {
+			dropTable();
+		}
+	}
+	
+	@Test
+	public void testFormat_Null() throws SQLException {
+		createTable();
+		
+		try {
+			TypedFormatter typed = new TypedFormatter();
+			typed.setNullString("(null)");
+			
+			Statement stmt = getConnection().createStatement();
+			
+			try {
+				ResultSet rs = stmt.executeQuery("select * from TYPED_FORMATTER_TEST where id = 2");
+				assertTrue(rs.next());
+			
+				// プリミティブ型で取得するカラムも、wasNullでnullと判定する
+				assertEquals("(null)", typed.format(rs, 2, Types.TINYINT));
+				assertEquals("(null)", typed.format(rs, 4, Types.BIGINT));
+				assertEquals("(null)", typed.format(rs, 6, Types.DOUBLE));
+				assertEquals("(null)", typed.format(rs, 13, Types.BOOLEAN));
+				assertNull(typed.getValue(rs, 4, Types.BIGINT));
+			
+			} finally {
+				stmt.close();
+			}
+			
+		} finally {
+			dropTable();
+		}
+	}
+	
+	@Test
+	public void testFormat_Real() throws SQLException {
+		createTable();
+		
+		try {
+			TypedFormatter typed = new TypedFormatter();
+			
+			Statement stmt = getConnection().createStatement();
+			
+			try {
+				ResultSet rs = stmt.executeQuery("select c_real from TYPED_FORMATTER_TEST where id = 4");
+				assertTrue(rs.next());
+				
+				assertEquals(String.valueOf(rs.getObject(1)), typed.format(rs, 1, Types.REAL));
+				assertEquals(rs.getObject(1), typed.getValue(rs, 1, Types.REAL));
+				
+			} finally {
+				stmt.close();
+			}
+			
+		} finally {
+			dropTable();
+		}
+	}
+	
+	@Test
+	public void testFormat_MetaDataOncePerResultSet() throws SQLException {
+		TypedFormatter typed = new TypedFormatter();
+		
+		Statement stmt = getConnection().createStatement();
+		
+		try {
+			JdbcRecorder recorder = new JdbcRecorder();
+			ResultSet proxy = recorder.wrap(stmt.executeQuery("select * from EMP"), ResultSet.class);
+			
+			while (proxy.next()) {
+				for (int i = 1; i <= 8; i++) {
+					typed.format(proxy, i, Types.OTHER);
+				}
+			}
+			
+			assertEquals(1, recorder.getCount("getMetaData"));
+			
+		} finally {
+			stmt.close();
+		}
+	}
+	
+	@Test
+	public void testResultSetToCSVHandler() throws SQLException {
+		createTable();
+		
+		try {
+			assertEquals(export(new SimpleFormatter(), false), export(new TypedFormatter(), false));
+			assertEquals(export(new SimpleFormatter(), false), export(new TypedFormatter(), true));
+			
+		} finally {
+			dropTable();
+		}
+	}
+	
+	private String export(ResultDataFormatter formatter, boolean pipelined) throws SQLException {
+		StringWriter out = new StringWriter();
+		
+		ResultSetToCSVHandler handler =
+			new ResultSetToCSVHandler(
+					new PrintWriter(out),
+					true,
+					false,
+					false,
+					formatter,
+					new StandardCSVStrategy());
+		
+		handler.setPipelined(pipelined);
+		
+		new QueryExecutor(getConnection(), handler).execute(
+				"select * from TYPED_FORMATTER_TEST order by id");
+		
+		return out.toString();
+	}
+}
@@ -0,0 +1,107 @@
+package net.mikaboshi.jdbc.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class CSVRowInputStreamTest {
+	
+	private static String read(List<String[]> rows, int columnCount, String nullValue)
+			throws IOException {
+		
+		CSVRowInputStream in = new CSVRowInputStream(rows.iterator(), columnCount, nullValue);
+		return new String(IOUtils.toByteArray(in), CSVRowInputStream.CHARSET);
+	}
+	
+	/**
+	 * 値は引用符で囲み、nullは指定した文字列
+	 * @throws IOException
+	 */
+	@Test
+	public void testRead() throws IOException {
+		List<String[]> rows = new ArrayList<String[]>();
+		rows.add(new String[] {"1", "abc", null});
+		rows.add(new String[] {"2", "", "x\"y"});
+		
+		assertEquals(
+				"\"1\",\"abc\",\n\"2\",\"\",\"x\"\"y\"\n",
+				read(rows, 3, ""));
+		
+		assertEquals(
+				"\"1\",\"abc\",NULL\n\"2\",\"\",\"x\"\"y\"\n",
+				read(rows, 3, "NULL"));
+	}
+	
+	/**
+	 * 改行と、ASCII以外の文字
+	 * @throws IOException
+	 */
+	@Test
+	public void testReadMultiLineAndUnicode() throws IOException {
+		List<String[]> rows = new ArrayList<String[]>();
+		rows.add(new String[] {"a\r\nb", "日本"});
+		
+		assertEquals("\"a\r\nb\",\"日本\"\n", read(rows, 2, ""));
+	}
+	
+	/**
+	 * 行データがない場合
+	 * @throws IOException
+	 */
+	@Test
+	public void testReadEmpty() throws IOException {
+		CSVRowInputStream in = new CSVRowInputStream(
+				new ArrayList<String[]>().iterator(), 1, "");
+		
+		assertEquals(-1, in.read());
+		assertEquals(0L, in.getRowCount());
+	}
+	
+	/**
+	 * 複数のチャンクに分かれる場合
+	 * @throws IOException
+	 */
+	@Test
+	public void testReadLarge() throws IOException {
+		List<String[]> rows = new ArrayList<String[]>();
+		StringBuilder expected = new StringBuilder();
+		
+		for (int i = 0; i < 5000; i++) {
+			rows.add(new String[] {String.valueOf(i), "name" + i});
+			expected.append("\"" + i + "\",\"name" + i + "\"\n");
+		}
+		
+		CSVRowInputStream in = new CSVRowInputStream(rows.iterator(), 2, "");
+		
+		StringBuilder actual = new StringBuilder();
+		int c;
+		
+		// 1バイトずつ読み込んでも同じ
+		while ((c = in.read()) != -1) {
+			actual.append((char) c);
+		}
+		
+		assertEquals(expected.toString(), actual.toString());
+		assertEquals(5000L, in.getRowCount());
+	}
+	
+	/**
+	 * 値の数がカラム数と異なる場合
+	 */
+	@Test
+	public void testReadInvalidColumnCount() {
+		try {
+			read(Arrays.asList(new String[] {"1", "2"}, new String[] {"3"}), 2, "");
+			fail();
+		} catch (IOException e) {
+			// OK
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package net.mikaboshi.jdbc.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import net.mikaboshi.jdbc.ArrayToDbImporter;
+import net.mikaboshi.jdbc.DbTestCase;
+import net.mikaboshi.jdbc.DbUtils;
+import net.mikaboshi.jdbc.QueryExecutor;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("boxing")
+public class HSQLDBBulkLoaderTest {
+	
+	private File directory;
+	
+	private Connection conn;
+	
+	@Before
+	public void setUp() throws Exception {
+		// テキストテーブルは、ファイルのDBでのみ作成できる
+		this.directory = File.createTempFile("bulkdb", "");
+		this.directory.delete();
+		this.directory.mkdirs();
+		
+		Class.forName("org.hsqldb.jdbcDriver");
+		
+		this.conn = DriverManager.getConnection(
+				"jdbc:hsqldb:file:" + new File(this.directory, "test").getAbsolutePath() + ";shutdown=true",
+				"sa",
+				"");
+		this.conn.setAutoCommit(false);
+		
+		Statement stmt = this.conn.createStatement();
+		
+		try {
+			stmt.execute("create table BULK_TAB (ID INTEGER primary key, NAME VARCHAR(20), " +
+					"PRICE DECIMAL(7, 2), CREATED DATE)");
+		} finally {
+			DbUtils.closeQuietly(stmt);
+		}
+		
+		this.conn.commit();
+	}
+	
+	@After
+	public void tearDown() throws IOException {
+		DbUtils.rollbackQuietly(this.conn);
+		DbUtils.closeQuietly(this.conn);
+		FileUtils.deleteDirectory(this.directory);
+	}
+	
+	@Test
+	public void testGetBulkLoader() throws SQLException, IOException, ClassNotFoundException {
+		assertTrue(BulkLoaders.getBulkLoader(this.conn) instanceof HSQLDBBulkLoader);
+		
+		// テキストテーブルの作成・削除でコミットされる
+		assertFalse(new HSQLDBBulkLoader().isTransactional());
+		
+		// メモリ上のDBは、テキストテーブルを作成できない
+		Connection memoryConnection = DbUtils.getConnection(
+				DbTestCase.getTestPath("jdbc_hsqldb_in-memory.properties"));
+		
+		try {
+			assertFalse(new HSQLDBBulkLoader().isSupported(memoryConnection));
+			assertNull(BulkLoaders.getBulkLoader(memoryConnection));
+		} finally {
+			DbUtils.closeQuietly(memoryConnection);
+		}
+	}
+	
+	@Test
+	public void testGetDatabaseDirectory() {
+		assertEquals(new File("/var/db").getAbsoluteFile(),
+				HSQLDBBulkLoader.getDatabaseDirectory("jdbc:hsqldb:file:/var/db/test;shutdown=true"));
+		assertEquals(new File("db").getAbsoluteFile(),
+				HSQLDBBulkLoader.getDatabaseDirectory("jdbc:hsqldb:db/test"));
+		assertNull(HSQLDBBulkLoader.getDatabaseDirectory("jdbc:hsqldb:mem:test"));
+		assertNull(HSQLDBBulkLoader.getDatabaseDirectory("jdbc:hsqldb:hsql://localhost/test"));
+		assertNull(HSQLDBBulkLoader.getDatabaseDirectory("jdbc:h2:/var/db/test"));
+	}
+	
+	/**
+	 * カラムの順序とnullStringを適用して一括ロード
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	@Test
+	public void testExecuteBulk() throws SQLException, IOException {
+		List<String[]> rows = new ArrayList<String[]>();
+		rows.add(new String[] {"apple", "1", "100.5", "2010-01-02"});
+		rows.add(new String[] {"NULL", "2", "NULL", "NULL"});
+		rows.add(new String[] {"", "3", "0", "2010-12-31"});
+		rows.add(new String[] {"a \"b\"\nc", "4", "-1.25", "NULL"});
+		rows.add(new String[] {"日本", "5", "1", "NULL"});
+		
+		ArrayToDbImporter importer = new ArrayToDbImporter(this.conn);
+		importer.setTableName("bulk_tab");
+		importer.setColumnNames(new String[] {"name", "id", "price", "created"});
+		importer.setNullString("NULL");
+		importer.initialize();
+		
+		try {
+			assertEquals(5, importer.executeBulk(new HSQLDBBulkLoader(), rows.iterator()));
+		} finally {
+			importer.close();
+		}
+		
+		List<Map<String, Object>> result = QueryExecutor.query(this.conn,
+				"select ID, NAME, PRICE, CREATED from BULK_TAB order by ID");
+		
+		assertEquals(5, result.size());
+		
+		assertEquals("apple", result.get(0).get("NAME"));
+		assertEquals(0, new BigDecimal("100.5").compareTo((BigDecimal) result.get(0).get("PRICE")));
+		assertEquals("2010-01-02", result.get(0).get("CREATED").toString());
+		
+		assertNull(result.get(1).get("NAME"));
+		assertNull(result.get(1).get("PRICE"));
+		assertNull(result.get(1).get("CREATED"));
+		
+		assertEquals("", result.get(2).get("NAME"));
+		assertEquals("a \"b\"\nc", result.get(3).get("NAME"));
+		assertEquals("日本", result.get(4).get("NAME"));
+		
+		// テキストテーブルと一時ファイルは削除される
+		assertEquals(0, FileUtils.listFiles(this.directory, new String[] {"csv"}, false).size());
+		assertEquals(0, QueryExecutor.query(this.conn,
+				"select TABLE_NAME from INFORMATION_SCHEMA.SYSTEM_TABLES " +
+				"where TABLE_NAME like 'STG_BULK%'").size());
+	}
+	
+	/**
+	 * 行データがない場合
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	@Test
+	public void testExecuteBulkEmpty() throws SQLException, IOException {
+		ArrayToDbImporter importer = new ArrayToDbImporter(this.conn);
+		importer.setTableName("BULK_TAB");
+		importer.initialize();
+		
+		try {
+			assertEquals(0, importer.executeBulk(
+					new HSQLDBBulkLoader(), new ArrayList<String[]>().iterator()));
+		} finally {
+			importer.close();
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package net.mikaboshi.jdbc.schema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class NameIndexTest {
+	
+	@Test
+	public void testGet() {
+		NameIndex<String> index = NameIndex.of(Arrays.asList("EMP", "Dept", "sample_tab1"));
+		
+		assertEquals(3, index.size());
+		
+		assertEquals("EMP", index.get("EMP", true));
+		assertNull(index.get("emp", true));
+		assertEquals("EMP", index.get("emp", false));
+		assertEquals("Dept", index.get("DEPT", false));
+		assertEquals("sample_tab1", index.get("Sample_Tab1", false));
+		assertNull(index.get("SAMPLE_TAB2", false));
+		assertNull(index.get(null, false));
+	}
+	
+	/**
+	 * 大文字/小文字だけが異なる名前がある場合は、完全に一致するものを優先し、
+	 * それ以外は先に追加したもの
+	 */
+	@Test
+	public void testGetAmbiguous() {
+		NameIndex<String> index = NameIndex.of(Arrays.asList("name", "NAME", "Name"));
+		
+		assertEquals("NAME", index.get("NAME", false));
+		assertEquals("Name", index.get("Name", false));
+		assertEquals("name", index.get("nAME", false));
+	}
+	
+	/**
+	 * 同じ名前は追加しない
+	 */
+	@Test
+	public void testPutDuplicate() {
+		NameIndex<Integer> index = new NameIndex<Integer>();
+		
+		assertTrue(index.put("A", 1));
+		assertFalse(index.put("A", 2));
+		assertTrue(index.put("a", 3));
+		
+		assertEquals(Integer.valueOf(1), index.get("A", true));
+		assertEquals(Integer.valueOf(3), index.get("a", true));
+		assertEquals(2, index.size());
+	}
+	
+	/**
+	 * String#equalsIgnoreCase と同じ規則で判定する
+	 */
+	@Test
+	public void testNormalize() {
+		String[][] pairs = {
+				{"ABC", "abc"},
+				{"İ", "i"},	// I（ドット付き）
+				{"ı", "I"},	// i（ドットなし）
+				{"ß", "SS"},	// ß
+				{"Ａ", "ａ"},	// 全角A, a
+		};
+		
+		for (String[] pair : pairs) {
+			assertEquals(pair[0] + ", " + pair[1],
+					pair[0].equalsIgnoreCase(pair[1]),
+					NameIndex.normalize(pair[0]).equals(NameIndex.normalize(pair[1])));
+		}
+	}
+	
+	/**
+	 * カラム情報の索引
+	 */
+	@Test
+	public void testOfColumns() {
+		List<ColumnInfo> columns = new ArrayList<ColumnInfo>();
+		
+		for (int i = 0; i < 1000; i++) {
+			ColumnInfo column = new ColumnInfo();
+			column.setColumnName("COL" + i);
+			columns.add(column);
+		}
+		
+		NameIndex<ColumnInfo> index = NameIndex.ofColumns(columns);
+		
+		assertEquals(1000, index.size());
+		assertSame(columns.get(999), index.get("col999", false));
+		assertNull(index.get("col999", true));
+	}
+}
@@ -0,0 +1,141 @@
+package net.mikaboshi.jdbc.schema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+
+import net.mikaboshi.jdbc.JdbcRecorder;
+
+import org.junit.Test;
+
+public class ParameterBinderTest {
+	
+	/** PreparedStatementのメソッド呼び出しを記録する */
+	private JdbcRecorder recorder = new JdbcRecorder();
+	
+	private PreparedStatement createStatement() {
+		return this.recorder.wrap(null, PreparedStatement.class);
+	}
+	
+	/**
+	 * 文字列の値を、データ型に応じて設定する
+	 * @throws SQLException
+	 */
+	@Test
+	public void testBindString() throws SQLException {
+		ParameterBinder binder = new ParameterBinder(new int[] {
+				Types.INTEGER, Types.BIGINT, Types.REAL, Types.DOUBLE,
+				Types.DECIMAL, Types.VARCHAR, Types.DATE });
+		
+		assertEquals(7, binder.getParameterCount());
+		
+		binder.bind(createStatement(), new String[] {
+				"12", "12345678901", "1.5", "-2.5e3", "1.50", "abc", null });
+		
+		assertEquals(Arrays.asList(
+				"clearParameters",
+				"setInt[1, 12]",
+				"setLong[2, 12345678901]",
+				"setFloat[3, 1.5]",
+				"setDouble[4, -2500.0]",
+				"setBigDecimal[5, 1.50]",
+				"setObject[6, abc, " + Types.VARCHAR + "]",
+				"setObject[7, null, " + Types.DATE + "]"),
+				this.recorder.getCalls());
+	}
+	
+	/**
+	 * 整数型に小数点を含む文字列を設定する（DataTypeUtils.setParameterと同じく切り捨て）
+	 * @throws SQLException
+	 */
+	@Test
+	public void testBindIntegerWithFraction() throws SQLException {
+		ParameterBinder binder = new ParameterBinder(new int[] {
+				Types.SMALLINT, Types.BIGINT });
+		
+		binder.bind(createStatement(), new String[] {"1.9", "1e3"});
+		
+		assertEquals(Arrays.asList(
+				"clearParameters",
+				"setInt[1, 1]",
+				"setLong[2, 1000]"),
+				this.recorder.getCalls());
+	}
+	
+	/**
+	 * BigDecimalで受け付けない文字列は、浮動小数点型でもエラーとする
+	 * @throws SQLException
+	 */
+	@Test
+	public void testBindInvalidDouble() throws SQLException {
+		ParameterBinder binder = new ParameterBinder(new int[] {Types.DOUBLE});
+		
+		try {
+			binder.bind(createStatement(), new String[] {"NaN"});
+			fail();
+		} catch (NumberFormatException e) {
+		}
+	}
+	
+	/**
+	 * 文字列以外の値
+	 * @throws SQLException
+	 */
+	@Test
+	public void testBindObject() throws SQLException {
+		ParameterBinder binder = new ParameterBinder(new int[] {
+				Types.INTEGER, Types.DECIMAL });
+		
+		binder.bind(createStatement(), new Object[] {
+				Integer.valueOf(3), new BigDecimal("1.25") });
+		
+		assertEquals(Arrays.asList(
+				"clearParameters",
+				"setObject[1, 3, " + Types.INTEGER + "]",
+				"setObject[2, 1.25, " + Types.DECIMAL + ", 2]"),
+				this.recorder.getCalls());
+	}
+	
+	/**
+	 * 位置を指定して設定する（パラメータはクリアしない）
+	 * @throws SQLException
+	 */
+	@Test
+	public void testBindWithOffset() throws SQLException {
+		ParameterBinder binder = new ParameterBinder(new int[] {
+				Types.INTEGER, Types.VARCHAR });
+		
+		PreparedStatement pstmt = createStatement();
+		binder.bind(pstmt, new String[] {"1", "a"}, 0);
+		binder.bind(pstmt, new String[] {"2", "b"}, 2);
+		
+		assertEquals(Arrays.asList(
+				"setInt[1, 1]",
+				"setObject[2, a, " + Types.VARCHAR + "]",
+				"setInt[3, 2]",
+				"setObject[4, b, " + Types.VARCHAR + "]"),
+				this.recorder.getCalls());
+	}
+	
+	/**
+	 * 行データの長さが一致しない場合
+	 * @throws SQLException
+	 */
+	@Test
+	public void testLengthMismatch() throws SQLException {
+		ParameterBinder binder = new ParameterBinder(new int[] {Types.INTEGER});
+		
+		try {
+			binder.bind(createStatement(), new String[] {"1", "2"});
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+		
+		assertEquals(0, this.recorder.getCalls().size());
+	}
+}
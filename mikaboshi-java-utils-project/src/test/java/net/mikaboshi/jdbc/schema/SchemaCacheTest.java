@@ -0,0 +1,144 @@
+package net.mikaboshi.jdbc.schema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+
+import net.mikaboshi.jdbc.ArrayToDbImporter;
+import net.mikaboshi.jdbc.HSQLDBTestCase;
+import net.mikaboshi.jdbc.JdbcRecorder;
+
+import org.junit.Test;
+
+public class SchemaCacheTest extends HSQLDBTestCase {
+	
+	/** DatabaseMetaDataのメソッドの呼び出しを記録する */
+	private JdbcRecorder calls = new JdbcRecorder().wrapResults(DatabaseMetaData.class);
+	
+	/**
+	 * DatabaseMetaDataのメソッドの呼び出し回数を記録するコネクションを返す。
+	 */
+	private Connection createCountingConnection() {
+		return this.calls.wrap(getConnection(), Connection.class);
+	}
+	
+	/**
+	 * 同じ引数の場合は、DBに問い合わせない
+	 * @throws SQLException
+	 */
+	@Test
+	public void testCache() throws SQLException {
+		SchemaCache cache = new SchemaCache(createCountingConnection());
+		
+		Set<String> tableNames = cache.getAllTableNames(null, null, null, null);
+		assertTrue(tableNames.contains("SAMPLE_TAB1"));
+		assertSame(tableNames, cache.getAllTableNames(null, null, null, null));
+		assertEquals(1, this.calls.getCount("getTables"));
+		
+		List<ColumnInfo> columns = cache.getColumnInfo(null, null, "SAMPLE_TAB1", null);
+		assertEquals(2, columns.size());
+		assertSame(columns, cache.getColumnInfo(null, null, "SAMPLE_TAB1", null));
+		assertTrue(cache.existsTable(null, null, "SAMPLE_TAB1"));
+		assertEquals(1, this.calls.getCount("getColumns"));
+		
+		// 引数が異なる場合は、問い合わせる
+		assertEquals(3, cache.getColumnInfo(null, null, "SAMPLE_TAB2", null).size());
+		assertEquals(2, this.calls.getCount("getColumns"));
+		
+		Set<PrimaryKeyInfo> keys = cache.getPrimaryKeys(null, null, "SAMPLE_TAB2");
+		assertEquals(1, keys.size());
+		assertEquals(2, keys.iterator().next().getColumnNames().length);
+		assertSame(keys, cache.getPrimaryKeys(null, null, "SAMPLE_TAB2"));
+		assertEquals(1, this.calls.getCount("getPrimaryKeys"));
+		
+		// 変更不可
+		try {
+			columns.clear();
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// OK
+		}
+	}
+	
+	/**
+	 * 有効期間が経過した場合は、問い合わせる
+	 * @throws SQLException
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testTtl() throws SQLException, InterruptedException {
+		SchemaCache cache = new SchemaCache(createCountingConnection(), 1L);
+		
+		cache.getColumnInfo(null, null, "SAMPLE_TAB1", null);
+		Thread.sleep(10L);
+		cache.getColumnInfo(null, null, "SAMPLE_TAB1", null);
+		assertEquals(2, this.calls.getCount("getColumns"));
+		
+		// 無期限
+		cache.setTtl(0L);
+		Thread.sleep(10L);
+		cache.getColumnInfo(null, null, "SAMPLE_TAB1", null);
+		assertEquals(2, this.calls.getCount("getColumns"));
+	}
+	
+	/**
+	 * キャッシュの破棄
+	 * @throws SQLException
+	 */
+	@Test
+	public void testInvalidate() throws SQLException {
+		SchemaCache cache = new SchemaCache(createCountingConnection());
+		
+		cache.getAllTableNames(null, null, null, null);
+		cache.getColumnInfo(null, null, "SAMPLE_TAB1", null);
+		cache.getColumnInfo(null, null, "SAMPLE_TAB2", null);
+		
+		// 指定したテーブルと、テーブル名のセットのみ破棄
+		cache.invalidateTable("sample_tab1");
+		
+		cache.getAllTableNames(null, null, null, null);
+		cache.getColumnInfo(null, null, "SAMPLE_TAB1", null);
+		cache.getColumnInfo(null, null, "SAMPLE_TAB2", null);
+		assertEquals(2, this.calls.getCount("getTables"));
+		assertEquals(3, this.calls.getCount("getColumns"));
+		
+		cache.invalidate();
+		
+		cache.getColumnInfo(null, null, "SAMPLE_TAB2", null);
+		assertEquals(4, this.calls.getCount("getColumns"));
+	}
+	
+	/**
+	 * 複数のインポーターで共有する
+	 * @throws SQLException
+	 */
+	@Test
+	public void testSharedByImporters() throws SQLException {
+		Connection conn = createCountingConnection();
+		SchemaCache cache = new SchemaCache(conn);
+		
+		for (String tableName : new String[] {"sample_tab1", "SAMPLE_TAB2", "sample_tab1"}) {
+			ArrayToDbImporter importer = new ArrayToDbImporter(conn);
+			importer.setTableName(tableName);
+			importer.setReplace(true);
+			importer.setSchemaCache(cache);
+			
+			try {
+				importer.initialize();
+			} finally {
+				importer.close();
+			}
+		}
+		
+		assertEquals(1, this.calls.getCount("getTables"));
+		assertEquals(2, this.calls.getCount("getColumns"));
+		assertEquals(2, this.calls.getCount("getPrimaryKeys"));
+	}
+}